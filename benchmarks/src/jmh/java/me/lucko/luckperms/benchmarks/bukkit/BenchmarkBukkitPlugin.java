@@ -0,0 +1,63 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks.bukkit;
+
+import me.lucko.luckperms.bukkit.LPBukkitPlugin;
+import me.lucko.luckperms.common.model.manager.group.StandardGroupManager;
+import me.lucko.luckperms.common.model.manager.user.StandardUserManager;
+import me.lucko.luckperms.common.plugin.TestPlugin;
+import me.lucko.luckperms.common.treeview.PermissionRegistry;
+
+/**
+ * An {@link LPBukkitPlugin} which is never enabled, used to back the Bukkit
+ * specific permission processors in benchmarks.
+ *
+ * <p>The services used by the processors and the injected permission maps
+ * are provided by a {@link TestPlugin}.</p>
+ */
+public class BenchmarkBukkitPlugin extends LPBukkitPlugin {
+    private final TestPlugin delegate;
+
+    public BenchmarkBukkitPlugin(TestPlugin delegate) {
+        super(null);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public StandardUserManager getUserManager() {
+        return this.delegate.getUserManager();
+    }
+
+    @Override
+    public StandardGroupManager getGroupManager() {
+        return this.delegate.getGroupManager();
+    }
+
+    @Override
+    public PermissionRegistry getPermissionRegistry() {
+        return this.delegate.getPermissionRegistry();
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks.bukkit;
+
+import com.google.common.collect.ImmutableList;
+
+import me.lucko.luckperms.benchmarks.util.SyntheticData;
+import me.lucko.luckperms.bukkit.calculator.ChildProcessor;
+import me.lucko.luckperms.bukkit.calculator.DefaultsProcessor;
+import me.lucko.luckperms.bukkit.inject.server.LuckPermsDefaultsMap;
+import me.lucko.luckperms.bukkit.inject.server.LuckPermsPermissionMap;
+import me.lucko.luckperms.common.cacheddata.CacheMetadata;
+import me.lucko.luckperms.common.calculator.PermissionCalculator;
+import me.lucko.luckperms.common.calculator.processor.MapProcessor;
+import me.lucko.luckperms.common.calculator.processor.RegexProcessor;
+import me.lucko.luckperms.common.calculator.processor.WildcardProcessor;
+import me.lucko.luckperms.common.calculator.result.TristateResult;
+import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.plugin.TestPlugin;
+import me.lucko.luckperms.common.verbose.event.PermissionCheckEvent;
+
+import net.luckperms.api.query.QueryOptions;
+
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionDefault;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the Bukkit {@link ChildProcessor} and {@link DefaultsProcessor},
+ * and a {@link PermissionCalculator} configured in the same way as
+ * the one built by the BukkitCalculatorFactory.
+ *
+ * <p>A synthetic set of registered Bukkit permissions is generated, where
+ * each plugin registers a "plugin.*" parent with a tree of child permissions,
+ * and a portion of the permissions have a default value.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BukkitProcessorBenchmark {
+    private static final int QUERY_COUNT = 4096;
+
+    /** The number of permissions held by the user */
+    @Param({"100", "10000"})
+    public int size;
+
+    /** The number of registered Bukkit permissions */
+    @Param({"1000", "20000"})
+    public int registeredPermissions;
+
+    private TestPlugin plugin;
+    private ChildProcessor childProcessor;
+    private DefaultsProcessor defaultsProcessor;
+    private PermissionCalculator calculator;
+    private String[] queries;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.plugin = new TestPlugin();
+        BenchmarkBukkitPlugin bukkitPlugin = new BenchmarkBukkitPlugin(this.plugin);
+
+        List<Permission> registered = registeredPermissions(this.registeredPermissions, SyntheticData.SEED);
+        Map<String, Permission> permissionMap = new HashMap<>();
+        Map<Boolean, Set<Permission>> defaults = new HashMap<>();
+        defaults.put(Boolean.TRUE, new HashSet<>());
+        defaults.put(Boolean.FALSE, new HashSet<>());
+        for (Permission permission : registered) {
+            permissionMap.put(permission.getName().toLowerCase(), permission);
+            PermissionDefault def = permission.getDefault();
+            if (def.getValue(true)) {
+                defaults.get(Boolean.TRUE).add(permission);
+            }
+            if (def.getValue(false)) {
+                defaults.get(Boolean.FALSE).add(permission);
+            }
+        }
+        bukkitPlugin.setPermissionMap(new LuckPermsPermissionMap(bukkitPlugin, permissionMap));
+        bukkitPlugin.setDefaultPermissionMap(new LuckPermsDefaultsMap(bukkitPlugin, defaults));
+
+        // the users permissions include some of the registered parent permissions
+        Map<String, Boolean> source = new ConcurrentHashMap<>(SyntheticData.permissionMap(this.size, Math.max(1, this.size / 50), 4, SyntheticData.SEED));
+        Random random = new Random(SyntheticData.SEED);
+        for (int i = 0; i < Math.max(1, this.size / 20); i++) {
+            source.put(registered.get(random.nextInt(registered.size())).getName().toLowerCase(), true);
+        }
+
+        List<String> queries = new ArrayList<>();
+        for (String query : SyntheticData.queries(source, QUERY_COUNT / 2, SyntheticData.SEED)) {
+            queries.add(query);
+        }
+        while (queries.size() < QUERY_COUNT) {
+            queries.add(registered.get(random.nextInt(registered.size())).getName().toLowerCase());
+        }
+        this.queries = queries.toArray(new String[0]);
+
+        this.childProcessor = new ChildProcessor(bukkitPlugin);
+        this.childProcessor.setSource(source);
+        this.childProcessor.refresh();
+
+        this.defaultsProcessor = new DefaultsProcessor(bukkitPlugin, false);
+
+        QueryOptions queryOptions = QueryOptions.nonContextual();
+        this.calculator = new PermissionCalculator(this.plugin, new CacheMetadata(HolderType.USER, "benchmark", queryOptions), ImmutableList.of(
+                new MapProcessor(),
+                new ChildProcessor(bukkitPlugin),
+                new RegexProcessor(),
+                new WildcardProcessor(),
+                new DefaultsProcessor(bukkitPlugin, false)
+        ));
+        this.calculator.setSourcePermissions(source);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.plugin.close();
+    }
+
+    private String nextQuery() {
+        return this.queries[this.index++ & (QUERY_COUNT - 1)];
+    }
+
+    @Benchmark
+    public TristateResult childHasPermission() {
+        return this.childProcessor.hasPermission(nextQuery());
+    }
+
+    @Benchmark
+    public ChildProcessor childRefresh() {
+        this.childProcessor.refresh();
+        return this.childProcessor;
+    }
+
+    @Benchmark
+    public TristateResult defaultsHasPermission() {
+        return this.defaultsProcessor.hasPermission(nextQuery());
+    }
+
+    @Benchmark
+    public TristateResult calculatorWarmCheck() {
+        return this.calculator.checkPermission(nextQuery(), PermissionCheckEvent.Origin.INTERNAL);
+    }
+
+    @Benchmark
+    public TristateResult calculatorColdCheck() {
+        return this.calculator.apply(nextQuery());
+    }
+
+    private static List<Permission> registeredPermissions(int count, long seed) {
+        Random random = new Random(seed);
+        PermissionDefault[] defaults = PermissionDefault.values();
+
+        List<Permission> permissions = new ArrayList<>(count);
+        int plugin = 0;
+        while (permissions.size() < count) {
+            String base = "bukkitplugin" + plugin++;
+            Map<String, Boolean> parentChildren = new HashMap<>();
+
+            int children = 5 + random.nextInt(40);
+            for (int i = 0; i < children && permissions.size() < count; i++) {
+                String name = base + ".command" + i;
+                PermissionDefault def = random.nextInt(4) == 0 ? defaults[random.nextInt(defaults.length)] : PermissionDefault.FALSE;
+
+                Map<String, Boolean> subChildren = new HashMap<>();
+                for (int j = 0; j < random.nextInt(4); j++) {
+                    subChildren.put(name + ".sub" + j, random.nextBoolean());
+                }
+
+                permissions.add(new Permission(name, def, subChildren));
+                parentChildren.put(name, true);
+            }
+
+            permissions.add(new Permission(base + ".*", PermissionDefault.OP, parentChildren));
+        }
+        return permissions;
+    }
+}
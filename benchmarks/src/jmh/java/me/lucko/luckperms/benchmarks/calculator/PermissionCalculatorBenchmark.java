@@ -0,0 +1,122 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks.calculator;
+
+import me.lucko.luckperms.benchmarks.util.SyntheticData;
+import me.lucko.luckperms.common.cacheddata.CacheMetadata;
+import me.lucko.luckperms.common.calculator.PermissionCalculator;
+import me.lucko.luckperms.common.calculator.result.TristateResult;
+import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.plugin.TestPlugin;
+import me.lucko.luckperms.common.verbose.event.PermissionCheckEvent;
+
+import net.luckperms.api.query.QueryOptions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks permission checks made through a {@link PermissionCalculator}
+ * backed by the standard map, regex and wildcard processors.
+ *
+ * <p>"warm" checks are served by the calculators lookup cache, "cold" checks
+ * bypass the cache and run through each processor in turn, which is what
+ * happens for every distinct permission after the cache is invalidated.</p>
+ *
+ * <p>A lookup cache size smaller than the number of distinct queries shows the
+ * cost of eviction when the cache is bounded.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PermissionCalculatorBenchmark {
+    private static final int QUERY_COUNT = 4096;
+
+    @Param({"100", "10000"})
+    public int size;
+
+    @Param({"0", "1024"})
+    public int lookupCacheSize;
+
+    private TestPlugin plugin;
+    private Map<String, Boolean> source;
+    private PermissionCalculator calculator;
+    private String[] queries;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.plugin = new TestPlugin(config -> config.set("permission-lookup-cache-size", this.lookupCacheSize));
+        this.source = new ConcurrentHashMap<>(SyntheticData.permissionMap(this.size, Math.max(1, this.size / 50), 4, SyntheticData.SEED));
+        this.queries = SyntheticData.queries(this.source, QUERY_COUNT, SyntheticData.SEED);
+
+        QueryOptions queryOptions = QueryOptions.nonContextual();
+        this.calculator = this.plugin.getCalculatorFactory().build(queryOptions, new CacheMetadata(HolderType.USER, "benchmark", queryOptions));
+        this.calculator.setSourcePermissions(this.source);
+
+        // populate the lookup cache
+        for (String query : this.queries) {
+            this.calculator.checkPermission(query, PermissionCheckEvent.Origin.INTERNAL);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.plugin.close();
+    }
+
+    private String nextQuery() {
+        return this.queries[this.index++ & (QUERY_COUNT - 1)];
+    }
+
+    @Benchmark
+    public TristateResult warmCheck() {
+        return this.calculator.checkPermission(nextQuery(), PermissionCheckEvent.Origin.INTERNAL);
+    }
+
+    @Benchmark
+    public TristateResult coldCheck() {
+        return this.calculator.apply(nextQuery());
+    }
+
+    @Benchmark
+    public PermissionCalculator setSourcePermissions() {
+        this.calculator.setSourcePermissions(this.source);
+        return this.calculator;
+    }
+}
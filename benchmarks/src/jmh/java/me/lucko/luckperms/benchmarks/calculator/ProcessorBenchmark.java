@@ -0,0 +1,105 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks.calculator;
+
+import me.lucko.luckperms.benchmarks.util.SyntheticData;
+import me.lucko.luckperms.common.calculator.processor.MapProcessor;
+import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
+import me.lucko.luckperms.common.calculator.processor.RegexProcessor;
+import me.lucko.luckperms.common.calculator.processor.WildcardProcessor;
+import me.lucko.luckperms.common.calculator.result.TristateResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks the individual {@link PermissionProcessor}s used by all platforms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProcessorBenchmark {
+    private static final int QUERY_COUNT = 4096;
+
+    @Param({"map", "wildcard", "regex", "regex_linear"})
+    public String processorType;
+
+    @Param({"100", "10000"})
+    public int size;
+
+    /** The number of regex permissions held */
+    @Param({"4", "32"})
+    public int regexCount;
+
+    private PermissionProcessor processor;
+    private String[] queries;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Map<String, Boolean> source = SyntheticData.permissionMap(this.size, Math.max(1, this.size / 50), this.regexCount, SyntheticData.SEED);
+        this.queries = SyntheticData.queries(source, QUERY_COUNT, SyntheticData.SEED);
+
+        this.processor = Type.valueOf(this.processorType.toUpperCase()).supplier.get();
+        this.processor.setSource(source);
+        this.processor.refresh();
+    }
+
+    @Benchmark
+    public TristateResult hasPermission() {
+        return this.processor.hasPermission(this.queries[this.index++ & (QUERY_COUNT - 1)]);
+    }
+
+    @Benchmark
+    public PermissionProcessor refresh() {
+        this.processor.refresh();
+        return this.processor;
+    }
+
+    private enum Type {
+        MAP(MapProcessor::new),
+        WILDCARD(WildcardProcessor::new),
+        REGEX(RegexProcessor::new),
+        REGEX_LINEAR(LinearRegexProcessor::new);
+
+        private final Supplier<PermissionProcessor> supplier;
+
+        Type(Supplier<PermissionProcessor> supplier) {
+            this.supplier = supplier;
+        }
+    }
+}
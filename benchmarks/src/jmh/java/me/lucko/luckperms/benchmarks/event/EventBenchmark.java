@@ -0,0 +1,95 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks.event;
+
+import com.google.common.collect.ImmutableSet;
+
+import me.lucko.luckperms.benchmarks.util.SyntheticData;
+import me.lucko.luckperms.common.event.gen.GeneratedEventSpec;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.node.types.Permission;
+import me.lucko.luckperms.common.plugin.TestPlugin;
+
+import net.luckperms.api.event.node.NodeAddEvent;
+import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.node.Node;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the creation of, and access to, the generated event implementations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventBenchmark {
+    private TestPlugin plugin;
+    private GeneratedEventSpec spec;
+    private Object[] params;
+    private NodeAddEvent event;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.plugin = new TestPlugin();
+        Group group = SyntheticData.groupChain(this.plugin, "event", 1, 100, SyntheticData.SEED).get(0);
+        Node node = Permission.builder().permission("benchmark.event").build();
+
+        this.spec = GeneratedEventSpec.lookup(NodeAddEvent.class);
+        this.params = new Object[]{group.getApiDelegate(), DataType.NORMAL, ImmutableSet.of(), ImmutableSet.of(node), node};
+        this.event = (NodeAddEvent) this.spec.newInstance(null, this.params);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.plugin.close();
+    }
+
+    @Benchmark
+    public Object newInstance() {
+        return this.spec.newInstance(null, this.params);
+    }
+
+    @Benchmark
+    public void getters(Blackhole bh) {
+        bh.consume(this.event.getTarget());
+        bh.consume(this.event.getDataType());
+        bh.consume(this.event.getDataBefore());
+        bh.consume(this.event.getDataAfter());
+        bh.consume(this.event.getNode());
+        bh.consume(this.event.getEventType());
+    }
+}
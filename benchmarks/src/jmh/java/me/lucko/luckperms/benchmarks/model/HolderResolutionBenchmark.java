@@ -0,0 +1,125 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks.model;
+
+import me.lucko.luckperms.benchmarks.util.SyntheticData;
+import me.lucko.luckperms.common.cacheddata.type.PermissionCache;
+import me.lucko.luckperms.common.calculator.result.TristateResult;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.node.types.Permission;
+import me.lucko.luckperms.common.plugin.TestPlugin;
+import me.lucko.luckperms.common.verbose.event.PermissionCheckEvent;
+
+import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.query.QueryOptions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the resolution of a users permissions through a chain of
+ * inherited groups, and the first check made after the users cached data
+ * has been invalidated.
+ *
+ * <p>{@code toggleNode} measures adding or removing a single permission node
+ * on the user, followed by a check.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HolderResolutionBenchmark {
+    private static final int QUERY_COUNT = 1024;
+
+    /** The length of the group inheritance chain */
+    @Param({"1", "6", "20"})
+    public int depth;
+
+    /** The number of nodes held by each group in the chain */
+    @Param({"100", "2000"})
+    public int nodesPerGroup;
+
+    private TestPlugin plugin;
+    private User user;
+    private String[] queries;
+    private int index;
+    private Node toggledNode;
+    private boolean toggled;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.plugin = new TestPlugin();
+        List<Group> chain = SyntheticData.groupChain(this.plugin, "rank", this.depth, this.nodesPerGroup, SyntheticData.SEED);
+        this.user = SyntheticData.user(this.plugin, chain.get(0), 20, SyntheticData.SEED);
+
+        Map<String, Boolean> resolved = this.user.getCachedData().getPermissionData(QueryOptions.nonContextual()).getPermissionMap();
+        this.queries = SyntheticData.queries(resolved, QUERY_COUNT, SyntheticData.SEED);
+        this.toggledNode = Permission.builder().permission("benchmark.toggled").build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.plugin.close();
+    }
+
+    @Benchmark
+    public Map<String, Boolean> exportPermissions() {
+        return this.user.exportPermissions(QueryOptions.nonContextual(), true, true);
+    }
+
+    @Benchmark
+    public TristateResult checkAfterInvalidate() {
+        this.user.getCachedData().invalidate();
+        PermissionCache data = this.user.getCachedData().getPermissionData(QueryOptions.nonContextual());
+        return data.checkPermission(this.queries[this.index++ & (QUERY_COUNT - 1)], PermissionCheckEvent.Origin.INTERNAL);
+    }
+
+    @Benchmark
+    public TristateResult toggleNode() {
+        if (this.toggled) {
+            this.user.unsetNode(DataType.NORMAL, this.toggledNode);
+        } else {
+            this.user.setNode(DataType.NORMAL, this.toggledNode, false);
+        }
+        this.toggled = !this.toggled;
+
+        PermissionCache data = this.user.getCachedData().getPermissionData(QueryOptions.nonContextual());
+        return data.checkPermission(this.queries[this.index++ & (QUERY_COUNT - 1)], PermissionCheckEvent.Origin.INTERNAL);
+    }
+}
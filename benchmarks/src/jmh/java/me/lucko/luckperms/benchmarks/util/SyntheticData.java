@@ -0,0 +1,198 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks.util;
+
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.node.factory.NodeBuilders;
+import me.lucko.luckperms.common.node.types.Inheritance;
+import me.lucko.luckperms.common.plugin.TestPlugin;
+
+import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.node.Node;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates synthetic permission data for benchmarks.
+ *
+ * <p>Permission keys are modelled on typical plugin permission trees, e.g.
+ * {@code plugin12.command.sub3.action4}. A configurable proportion of the
+ * keys are wildcards ({@code plugin12.command.*}), and a handful are regex
+ * permissions.</p>
+ *
+ * <p>All output is deterministic for a given seed.</p>
+ */
+public final class SyntheticData {
+    private SyntheticData() {}
+
+    public static final long SEED = 0x4c75636b5065726dL;
+
+    /**
+     * Creates a permission map, in the same form as the map which is
+     * passed to {@code PermissionCalculator#setSourcePermissions}.
+     *
+     * @param size the number of plain permissions to generate
+     * @param wildcards the number of wildcard permissions to generate
+     * @param regex the number of regex permissions to generate
+     * @param seed the random seed
+     * @return the permission map
+     */
+    public static Map<String, Boolean> permissionMap(int size, int wildcards, int regex, long seed) {
+        Random random = new Random(seed);
+        Map<String, Boolean> map = new HashMap<>(size + wildcards + regex);
+        while (map.size() < size) {
+            map.put(permission(random), random.nextInt(10) != 0);
+        }
+        for (int i = 0; i < wildcards; i++) {
+            map.put(wildcard(random), random.nextInt(10) != 0);
+        }
+        for (int i = 0; i < regex; i++) {
+            map.put(regex(random, i), true);
+        }
+        return map;
+    }
+
+    /**
+     * Creates an array of permissions to check against a map created by
+     * {@link #permissionMap(int, int, int, long)}.
+     *
+     * <p>Roughly a third of the queries are exact matches, a third are
+     * children of an existing permission (so may be matched by a wildcard),
+     * and the remainder are unlikely to match anything.</p>
+     *
+     * @param source the source map
+     * @param count the number of queries
+     * @param seed the random seed
+     * @return the queries
+     */
+    public static String[] queries(Map<String, Boolean> source, int count, long seed) {
+        Random random = new Random(seed);
+        List<String> keys = new ArrayList<>(source.keySet());
+        String[] queries = new String[count];
+        for (int i = 0; i < count; i++) {
+            String key = keys.get(random.nextInt(keys.size()));
+            switch (i % 3) {
+                case 0:
+                    queries[i] = key;
+                    break;
+                case 1:
+                    queries[i] = key.replace("*", "child") + ".child" + random.nextInt(16);
+                    break;
+                default:
+                    queries[i] = "missing" + random.nextInt(1000) + "." + permission(random);
+                    break;
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * Converts a permission map into a list of nodes.
+     *
+     * @param map the map
+     * @return the nodes
+     */
+    public static List<Node> nodes(Map<String, Boolean> map) {
+        List<Node> nodes = new ArrayList<>(map.size());
+        for (Map.Entry<String, Boolean> e : map.entrySet()) {
+            nodes.add(NodeBuilders.determineMostApplicable(e.getKey()).value(e.getValue()).build());
+        }
+        return nodes;
+    }
+
+    /**
+     * Creates a linear chain of groups, where each group inherits from the
+     * next group in the chain.
+     *
+     * @param plugin the plugin
+     * @param prefix the prefix for group names
+     * @param depth the length of the chain
+     * @param nodesPerGroup the number of permission nodes held by each group
+     * @param seed the random seed
+     * @return the groups, ordered from the bottom of the chain to the top
+     */
+    public static List<Group> groupChain(TestPlugin plugin, String prefix, int depth, int nodesPerGroup, long seed) {
+        List<Group> groups = new ArrayList<>(depth);
+        for (int i = 0; i < depth; i++) {
+            Group group = plugin.getGroupManager().getOrMake(prefix + i);
+            List<Node> nodes = nodes(permissionMap(nodesPerGroup, nodesPerGroup / 50, i == 0 ? 2 : 0, seed + i));
+            if (i + 1 < depth) {
+                nodes.add(Inheritance.builder(prefix + (i + 1)).build());
+            }
+            group.setNodes(DataType.NORMAL, nodes);
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * Creates a user which holds its own nodes, and inherits from the given group.
+     *
+     * @param plugin the plugin
+     * @param parent the parent group, or null
+     * @param nodes the number of nodes held directly by the user
+     * @param seed the random seed
+     * @return the user
+     */
+    public static User user(TestPlugin plugin, Group parent, int nodes, long seed) {
+        Random random = new Random(seed);
+        User user = plugin.getUserManager().getOrMake(new UUID(random.nextLong(), random.nextLong()));
+        List<Node> userNodes = nodes(permissionMap(nodes, 0, 0, seed));
+        if (parent != null) {
+            userNodes.add(Inheritance.builder(parent.getName()).build());
+        }
+        user.setNodes(DataType.NORMAL, userNodes);
+        return user;
+    }
+
+    private static String permission(Random random) {
+        StringBuilder sb = new StringBuilder("plugin").append(random.nextInt(200));
+        int depth = 1 + random.nextInt(4);
+        for (int i = 0; i < depth; i++) {
+            sb.append('.').append(SEGMENTS[random.nextInt(SEGMENTS.length)]).append(random.nextInt(8));
+        }
+        return sb.toString();
+    }
+
+    private static String wildcard(Random random) {
+        String permission = permission(random);
+        return permission.substring(0, permission.lastIndexOf('.')) + ".*";
+    }
+
+    private static String regex(Random random, int i) {
+        return "r=plugin" + random.nextInt(200) + "\\.(command|admin)" + i + "\\..*";
+    }
+
+    private static final String[] SEGMENTS = {
+            "command", "admin", "use", "bypass", "sign", "kit", "warp", "home", "chat", "color", "build", "region"
+    };
+}
@@ -432,11 +432,6 @@ public class LuckPermsVaultPermission extends AbstractVaultPermission {
         } else if (holder.getType() == HolderType.GROUP) {
             Group g = (Group) holder;
 
-            // invalidate caches - they have potentially been affected by
-            // this change.
-            this.plugin.getGroupManager().invalidateAllGroupCaches();
-            this.plugin.getUserManager().invalidateAllUserCaches();
-
             // we don't need to join this call - the save operation
             // can happen in the background.
             this.plugin.getStorage().saveGroup(g);
@@ -0,0 +1,232 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.actionlog;
+
+import net.luckperms.api.actionlog.Action;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A set of criteria used to select entries from the action log.
+ *
+ * <p>All criteria are optional, and an entry must match every criteria
+ * which has been set in order to be selected.</p>
+ */
+public final class ActionFilter {
+    private static final ActionFilter ALL = builder().build();
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static ActionFilter all() {
+        return ALL;
+    }
+
+    public static ActionFilter source(UUID uniqueId) {
+        return builder().source(uniqueId).build();
+    }
+
+    public static ActionFilter user(UUID uniqueId) {
+        return builder().targetType(Action.Target.Type.USER).target(uniqueId).build();
+    }
+
+    public static ActionFilter group(String name) {
+        return builder().targetType(Action.Target.Type.GROUP).targetName(name).build();
+    }
+
+    public static ActionFilter track(String name) {
+        return builder().targetType(Action.Target.Type.TRACK).targetName(name).build();
+    }
+
+    public static ActionFilter search(String query) {
+        return builder().search(query).build();
+    }
+
+    private final @Nullable UUID sourceUniqueId;
+    private final Action.Target.@Nullable Type targetType;
+    private final @Nullable UUID targetUniqueId;
+    private final @Nullable String targetName;
+    private final @Nullable Instant after;
+    private final @Nullable Instant before;
+    private final @Nullable String search;
+
+    private ActionFilter(Builder builder) {
+        this.sourceUniqueId = builder.sourceUniqueId;
+        this.targetType = builder.targetType;
+        this.targetUniqueId = builder.targetUniqueId;
+        this.targetName = builder.targetName;
+        this.after = builder.after;
+        this.before = builder.before;
+        this.search = builder.search == null ? null : builder.search.toLowerCase();
+    }
+
+    public @Nullable UUID getSourceUniqueId() {
+        return this.sourceUniqueId;
+    }
+
+    public Action.Target.@Nullable Type getTargetType() {
+        return this.targetType;
+    }
+
+    public @Nullable UUID getTargetUniqueId() {
+        return this.targetUniqueId;
+    }
+
+    public @Nullable String getTargetName() {
+        return this.targetName;
+    }
+
+    /**
+     * Gets the (inclusive) lower bound of the time range
+     *
+     * @return the lower bound
+     */
+    public @Nullable Instant getAfter() {
+        return this.after;
+    }
+
+    /**
+     * Gets the (exclusive) upper bound of the time range
+     *
+     * @return the upper bound
+     */
+    public @Nullable Instant getBefore() {
+        return this.before;
+    }
+
+    /**
+     * Gets the search query, in lowercase
+     *
+     * @return the search query
+     *
+     * @see LoggedAction#matchesSearch(String)
+     */
+    public @Nullable String getSearch() {
+        return this.search;
+    }
+
+    /**
+     * Tests if the given action is selected by this filter.
+     *
+     * @param action the action
+     * @return true if the action matches
+     */
+    public boolean matches(LoggedAction action) {
+        if (this.sourceUniqueId != null && !this.sourceUniqueId.equals(action.getSource().getUniqueId())) {
+            return false;
+        }
+        if (this.targetType != null && this.targetType != action.getTarget().getType()) {
+            return false;
+        }
+        if (this.targetUniqueId != null && !action.getTarget().getUniqueId().filter(this.targetUniqueId::equals).isPresent()) {
+            return false;
+        }
+        if (this.targetName != null && !this.targetName.equals(action.getTarget().getName())) {
+            return false;
+        }
+
+        long time = action.getTimestamp().getEpochSecond();
+        if (this.after != null && time < this.after.getEpochSecond()) {
+            return false;
+        }
+        if (this.before != null && time >= this.before.getEpochSecond()) {
+            return false;
+        }
+
+        return this.search == null || action.matchesSearch(this.search);
+    }
+
+    @Override
+    public String toString() {
+        return "ActionFilter(" +
+                "sourceUniqueId=" + this.sourceUniqueId + ", " +
+                "targetType=" + this.targetType + ", " +
+                "targetUniqueId=" + this.targetUniqueId + ", " +
+                "targetName=" + this.targetName + ", " +
+                "after=" + this.after + ", " +
+                "before=" + this.before + ", " +
+                "search=" + this.search + ")";
+    }
+
+    public static final class Builder {
+        private UUID sourceUniqueId = null;
+        private Action.Target.Type targetType = null;
+        private UUID targetUniqueId = null;
+        private String targetName = null;
+        private Instant after = null;
+        private Instant before = null;
+        private String search = null;
+
+        private Builder() {
+
+        }
+
+        public Builder source(UUID uniqueId) {
+            this.sourceUniqueId = Objects.requireNonNull(uniqueId, "uniqueId");
+            return this;
+        }
+
+        public Builder targetType(Action.Target.Type type) {
+            this.targetType = Objects.requireNonNull(type, "type");
+            return this;
+        }
+
+        public Builder target(UUID uniqueId) {
+            this.targetUniqueId = Objects.requireNonNull(uniqueId, "uniqueId");
+            return this;
+        }
+
+        public Builder targetName(String name) {
+            this.targetName = Objects.requireNonNull(name, "name");
+            return this;
+        }
+
+        public Builder after(Instant time) {
+            this.after = Objects.requireNonNull(time, "time");
+            return this;
+        }
+
+        public Builder before(Instant time) {
+            this.before = Objects.requireNonNull(time, "time");
+            return this;
+        }
+
+        public Builder search(String query) {
+            this.search = Objects.requireNonNull(query, "query");
+            return this;
+        }
+
+        public ActionFilter build() {
+            return new ActionFilter(this);
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.actionlog;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A page of entries selected from the action log by an {@link ActionFilter}.
+ *
+ * <p>Entries are ordered from newest to oldest, so an offset of zero
+ * always refers to the most recent entry.</p>
+ */
+public final class LogPage {
+
+    /**
+     * Selects a page of entries from a (complete) set of actions.
+     *
+     * <p>Only the first {@code offset + limit} entries are retained whilst
+     * the actions are being iterated.</p>
+     *
+     * @param actions the actions to select from
+     * @param filter the filter
+     * @param offset the number of matching entries to skip, starting from the newest
+     * @param limit the maximum number of entries to return
+     * @return the page
+     */
+    public static LogPage select(Iterable<LoggedAction> actions, ActionFilter filter, int offset, int limit) {
+        int retain = offset + limit;
+        PriorityQueue<LoggedAction> newest = new PriorityQueue<>(Math.max(1, Math.min(retain, 1024)));
+        int total = 0;
+
+        for (LoggedAction action : actions) {
+            if (!filter.matches(action)) {
+                continue;
+            }
+
+            total++;
+            if (newest.size() < retain) {
+                newest.add(action);
+            } else if (retain != 0 && newest.peek().compareTo(action) < 0) {
+                newest.poll();
+                newest.add(action);
+            }
+        }
+
+        List<LoggedAction> content = new ArrayList<>(newest.size());
+        while (!newest.isEmpty()) {
+            content.add(newest.poll());
+        }
+        Collections.reverse(content);
+
+        return new LogPage(content.subList(Math.min(offset, content.size()), content.size()), offset, total);
+    }
+
+    private final List<LoggedAction> content;
+    private final int offset;
+    private final int totalEntries;
+
+    public LogPage(List<LoggedAction> content, int offset, int totalEntries) {
+        this.content = ImmutableList.copyOf(content);
+        this.offset = offset;
+        this.totalEntries = totalEntries;
+    }
+
+    /**
+     * Gets the entries in the page, ordered from newest to oldest.
+     *
+     * @return the entries
+     */
+    public List<LoggedAction> getContent() {
+        return this.content;
+    }
+
+    /**
+     * Gets the number of (newer) entries which were skipped before this page.
+     *
+     * @return the offset
+     */
+    public int getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * Gets the total number of entries which matched the filter.
+     *
+     * @return the total number of entries
+     */
+    public int getTotalEntries() {
+        return this.totalEntries;
+    }
+
+    /**
+     * Gets the entries in the page, keyed by their position in the log,
+     * where the oldest matching entry is numbered 1.
+     *
+     * @return the numbered entries
+     */
+    public SortedMap<Integer, LoggedAction> getNumberedContent() {
+        SortedMap<Integer, LoggedAction> numbered = new TreeMap<>();
+        int number = this.totalEntries - this.offset;
+        for (LoggedAction action : this.content) {
+            numbered.put(number--, action);
+        }
+        return numbered;
+    }
+}
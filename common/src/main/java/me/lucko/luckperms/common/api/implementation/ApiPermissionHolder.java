@@ -66,9 +66,9 @@ public class ApiPermissionHolder implements net.luckperms.api.model.PermissionHo
     }
 
     protected void onNodeChange() {
-        // overridden by groups
-        // when a node is changed on a group, it could potentially affect other groups/users,
-        // so their caches need to be invalidated too. we handle this automatically for API users.
+        // no-op by default
+        // the caches of the holder and any holders which inherit from it are already
+        // invalidated by the change to the model, see PermissionHolder#invalidateCache.
     }
 
     @Override
@@ -25,7 +25,9 @@
 
 package me.lucko.luckperms.common.backup;
 
-import com.google.gson.JsonObject;
+import com.google.common.collect.Iterables;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.model.Group;
@@ -48,23 +50,16 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 
@@ -74,6 +69,9 @@ import java.util.zip.GZIPOutputStream;
 public class Exporter implements Runnable {
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss z");
 
+    /** The number of users loaded from storage at a time */
+    private static final int USER_BATCH_SIZE = 500;
+
     private final LuckPermsPlugin plugin;
     private final Sender executor;
     private final Path filePath;
@@ -93,91 +91,115 @@ public class Exporter implements Runnable {
 
     @Override
     public void run() {
-        JsonObject file = new JsonObject();
-        file.add("metadata", new JObject()
-                .add("generatedBy", this.executor.getNameWithLocation())
-                .add("generatedAt", DATE_FORMAT.format(new Date(System.currentTimeMillis())))
-                .toJson());
-
-        this.log.log("Gathering group data...");
-        file.add("groups", exportGroups());
-
-        this.log.log("Gathering track data...");
-        file.add("tracks", exportTracks());
-
-        if (this.includeUsers) {
-            this.log.log("Gathering user data...");
-            file.add("users", exportUsers());
-        }
-
-        this.log.log("Finished gathering data, writing file...");
+        // the file is written as the data is gathered, so only a bounded
+        // number of users need to be held in memory at once.
+        Gson gson = GsonProvider.prettyPrinting();
+        try (JsonWriter out = gson.newJsonWriter(new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(this.filePath)), StandardCharsets.UTF_8)))) {
+            out.beginObject();
+
+            out.name("metadata");
+            gson.toJson(new JObject()
+                    .add("generatedBy", this.executor.getNameWithLocation())
+                    .add("generatedAt", DATE_FORMAT.format(new Date(System.currentTimeMillis())))
+                    .toJson(), out);
+
+            this.log.log("Exporting group data...");
+            out.name("groups");
+            exportGroups(gson, out);
+
+            this.log.log("Exporting track data...");
+            out.name("tracks");
+            exportTracks(gson, out);
+
+            if (this.includeUsers) {
+                this.log.log("Exporting user data...");
+                out.name("users");
+                exportUsers(gson, out);
+            }
 
-        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(this.filePath)), StandardCharsets.UTF_8))) {
-            GsonProvider.prettyPrinting().toJson(file, out);
-        } catch (IOException e) {
+            out.endObject();
+        } catch (IOException | RuntimeException e) {
+            // includes failures to load users from the storage (CompletionException)
             e.printStackTrace();
+            this.log.getListeners().forEach(l -> Message.LOG_EXPORT_FAILURE.send(l));
+
+            // the writer has been closed, don't leave a truncated file behind
+            try {
+                Files.deleteIfExists(this.filePath);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+            return;
         }
 
         this.log.getListeners().forEach(l -> Message.LOG_EXPORT_SUCCESS.send(l, this.filePath.toFile().getAbsolutePath()));
     }
 
-    private JsonObject exportGroups() {
-        JsonObject out = new JsonObject();
+    private void exportGroups(Gson gson, JsonWriter out) throws IOException {
         List<Group> groups = this.plugin.getGroupManager().getAll().values().stream()
                 .sorted(Comparator.<Group>comparingInt(o -> o.getWeight().orElse(0)).reversed()
                         .thenComparing(Group::getName)
                 )
                 .collect(Collectors.toList());
 
+        out.beginObject();
         for (Group group : groups) {
-            out.add(group.getName(), new JObject()
+            out.name(group.getName());
+            gson.toJson(new JObject()
                     .add("nodes", NodeJsonSerializer.serializeNodes(group.normalData().asSet()))
-                    .toJson());
+                    .toJson(), out);
         }
-        return out;
+        out.endObject();
     }
 
-    private JsonObject exportTracks() {
-        JsonObject out = new JsonObject();
+    private void exportTracks(Gson gson, JsonWriter out) throws IOException {
         Collection<Track> tracks = this.plugin.getTrackManager().getAll().values().stream()
                 .sorted(Comparator.comparing(Track::getName))
                 .collect(Collectors.toList());
 
+        out.beginObject();
         for (Track track : tracks) {
-            out.add(track.getName(), new JObject()
+            out.name(track.getName());
+            gson.toJson(new JObject()
                     .add("groups", new JArray().consume(arr -> track.getGroups().forEach(arr::add)))
-                    .toJson());
+                    .toJson(), out);
         }
-        return out;
+        out.endObject();
     }
 
-    private JsonObject exportUsers() {
-        // Users are migrated in separate threads.
-        // This is because there are likely to be a lot of them, and because we can.
-        // It's a big speed improvement, since the database/files are split up and can handle concurrent reads.
+    private void exportUsers(Gson gson, JsonWriter out) throws IOException {
+        // Users are loaded in batches using the bulk load method, and each batch
+        // is written to the file as soon as it is available.
+        // The next batch is requested before the current one is written, so the
+        // storage is kept busy whilst we serialize, but no more than two batches
+        // are ever held in memory.
 
         this.log.log("Finding a list of unique users to export.");
 
         // Find all of the unique users we need to export
         Storage ds = this.plugin.getStorage();
-        Set<UUID> users = ds.getUniqueUsers().join();
+        List<UUID> users = new ArrayList<>(ds.getUniqueUsers().join());
+        users.sort(Comparator.naturalOrder());
         this.log.log("Found " + users.size() + " unique users to export.");
 
-        // create a threadpool to process the users concurrently
-        ExecutorService executor = Executors.newFixedThreadPool(32);
+        Iterator<List<UUID>> batches = Iterables.partition(users, USER_BATCH_SIZE).iterator();
+        CompletableFuture<Map<UUID, User>> next = batches.hasNext() ? ds.loadUsers(batches.next()) : null;
+
+        int userCount = 0;
+        long lastReport = System.currentTimeMillis();
 
-        // A set of futures, which are really just the processes we need to wait for.
-        Set<CompletableFuture<Void>> futures = new HashSet<>();
+        out.beginObject();
+        while (next != null) {
+            Map<UUID, User> batch = next.join();
+            next = batches.hasNext() ? ds.loadUsers(batches.next()) : null;
 
-        AtomicInteger userCount = new AtomicInteger(0);
-        Map<UUID, JsonObject> out = Collections.synchronizedMap(new TreeMap<>());
+            // write in uuid order, the same order as the batch was requested
+            List<User> sorted = new ArrayList<>(batch.values());
+            sorted.sort(Comparator.comparing(User::getUniqueId));
 
-        // iterate through each user.
-        for (UUID uuid : users) {
-            // register a task for the user, and schedule it's execution with the pool
-            futures.add(CompletableFuture.runAsync(() -> {
-                User user = this.plugin.getStorage().loadUser(uuid, null).join();
-                out.put(user.getUniqueId(), new JObject()
+            for (User user : sorted) {
+                out.name(user.getUniqueId().toString());
+                gson.toJson(new JObject()
                         .consume(obj -> {
                             user.getUsername().ifPresent(username -> obj.add("username", username));
                             if (!user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME).equalsIgnoreCase(GroupManager.DEFAULT_GROUP_NAME)) {
@@ -185,38 +207,22 @@ public class Exporter implements Runnable {
                             }
                         })
                         .add("nodes", NodeJsonSerializer.serializeNodes(user.normalData().asSet()))
-                        .toJson());
+                        .toJson(), out);
                 this.plugin.getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
-                userCount.incrementAndGet();
-            }, executor));
-        }
-
-        // all of the threads have been scheduled now and are running. we just need to wait for them all to complete
-        CompletableFuture<Void> overallFuture = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
-
-        while (true) {
-            try {
-                overallFuture.get(5, TimeUnit.SECONDS);
-            } catch (InterruptedException | ExecutionException e) {
-                // abnormal error - just break
-                e.printStackTrace();
-                break;
-            } catch (TimeoutException e) {
-                // still executing - send a progress report and continue waiting
-                this.log.logAllProgress("Exported {} users so far.", userCount.get());
-                continue;
             }
+            userCount += batch.size();
 
-            // process is complete
-            break;
+            // send a progress report every few seconds
+            long now = System.currentTimeMillis();
+            if (now - lastReport >= TimeUnit.SECONDS.toMillis(5)) {
+                lastReport = now;
+                this.log.logAllProgress("Exported {} users so far.", userCount);
+            }
         }
+        out.endObject();
 
-        executor.shutdown();
-
-        JsonObject outJson = new JsonObject();
-        for (Map.Entry<UUID, JsonObject> entry : out.entrySet()) {
-            outJson.add(entry.getKey().toString(), entry.getValue());
+        if (userCount < users.size()) {
+            this.log.log("Unable to load " + (users.size() - userCount) + " users, they were not exported. See the console for details.");
         }
-        return outJson;
     }
 }
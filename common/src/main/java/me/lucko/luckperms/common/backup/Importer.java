@@ -27,9 +27,8 @@ package me.lucko.luckperms.common.backup;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.model.Group;
@@ -38,36 +37,49 @@ import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.node.utils.NodeJsonSerializer;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.util.gson.GsonProvider;
 
 import net.luckperms.api.event.cause.CreationCause;
 import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.Node;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Handles import operations
  */
 public class Importer implements Runnable {
 
+    /** The number of worker threads used to process the import */
+    private static final int WORKER_THREADS = 16;
+
+    /** The number of entries processed by each worker task */
+    private static final int BATCH_SIZE = 100;
+
+    /** The maximum number of batches which have been read but not yet processed */
+    private static final int MAX_PENDING_BATCHES = WORKER_THREADS * 2;
+
     private final LuckPermsPlugin plugin;
     private final Set<Sender> notify;
-    private final JsonObject data;
+    private final Path filePath;
 
-    public Importer(LuckPermsPlugin plugin, Sender executor, JsonObject data) {
+    public Importer(LuckPermsPlugin plugin, Sender executor, Path filePath) {
         this.plugin = plugin;
 
         if (executor.isConsole()) {
@@ -75,7 +87,7 @@ public class Importer implements Runnable {
         } else {
             this.notify = ImmutableSet.of(executor, plugin.getConsoleSender());
         }
-        this.data = data;
+        this.filePath = filePath;
     }
 
     private static final class UserData {
@@ -93,7 +105,7 @@ public class Importer implements Runnable {
     private void processGroup(String groupName, Set<Node> nodes) {
         Group group = this.plugin.getStorage().createAndLoadGroup(groupName, CreationCause.INTERNAL).join();
         group.setNodes(DataType.NORMAL, nodes);
-        this.plugin.getStorage().saveGroup(group);
+        this.plugin.getStorage().saveGroup(group).join();
     }
 
     private void processTrack(String trackName, List<String> groups) {
@@ -112,6 +124,10 @@ public class Importer implements Runnable {
         this.plugin.getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
     }
 
+    private JsonReader openReader() throws IOException {
+        return GsonProvider.normal().newJsonReader(new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(this.filePath)), StandardCharsets.UTF_8)));
+    }
+
     @Override
     public void run() {
         long startTime = System.currentTimeMillis();
@@ -122,35 +138,16 @@ public class Importer implements Runnable {
 
         this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Reading data..."));
 
-        Map<String, Set<Node>> groups = new HashMap<>();
-        Map<String, List<String>> tracks = new HashMap<>();
-        Map<UUID, UserData> users = new HashMap<>();
-
-        for (Map.Entry<String, JsonElement> group : this.data.get("groups").getAsJsonObject().entrySet()) {
-            groups.put(group.getKey(), NodeJsonSerializer.deserializeNodes(group.getValue().getAsJsonObject().get("nodes").getAsJsonArray()));
-        }
-        for (Map.Entry<String, JsonElement> track : this.data.get("tracks").getAsJsonObject().entrySet()) {
-            JsonArray trackGroups = track.getValue().getAsJsonObject().get("groups").getAsJsonArray();
-            List<String> trackGroupsList = new ArrayList<>();
-            trackGroups.forEach(g -> trackGroupsList.add(g.getAsString()));
-            tracks.put(track.getKey(), trackGroupsList);
-        }
-        for (Map.Entry<String, JsonElement> user : this.data.get("users").getAsJsonObject().entrySet()) {
-            JsonObject jsonData = user.getValue().getAsJsonObject();
-
-            UUID uuid = UUID.fromString(user.getKey());
-            String username = null;
-            String primaryGroup = null;
-            Set<Node> nodes = NodeJsonSerializer.deserializeNodes(jsonData.get("nodes").getAsJsonArray());
-
-            if (jsonData.has("username")) {
-                username = jsonData.get("username").getAsString();
-            }
-            if (jsonData.has("primaryGroup")) {
-                primaryGroup = jsonData.get("primaryGroup").getAsString();
-            }
-
-            users.put(uuid, new UserData(username, primaryGroup, nodes));
+        // The file is read twice - first to count the number of entries (so we can report
+        // progress), and then again to actually process them. Neither pass holds more
+        // than a bounded number of entries in memory.
+        int total;
+        try (JsonReader reader = openReader()) {
+            total = countEntries(reader);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            this.notify.forEach(s -> Message.IMPORT_FILE_READ_FAILURE.send(s));
+            return;
         }
 
         this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Waiting for initial update task to complete..."));
@@ -160,70 +157,217 @@ public class Importer implements Runnable {
 
         this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Setting up data processor..."));
 
-        // create a threadpool for the processing
-        ExecutorService executor = Executors.newFixedThreadPool(16, new ThreadFactoryBuilder().setNameFormat("luckperms-importer-%d").build());
+        Processor processor = new Processor(total);
+        boolean readFully = false;
+        try (JsonReader reader = openReader()) {
+            readEntries(reader, processor);
+            processor.submitBatch();
+            readFully = true;
+
+            this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "All data entries have been read and scheduled for import - now waiting for the execution to complete."));
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            this.notify.forEach(s -> Message.IMPORT_FILE_READ_FAILURE.send(s));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // wait for the entries which were read to be imported, even if the rest of the file couldn't be
+        processor.awaitCompletion();
+
+        long endTime = System.currentTimeMillis();
+        double seconds = (endTime - startTime) / 1000.0;
+
+        if (!readFully) {
+            this.notify.forEach(s -> Message.IMPORT_END_INCOMPLETE.send(s, seconds));
+            return;
+        }
+
+        int errors = processor.errorCount.get();
+        if (errors == 0) {
+            this.notify.forEach(s -> Message.IMPORT_END_COMPLETE.send(s, seconds));
+        } else if (errors == 1) {
+            this.notify.forEach(s -> Message.IMPORT_END_COMPLETE_ERR_SIN.send(s, seconds, errors));
+        } else {
+            this.notify.forEach(s -> Message.IMPORT_END_COMPLETE_ERR.send(s, seconds, errors));
+        }
+    }
 
-        // A set of futures, which are really just the processes we need to wait for.
-        Set<CompletableFuture<Void>> futures = new HashSet<>();
+    private static int countEntries(JsonReader reader) throws IOException {
+        int count = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String section = reader.nextName();
+            if (section.equals("groups") || section.equals("tracks") || section.equals("users")) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    reader.nextName();
+                    reader.skipValue();
+                    count++;
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return count;
+    }
 
-        int total = 0;
-        AtomicInteger processedCount = new AtomicInteger(0);
+    private void readEntries(JsonReader reader, Processor processor) throws IOException, InterruptedException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String section = reader.nextName();
+            switch (section) {
+                case "groups":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String groupName = reader.nextName();
+                        JsonObject jsonData = GsonProvider.parser().parse(reader).getAsJsonObject();
+                        Set<Node> nodes = NodeJsonSerializer.deserializeNodes(jsonData.get("nodes").getAsJsonArray());
+                        processor.add(() -> processGroup(groupName, nodes));
+                    }
+                    reader.endObject();
+
+                    // groups should exist before any tracks or users are imported
+                    processor.submitBatch();
+                    processor.awaitSubmitted();
+                    break;
+                case "tracks":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String trackName = reader.nextName();
+                        JsonObject jsonData = GsonProvider.parser().parse(reader).getAsJsonObject();
+                        List<String> groups = new ArrayList<>();
+                        jsonData.get("groups").getAsJsonArray().forEach(g -> groups.add(g.getAsString()));
+                        processor.add(() -> processTrack(trackName, groups));
+                    }
+                    reader.endObject();
+                    break;
+                case "users":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        UUID uuid = UUID.fromString(reader.nextName());
+                        JsonObject jsonData = GsonProvider.parser().parse(reader).getAsJsonObject();
+
+                        String username = null;
+                        String primaryGroup = null;
+                        Set<Node> nodes = NodeJsonSerializer.deserializeNodes(jsonData.get("nodes").getAsJsonArray());
+
+                        if (jsonData.has("username")) {
+                            username = jsonData.get("username").getAsString();
+                        }
+                        if (jsonData.has("primaryGroup")) {
+                            primaryGroup = jsonData.get("primaryGroup").getAsString();
+                        }
+
+                        UserData userData = new UserData(username, primaryGroup, nodes);
+                        processor.add(() -> processUser(uuid, userData));
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+    }
 
-        for (Map.Entry<String, Set<Node>> group : groups.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(group).thenAcceptAsync(ent -> {
-                processGroup(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
-            }, executor));
-            total++;
+    private void sendProgress(int processedCount, int errorCount, int total) {
+        int percent = total == 0 ? 100 : (processedCount * 100) / total;
+        if (errorCount == 1) {
+            this.notify.forEach(s -> Message.IMPORT_PROGRESS_SIN.send(s, percent, processedCount, total, errorCount));
+        } else {
+            this.notify.forEach(s -> Message.IMPORT_PROGRESS.send(s, percent, processedCount, total, errorCount));
         }
-        for (Map.Entry<String, List<String>> track : tracks.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(track).thenAcceptAsync(ent -> {
-                processTrack(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
-            }, executor));
-            total++;
+    }
+
+    /**
+     * Processes entries in batches using a fixed pool of worker threads.
+     *
+     * <p>The number of batches waiting to be processed is bounded - if the
+     * workers fall behind, {@link #add(Runnable)} blocks until they catch up.</p>
+     */
+    private final class Processor {
+        private final ExecutorService executor = Executors.newFixedThreadPool(WORKER_THREADS, new ThreadFactoryBuilder().setNameFormat("luckperms-importer-%d").build());
+        private final Semaphore pendingBatches = new Semaphore(MAX_PENDING_BATCHES);
+        private final AtomicInteger processedCount = new AtomicInteger(0);
+        private final AtomicInteger errorCount = new AtomicInteger(0);
+        private final int total;
+
+        private List<Runnable> batch = new ArrayList<>(BATCH_SIZE);
+        private long lastProgressReport = System.currentTimeMillis();
+
+        Processor(int total) {
+            this.total = total;
         }
-        for (Map.Entry<UUID, UserData> user : users.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(user).thenAcceptAsync(ent -> {
-                processUser(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
-            }, executor));
-            total++;
+
+        void add(Runnable entry) throws InterruptedException {
+            this.batch.add(entry);
+            if (this.batch.size() >= BATCH_SIZE) {
+                submitBatch();
+            }
         }
 
-        // all of the threads have been scheduled now and are running. we just need to wait for them all to complete
-        CompletableFuture<Void> overallFuture = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        void submitBatch() throws InterruptedException {
+            if (this.batch.isEmpty()) {
+                return;
+            }
 
-        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "All data entries have been processed and scheduled for import - now waiting for the execution to complete."));
+            List<Runnable> batch = this.batch;
+            this.batch = new ArrayList<>(BATCH_SIZE);
 
-        while (true) {
-            try {
-                overallFuture.get(2, TimeUnit.SECONDS);
-            } catch (InterruptedException | ExecutionException e) {
-                // abnormal error - just break
-                e.printStackTrace();
-                break;
-            } catch (TimeoutException e) {
-                // still executing - send a progress report and continue waiting
-                sendProgress(processedCount.get(), total);
-                continue;
+            // wait for space in the queue, sending progress reports while we wait
+            while (!this.pendingBatches.tryAcquire(2, TimeUnit.SECONDS)) {
+                reportProgress();
             }
 
-            // process is complete
-            break;
+            this.executor.execute(() -> {
+                try {
+                    for (Runnable entry : batch) {
+                        try {
+                            entry.run();
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                            this.errorCount.incrementAndGet();
+                        }
+                        this.processedCount.incrementAndGet();
+                    }
+                } finally {
+                    this.pendingBatches.release();
+                }
+            });
+
+            long now = System.currentTimeMillis();
+            if (now - this.lastProgressReport >= TimeUnit.SECONDS.toMillis(2)) {
+                reportProgress();
+            }
         }
 
-        executor.shutdown();
-
-        long endTime = System.currentTimeMillis();
-        double seconds = (endTime - startTime) / 1000.0;
+        void awaitSubmitted() throws InterruptedException {
+            while (!this.pendingBatches.tryAcquire(MAX_PENDING_BATCHES, 2, TimeUnit.SECONDS)) {
+                reportProgress();
+            }
+            this.pendingBatches.release(MAX_PENDING_BATCHES);
+        }
 
-        this.notify.forEach(s -> Message.IMPORT_END_COMPLETE.send(s, seconds));
-    }
+        void awaitCompletion() {
+            this.executor.shutdown();
+            try {
+                while (!this.executor.awaitTermination(2, TimeUnit.SECONDS)) {
+                    // still executing - send a progress report and continue waiting
+                    reportProgress();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
 
-    private void sendProgress(int processedCount, int total) {
-        int percent = (processedCount * 100) / total;
-        this.notify.forEach(s -> Message.IMPORT_PROGRESS.send(s, percent, processedCount, total, 0));
+        private void reportProgress() {
+            this.lastProgressReport = System.currentTimeMillis();
+            sendProgress(this.processedCount.get(), this.errorCount.get(), this.total);
+        }
     }
 
 }
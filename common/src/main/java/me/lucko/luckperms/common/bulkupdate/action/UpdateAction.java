@@ -49,6 +49,14 @@ public class UpdateAction implements Action {
         this.value = value;
     }
 
+    public QueryField getField() {
+        return this.field;
+    }
+
+    public String getValue() {
+        return this.value;
+    }
+
     @Override
     public String getName() {
         return "update";
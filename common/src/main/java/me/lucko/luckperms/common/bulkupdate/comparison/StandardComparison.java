@@ -96,7 +96,7 @@ public enum StandardComparison implements Comparison {
         return null;
     }
 
-    static Pattern compilePatternForLikeSyntax(String expression) {
+    public static Pattern compilePatternForLikeSyntax(String expression) {
         expression = expression.toLowerCase();
         expression = expression.replace(".", "\\.");
 
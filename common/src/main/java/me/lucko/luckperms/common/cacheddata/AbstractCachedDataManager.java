@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.cacheddata;
 
 import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 
 import me.lucko.luckperms.common.cache.MRUCache;
 import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
@@ -53,6 +54,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * Abstract implementation of {@link CachedDataManager}.
@@ -174,6 +176,46 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         this.permissionDataManager.cache.synchronous().asMap().values().forEach(PermissionCache::invalidateCache);
     }
 
+    /**
+     * Gets the combined lookup cache statistics for the permission calculators
+     * currently held by this manager.
+     *
+     * @return the combined stats
+     */
+    public final CacheStats getPermissionLookupCacheStats() {
+        CacheStats stats = CacheStats.empty();
+        for (PermissionCache cache : this.permissionDataManager.cache.synchronous().asMap().values()) {
+            stats = stats.plus(cache.getCalculator().getLookupCacheStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Gets the total number of permission lookups cached by the permission
+     * calculators currently held by this manager.
+     *
+     * @return the total lookup cache size
+     */
+    public final long getPermissionLookupCacheSize() {
+        long size = 0;
+        for (PermissionCache cache : this.permissionDataManager.cache.synchronous().asMap().values()) {
+            size += cache.getCalculator().getLookupCacheSize();
+        }
+        return size;
+    }
+
+    /**
+     * Updates a single permission in each of the current permission caches,
+     * without recalculating the rest of the data.
+     *
+     * @param permission the permission which has changed
+     * @param resolver a function to resolve the new value of the permission
+     *                 for a given set of query options, or null if unset
+     */
+    protected final void updatePermission(String permission, Function<QueryOptions, Boolean> resolver) {
+        this.permissionDataManager.updatePermission(permission, resolver);
+    }
+
     public final void performCacheCleanup() {
         this.permissionDataManager.cache.synchronous().cleanUp();
         this.metaDataManager.cache.synchronous().cleanUp();
@@ -201,6 +243,21 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
             return data;
         }
 
+        synchronized void updatePermission(String permission, Function<QueryOptions, Boolean> resolver) {
+            for (Map.Entry<QueryOptions, CompletableFuture<PermissionCache>> e : this.cache.asMap().entrySet()) {
+                PermissionCache data = getIfReady(e.getValue());
+                if (data == null) {
+                    // the data is still being calculated, and may have been
+                    // resolved before the change - it can't be updated in place
+                    this.cache.asMap().remove(e.getKey(), e.getValue());
+                    clearRecent();
+                    continue;
+                }
+
+                data.setPermission(permission, resolver.apply(e.getKey()));
+            }
+        }
+
         @Override
         public @NonNull PermissionCache calculate(@NonNull QueryOptions queryOptions) {
             Objects.requireNonNull(queryOptions, "queryOptions");
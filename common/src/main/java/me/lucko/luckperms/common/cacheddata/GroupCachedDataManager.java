@@ -25,23 +25,92 @@
 
 package me.lucko.luckperms.common.cacheddata;
 
+import com.github.benmanes.caffeine.cache.Cache;
+
+import me.lucko.luckperms.common.cacheddata.type.PermissionSnapshot;
+import me.lucko.luckperms.common.inheritance.InheritanceHandler;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.util.CaffeineFactory;
 
 import net.luckperms.api.cacheddata.CachedDataManager;
 import net.luckperms.api.query.QueryOptions;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Holds an easily accessible cache of a groups's data in a number of contexts
  */
 public class GroupCachedDataManager extends HolderCachedDataManager<Group> implements CachedDataManager {
 
+    /**
+     * Snapshots of the groups resolved permissions, shared by the holders which inherit from it
+     */
+    private final Cache<QueryOptions, SnapshotEntry> permissionSnapshots = CaffeineFactory.newBuilder()
+            .expireAfterAccess(2, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * Incremented when a change is made to a permission in the groups inheritance tree
+     */
+    private final AtomicLong snapshotVersion = new AtomicLong();
+
     public GroupCachedDataManager(Group holder) {
         super(holder);
     }
 
+    /**
+     * Gets a snapshot of the permissions the group resolves in the given {@link QueryOptions},
+     * including those inherited from its parents.
+     *
+     * <p>Snapshots are discarded when the {@link InheritanceHandler#getVersion() inheritance graph}
+     * changes, or when {@link #invalidatePermissionSnapshots()} is called.</p>
+     *
+     * @param queryOptions the query options
+     * @return the snapshot
+     */
+    public PermissionSnapshot getPermissionSnapshot(QueryOptions queryOptions) {
+        // read the versions first, so a change made during resolution discards the result
+        long graphVersion = getPlugin().getInheritanceHandler().getVersion();
+        long snapshotVersion = this.snapshotVersion.get();
+
+        SnapshotEntry entry = this.permissionSnapshots.getIfPresent(queryOptions);
+        if (entry != null && entry.graphVersion == graphVersion && entry.snapshotVersion == snapshotVersion) {
+            return entry.snapshot;
+        }
+
+        PermissionSnapshot snapshot = PermissionSnapshot.of(this.holder.resolveInheritedNodes(queryOptions));
+        this.permissionSnapshots.put(queryOptions, new SnapshotEntry(graphVersion, snapshotVersion, snapshot));
+        return snapshot;
+    }
+
+    /**
+     * Invalidates the groups permission snapshots.
+     *
+     * <p>Should be called following a change to a permission anywhere in the
+     * groups inheritance tree, before the caches of any holders which inherit
+     * from the group are updated.</p>
+     */
+    public void invalidatePermissionSnapshots() {
+        this.snapshotVersion.incrementAndGet();
+        this.permissionSnapshots.invalidateAll();
+    }
+
     @Override
     protected CacheMetadata getMetadataForQueryOptions(QueryOptions queryOptions) {
         return new CacheMetadata(HolderType.GROUP, this.holder.getPlainDisplayName(), queryOptions);
     }
+
+    private static final class SnapshotEntry {
+        private final long graphVersion;
+        private final long snapshotVersion;
+        private final PermissionSnapshot snapshot;
+
+        SnapshotEntry(long graphVersion, long snapshotVersion, PermissionSnapshot snapshot) {
+            this.graphVersion = graphVersion;
+            this.snapshotVersion = snapshotVersion;
+            this.snapshot = snapshot;
+        }
+    }
 }
@@ -73,6 +73,17 @@ public abstract class HolderCachedDataManager<T extends PermissionHolder> extend
         return this.holder.exportPermissions(queryOptions, true, getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND));
     }
 
+    /**
+     * Updates the given permission in each of the holders permission caches,
+     * without recalculating the rest of the data.
+     *
+     * @param permission the permission which has changed, in lowercase
+     */
+    public void invalidatePermission(String permission) {
+        boolean resolveShorthand = getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND);
+        updatePermission(permission, queryOptions -> this.holder.exportPermission(queryOptions, permission, resolveShorthand));
+    }
+
     @Override
     protected void resolveMeta(MetaAccumulator accumulator, QueryOptions queryOptions) {
         this.holder.accumulateMeta(accumulator, queryOptions);
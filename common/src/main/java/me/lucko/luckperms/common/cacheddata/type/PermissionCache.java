@@ -36,9 +36,11 @@ import net.luckperms.api.query.QueryOptions;
 import net.luckperms.api.util.Tristate;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -95,6 +97,20 @@ public class PermissionCache implements CachedPermissionData {
         }
     }
 
+    /**
+     * Sets the value of a single permission, without recalculating the rest
+     * of the data.
+     *
+     * @param permission the permission
+     * @param value the new value, or null to unset
+     */
+    public void setPermission(String permission, @Nullable Boolean value) {
+        Boolean previous = value == null ? this.permissions.remove(permission) : this.permissions.put(permission, value);
+        if (!Objects.equals(previous, value)) {
+            this.calculator.sourcePermissionChanged(permission);
+        }
+    }
+
     public PermissionCalculator getCalculator() {
         return this.calculator;
     }
@@ -0,0 +1,119 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.cacheddata.type;
+
+import com.google.common.collect.ImmutableMap;
+
+import net.luckperms.api.node.Node;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, pre-merged view of the permissions resolved from a list of
+ * nodes, with keys converted to lowercase.
+ *
+ * <p>Exact keys and keys resolved from shorthand are held separately, so that
+ * snapshots can be combined in the same way as the nodes they were built
+ * from: an exact key from any snapshot takes priority over a shorthand key,
+ * and otherwise the first snapshot wins.</p>
+ */
+public final class PermissionSnapshot {
+
+    /**
+     * Builds a snapshot from the given nodes, in order of priority.
+     *
+     * @param nodes the nodes
+     * @return the snapshot
+     */
+    public static PermissionSnapshot of(List<? extends Node> nodes) {
+        Map<String, Boolean> permissions = new HashMap<>(nodes.size());
+        Map<String, Boolean> shorthand = new HashMap<>();
+        for (Node node : nodes) {
+            permissions.putIfAbsent(node.getKey().toLowerCase(), node.getValue());
+            for (String s : node.resolveShorthand()) {
+                shorthand.putIfAbsent(s.toLowerCase(), node.getValue());
+            }
+        }
+        return new PermissionSnapshot(ImmutableMap.copyOf(permissions), ImmutableMap.copyOf(shorthand));
+    }
+
+    /**
+     * Combines the given snapshots, in order of priority, into a permission map.
+     *
+     * @param snapshots the snapshots
+     * @param resolveShorthand if shorthand keys should be included
+     * @return the combined map
+     */
+    public static ImmutableMap<String, Boolean> combine(List<PermissionSnapshot> snapshots, boolean resolveShorthand) {
+        if (snapshots.size() == 1) {
+            return snapshots.get(0).toMap(resolveShorthand);
+        }
+
+        int size = 0;
+        for (PermissionSnapshot snapshot : snapshots) {
+            size += snapshot.permissions.size();
+        }
+
+        // apply in reverse order of priority, so higher priority entries overwrite lower ones
+        Map<String, Boolean> map = new HashMap<>(size);
+        if (resolveShorthand) {
+            for (int i = snapshots.size() - 1; i >= 0; i--) {
+                map.putAll(snapshots.get(i).shorthand);
+            }
+        }
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            map.putAll(snapshots.get(i).permissions);
+        }
+        return ImmutableMap.copyOf(map);
+    }
+
+    private final ImmutableMap<String, Boolean> permissions;
+    private final ImmutableMap<String, Boolean> shorthand;
+
+    private PermissionSnapshot(ImmutableMap<String, Boolean> permissions, ImmutableMap<String, Boolean> shorthand) {
+        this.permissions = permissions;
+        this.shorthand = shorthand;
+    }
+
+    /**
+     * Gets the permissions held by this snapshot as a map.
+     *
+     * @param resolveShorthand if shorthand keys should be included
+     * @return the map
+     */
+    public ImmutableMap<String, Boolean> toMap(boolean resolveShorthand) {
+        if (!resolveShorthand || this.shorthand.isEmpty()) {
+            return this.permissions;
+        }
+
+        Map<String, Boolean> map = new HashMap<>(this.shorthand);
+        map.putAll(this.permissions);
+        return ImmutableMap.copyOf(map);
+    }
+
+}
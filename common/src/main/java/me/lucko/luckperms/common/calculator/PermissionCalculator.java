@@ -25,14 +25,18 @@
 
 package me.lucko.luckperms.common.calculator;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.google.common.collect.ImmutableList;
 
-import me.lucko.luckperms.common.cache.LoadingMap;
 import me.lucko.luckperms.common.cacheddata.CacheMetadata;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
 import me.lucko.luckperms.common.calculator.result.TristateResult;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.util.CaffeineFactory;
 import me.lucko.luckperms.common.verbose.event.PermissionCheckEvent;
 
 import net.luckperms.api.util.Tristate;
@@ -58,7 +62,7 @@ public class PermissionCalculator implements Function<String, TristateResult> {
     private final ImmutableList<PermissionProcessor> processors;
 
     /** Loading cache for permission checks */
-    private final LoadingMap<String, TristateResult> lookupCache = LoadingMap.of(this);
+    private final Cache<String, TristateResult> lookupCache;
 
     /** The object name passed to the verbose handler when checks are made */
     private final String verboseCheckTarget;
@@ -68,6 +72,13 @@ public class PermissionCalculator implements Function<String, TristateResult> {
         this.metadata = metadata;
         this.processors = processors;
 
+        Caffeine<Object, Object> cacheBuilder = CaffeineFactory.newBuilder().recordStats();
+        int maxLookups = plugin.getConfiguration().get(ConfigKeys.PERMISSION_LOOKUP_CACHE_SIZE);
+        if (maxLookups > 0) {
+            cacheBuilder.maximumSize(maxLookups);
+        }
+        this.lookupCache = cacheBuilder.build();
+
         if (this.metadata.getHolderType() == HolderType.GROUP) {
             this.verboseCheckTarget = "group/" + this.metadata.getObjectName();
         } else {
@@ -86,7 +97,7 @@ public class PermissionCalculator implements Function<String, TristateResult> {
      */
     public TristateResult checkPermission(String permission, PermissionCheckEvent.Origin origin) {
         // get the result
-        TristateResult result = this.lookupCache.get(permission);
+        TristateResult result = this.lookupCache.get(permission, this);
 
         // log this permission lookup to the verbose handler
         this.plugin.getVerboseHandler().offerPermissionCheckEvent(origin, this.verboseCheckTarget, this.metadata.getQueryOptions(), permission, result);
@@ -129,6 +140,19 @@ public class PermissionCalculator implements Function<String, TristateResult> {
         }
     }
 
+    /**
+     * Notifies the processors that a single entry in the source permissions
+     * map has been added, removed or changed.
+     *
+     * @param permission the permission which changed
+     */
+    public synchronized void sourcePermissionChanged(String permission) {
+        for (PermissionProcessor processor : this.processors) {
+            processor.refresh(permission);
+        }
+        this.lookupCache.invalidateAll();
+    }
+
     public List<PermissionProcessor> getProcessors() {
         return this.processors;
     }
@@ -137,6 +161,26 @@ public class PermissionCalculator implements Function<String, TristateResult> {
         for (PermissionProcessor processor : this.processors) {
             processor.invalidate();
         }
-        this.lookupCache.clear();
+        this.lookupCache.invalidateAll();
+    }
+
+    /**
+     * Gets the hit/miss statistics for the lookup cache.
+     *
+     * <p>Statistics are not reset when the cache is invalidated.</p>
+     *
+     * @return the lookup cache stats
+     */
+    public CacheStats getLookupCacheStats() {
+        return this.lookupCache.stats();
+    }
+
+    /**
+     * Gets the (approximate) number of permission lookups currently cached.
+     *
+     * @return the lookup cache size
+     */
+    public long getLookupCacheSize() {
+        return this.lookupCache.estimatedSize();
     }
 }
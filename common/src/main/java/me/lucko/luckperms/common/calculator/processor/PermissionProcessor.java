@@ -62,6 +62,19 @@ public interface PermissionProcessor {
 
     }
 
+    /**
+     * Called after a single entry in the source map has been added, removed
+     * or changed.
+     *
+     * <p>Processors which only derive state from some entries can override
+     * this to avoid a full {@link #refresh()}.</p>
+     *
+     * @param permission the permission which changed
+     */
+    default void refresh(String permission) {
+        refresh();
+    }
+
     /**
      * Called after the parent calculator has been invalidated
      */
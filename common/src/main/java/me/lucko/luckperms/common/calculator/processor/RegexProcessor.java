@@ -25,37 +25,43 @@
 
 package me.lucko.luckperms.common.calculator.processor;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Maps;
-
 import me.lucko.luckperms.common.calculator.result.TristateResult;
 import me.lucko.luckperms.common.node.types.RegexPermission;
 
 import net.luckperms.api.util.Tristate;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
 public class RegexProcessor extends AbstractPermissionProcessor implements PermissionProcessor {
     private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(RegexProcessor.class);
+    private static final RegexEntry[] EMPTY = new RegexEntry[0];
 
-    private List<Map.Entry<Pattern, TristateResult>> regexPermissions = Collections.emptyList();
+    private RegexEntry[] regexPermissions = EMPTY;
 
     @Override
     public TristateResult hasPermission(String permission) {
-        for (Map.Entry<Pattern, TristateResult> e : this.regexPermissions) {
-            if (e.getKey().matcher(permission).matches()) {
-                return e.getValue();
+        for (RegexEntry e : this.regexPermissions) {
+            // cheaply rule out patterns which can't match before running the regex
+            if (permission.startsWith(e.prefix) && e.pattern.matcher(permission).matches()) {
+                return e.result;
             }
         }
         return TristateResult.UNDEFINED;
     }
 
+    @Override
+    public void refresh(String permission) {
+        if (RegexPermission.parse(permission) != null) {
+            refresh();
+        }
+    }
+
     @Override
     public void refresh() {
-        ImmutableList.Builder<Map.Entry<Pattern, TristateResult>> builder = ImmutableList.builder();
+        List<RegexEntry> entries = new ArrayList<>();
         for (Map.Entry<String, Boolean> e : this.sourceMap.entrySet()) {
             RegexPermission.Builder regexPerm = RegexPermission.parse(e.getKey());
             if (regexPerm == null) {
@@ -68,8 +74,140 @@ public class RegexProcessor extends AbstractPermissionProcessor implements Permi
             }
 
             TristateResult value = RESULT_FACTORY.result(Tristate.of(e.getValue()), "pattern: " + pattern.pattern());
-            builder.add(Maps.immutableEntry(pattern, value));
+            entries.add(new RegexEntry(pattern, literalPrefix(pattern), value));
+        }
+        this.regexPermissions = entries.toArray(EMPTY);
+    }
+
+    /**
+     * Determines a literal string which every input matched by the given
+     * pattern must start with.
+     *
+     * <p>The result is conservative - an empty string is returned if a
+     * prefix can't be safely determined.</p>
+     *
+     * @param pattern the pattern
+     * @return the literal prefix, possibly empty
+     */
+    static String literalPrefix(Pattern pattern) {
+        String regex = pattern.pattern();
+        if (pattern.flags() != 0 || hasTopLevelAlternation(regex)) {
+            return "";
+        }
+
+        StringBuilder prefix = new StringBuilder();
+        int i = regex.startsWith("^") ? 1 : 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                // only escaped punctuation is literal, letters & digits are classes/backreferences.
+                // some of these are zero-width (e.g. \Q\E), so a quantifier which follows
+                // could still apply to the previous character
+                if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    if (prefix.length() != 0) {
+                        prefix.setLength(prefix.length() - 1);
+                    }
+                    break;
+                }
+                prefix.append(regex.charAt(i + 1));
+                i += 2;
+            } else if (META_CHARACTERS.indexOf(c) != -1) {
+                // a quantifier applies to the previous character, so it isn't guaranteed
+                if (QUANTIFIERS.indexOf(c) != -1 && prefix.length() != 0) {
+                    prefix.setLength(prefix.length() - 1);
+                }
+                break;
+            } else {
+                prefix.append(c);
+                i++;
+            }
+        }
+        return prefix.toString();
+    }
+
+    private static final String META_CHARACTERS = ".^$|?*+()[]{}";
+    private static final String QUANTIFIERS = "?*+{";
+
+    private static boolean hasTopLevelAlternation(String regex) {
+        int depth = 0;
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') {
+                    int end = regex.indexOf("\\E", i + 2);
+                    if (end == -1) {
+                        return false;
+                    }
+                    i = end + 2;
+                } else {
+                    i += 2;
+                }
+            } else if (c == '[') {
+                i = skipCharacterClass(regex, i);
+                if (i == -1) {
+                    return true;
+                }
+            } else {
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                } else if (c == '|' && depth == 0) {
+                    return true;
+                }
+                i++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Skips over the character class starting at the given index.
+     *
+     * @param regex the regex
+     * @param start the index of the opening bracket
+     * @return the index after the closing bracket, or -1 if the class couldn't be parsed
+     */
+    private static int skipCharacterClass(String regex, int start) {
+        int i = start + 1;
+        if (i < regex.length() && regex.charAt(i) == '^') {
+            i++;
+        }
+        // a closing bracket at the start of a class is a literal
+        if (i < regex.length() && regex.charAt(i) == ']') {
+            i++;
+        }
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') {
+                    return -1;
+                }
+                i += 2;
+            } else if (c == '[') {
+                i = skipCharacterClass(regex, i);
+                if (i == -1) {
+                    return -1;
+                }
+            } else if (c == ']') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    private static final class RegexEntry {
+        private final Pattern pattern;
+        private final String prefix;
+        private final TristateResult result;
+
+        RegexEntry(Pattern pattern, String prefix, TristateResult result) {
+            this.pattern = pattern;
+            this.prefix = prefix;
+            this.result = result;
         }
-        this.regexPermissions = builder.build();
     }
 }
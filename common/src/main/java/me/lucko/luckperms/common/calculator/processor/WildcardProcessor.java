@@ -25,15 +25,13 @@
 
 package me.lucko.luckperms.common.calculator.processor;
 
-import com.google.common.collect.ImmutableMap;
-
 import me.lucko.luckperms.common.calculator.result.TristateResult;
-import me.lucko.luckperms.common.node.AbstractNode;
 
 import net.luckperms.api.util.Tristate;
 
-import java.util.Collections;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 public class WildcardProcessor extends AbstractPermissionProcessor implements PermissionProcessor {
     private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(WildcardProcessor.class);
@@ -42,34 +40,25 @@ public class WildcardProcessor extends AbstractPermissionProcessor implements Pe
     private static final String ROOT_WILDCARD = "*";
     private static final String ROOT_WILDCARD_WITH_QUOTES = "'*'";
 
-    private Map<String, TristateResult> wildcardPermissions = Collections.emptyMap();
+    private WildcardTrie wildcardPermissions = WildcardTrie.EMPTY;
     private TristateResult rootWildcardState = TristateResult.UNDEFINED;
 
     @Override
     public TristateResult hasPermission(String permission) {
-        String node = permission;
-
-        while (true) {
-            int endIndex = node.lastIndexOf(AbstractNode.NODE_SEPARATOR);
-            if (endIndex == -1) {
-                break;
-            }
+        // the most specific wildcard wins, falling back to the root wildcard
+        return this.wildcardPermissions.match(permission, this.rootWildcardState);
+    }
 
-            node = node.substring(0, endIndex);
-            if (!node.isEmpty()) {
-                TristateResult match = this.wildcardPermissions.get(node);
-                if (match != null && match.result() != Tristate.UNDEFINED) {
-                    return match;
-                }
-            }
+    @Override
+    public void refresh(String permission) {
+        if (permission.endsWith(WILDCARD_SUFFIX) || permission.equals(ROOT_WILDCARD) || permission.equals(ROOT_WILDCARD_WITH_QUOTES)) {
+            refresh();
         }
-
-        return this.rootWildcardState;
     }
 
     @Override
     public void refresh() {
-        ImmutableMap.Builder<String, TristateResult> builder = ImmutableMap.builder();
+        SortedMap<String, TristateResult> wildcards = new TreeMap<>();
         for (Map.Entry<String, Boolean> e : this.sourceMap.entrySet()) {
             String key = e.getKey();
             if (!key.endsWith(WILDCARD_SUFFIX) || key.length() <= 2) {
@@ -78,9 +67,9 @@ public class WildcardProcessor extends AbstractPermissionProcessor implements Pe
             key = key.substring(0, key.length() - 2);
 
             TristateResult value = RESULT_FACTORY.result(Tristate.of(e.getValue()), "match: " + key);
-            builder.put(key, value);
+            wildcards.put(key, value);
         }
-        this.wildcardPermissions = builder.build();
+        this.wildcardPermissions = WildcardTrie.build(wildcards);
 
         Tristate state = Tristate.of(this.sourceMap.get(ROOT_WILDCARD));
         if (state == Tristate.UNDEFINED) {
@@ -0,0 +1,167 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.calculator.processor;
+
+import me.lucko.luckperms.common.calculator.result.TristateResult;
+import me.lucko.luckperms.common.node.AbstractNode;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * An immutable radix tree of wildcard permission prefixes.
+ *
+ * <p>Keys are stored without the trailing {@link WildcardProcessor#WILDCARD_SUFFIX},
+ * so a wildcard {@code foo.bar.*} is stored as {@code foo.bar} and matches any
+ * permission beginning with {@code foo.bar.}.</p>
+ *
+ * <p>Lookups walk the permission string in place, and do not allocate.</p>
+ */
+final class WildcardTrie {
+    private static final char[] NO_CHARS = new char[0];
+    private static final String[] NO_LABELS = new String[0];
+    private static final WildcardTrie[] NO_CHILDREN = new WildcardTrie[0];
+
+    static final WildcardTrie EMPTY = new WildcardTrie(null, NO_CHARS, NO_LABELS, NO_CHILDREN);
+
+    /**
+     * Builds a trie from the given (sorted) map of wildcard prefixes.
+     *
+     * @param wildcards the wildcard prefixes and their results
+     * @return a trie
+     */
+    static WildcardTrie build(SortedMap<String, TristateResult> wildcards) {
+        if (wildcards.isEmpty()) {
+            return EMPTY;
+        }
+
+        String[] keys = wildcards.keySet().toArray(new String[0]);
+        TristateResult[] values = wildcards.values().toArray(new TristateResult[0]);
+        return build(keys, values, 0, keys.length, 0);
+    }
+
+    private static WildcardTrie build(String[] keys, TristateResult[] values, int from, int to, int depth) {
+        // keys are sorted, so a key which ends at this node will always be first
+        TristateResult result = null;
+        if (keys[from].length() == depth) {
+            result = values[from];
+            from++;
+        }
+
+        List<Character> chars = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        List<WildcardTrie> children = new ArrayList<>();
+
+        int groupStart = from;
+        while (groupStart < to) {
+            char c = keys[groupStart].charAt(depth);
+            int groupEnd = groupStart + 1;
+            while (groupEnd < to && keys[groupEnd].charAt(depth) == c) {
+                groupEnd++;
+            }
+
+            // the common prefix of the first and last keys in a sorted group
+            // is shared by every key in the group
+            String first = keys[groupStart];
+            String last = keys[groupEnd - 1];
+            int end = depth + 1;
+            while (end < first.length() && end < last.length() && first.charAt(end) == last.charAt(end)) {
+                end++;
+            }
+
+            chars.add(c);
+            labels.add(first.substring(depth, end));
+            children.add(build(keys, values, groupStart, groupEnd, end));
+
+            groupStart = groupEnd;
+        }
+
+        char[] childChars = new char[chars.size()];
+        for (int i = 0; i < childChars.length; i++) {
+            childChars[i] = chars.get(i);
+        }
+        return new WildcardTrie(result, childChars, labels.toArray(NO_LABELS), children.toArray(NO_CHILDREN));
+    }
+
+    /** The result of the wildcard ending at this node, or null if there isn't one */
+    private final @Nullable TristateResult result;
+
+    /** The first character of each outgoing edge, sorted */
+    private final char[] childChars;
+
+    /** The full label of each outgoing edge */
+    private final String[] childLabels;
+
+    /** The node at the end of each outgoing edge */
+    private final WildcardTrie[] children;
+
+    private WildcardTrie(@Nullable TristateResult result, char[] childChars, String[] childLabels, WildcardTrie[] children) {
+        this.result = result;
+        this.childChars = childChars;
+        this.childLabels = childLabels;
+        this.children = children;
+    }
+
+    /**
+     * Finds the most specific wildcard matching the given permission.
+     *
+     * @param permission the permission
+     * @param def the result to return if no wildcard matches
+     * @return the result of the longest matching wildcard, or {@code def}
+     */
+    TristateResult match(String permission, TristateResult def) {
+        TristateResult match = def;
+        WildcardTrie node = this;
+        int pos = 0;
+        int length = permission.length();
+
+        while (pos < length) {
+            int idx = Arrays.binarySearch(node.childChars, permission.charAt(pos));
+            if (idx < 0) {
+                break;
+            }
+
+            String label = node.childLabels[idx];
+            if (!permission.regionMatches(pos, label, 0, label.length())) {
+                break;
+            }
+
+            pos += label.length();
+            node = node.children[idx];
+
+            // a wildcard only applies to permissions which continue past it
+            if (node.result != null && pos < length && permission.charAt(pos) == AbstractNode.NODE_SEPARATOR) {
+                match = node.result;
+            }
+        }
+
+        return match;
+    }
+}
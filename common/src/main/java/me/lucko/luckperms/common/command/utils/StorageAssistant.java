@@ -78,36 +78,32 @@ public final class StorageAssistant {
     }
 
     public static void save(User user, Sender sender, LuckPermsPlugin plugin) {
-        try {
-            plugin.getStorage().saveUser(user).get();
-        } catch (Exception e) {
-            e.printStackTrace();
-            Message.USER_SAVE_ERROR.send(sender, user.getFormattedDisplayName());
-            return;
-        }
+        // don't wait for the save to complete, it may be held in the save queue for a short while
+        plugin.getStorage().saveUser(user).whenComplete((v, ex) -> {
+            if (ex != null) {
+                ex.printStackTrace();
+                Message.USER_SAVE_ERROR.send(sender, user.getFormattedDisplayName());
+                return;
+            }
 
-        Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
-        if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
-            messagingService.get().pushUserUpdate(user);
-        }
+            Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
+            if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
+                messagingService.get().pushUserUpdate(user);
+            }
+        });
     }
 
     public static void save(Group group, Sender sender, LuckPermsPlugin plugin) {
-        try {
-            plugin.getStorage().saveGroup(group).get();
-        } catch (Exception e) {
-            e.printStackTrace();
-            Message.GROUP_SAVE_ERROR.send(sender, group.getFormattedDisplayName());
-            return;
-        }
-
-        plugin.getGroupManager().invalidateAllGroupCaches();
-        plugin.getUserManager().invalidateAllUserCaches();
+        // don't wait for the save to complete, it may be held in the save queue for a short while
+        plugin.getStorage().saveGroup(group).whenComplete((v, ex) -> {
+            if (ex != null) {
+                ex.printStackTrace();
+                Message.GROUP_SAVE_ERROR.send(sender, group.getFormattedDisplayName());
+                return;
+            }
 
-        Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
-        if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
-            messagingService.get().getUpdateBuffer().request();
-        }
+            pushUpdate(group, plugin);
+        });
     }
 
     public static void save(Track track, Sender sender, LuckPermsPlugin plugin) {
@@ -122,9 +118,34 @@ public final class StorageAssistant {
         plugin.getGroupManager().invalidateAllGroupCaches();
         plugin.getUserManager().invalidateAllUserCaches();
 
+        pushUpdate(track, plugin);
+    }
+
+    /**
+     * Informs other servers about a change to the given group, which may
+     * have been deleted.
+     *
+     * @param group the group
+     * @param plugin the plugin
+     */
+    public static void pushUpdate(Group group, LuckPermsPlugin plugin) {
+        Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
+        if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
+            messagingService.get().pushGroupUpdate(group);
+        }
+    }
+
+    /**
+     * Informs other servers about a change to the given track, which may
+     * have been deleted.
+     *
+     * @param track the track
+     * @param plugin the plugin
+     */
+    public static void pushUpdate(Track track, LuckPermsPlugin plugin) {
         Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
         if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
-            messagingService.get().getUpdateBuffer().request();
+            messagingService.get().pushTrackUpdate(track);
         }
     }
 
@@ -89,6 +89,7 @@ public class GroupRename extends ChildCommand<Group> {
                 .build().submit(plugin, sender);
 
         StorageAssistant.save(newGroup, sender, plugin);
+        StorageAssistant.pushUpdate(group, plugin);
         return CommandResult.SUCCESS;
     }
 }
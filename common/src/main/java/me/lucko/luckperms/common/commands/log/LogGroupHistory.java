@@ -25,8 +25,7 @@
 
 package me.lucko.luckperms.common.commands.log;
 
-import me.lucko.luckperms.common.actionlog.Log;
-import me.lucko.luckperms.common.actionlog.LoggedAction;
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.command.abstraction.ChildCommand;
 import me.lucko.luckperms.common.command.access.CommandPermission;
@@ -38,74 +37,32 @@ import me.lucko.luckperms.common.locale.command.CommandSpec;
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.storage.Storage;
 import me.lucko.luckperms.common.storage.misc.DataConstraints;
-import me.lucko.luckperms.common.util.DurationFormatter;
-import me.lucko.luckperms.common.util.Paginated;
 import me.lucko.luckperms.common.util.Predicates;
 
 import net.luckperms.api.actionlog.Action;
 
 import java.util.List;
-import java.util.Map;
-import java.util.SortedMap;
-
-public class LogGroupHistory extends ChildCommand<Log> {
-    private static final int ENTRIES_PER_PAGE = 10;
 
+public class LogGroupHistory extends ChildCommand<Storage> {
     public LogGroupHistory(LocaleManager locale) {
         super(CommandSpec.LOG_GROUP_HISTORY.localize(locale), "grouphistory", CommandPermission.LOG_GROUP_HISTORY, Predicates.notInRange(1, 2));
     }
 
     @Override
-    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, Log log, List<String> args, String label) {
+    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, Storage storage, List<String> args, String label) {
         String group = args.get(0).toLowerCase();
         if (!DataConstraints.GROUP_NAME_TEST.test(group)) {
             Message.GROUP_INVALID_ENTRY.send(sender, group);
             return CommandResult.INVALID_ARGS;
         }
 
-        Paginated<LoggedAction> content = new Paginated<>(log.getGroupHistory(group));
-
         int page = ArgumentParser.parseIntOrElse(1, args, Integer.MIN_VALUE);
-        if (page != Integer.MIN_VALUE) {
-            return showLog(page, sender, content);
-        } else {
-            return showLog(content.getMaxPages(ENTRIES_PER_PAGE), sender, content);
-        }
-    }
-
-    private static CommandResult showLog(int page, Sender sender, Paginated<LoggedAction> log) {
-        int maxPage = log.getMaxPages(ENTRIES_PER_PAGE);
-        if (maxPage == 0) {
-            Message.LOG_NO_ENTRIES.send(sender);
-            return CommandResult.STATE_ERROR;
-        }
-
-        if (page == Integer.MIN_VALUE) {
-            page = maxPage;
-        }
-
-        if (page < 1 || page > maxPage) {
-            Message.LOG_INVALID_PAGE_RANGE.send(sender, maxPage);
-            return CommandResult.INVALID_ARGS;
-        }
-
-        SortedMap<Integer, LoggedAction> entries = log.getPage(page, ENTRIES_PER_PAGE);
-        String name = ((Action) entries.values().stream().findAny().get()).getTarget().getName();
-        Message.LOG_HISTORY_GROUP_HEADER.send(sender, name, page, maxPage);
-
-        for (Map.Entry<Integer, LoggedAction> e : entries.entrySet()) {
-            Message.LOG_ENTRY.send(sender,
-                    e.getKey(),
-                    DurationFormatter.CONCISE_LOW_ACCURACY.format(e.getValue().getDurationSince()),
-                    e.getValue().getSourceFriendlyString(),
-                    Character.toString(LoggedAction.getTypeCharacter(((Action) e.getValue()).getTarget().getType())),
-                    e.getValue().getTargetFriendlyString(),
-                    e.getValue().getDescription()
-            );
-        }
-
-        return CommandResult.SUCCESS;
+        return LogPages.show(storage, sender, ActionFilter.group(group), page, (entries, p, maxPage) -> {
+            String name = ((Action) entries.values().stream().findAny().get()).getTarget().getName();
+            Message.LOG_HISTORY_GROUP_HEADER.send(sender, name, p, maxPage);
+        });
     }
 
     @Override
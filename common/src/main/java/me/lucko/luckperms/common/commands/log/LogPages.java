@@ -0,0 +1,141 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.commands.log;
+
+import me.lucko.luckperms.common.actionlog.ActionFilter;
+import me.lucko.luckperms.common.actionlog.LogPage;
+import me.lucko.luckperms.common.actionlog.LoggedAction;
+import me.lucko.luckperms.common.command.CommandResult;
+import me.lucko.luckperms.common.locale.message.Message;
+import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.storage.Storage;
+import me.lucko.luckperms.common.util.DurationFormatter;
+
+import net.luckperms.api.actionlog.Action;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Loads and displays pages of the action log for the log commands.
+ *
+ * <p>Pages are numbered from the oldest entry, so the last page contains
+ * the most recent entries. Only the entries in the requested page are
+ * loaded from storage.</p>
+ */
+final class LogPages {
+    private LogPages() {}
+
+    private static final int ENTRIES_PER_PAGE = 10;
+
+    /**
+     * Loads and displays a page of the log.
+     *
+     * @param storage the storage
+     * @param sender the sender to display the page to
+     * @param filter the filter used to select entries
+     * @param page the page number, or {@link Integer#MIN_VALUE} for the last page
+     * @param header the header to display before the entries
+     * @return the result
+     */
+    static CommandResult show(Storage storage, Sender sender, ActionFilter filter, int page, Header header) {
+        // load the newest entries first, this is usually the page which has been requested
+        LogPage newest = load(storage, sender, filter, 0, ENTRIES_PER_PAGE);
+        if (newest == null) {
+            return CommandResult.LOADING_ERROR;
+        }
+
+        int total = newest.getTotalEntries();
+        int maxPage = (total + ENTRIES_PER_PAGE - 1) / ENTRIES_PER_PAGE;
+        if (maxPage == 0) {
+            Message.LOG_NO_ENTRIES.send(sender);
+            return CommandResult.STATE_ERROR;
+        }
+
+        if (page == Integer.MIN_VALUE) {
+            page = maxPage;
+        }
+
+        if (page < 1 || page > maxPage) {
+            Message.LOG_INVALID_PAGE_RANGE.send(sender, maxPage);
+            return CommandResult.INVALID_ARGS;
+        }
+
+        // the range of entry numbers (counting from the oldest) in the page
+        int first = (page - 1) * ENTRIES_PER_PAGE + 1;
+        int last = Math.min(page * ENTRIES_PER_PAGE, total);
+
+        LogPage content;
+        if (last == total) {
+            content = newest;
+        } else {
+            content = load(storage, sender, filter, total - last, last - first + 1);
+            if (content == null) {
+                return CommandResult.LOADING_ERROR;
+            }
+        }
+
+        SortedMap<Integer, LoggedAction> entries = content.getNumberedContent().subMap(first, last + 1);
+        if (entries.isEmpty()) {
+            // the log was modified between the two queries
+            Message.LOG_INVALID_PAGE_RANGE.send(sender, maxPage);
+            return CommandResult.STATE_ERROR;
+        }
+
+        header.send(entries, page, maxPage);
+
+        for (Map.Entry<Integer, LoggedAction> e : entries.entrySet()) {
+            Message.LOG_ENTRY.send(sender,
+                    e.getKey(),
+                    DurationFormatter.CONCISE_LOW_ACCURACY.format(e.getValue().getDurationSince()),
+                    e.getValue().getSourceFriendlyString(),
+                    Character.toString(LoggedAction.getTypeCharacter(((Action) e.getValue()).getTarget().getType())),
+                    e.getValue().getTargetFriendlyString(),
+                    e.getValue().getDescription()
+            );
+        }
+
+        return CommandResult.SUCCESS;
+    }
+
+    private static LogPage load(Storage storage, Sender sender, ActionFilter filter, int offset, int limit) {
+        try {
+            return storage.getLogPage(filter, offset, limit).join();
+        } catch (Exception e) {
+            e.printStackTrace();
+            Message.LOG_LOAD_ERROR.send(sender);
+            return null;
+        }
+    }
+
+    /**
+     * Displays the header for a page of the log.
+     */
+    @FunctionalInterface
+    interface Header {
+        void send(SortedMap<Integer, LoggedAction> entries, int page, int maxPage);
+    }
+}
@@ -25,8 +25,7 @@
 
 package me.lucko.luckperms.common.commands.log;
 
-import me.lucko.luckperms.common.actionlog.Log;
-import me.lucko.luckperms.common.actionlog.LoggedAction;
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.command.abstraction.ChildCommand;
 import me.lucko.luckperms.common.command.access.CommandPermission;
@@ -36,36 +35,29 @@ import me.lucko.luckperms.common.locale.command.CommandSpec;
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
-import me.lucko.luckperms.common.util.DurationFormatter;
-import me.lucko.luckperms.common.util.Paginated;
+import me.lucko.luckperms.common.storage.Storage;
 import me.lucko.luckperms.common.util.Predicates;
 
 import net.luckperms.api.actionlog.Action;
 
 import java.util.List;
-import java.util.Map;
-import java.util.SortedMap;
 import java.util.UUID;
 
-public class LogRecent extends ChildCommand<Log> {
-    private static final int ENTRIES_PER_PAGE = 10;
-    
+public class LogRecent extends ChildCommand<Storage> {
     public LogRecent(LocaleManager locale) {
         super(CommandSpec.LOG_RECENT.localize(locale), "recent", CommandPermission.LOG_RECENT, Predicates.notInRange(0, 2));
     }
 
     @Override
-    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, Log log, List<String> args, String label) {
+    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, Storage storage, List<String> args, String label) {
         if (args.isEmpty()) {
             // No page or user
-            Paginated<LoggedAction> content = new Paginated<>(log.getContent());
-            return showLog(content.getMaxPages(ENTRIES_PER_PAGE), false, sender, content);
+            return LogPages.show(storage, sender, ActionFilter.all(), Integer.MIN_VALUE, (entries, p, maxPage) -> Message.LOG_RECENT_HEADER.send(sender, p, maxPage));
         }
 
         int page = ArgumentParser.parseIntOrElse(0, args, Integer.MIN_VALUE);
         if (page != Integer.MIN_VALUE) {
-            Paginated<LoggedAction> content = new Paginated<>(log.getContent());
-            return showLog(page, false, sender, content);
+            return LogPages.show(storage, sender, ActionFilter.all(), page, (entries, p, maxPage) -> Message.LOG_RECENT_HEADER.send(sender, p, maxPage));
         }
 
         // User and possibly page
@@ -74,48 +66,13 @@ public class LogRecent extends ChildCommand<Log> {
             return CommandResult.INVALID_ARGS;
         }
 
-        Paginated<LoggedAction> content = new Paginated<>(log.getContent(uuid));
         page = ArgumentParser.parseIntOrElse(1, args, Integer.MIN_VALUE);
-        if (page != Integer.MIN_VALUE) {
-            return showLog(page, true, sender, content);
-        } else {
-            return showLog(content.getMaxPages(ENTRIES_PER_PAGE), true, sender, content);
-        }
-    }
-
-    private static CommandResult showLog(int page, boolean specificUser, Sender sender, Paginated<LoggedAction> log) {
-        int maxPage = log.getMaxPages(ENTRIES_PER_PAGE);
-        if (maxPage == 0) {
-            Message.LOG_NO_ENTRIES.send(sender);
-            return CommandResult.STATE_ERROR;
-        }
-
-        if (page < 1 || page > maxPage) {
-            Message.LOG_INVALID_PAGE_RANGE.send(sender, maxPage);
-            return CommandResult.INVALID_ARGS;
-        }
-
-        SortedMap<Integer, LoggedAction> entries = log.getPage(page, ENTRIES_PER_PAGE);
-        if (specificUser) {
+        return LogPages.show(storage, sender, ActionFilter.source(uuid), page, (entries, p, maxPage) -> {
             String name = ((Action) entries.values().stream().findAny().get()).getSource().getName();
             if (name.contains("@")) {
                 name = name.split("@")[0];
             }
-            Message.LOG_RECENT_BY_HEADER.send(sender, name, page, maxPage);
-        } else {
-            Message.LOG_RECENT_HEADER.send(sender, page, maxPage);
-        }
-
-        for (Map.Entry<Integer, LoggedAction> e : entries.entrySet()) {
-            Message.LOG_ENTRY.send(sender,
-                    e.getKey(),
-                    DurationFormatter.CONCISE_LOW_ACCURACY.format(e.getValue().getDurationSince()),
-                    e.getValue().getSourceFriendlyString(),
-                    Character.toString(LoggedAction.getTypeCharacter(((Action) e.getValue()).getTarget().getType())),
-                    e.getValue().getTargetFriendlyString(),
-                    e.getValue().getDescription()
-            );
-        }
-        return CommandResult.SUCCESS;
+            Message.LOG_RECENT_BY_HEADER.send(sender, name, p, maxPage);
+        });
     }
 }
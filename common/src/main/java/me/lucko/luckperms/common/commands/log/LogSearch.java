@@ -25,8 +25,7 @@
 
 package me.lucko.luckperms.common.commands.log;
 
-import me.lucko.luckperms.common.actionlog.Log;
-import me.lucko.luckperms.common.actionlog.LoggedAction;
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.command.abstraction.ChildCommand;
 import me.lucko.luckperms.common.command.access.CommandPermission;
@@ -35,25 +34,18 @@ import me.lucko.luckperms.common.locale.command.CommandSpec;
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
-import me.lucko.luckperms.common.util.DurationFormatter;
-import me.lucko.luckperms.common.util.Paginated;
+import me.lucko.luckperms.common.storage.Storage;
 import me.lucko.luckperms.common.util.Predicates;
 
-import net.luckperms.api.actionlog.Action;
-
 import java.util.List;
-import java.util.Map;
-import java.util.SortedMap;
-
-public class LogSearch extends ChildCommand<Log> {
-    private static final int ENTRIES_PER_PAGE = 10;
 
+public class LogSearch extends ChildCommand<Storage> {
     public LogSearch(LocaleManager locale) {
         super(CommandSpec.LOG_SEARCH.localize(locale), "search", CommandPermission.LOG_SEARCH, Predicates.is(0));
     }
 
     @Override
-    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, Log log, List<String> args, String label) {
+    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, Storage storage, List<String> args, String label) {
         int page = Integer.MIN_VALUE;
         if (args.size() > 1) {
             try {
@@ -65,45 +57,6 @@ public class LogSearch extends ChildCommand<Log> {
         }
 
         final String query = String.join(" ", args);
-        Paginated<LoggedAction> content = new Paginated<>(log.getSearch(query));
-
-        if (page != Integer.MIN_VALUE) {
-            return showLog(page, query, sender, content);
-        } else {
-            return showLog(content.getMaxPages(ENTRIES_PER_PAGE), query, sender, content);
-        }
-    }
-
-    private static CommandResult showLog(int page, String query, Sender sender, Paginated<LoggedAction> log) {
-        int maxPage = log.getMaxPages(ENTRIES_PER_PAGE);
-        if (maxPage == 0) {
-            Message.LOG_NO_ENTRIES.send(sender);
-            return CommandResult.STATE_ERROR;
-        }
-
-        if (page == Integer.MIN_VALUE) {
-            page = maxPage;
-        }
-
-        if (page < 1 || page > maxPage) {
-            Message.LOG_INVALID_PAGE_RANGE.send(sender, maxPage);
-            return CommandResult.INVALID_ARGS;
-        }
-
-        SortedMap<Integer, LoggedAction> entries = log.getPage(page, ENTRIES_PER_PAGE);
-        Message.LOG_SEARCH_HEADER.send(sender, query, page, maxPage);
-
-        for (Map.Entry<Integer, LoggedAction> e : entries.entrySet()) {
-            Message.LOG_ENTRY.send(sender,
-                    e.getKey(),
-                    DurationFormatter.CONCISE_LOW_ACCURACY.format(e.getValue().getDurationSince()),
-                    e.getValue().getSourceFriendlyString(),
-                    Character.toString(LoggedAction.getTypeCharacter(((Action) e.getValue()).getTarget().getType())),
-                    e.getValue().getTargetFriendlyString(),
-                    e.getValue().getDescription()
-            );
-        }
-
-        return CommandResult.SUCCESS;
+        return LogPages.show(storage, sender, ActionFilter.search(query), page, (entries, p, maxPage) -> Message.LOG_SEARCH_HEADER.send(sender, query, p, maxPage));
     }
 }
@@ -42,9 +42,11 @@ import me.lucko.luckperms.common.command.abstraction.CommandException;
 import me.lucko.luckperms.common.command.abstraction.SingleCommand;
 import me.lucko.luckperms.common.command.access.CommandPermission;
 import me.lucko.luckperms.common.command.utils.ArgumentParser;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.locale.LocaleManager;
 import me.lucko.luckperms.common.locale.command.CommandSpec;
 import me.lucko.luckperms.common.locale.message.Message;
+import me.lucko.luckperms.common.messaging.InternalMessagingService;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.util.CaffeineFactory;
@@ -81,6 +83,12 @@ public class BulkUpdateCommand extends SingleCommand {
             plugin.getStorage().applyBulkUpdate(operation).whenCompleteAsync((v, ex) -> {
                 if (ex == null) {
                     plugin.getSyncTaskBuffer().requestDirectly();
+
+                    // other servers need to reload the changed data too - their node
+                    // journals can't detect rows which were changed in place
+                    if (plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
+                        plugin.getMessagingService().ifPresent(InternalMessagingService::pushUpdate);
+                    }
                     Message.BULK_UPDATE_SUCCESS.send(sender);
                 } else {
                     ex.printStackTrace();
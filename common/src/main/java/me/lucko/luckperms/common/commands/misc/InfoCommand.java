@@ -25,6 +25,9 @@
 
 package me.lucko.luckperms.common.commands.misc;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.google.common.collect.Iterables;
+
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.command.abstraction.SingleCommand;
 import me.lucko.luckperms.common.command.access.CommandPermission;
@@ -32,7 +35,9 @@ import me.lucko.luckperms.common.command.utils.MessageUtils;
 import me.lucko.luckperms.common.locale.LocaleManager;
 import me.lucko.luckperms.common.locale.command.CommandSpec;
 import me.lucko.luckperms.common.locale.message.Message;
+import me.lucko.luckperms.common.messaging.ExpiringMessageIdSet;
 import me.lucko.luckperms.common.messaging.InternalMessagingService;
+import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.util.DurationFormatter;
@@ -88,6 +93,19 @@ public class InfoCommand extends SingleCommand {
                 plugin.getTrackManager().getAll().size()
         );
 
+        CacheStats lookupStats = CacheStats.empty();
+        long lookupCacheSize = 0;
+        for (PermissionHolder holder : Iterables.concat(plugin.getUserManager().getAll().values(), plugin.getGroupManager().getAll().values())) {
+            lookupStats = lookupStats.plus(holder.getCachedData().getPermissionLookupCacheStats());
+            lookupCacheSize += holder.getCachedData().getPermissionLookupCacheSize();
+        }
+        Message.INFO_LOOKUP_CACHE.send(sender, lookupCacheSize, String.format("%.1f", lookupStats.hitRate() * 100));
+
+        plugin.getMessagingService().ifPresent(messagingService -> {
+            ExpiringMessageIdSet receivedMessages = messagingService.getReceivedMessages();
+            Message.INFO_RECEIVED_MESSAGES.send(sender, receivedMessages.size(), receivedMessages.getDuplicateCount());
+        });
+
         return CommandResult.SUCCESS;
     }
 
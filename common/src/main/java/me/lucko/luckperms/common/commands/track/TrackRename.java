@@ -88,6 +88,7 @@ public class TrackRename extends ChildCommand<Track> {
                 .build().submit(plugin, sender);
 
         StorageAssistant.save(newTrack, sender, plugin);
+        StorageAssistant.pushUpdate(track, plugin);
         return CommandResult.SUCCESS;
     }
 }
@@ -204,6 +204,11 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> APPLYING_SHORTHAND = enduringKey(booleanKey("apply-shorthand", true));
 
+    /**
+     * The maximum number of permission lookups to cache per calculator. A value <= 0 means no limit.
+     */
+    public static final ConfigKey<Integer> PERMISSION_LOOKUP_CACHE_SIZE = enduringKey(customKey(c -> c.getInteger("permission-lookup-cache-size", 0)));
+
     /**
      * If Bukkit child permissions are being applied. This setting is ignored on other platforms.
      */
@@ -464,6 +469,16 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> WATCH_FILES = booleanKey("watch-files", true);
 
+    /**
+     * The delay in milliseconds before pending user/group saves are written to the storage. A value <= 0 disables the queue.
+     */
+    public static final ConfigKey<Integer> SAVE_QUEUE_DELAY = enduringKey(customKey(c -> c.getInteger("save-queue.delay", 50)));
+
+    /**
+     * The number of pending user/group saves which causes the save queue to be written immediately
+     */
+    public static final ConfigKey<Integer> SAVE_QUEUE_MAX_PENDING = enduringKey(customKey(c -> c.getInteger("save-queue.max-pending", 100)));
+
     /**
      * If split storage is being used
      */
@@ -492,6 +507,18 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> AUTO_PUSH_UPDATES = enduringKey(booleanKey("auto-push-updates", true));
 
+    /**
+     * If updates for a specific group or track should be pushed, instead of a general update.
+     * Disabled by default, as older versions don't understand these updates.
+     */
+    public static final ConfigKey<Boolean> PUSH_TARGETED_UPDATES = enduringKey(booleanKey("push-targeted-updates", false));
+
+    /**
+     * If outgoing messages should be batched together before they are sent.
+     * Disabled by default, as older versions don't understand batches.
+     */
+    public static final ConfigKey<Boolean> BATCH_OUTGOING_MESSAGES = enduringKey(booleanKey("batch-outgoing-messages", false));
+
     /**
      * If LuckPerms should push logging entries to connected servers via the messaging service
      */
@@ -517,6 +544,11 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<String> REDIS_PASSWORD = enduringKey(stringKey("redis.password", ""));
 
+    /**
+     * The redis channel used to publish and receive messages
+     */
+    public static final ConfigKey<String> REDIS_CHANNEL = enduringKey(stringKey("redis.channel", "luckperms:update"));
+
     /**
      * The URL of the bytebin instance used to upload data
      */
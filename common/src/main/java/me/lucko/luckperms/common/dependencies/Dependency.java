@@ -151,8 +151,8 @@ public enum Dependency {
     POSTGRESQL_DRIVER(
             "org{}postgresql",
             "postgresql",
-            "9.4.1212",
-            "DLKhWL4xrPIY4KThjI89usaKO8NIBkaHc/xECUsMNl0=",
+            "42.2.8",
+            "f7gedPXCWlxAqZfZuDMz/dO11joLPWHLptVix+On8/Y=",
             Relocation.of("postgresql", "org{}postgresql")
     ),
     H2_DRIVER(
@@ -108,7 +108,16 @@ public final class EventDispatcher {
         return this.eventBus;
     }
 
-    private boolean shouldPost(Class<? extends LuckPermsEvent> eventClass) {
+    /**
+     * Gets if there are any subscribers for the given event.
+     *
+     * <p>Can be used to avoid preparing the parameters for an event which
+     * would not be posted.</p>
+     *
+     * @param eventClass the event class
+     * @return if the event should be posted
+     */
+    public boolean shouldPost(Class<? extends LuckPermsEvent> eventClass) {
         return this.eventBus.shouldPost(eventClass);
     }
 
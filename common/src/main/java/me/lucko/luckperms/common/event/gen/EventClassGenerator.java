@@ -0,0 +1,309 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.event.gen;
+
+import net.luckperms.api.LuckPerms;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the bytecode for a {@link GeneratedEvent} subclass implementing an event interface.
+ *
+ * <p>The generated class has a final field for each of the events parameters,
+ * a constructor which assigns them from an array, and an implementation of
+ * each getter method which returns the corresponding field. All other methods
+ * are inherited from {@link GeneratedEvent} or the interfaces default methods.</p>
+ */
+final class EventClassGenerator {
+    private EventClassGenerator() {}
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int JAVA_8 = 52;
+
+    // access flags
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    // constant pool tags
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    // opcodes
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ALOAD_3 = 0x2d;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int AALOAD = 0x32;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int CHECKCAST = 0xc0;
+
+    private static final String SUPER_CLASS = internalName(GeneratedEvent.class);
+    private static final String SUPER_CONSTRUCTOR_DESCRIPTOR = "(" + descriptor(GeneratedEventSpec.class) + descriptor(LuckPerms.class) + ")V";
+
+    /**
+     * The descriptor of the generated constructor
+     */
+    static final String CONSTRUCTOR_DESCRIPTOR = "(" + descriptor(GeneratedEventSpec.class) + descriptor(LuckPerms.class) + "[Ljava/lang/Object;)V";
+
+    /**
+     * Generates an implementation of the given event interface.
+     *
+     * @param className the binary name of the class to generate
+     * @param eventClass the event interface
+     * @param methods the getter methods, in the order their values appear in the constructor array
+     * @return the class file bytes
+     */
+    static byte[] generate(String className, Class<?> eventClass, List<Method> methods) {
+        String thisClass = className.replace('.', '/');
+        ConstantPool pool = new ConstantPool();
+
+        int thisClassIndex = pool.classRef(thisClass);
+        int superClassIndex = pool.classRef(SUPER_CLASS);
+        int interfaceIndex = pool.classRef(internalName(eventClass));
+        int codeIndex = pool.utf8("Code");
+
+        // fields
+        List<int[]> fields = new ArrayList<>(methods.size());
+        for (int i = 0; i < methods.size(); i++) {
+            String name = "field" + i;
+            String descriptor = descriptor(methods.get(i).getReturnType());
+            fields.add(new int[]{pool.utf8(name), pool.utf8(descriptor), pool.fieldRef(thisClass, name, descriptor)});
+        }
+
+        // constructor
+        Bytecode constructor = new Bytecode();
+        constructor.op(ALOAD_0).op(ALOAD_1).op(ALOAD_2);
+        constructor.op(INVOKESPECIAL).u2(pool.methodRef(SUPER_CLASS, "<init>", SUPER_CONSTRUCTOR_DESCRIPTOR));
+        for (int i = 0; i < methods.size(); i++) {
+            constructor.op(ALOAD_0).op(ALOAD_3).pushInt(i).op(AALOAD);
+            constructor.op(CHECKCAST).u2(pool.classRef(checkcastName(methods.get(i).getReturnType())));
+            constructor.op(PUTFIELD).u2(fields.get(i)[2]);
+        }
+        constructor.op(RETURN);
+
+        int constructorName = pool.utf8("<init>");
+        int constructorDescriptor = pool.utf8(CONSTRUCTOR_DESCRIPTOR);
+
+        // getters
+        List<int[]> getters = new ArrayList<>(methods.size());
+        for (int i = 0; i < methods.size(); i++) {
+            Method method = methods.get(i);
+            getters.add(new int[]{pool.utf8(method.getName()), pool.utf8("()" + descriptor(method.getReturnType()))});
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeInt(MAGIC);
+            out.writeShort(0);
+            out.writeShort(JAVA_8);
+            pool.write(out);
+
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClassIndex);
+            out.writeShort(superClassIndex);
+            out.writeShort(1);
+            out.writeShort(interfaceIndex);
+
+            out.writeShort(fields.size());
+            for (int[] field : fields) {
+                out.writeShort(ACC_PRIVATE | ACC_FINAL);
+                out.writeShort(field[0]);
+                out.writeShort(field[1]);
+                out.writeShort(0);
+            }
+
+            out.writeShort(1 + getters.size());
+            writeMethod(out, codeIndex, constructorName, constructorDescriptor, 3, 4, constructor);
+            for (int i = 0; i < getters.size(); i++) {
+                Bytecode getter = new Bytecode();
+                getter.op(ALOAD_0).op(GETFIELD).u2(fields.get(i)[2]).op(ARETURN);
+                writeMethod(out, codeIndex, getters.get(i)[0], getters.get(i)[1], 1, 1, getter);
+            }
+
+            out.writeShort(0);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeMethod(DataOutputStream out, int codeIndex, int name, int descriptor, int maxStack, int maxLocals, Bytecode code) throws IOException {
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+
+        // Code attribute
+        out.writeShort(codeIndex);
+        out.writeInt(12 + code.size());
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.size());
+        code.writeTo(out);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // attributes
+    }
+
+    private static String internalName(Class<?> clazz) {
+        return clazz.getName().replace('.', '/');
+    }
+
+    private static String checkcastName(Class<?> clazz) {
+        return clazz.isArray() ? descriptor(clazz) : internalName(clazz);
+    }
+
+    private static String descriptor(Class<?> clazz) {
+        if (clazz.isPrimitive()) {
+            throw new IllegalArgumentException("Primitive event parameters are not supported: " + clazz);
+        }
+        if (clazz.isArray()) {
+            return internalName(clazz);
+        }
+        return "L" + internalName(clazz) + ";";
+    }
+
+    private static final class Bytecode extends ByteArrayOutputStream {
+        Bytecode op(int opcode) {
+            write(opcode);
+            return this;
+        }
+
+        Bytecode u2(int value) {
+            write(value >>> 8);
+            write(value);
+            return this;
+        }
+
+        Bytecode pushInt(int value) {
+            if (value <= 5) {
+                return op(ICONST_0 + value);
+            } else if (value <= Byte.MAX_VALUE) {
+                return op(BIPUSH).op(value);
+            } else {
+                return op(SIPUSH).u2(value);
+            }
+        }
+    }
+
+    private static final class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(this.bytes);
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private int nextIndex = 1;
+
+        private int entry(String key, EntryWriter writer) {
+            Integer index = this.indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            try {
+                writer.write(this.out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            int i = this.nextIndex++;
+            this.indexes.put(key, i);
+            return i;
+        }
+
+        int utf8(String value) {
+            return entry("utf8:" + value, out -> {
+                out.writeByte(CONSTANT_UTF8);
+                out.writeUTF(value);
+            });
+        }
+
+        int classRef(String internalName) {
+            int name = utf8(internalName);
+            return entry("class:" + internalName, out -> {
+                out.writeByte(CONSTANT_CLASS);
+                out.writeShort(name);
+            });
+        }
+
+        int nameAndType(String name, String descriptor) {
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            return entry("nat:" + name + ":" + descriptor, out -> {
+                out.writeByte(CONSTANT_NAME_AND_TYPE);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+        }
+
+        int fieldRef(String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nameAndType = nameAndType(name, descriptor);
+            return entry("field:" + owner + "." + name + ":" + descriptor, out -> {
+                out.writeByte(CONSTANT_FIELDREF);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nameAndType = nameAndType(name, descriptor);
+            return entry("method:" + owner + "." + name + ":" + descriptor, out -> {
+                out.writeByte(CONSTANT_METHODREF);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeShort(this.nextIndex);
+            this.bytes.writeTo(out);
+        }
+
+        @FunctionalInterface
+        private interface EntryWriter {
+            void write(DataOutputStream out) throws IOException;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.event.gen;
+
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.event.LuckPermsEvent;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Base class for the event implementations created by {@link GeneratedEventSpec}.
+ *
+ * <p>Subclasses are generated at runtime, and hold the event parameters in
+ * fields which are returned directly by the event interfaces getter methods.</p>
+ */
+public abstract class GeneratedEvent implements LuckPermsEvent {
+    private final GeneratedEventSpec spec;
+    private final LuckPerms api;
+
+    protected GeneratedEvent(GeneratedEventSpec spec, LuckPerms api) {
+        this.spec = spec;
+        this.api = api;
+    }
+
+    @Override
+    public @NonNull LuckPerms getLuckPerms() {
+        return this.api;
+    }
+
+    @Override
+    public @NonNull Class<? extends LuckPermsEvent> getEventType() {
+        return this.spec.getEventClass();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("GeneratedEvent(")
+                .append("class=").append(getClass().getName()).append("@").append(Integer.toHexString(hashCode())).append(", ")
+                .append("type=").append(this.spec.getEventClass().getName()).append(", ")
+                .append("fields=[");
+
+        List<Method> methods = this.spec.getMethods();
+        for (int i = 0; i < methods.size(); i++) {
+            if (i != 0) {
+                sb.append(", ");
+            }
+            try {
+                sb.append(methods.get(i).invoke(this));
+            } catch (ReflectiveOperationException e) {
+                sb.append("?");
+            }
+        }
+        return sb.append("])").toString();
+    }
+}
@@ -29,36 +29,31 @@ import com.google.common.collect.ImmutableList;
 
 import me.lucko.luckperms.common.cache.LoadingMap;
 import me.lucko.luckperms.common.util.ImmutableCollectors;
-import me.lucko.luckperms.common.util.PrivateMethodHandles;
 
 import net.luckperms.api.LuckPerms;
 import net.luckperms.api.event.LuckPermsEvent;
 import net.luckperms.api.event.util.Param;
 
-import java.lang.reflect.InvocationHandler;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Represents the generated specification for an instance of a given {@link LuckPermsEvent}.
+ *
+ * <p>Events are implemented by a class generated at runtime, see {@link EventClassGenerator}.</p>
  */
 public class GeneratedEventSpec {
 
-    private static final Method TO_STRING_METHOD;
-    private static final Method EQUALS_METHOD;
-    private static final Method HASHCODE_METHOD;
     private static final Method GET_LUCKPERMS_METHOD;
     private static final Method GET_EVENT_TYPE_METHOD;
     static {
         try {
-            TO_STRING_METHOD = Object.class.getMethod("toString");
-            EQUALS_METHOD = Object.class.getMethod("equals", Object.class);
-            HASHCODE_METHOD = Object.class.getMethod("hashCode");
             GET_LUCKPERMS_METHOD = LuckPermsEvent.class.getMethod("getLuckPerms");
             GET_EVENT_TYPE_METHOD = LuckPermsEvent.class.getMethod("getEventType");
         } catch (NoSuchMethodException e) {
@@ -68,6 +63,8 @@ public class GeneratedEventSpec {
 
     private static final Map<Class<? extends LuckPermsEvent>, GeneratedEventSpec> CACHE = LoadingMap.of(GeneratedEventSpec::new);
 
+    private static final GeneratedClassLoader CLASS_LOADER = new GeneratedClassLoader();
+
     public static GeneratedEventSpec lookup(Class<? extends LuckPermsEvent> event) {
         return CACHE.get(event);
     }
@@ -75,6 +72,7 @@ public class GeneratedEventSpec {
     private final Class<? extends LuckPermsEvent> eventClass;
     private final List<Method> methods;
     private final List<Class<?>> returnTypes;
+    private final MethodHandle constructor;
 
     private GeneratedEventSpec(Class<? extends LuckPermsEvent> eventClass) {
         this.eventClass = eventClass;
@@ -96,6 +94,24 @@ public class GeneratedEventSpec {
         this.returnTypes = this.methods.stream()
                 .map(Method::getReturnType)
                 .collect(ImmutableCollectors.toList());
+
+        String className = GeneratedEventSpec.class.getPackage().getName() + ".Generated" + eventClass.getSimpleName();
+        Class<?> generatedClass = CLASS_LOADER.define(className, EventClassGenerator.generate(className, eventClass, this.methods));
+        try {
+            this.constructor = MethodHandles.publicLookup()
+                    .findConstructor(generatedClass, MethodType.methodType(void.class, GeneratedEventSpec.class, LuckPerms.class, Object[].class))
+                    .asType(MethodType.methodType(GeneratedEvent.class, GeneratedEventSpec.class, LuckPerms.class, Object[].class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public Class<? extends LuckPermsEvent> getEventClass() {
+        return this.eventClass;
+    }
+
+    public List<Method> getMethods() {
+        return this.methods;
     }
 
     public LuckPermsEvent newInstance(LuckPerms api, Object... params) {
@@ -111,56 +127,27 @@ public class GeneratedEventSpec {
             }
         }
 
-        EventInvocationHandler eventInvocationHandler = new EventInvocationHandler(api, params);
-        return (LuckPermsEvent) Proxy.newProxyInstance(GeneratedEventSpec.class.getClassLoader(), new Class[]{this.eventClass}, eventInvocationHandler);
+        try {
+            return (GeneratedEvent) this.constructor.invokeExact(this, api, params);
+        } catch (Throwable e) {
+            throw new RuntimeException("Unable to create instance of " + this.eventClass, e);
+        }
     }
 
     /**
-     * An invocation handler bound to a set of parameters, used to implement the event as a proxy.
+     * Defines the generated event classes.
      */
-    private final class EventInvocationHandler implements InvocationHandler {
-        private final LuckPerms api;
-        private final Object[] fields;
-
-        EventInvocationHandler(LuckPerms api, Object[] fields) {
-            this.api = api;
-            this.fields = fields;
+    private static final class GeneratedClassLoader extends ClassLoader {
+        static {
+            ClassLoader.registerAsParallelCapable();
         }
 
-        @Override
-        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-            if (TO_STRING_METHOD.equals(method)) {
-                return "GeneratedEvent(" +
-                        "proxy=" + proxy.getClass().getName() + "@" + Integer.toHexString(proxy.hashCode()) + ", " +
-                        "class=" + GeneratedEventSpec.this.eventClass.getName() + ", " +
-                        "fields=" + Arrays.toString(this.fields) + ")";
-            }
-            if (EQUALS_METHOD.equals(method)) {
-                return proxy == args[0];
-            }
-            if (HASHCODE_METHOD.equals(method)) {
-                return System.identityHashCode(proxy);
-            }
-            if (GET_LUCKPERMS_METHOD.equals(method)) {
-                return this.api;
-            }
-            if (GET_EVENT_TYPE_METHOD.equals(method)) {
-                return GeneratedEventSpec.this.eventClass;
-            }
-
-            if (method.getDeclaringClass() == Object.class || method.isDefault()) {
-                return PrivateMethodHandles.privateLookup(method.getDeclaringClass())
-                        .unreflectSpecial(method, method.getDeclaringClass())
-                        .bindTo(proxy)
-                        .invokeWithArguments(args);
-            }
-
-            int methodIndex = GeneratedEventSpec.this.methods.indexOf(method);
-            if (methodIndex == -1) {
-                throw new UnsupportedOperationException("Method not supported: " + method);
-            }
+        GeneratedClassLoader() {
+            super(GeneratedEventSpec.class.getClassLoader());
+        }
 
-            return this.fields[methodIndex];
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
         }
     }
 
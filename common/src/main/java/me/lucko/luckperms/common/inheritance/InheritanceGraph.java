@@ -36,9 +36,8 @@ import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.query.QueryOptions;
 
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
 /**
  * A {@link Graph} which represents an "inheritance tree".
@@ -58,23 +57,33 @@ public class InheritanceGraph implements Graph<PermissionHolder> {
 
     @Override
     public Iterable<? extends PermissionHolder> successors(PermissionHolder holder) {
-        Set<Group> successors = new LinkedHashSet<>();
-        for (InheritanceNode n : holder.getOwnInheritanceNodes(this.queryOptions)) {
+        List<InheritanceNode> nodes = holder.getOwnInheritanceNodes(this.queryOptions);
+        if (nodes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // holders rarely have more than a few parents, so a list is cheaper than a set here
+        List<Group> successors = new ArrayList<>(nodes.size());
+        for (InheritanceNode n : nodes) {
             Group g = this.plugin.getGroupManager().getIfLoaded(n.getGroupName());
-            if (g != null) {
+            if (g != null && !successors.contains(g)) {
                 successors.add(g);
             }
         }
 
-        List<Group> successorsSorted = new ArrayList<>(successors);
-        successorsSorted.sort(holder.getInheritanceComparator());
-        return successorsSorted;
+        if (successors.size() > 1) {
+            successors.sort(holder.getInheritanceComparator());
+        }
+        return successors;
     }
 
     /**
      * Returns an iterable which will traverse this inheritance graph using the specified
      * algorithm starting at the given permission holder start node.
      *
+     * <p>The result is cached by the start node until the next change to the
+     * inheritance graph, see {@link InheritanceHandler#invalidateTraversals()}.</p>
+     *
      * @param algorithm the algorithm to use when traversing
      * @param postTraversalSort if a final sort according to inheritance (weight, primary group) rules
      *                          should be performed after the traversal algorithm has completed
@@ -82,6 +91,16 @@ public class InheritanceGraph implements Graph<PermissionHolder> {
      * @return an iterable
      */
     public Iterable<PermissionHolder> traverse(TraversalAlgorithm algorithm, boolean postTraversalSort, PermissionHolder startNode) {
+        return startNode.getTraversalCache().get(
+                this.plugin.getInheritanceHandler(),
+                this.queryOptions,
+                algorithm,
+                postTraversalSort,
+                () -> computeTraversal(algorithm, postTraversalSort, startNode)
+        );
+    }
+
+    private Iterable<PermissionHolder> computeTraversal(TraversalAlgorithm algorithm, boolean postTraversalSort, PermissionHolder startNode) {
         Iterable<PermissionHolder> traversal = traverse(algorithm, startNode);
 
         // perform post traversal sort if needed
@@ -29,6 +29,8 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
 import net.luckperms.api.query.QueryOptions;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Provides {@link InheritanceGraph}s.
  */
@@ -38,6 +40,14 @@ public class InheritanceHandler {
     private final InheritanceGraph nonContextualGraph;
     private final InheritanceGraph defaultContextualGraph;
 
+    private final InheritanceIndex index = new InheritanceIndex();
+
+    /**
+     * Incremented whenever a change is made to a group which may affect the
+     * result of a traversal, used to invalidate {@link TraversalCache}s.
+     */
+    private final AtomicLong version = new AtomicLong();
+
     public InheritanceHandler(LuckPermsPlugin plugin) {
         this.plugin = plugin;
         this.nonContextualGraph = new InheritanceGraph(plugin, QueryOptions.nonContextual());
@@ -54,6 +64,19 @@ public class InheritanceHandler {
         }
     }
 
+    public InheritanceIndex getIndex() {
+        return this.index;
+    }
 
+    public long getVersion() {
+        return this.version.get();
+    }
+
+    /**
+     * Invalidates all cached traversals.
+     */
+    public void invalidateTraversals() {
+        this.version.incrementAndGet();
+    }
 
 }
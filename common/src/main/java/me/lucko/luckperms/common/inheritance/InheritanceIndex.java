@@ -0,0 +1,114 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.inheritance;
+
+import com.google.common.collect.MapMaker;
+
+import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.model.PermissionHolder;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A reverse index of inheritance relationships, mapping each group to the
+ * holders which inherit from it.
+ *
+ * <p>Edges are recorded for inheritance nodes in any context, so the index may
+ * over-approximate the holders which are affected by a change to a group, but
+ * will never miss one.</p>
+ *
+ * <p>Holders are weakly referenced, so unloaded users do not need to be
+ * explicitly removed.</p>
+ */
+public class InheritanceIndex {
+
+    /**
+     * Mapping of lowercase group name to the holders which directly inherit from it
+     */
+    private final Map<String, Set<PermissionHolder>> dependents = new ConcurrentHashMap<>();
+
+    /**
+     * Records a change to the groups directly inherited by a holder.
+     *
+     * @param holder the holder
+     * @param previous the lowercase names of the groups previously inherited
+     * @param current the lowercase names of the groups now inherited
+     */
+    public void update(PermissionHolder holder, Set<String> previous, Set<String> current) {
+        for (String group : previous) {
+            if (!current.contains(group)) {
+                Set<PermissionHolder> set = this.dependents.get(group);
+                if (set != null) {
+                    set.remove(holder);
+                }
+            }
+        }
+        for (String group : current) {
+            if (!previous.contains(group)) {
+                this.dependents.computeIfAbsent(group, g -> Collections.newSetFromMap(new MapMaker().weakKeys().makeMap())).add(holder);
+            }
+        }
+    }
+
+    /**
+     * Gets the holders which inherit from the given group, either directly or
+     * through another group.
+     *
+     * @param group the name of the group
+     * @return the dependent holders
+     */
+    public Set<PermissionHolder> getDependents(String group) {
+        Set<PermissionHolder> result = new HashSet<>();
+
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        visited.add(group.toLowerCase());
+        queue.add(group.toLowerCase());
+
+        String next;
+        while ((next = queue.poll()) != null) {
+            Set<PermissionHolder> direct = this.dependents.get(next);
+            if (direct == null) {
+                continue;
+            }
+
+            for (PermissionHolder holder : direct) {
+                if (result.add(holder) && holder.getType() == HolderType.GROUP && visited.add(holder.getObjectName())) {
+                    queue.add(holder.getObjectName());
+                }
+            }
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.inheritance;
+
+import com.google.common.collect.ImmutableList;
+
+import me.lucko.luckperms.common.graph.TraversalAlgorithm;
+import me.lucko.luckperms.common.model.PermissionHolder;
+
+import net.luckperms.api.query.QueryOptions;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches the result of traversing the inheritance graph from a single
+ * {@link PermissionHolder}.
+ *
+ * <p>Each result is tagged with the {@link InheritanceHandler#getVersion() version}
+ * of the inheritance graph it was computed from, and is discarded once the
+ * version changes. Changes which only affect the traversal from this holder
+ * (for example, a change to a users parent groups) are handled by
+ * {@link #invalidate()}.</p>
+ *
+ * <p>An instance is held by every loaded holder, so a plain access-ordered
+ * map is used instead of a Caffeine cache to keep the footprint small.</p>
+ */
+public final class TraversalCache {
+
+    /**
+     * The maximum number of traversals to hold, after which the least
+     * used are evicted
+     */
+    private static final int MAX_SIZE = 32;
+
+    /**
+     * The cached traversals, in access order. Guarded by itself.
+     */
+    private final Map<Key, Entry> traversals = new LinkedHashMap<Key, Entry>(4, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    /**
+     * Incremented by {@link #invalidate()}
+     */
+    private final AtomicLong localVersion = new AtomicLong();
+
+    /**
+     * Gets the traversal for the given parameters, computing it if there is
+     * no cached traversal for the current version.
+     *
+     * @param handler the inheritance handler
+     * @param queryOptions the query options used to build the graph
+     * @param algorithm the traversal algorithm
+     * @param postTraversalSort if the traversal is sorted after it has completed
+     * @param traversal a supplier which performs the traversal
+     * @return the traversal
+     */
+    public ImmutableList<PermissionHolder> get(InheritanceHandler handler, QueryOptions queryOptions, TraversalAlgorithm algorithm, boolean postTraversalSort, Supplier<Iterable<PermissionHolder>> traversal) {
+        Key key = new Key(queryOptions, algorithm, postTraversalSort);
+
+        // read the version before traversing, so a change made mid-traversal
+        // results in the entry being discarded on the next lookup
+        long version = handler.getVersion();
+        long localVersion = this.localVersion.get();
+        Entry entry;
+        synchronized (this.traversals) {
+            entry = this.traversals.get(key);
+        }
+        if (entry != null && entry.version == version && entry.localVersion == localVersion) {
+            return entry.result;
+        }
+
+        // traverse outside of the lock, the graph may be large
+        ImmutableList<PermissionHolder> result = ImmutableList.copyOf(traversal.get());
+        synchronized (this.traversals) {
+            this.traversals.put(key, new Entry(version, localVersion, result));
+        }
+        return result;
+    }
+
+    /**
+     * Invalidates the traversals cached for this holder.
+     */
+    public void invalidate() {
+        this.localVersion.incrementAndGet();
+        synchronized (this.traversals) {
+            this.traversals.clear();
+        }
+    }
+
+    private static final class Key {
+        private final QueryOptions queryOptions;
+        private final TraversalAlgorithm algorithm;
+        private final boolean postTraversalSort;
+        private final int hashCode;
+
+        Key(QueryOptions queryOptions, TraversalAlgorithm algorithm, boolean postTraversalSort) {
+            this.queryOptions = queryOptions;
+            this.algorithm = algorithm;
+            this.postTraversalSort = postTraversalSort;
+            this.hashCode = Objects.hash(queryOptions, algorithm, postTraversalSort);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return this.algorithm == other.algorithm &&
+                    this.postTraversalSort == other.postTraversalSort &&
+                    this.queryOptions.equals(other.queryOptions);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final long localVersion;
+        private final ImmutableList<PermissionHolder> result;
+
+        Entry(long version, long localVersion, ImmutableList<PermissionHolder> result) {
+            this.version = version;
+            this.localVersion = localVersion;
+            this.result = result;
+        }
+    }
+
+}
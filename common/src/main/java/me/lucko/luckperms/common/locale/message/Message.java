@@ -230,6 +230,9 @@ public enum Message {
             false
     ),
 
+    INFO_LOOKUP_CACHE("&f-     &3Permission Lookups: &a{} &7cached, &a{}% &7hit rate", true),
+    INFO_RECEIVED_MESSAGES("&f-     &3Message IDs: &a{} &7tracked, &a{} &7duplicates ignored", true),
+
     DEBUG_START("&bGenerating debugging output...", true),
     DEBUG_URL("&aDebug data URL:", true),
 
@@ -467,6 +470,7 @@ public enum Message {
     IMPORT_END_COMPLETE("&b(Import) &a&lCOMPLETED &7- took &b{} &7seconds - &7No errors.", true),
     IMPORT_END_COMPLETE_ERR("&b(Import) &a&lCOMPLETED &7- took &b{} &7seconds - &c{} errors.", true),
     IMPORT_END_COMPLETE_ERR_SIN("&b(Import) &a&lCOMPLETED &7- took &b{} &7seconds - &c{} error.", true),
+    IMPORT_END_INCOMPLETE("&b(Import) &c&lFAILED &7- took &b{} &7seconds - &cthe import file could not be read fully, so only part of the data was imported.", true),
     IMPORT_END_ERROR_HEADER(
             "{PREFIX}&b(Import) &7------------> &fShowing Error #&b{} &7<------------" + "\n" +
             "{PREFIX}&b(Import) &fWhilst executing: &3Command #{}" + "\n" +
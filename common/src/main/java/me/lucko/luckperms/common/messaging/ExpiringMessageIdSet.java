@@ -0,0 +1,134 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A set of message ids which have already been sent or received, used to
+ * ignore duplicate messages.
+ *
+ * <p>Ids are held in two generations. New ids are added to the current
+ * generation, and once it is older than the window (or has reached its
+ * maximum size) it replaces the previous generation, which is discarded.
+ * Ids are therefore remembered for between one and two windows after they
+ * were last seen, and the set never holds more than twice the maximum
+ * generation size.</p>
+ *
+ * <p>Unlike a bloom filter, the set is exact, so an id which hasn't been seen
+ * before is never mistaken for a duplicate.</p>
+ */
+public class ExpiringMessageIdSet {
+    private final long windowNanos;
+    private final int maxGenerationSize;
+
+    private final AtomicReference<State> state;
+    private final LongAdder duplicates = new LongAdder();
+
+    public ExpiringMessageIdSet(long window, TimeUnit unit, int maxGenerationSize) {
+        this.windowNanos = unit.toNanos(window);
+        this.maxGenerationSize = maxGenerationSize;
+        this.state = new AtomicReference<>(new State(new Generation(System.nanoTime()), new Generation(System.nanoTime())));
+    }
+
+    /**
+     * Adds an id to the set.
+     *
+     * @param id the id
+     * @return true if the id hadn't already been seen
+     */
+    public boolean add(UUID id) {
+        State state = getState();
+
+        boolean added = state.current.ids.add(id);
+        if (added) {
+            state.current.size.incrementAndGet();
+        }
+
+        if (!added || state.previous.ids.contains(id)) {
+            this.duplicates.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private State getState() {
+        State state = this.state.get();
+        long now = System.nanoTime();
+        if (now - state.current.createdAt < this.windowNanos && state.current.size.get() < this.maxGenerationSize) {
+            return state;
+        }
+
+        // if another thread rotates the generations first, use theirs
+        State rotated = new State(new Generation(now), state.current);
+        return this.state.compareAndSet(state, rotated) ? rotated : this.state.get();
+    }
+
+    /**
+     * Gets the number of ids currently held in the set.
+     *
+     * @return the size
+     */
+    public int size() {
+        State state = this.state.get();
+        return state.current.size.get() + state.previous.size.get();
+    }
+
+    /**
+     * Gets the number of times an id was found to be a duplicate.
+     *
+     * @return the number of duplicates
+     */
+    public long getDuplicateCount() {
+        return this.duplicates.sum();
+    }
+
+    private static final class State {
+        private final Generation current;
+        private final Generation previous;
+
+        State(Generation current, Generation previous) {
+            this.current = current;
+            this.previous = previous;
+        }
+    }
+
+    private static final class Generation {
+        private final Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger size = new AtomicInteger();
+        private final long createdAt;
+
+        Generation(long createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -26,6 +26,8 @@
 package me.lucko.luckperms.common.messaging;
 
 import me.lucko.luckperms.common.cache.BufferedRequest;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 
 import net.luckperms.api.actionlog.Action;
@@ -50,6 +52,14 @@ public interface InternalMessagingService {
      */
     void close();
 
+    /**
+     * Gets the ids of the messages which have been sent or received
+     * recently, used to ignore duplicates.
+     *
+     * @return the received message ids
+     */
+    ExpiringMessageIdSet getReceivedMessages();
+
     /**
      * Gets the buffer for sending updates to other servers
      *
@@ -70,6 +80,26 @@ public interface InternalMessagingService {
      */
     void pushUserUpdate(User user);
 
+    /**
+     * Pushes an update for a specific group.
+     *
+     * <p>Updates are buffered, so that repeated changes to the same group
+     * are only pushed once.</p>
+     *
+     * @param group the group
+     */
+    void pushGroupUpdate(Group group);
+
+    /**
+     * Pushes an update for a specific track.
+     *
+     * <p>Updates are buffered, so that repeated changes to the same track
+     * are only pushed once.</p>
+     *
+     * @param track the track
+     */
+    void pushTrackUpdate(Track track);
+
     /**
      * Pushes a log entry to connected servers.
      *
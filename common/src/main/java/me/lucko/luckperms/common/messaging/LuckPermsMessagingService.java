@@ -32,9 +32,15 @@ import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.cache.BufferedRequest;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.messaging.message.ActionLogMessageImpl;
+import me.lucko.luckperms.common.messaging.message.BatchMessageImpl;
+import me.lucko.luckperms.common.messaging.message.GroupUpdateMessageImpl;
+import me.lucko.luckperms.common.messaging.message.TrackUpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UserUpdateMessageImpl;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.model.manager.group.GroupManager;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
 import me.lucko.luckperms.common.util.gson.JObject;
@@ -44,27 +50,42 @@ import net.luckperms.api.messenger.IncomingMessageConsumer;
 import net.luckperms.api.messenger.Messenger;
 import net.luckperms.api.messenger.MessengerProvider;
 import net.luckperms.api.messenger.message.Message;
+import net.luckperms.api.messenger.message.OutgoingMessage;
 import net.luckperms.api.messenger.message.type.ActionLogMessage;
+import net.luckperms.api.messenger.message.type.GroupUpdateMessage;
+import net.luckperms.api.messenger.message.type.TrackUpdateMessage;
 import net.luckperms.api.messenger.message.type.UpdateMessage;
 import net.luckperms.api.messenger.message.type.UserUpdateMessage;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 public class LuckPermsMessagingService implements InternalMessagingService, IncomingMessageConsumer {
+
+    /**
+     * The maximum number of groups or tracks which will be named in separate
+     * updates. If more have changed, a general update is pushed instead.
+     */
+    private static final int MAX_TARGETED_UPDATES = 20;
+
     private final LuckPermsPlugin plugin;
-    private final Set<UUID> receivedMessages;
+    private final ExpiringMessageIdSet receivedMessages;
     private final PushUpdateBuffer updateBuffer;
+    private final PushTargetedUpdateBuffer groupUpdateBuffer;
+    private final PushTargetedUpdateBuffer trackUpdateBuffer;
 
     private final MessengerProvider messengerProvider;
     private final Messenger messenger;
+    private final OutgoingMessageBatcher outgoingMessages;
 
     public LuckPermsMessagingService(LuckPermsPlugin plugin, MessengerProvider messengerProvider) {
         this.plugin = plugin;
@@ -72,9 +93,12 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
         this.messengerProvider = messengerProvider;
         this.messenger = messengerProvider.obtain(this);
         Objects.requireNonNull(this.messenger, "messenger");
+        this.outgoingMessages = new OutgoingMessageBatcher(plugin.getBootstrap().getScheduler(), this.messenger, this::generatePingId);
 
-        this.receivedMessages = Collections.synchronizedSet(new HashSet<>());
+        this.receivedMessages = new ExpiringMessageIdSet(5, TimeUnit.MINUTES, 50000);
         this.updateBuffer = new PushUpdateBuffer(plugin);
+        this.groupUpdateBuffer = new PushTargetedUpdateBuffer(plugin, "group", GroupUpdateMessageImpl::new);
+        this.trackUpdateBuffer = new PushTargetedUpdateBuffer(plugin, "track", TrackUpdateMessageImpl::new);
     }
 
     @Override
@@ -94,9 +118,15 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
 
     @Override
     public void close() {
+        this.outgoingMessages.close();
         this.messenger.close();
     }
 
+    @Override
+    public ExpiringMessageIdSet getReceivedMessages() {
+        return this.receivedMessages;
+    }
+
     @Override
     public BufferedRequest<Void> getUpdateBuffer() {
         return this.updateBuffer;
@@ -108,22 +138,46 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
         return uuid;
     }
 
+    private void sendOutgoingMessage(OutgoingMessage message) {
+        if (this.plugin.getConfiguration().get(ConfigKeys.BATCH_OUTGOING_MESSAGES)) {
+            if (!this.outgoingMessages.send(message)) {
+                this.plugin.getLogger().warn("[Messaging] Unable to send message with id " + message.getId() + " as the messaging service has been closed");
+            }
+        } else {
+            this.plugin.getBootstrap().getScheduler().executeAsync(() -> this.messenger.sendOutgoingMessage(message));
+        }
+    }
+
     @Override
     public void pushUpdate() {
-        this.plugin.getBootstrap().getScheduler().executeAsync(() -> {
-            UUID requestId = generatePingId();
-            this.plugin.getLogger().info("[Messaging] Sending ping with id: " + requestId);
-            this.messenger.sendOutgoingMessage(new UpdateMessageImpl(requestId));
-        });
+        UUID requestId = generatePingId();
+        this.plugin.getLogger().info("[Messaging] Sending ping with id: " + requestId);
+        sendOutgoingMessage(new UpdateMessageImpl(requestId));
     }
 
     @Override
     public void pushUserUpdate(User user) {
-        this.plugin.getBootstrap().getScheduler().executeAsync(() -> {
-            UUID requestId = generatePingId();
-            this.plugin.getLogger().info("[Messaging] Sending user ping for '" + user.getPlainDisplayName() + "' with id: " + requestId);
-            this.messenger.sendOutgoingMessage(new UserUpdateMessageImpl(requestId, user.getUniqueId()));
-        });
+        UUID requestId = generatePingId();
+        this.plugin.getLogger().info("[Messaging] Sending user ping for '" + user.getPlainDisplayName() + "' with id: " + requestId);
+        sendOutgoingMessage(new UserUpdateMessageImpl(requestId, user.getUniqueId()));
+    }
+
+    @Override
+    public void pushGroupUpdate(Group group) {
+        pushTargetedUpdate(this.groupUpdateBuffer, group.getName());
+    }
+
+    @Override
+    public void pushTrackUpdate(Track track) {
+        pushTargetedUpdate(this.trackUpdateBuffer, track.getName());
+    }
+
+    private void pushTargetedUpdate(PushTargetedUpdateBuffer buffer, String name) {
+        if (this.plugin.getConfiguration().get(ConfigKeys.PUSH_TARGETED_UPDATES)) {
+            buffer.request(name);
+        } else {
+            this.updateBuffer.request();
+        }
     }
 
     @Override
@@ -136,7 +190,7 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
             }
 
             this.plugin.getLogger().info("[Messaging] Sending log with id: " + requestId);
-            this.messenger.sendOutgoingMessage(new ActionLogMessageImpl(requestId, logEntry));
+            sendOutgoingMessage(new ActionLogMessageImpl(requestId, logEntry));
         });
     }
 
@@ -148,9 +202,18 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
             return false;
         }
 
+        if (message instanceof BatchMessageImpl) {
+            for (OutgoingMessage contained : ((BatchMessageImpl) message).getMessages()) {
+                consumeIncomingMessage((Message) contained);
+            }
+            return true;
+        }
+
         // determine if the message can be handled by us
         boolean valid = message instanceof UpdateMessage ||
                 message instanceof UserUpdateMessage ||
+                message instanceof GroupUpdateMessage ||
+                message instanceof TrackUpdateMessage ||
                 message instanceof ActionLogMessage;
 
         // instead of throwing an exception here, just return false
@@ -168,11 +231,14 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
     public boolean consumeIncomingMessageAsString(@NonNull String encodedString) {
         Objects.requireNonNull(encodedString, "encodedString");
         JsonObject decodedObject = GsonProvider.normal().fromJson(encodedString, JsonObject.class).getAsJsonObject();
+        return consumeDecodedMessage(decodedObject);
+    }
 
+    private boolean consumeDecodedMessage(JsonObject decodedObject) {
         // extract id
         JsonElement idElement = decodedObject.get("id");
         if (idElement == null) {
-            throw new IllegalStateException("Incoming message has no id argument: " + encodedString);
+            throw new IllegalStateException("Incoming message has no id argument: " + decodedObject);
         }
         UUID id = UUID.fromString(idElement.getAsString());
 
@@ -184,13 +250,21 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
         // extract type
         JsonElement typeElement = decodedObject.get("type");
         if (typeElement == null) {
-            throw new IllegalStateException("Incoming message has no type argument: " + encodedString);
+            throw new IllegalStateException("Incoming message has no type argument: " + decodedObject);
         }
         String type = typeElement.getAsString();
 
         // extract content
         @Nullable JsonElement content = decodedObject.get("content");
 
+        // unpack the messages contained in a batch
+        if (type.equals(BatchMessageImpl.TYPE)) {
+            for (JsonObject contained : BatchMessageImpl.decodeMessages(content)) {
+                consumeDecodedMessage(contained);
+            }
+            return true;
+        }
+
         // decode message
         Message decoded;
         switch (type) {
@@ -200,6 +274,12 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
             case UserUpdateMessageImpl.TYPE:
                 decoded = UserUpdateMessageImpl.decode(content, id);
                 break;
+            case GroupUpdateMessageImpl.TYPE:
+                decoded = GroupUpdateMessageImpl.decode(content, id);
+                break;
+            case TrackUpdateMessageImpl.TYPE:
+                decoded = TrackUpdateMessageImpl.decode(content, id);
+                break;
             case ActionLogMessageImpl.TYPE:
                 decoded = ActionLogMessageImpl.decode(content, id);
                 break;
@@ -253,6 +333,47 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
             }
 
             this.plugin.getStorage().loadUser(user.getUniqueId(), null);
+        } else if (message instanceof GroupUpdateMessage) {
+            GroupUpdateMessage msg = (GroupUpdateMessage) message;
+            String groupName = msg.getGroupName();
+
+            this.plugin.getLogger().info("[Messaging] Received group update ping for '" + groupName + "' with id: " + msg.getId());
+
+            if (this.plugin.getEventDispatcher().dispatchNetworkPreSync(false, msg.getId())) {
+                return;
+            }
+
+            // reloading the group invalidates the caches of the holders which inherit from it
+            this.plugin.getStorage().loadGroup(groupName).thenAccept(group -> {
+                if (!group.isPresent() && !groupName.equals(GroupManager.DEFAULT_GROUP_NAME)) {
+                    Group existing = this.plugin.getGroupManager().getIfLoaded(groupName);
+                    if (existing != null) {
+                        // the group has been deleted
+                        existing.invalidateDependentCaches();
+                        this.plugin.getGroupManager().unload(groupName);
+                        this.plugin.getInheritanceHandler().invalidateTraversals();
+                    }
+                }
+            });
+        } else if (message instanceof TrackUpdateMessage) {
+            TrackUpdateMessage msg = (TrackUpdateMessage) message;
+            String trackName = msg.getTrackName();
+
+            this.plugin.getLogger().info("[Messaging] Received track update ping for '" + trackName + "' with id: " + msg.getId());
+
+            if (this.plugin.getEventDispatcher().dispatchNetworkPreSync(false, msg.getId())) {
+                return;
+            }
+
+            this.plugin.getStorage().loadTrack(trackName).thenAccept(track -> {
+                if (!track.isPresent()) {
+                    this.plugin.getTrackManager().unload(trackName);
+                }
+
+                // tracks can affect the data of any holder, so invalidate everything, as the sender does
+                this.plugin.getGroupManager().invalidateAllGroupCaches();
+                this.plugin.getUserManager().invalidateAllUserCaches();
+            });
         } else if (message instanceof ActionLogMessage) {
             ActionLogMessage msg = (ActionLogMessage) message;
 
@@ -274,4 +395,51 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
             return null;
         }
     }
+
+    /**
+     * Buffers updates for specific groups or tracks, so that each one is only
+     * pushed once however many times it is changed within the buffer time.
+     */
+    private final class PushTargetedUpdateBuffer extends BufferedRequest<Void> {
+        private final String typeName;
+        private final MessageFactory messageFactory;
+        private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+        PushTargetedUpdateBuffer(LuckPermsPlugin plugin, String typeName, MessageFactory messageFactory) {
+            super(2, TimeUnit.SECONDS, plugin.getBootstrap().getScheduler());
+            this.typeName = typeName;
+            this.messageFactory = messageFactory;
+        }
+
+        void request(String name) {
+            this.pending.add(name);
+            request();
+        }
+
+        @Override
+        protected Void perform() {
+            List<String> names = new ArrayList<>();
+            for (Iterator<String> it = this.pending.iterator(); it.hasNext(); ) {
+                names.add(it.next());
+                it.remove();
+            }
+
+            if (names.size() > MAX_TARGETED_UPDATES) {
+                pushUpdate();
+                return null;
+            }
+
+            for (String name : names) {
+                UUID requestId = generatePingId();
+                LuckPermsMessagingService.this.plugin.getLogger().info("[Messaging] Sending " + this.typeName + " ping for '" + name + "' with id: " + requestId);
+                sendOutgoingMessage(this.messageFactory.create(requestId, name));
+            }
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface MessageFactory {
+        OutgoingMessage create(UUID id, String name);
+    }
 }
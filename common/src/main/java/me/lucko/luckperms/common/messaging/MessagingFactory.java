@@ -26,13 +26,16 @@
 package me.lucko.luckperms.common.messaging;
 
 import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
 import me.lucko.luckperms.common.messaging.redis.RedisMessenger;
+import me.lucko.luckperms.common.messaging.sql.PostgreSqlMessenger;
 import me.lucko.luckperms.common.messaging.sql.SqlMessenger;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.sql.SqlStorage;
 import me.lucko.luckperms.common.storage.implementation.sql.connection.hikari.MariaDbConnectionFactory;
 import me.lucko.luckperms.common.storage.implementation.sql.connection.hikari.MySqlConnectionFactory;
+import me.lucko.luckperms.common.storage.implementation.sql.connection.hikari.PostgreConnectionFactory;
 
 import net.luckperms.api.messenger.IncomingMessageConsumer;
 import net.luckperms.api.messenger.Messenger;
@@ -65,7 +68,7 @@ public class MessagingFactory<P extends LuckPermsPlugin> {
                 for (StorageImplementation implementation : this.plugin.getStorage().getImplementations()) {
                     if (implementation instanceof SqlStorage) {
                         SqlStorage sql = (SqlStorage) implementation;
-                        if (sql.getConnectionFactory() instanceof MySqlConnectionFactory || sql.getConnectionFactory() instanceof MariaDbConnectionFactory) {
+                        if (sql.getConnectionFactory() instanceof MySqlConnectionFactory || sql.getConnectionFactory() instanceof MariaDbConnectionFactory || sql.getConnectionFactory() instanceof PostgreConnectionFactory) {
                             messagingType = "sql";
                             break;
                         }
@@ -121,7 +124,8 @@ public class MessagingFactory<P extends LuckPermsPlugin> {
         @Override
         public @NonNull Messenger obtain(@NonNull IncomingMessageConsumer incomingMessageConsumer) {
             RedisMessenger redis = new RedisMessenger(getPlugin(), incomingMessageConsumer);
-            redis.init(getPlugin().getConfiguration().get(ConfigKeys.REDIS_ADDRESS), getPlugin().getConfiguration().get(ConfigKeys.REDIS_PASSWORD));
+            LuckPermsConfiguration config = getPlugin().getConfiguration();
+            redis.init(config.get(ConfigKeys.REDIS_ADDRESS), config.get(ConfigKeys.REDIS_PASSWORD), config.get(ConfigKeys.REDIS_CHANNEL), config.get(ConfigKeys.SERVER));
             return redis;
         }
     }
@@ -144,6 +148,11 @@ public class MessagingFactory<P extends LuckPermsPlugin> {
                         sql.init();
                         return sql;
                     }
+                    if (storage.getConnectionFactory() instanceof PostgreConnectionFactory) {
+                        SqlMessenger sql = new PostgreSqlMessenger(getPlugin(), storage, incomingMessageConsumer);
+                        sql.init();
+                        return sql;
+                    }
                 }
             }
 
@@ -0,0 +1,189 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging;
+
+import me.lucko.luckperms.common.messaging.message.BatchMessageImpl;
+import me.lucko.luckperms.common.messaging.message.GroupUpdateMessageImpl;
+import me.lucko.luckperms.common.messaging.message.TrackUpdateMessageImpl;
+import me.lucko.luckperms.common.messaging.message.UpdateMessageImpl;
+import me.lucko.luckperms.common.messaging.message.UserUpdateMessageImpl;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
+
+import net.luckperms.api.messenger.Messenger;
+import net.luckperms.api.messenger.message.OutgoingMessage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Collects outgoing messages over a short window, and sends them together
+ * in a {@link BatchMessageImpl}.
+ *
+ * <p>Repeated updates for the same user, group or track within a window are
+ * only sent once, and targeted updates are dropped entirely if a general
+ * update is also being sent.</p>
+ */
+class OutgoingMessageBatcher {
+
+    /** The time messages are collected for before they are sent */
+    private static final long WINDOW_MILLIS = 100;
+
+    /** The maximum number of messages sent in a single batch */
+    private static final int MAX_BATCH_SIZE = 100;
+
+    private final SchedulerAdapter scheduler;
+    private final Messenger messenger;
+    private final Supplier<UUID> idSupplier;
+
+    private final Queue<OutgoingMessage> queue = new ConcurrentLinkedQueue<>();
+
+    /** Held whilst messages are being sent, so close can wait for a flush which is in progress */
+    private final Object flushLock = new Object();
+
+    // guarded by 'this'
+    private SchedulerTask flushTask = null;
+    private boolean closed = false;
+
+    OutgoingMessageBatcher(SchedulerAdapter scheduler, Messenger messenger, Supplier<UUID> idSupplier) {
+        this.scheduler = scheduler;
+        this.messenger = messenger;
+        this.idSupplier = idSupplier;
+    }
+
+    /**
+     * Adds a message to the current batch.
+     *
+     * @param message the message
+     * @return true if the message was added, false if the batcher has been closed
+     */
+    public synchronized boolean send(OutgoingMessage message) {
+        if (this.closed) {
+            return false;
+        }
+
+        this.queue.add(message);
+        if (this.flushTask == null) {
+            this.flushTask = this.scheduler.asyncLater(this::flush, WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * Sends the messages in the current batch.
+     */
+    public void flush() {
+        synchronized (this) {
+            this.flushTask = null;
+        }
+
+        synchronized (this.flushLock) {
+            List<OutgoingMessage> messages = new ArrayList<>();
+            for (OutgoingMessage message; (message = this.queue.poll()) != null; ) {
+                messages.add(message);
+            }
+            messages = deduplicate(messages);
+
+            if (messages.size() == 1) {
+                // no need to wrap a single message
+                this.messenger.sendOutgoingMessage(messages.get(0));
+                return;
+            }
+
+            for (int i = 0; i < messages.size(); i += MAX_BATCH_SIZE) {
+                List<OutgoingMessage> batch = messages.subList(i, Math.min(messages.size(), i + MAX_BATCH_SIZE));
+                this.messenger.sendOutgoingMessage(new BatchMessageImpl(this.idSupplier.get(), new ArrayList<>(batch)));
+            }
+        }
+    }
+
+    /**
+     * Sends the messages in the current batch, and stops accepting new messages.
+     *
+     * <p>Once this returns, no further messages will be passed to the
+     * messenger, so it can be safely closed.</p>
+     */
+    public void close() {
+        SchedulerTask flushTask;
+        synchronized (this) {
+            this.closed = true;
+            flushTask = this.flushTask;
+            this.flushTask = null;
+        }
+
+        if (flushTask != null) {
+            flushTask.cancel();
+        }
+
+        // also waits for a scheduled flush which has already started
+        flush();
+    }
+
+    private static List<OutgoingMessage> deduplicate(List<OutgoingMessage> messages) {
+        boolean generalUpdate = messages.stream().anyMatch(m -> m instanceof UpdateMessageImpl);
+
+        Set<Object> seen = new HashSet<>();
+        List<OutgoingMessage> result = new ArrayList<>(messages.size());
+        for (OutgoingMessage message : messages) {
+            Object key = dedupKey(message);
+            if (key == null) {
+                result.add(message);
+                continue;
+            }
+
+            // a general update causes everything to be reloaded anyway
+            if (generalUpdate && !(message instanceof UpdateMessageImpl)) {
+                continue;
+            }
+
+            if (seen.add(key)) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+
+    private static Object dedupKey(OutgoingMessage message) {
+        if (message instanceof UpdateMessageImpl) {
+            return UpdateMessageImpl.TYPE;
+        } else if (message instanceof UserUpdateMessageImpl) {
+            return ((UserUpdateMessageImpl) message).getUserUniqueId();
+        } else if (message instanceof GroupUpdateMessageImpl) {
+            return GroupUpdateMessageImpl.TYPE + ":" + ((GroupUpdateMessageImpl) message).getGroupName();
+        } else if (message instanceof TrackUpdateMessageImpl) {
+            return TrackUpdateMessageImpl.TYPE + ":" + ((TrackUpdateMessageImpl) message).getTrackName();
+        } else {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging.message;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import me.lucko.luckperms.common.messaging.LuckPermsMessagingService;
+import me.lucko.luckperms.common.util.gson.GsonProvider;
+
+import net.luckperms.api.messenger.message.OutgoingMessage;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An envelope which contains a number of other messages, so they can be
+ * sent together.
+ *
+ * <p>If the encoded messages are large, they are GZIP compressed.</p>
+ */
+public class BatchMessageImpl extends AbstractMessage {
+    public static final String TYPE = "batch";
+
+    /** The length of the encoded messages above which they will be compressed */
+    private static final int COMPRESSION_THRESHOLD = 2048;
+
+    /**
+     * Decodes the messages contained in the envelope.
+     *
+     * @param content the content of the envelope
+     * @return the encoded messages
+     */
+    public static List<JsonObject> decodeMessages(@Nullable JsonElement content) {
+        if (content == null) {
+            throw new IllegalStateException("Missing content");
+        }
+
+        JsonObject object = content.getAsJsonObject();
+        JsonElement messagesElement = object.get("messages");
+        if (messagesElement == null) {
+            JsonElement compressedElement = object.get("compressed");
+            if (compressedElement == null) {
+                throw new IllegalStateException("Incoming message has no messages argument: " + content);
+            }
+            messagesElement = decompress(compressedElement.getAsString());
+        }
+
+        List<JsonObject> messages = new ArrayList<>();
+        for (JsonElement element : messagesElement.getAsJsonArray()) {
+            messages.add(element.getAsJsonObject());
+        }
+        return messages;
+    }
+
+    private final List<OutgoingMessage> messages;
+
+    public BatchMessageImpl(UUID id, List<OutgoingMessage> messages) {
+        super(id);
+        this.messages = messages;
+    }
+
+    public List<OutgoingMessage> getMessages() {
+        return this.messages;
+    }
+
+    @Override
+    public @NonNull String asEncodedString() {
+        JsonArray messages = new JsonArray();
+        for (OutgoingMessage message : this.messages) {
+            messages.add(GsonProvider.parser().parse(message.asEncodedString()));
+        }
+
+        JsonObject content = new JsonObject();
+        String encodedMessages = GsonProvider.normal().toJson(messages);
+        if (encodedMessages.length() > COMPRESSION_THRESHOLD) {
+            content.addProperty("compressed", compress(encodedMessages));
+        } else {
+            content.add("messages", messages);
+        }
+
+        return LuckPermsMessagingService.encodeMessageAsString(TYPE, getId(), content);
+    }
+
+    private static String compress(String content) {
+        ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytesOut), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getEncoder().encodeToString(bytesOut.toByteArray());
+    }
+
+    private static JsonElement decompress(String content) {
+        byte[] bytes = Base64.getDecoder().decode(content);
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(bytes)), StandardCharsets.UTF_8)) {
+            return GsonProvider.parser().parse(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
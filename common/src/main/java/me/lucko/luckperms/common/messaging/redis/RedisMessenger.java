@@ -34,73 +34,269 @@ import net.luckperms.api.messenger.message.OutgoingMessage;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * An implementation of {@link Messenger} using Redis.
+ *
+ * <p>Messages are published using a single long-lived connection. Messages
+ * sent while a publish is in progress are queued, and then published
+ * together in one pipeline.</p>
+ *
+ * <p>The subscription uses its own connection, which is re-established
+ * (with backoff) if it is lost.</p>
+ *
+ * <p>Each server subscribes to the shared channel, which carries messages for
+ * every server, and to its own shard of it ({@code <channel>:<server>}),
+ * which carries messages sent to that server only.</p>
  */
 public class RedisMessenger implements Messenger {
-    private static final String CHANNEL = "luckperms:update";
+
+    /** The maximum delay between attempts to re-establish the subscription */
+    private static final long MAX_RECONNECT_DELAY = TimeUnit.SECONDS.toMillis(30);
 
     private final LuckPermsPlugin plugin;
     private final IncomingMessageConsumer consumer;
 
-    private JedisPool jedisPool;
-    private Subscription sub;
+    private String host;
+    private int port;
+    private String password;
+    private String channel;
+    private String shardChannel;
+
+    // the publisher connection, guarded by 'publisherLock'
+    private final Object publisherLock = new Object();
+    private Jedis publisher;
+
+    private final Queue<Publish> outgoing = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean publishing = new AtomicBoolean(false);
+
+    private volatile Subscription sub;
+    private volatile boolean closed = false;
 
     public RedisMessenger(LuckPermsPlugin plugin, IncomingMessageConsumer consumer) {
         this.plugin = plugin;
         this.consumer = consumer;
     }
 
-    public void init(String address, String password) {
+    public void init(String address, String password, String channel, String server) {
         String[] addressSplit = address.split(":");
-        String host = addressSplit[0];
-        int port = addressSplit.length > 1 ? Integer.parseInt(addressSplit[1]) : 6379;
+        this.host = addressSplit[0];
+        this.port = addressSplit.length > 1 ? Integer.parseInt(addressSplit[1]) : 6379;
+        this.password = password;
+        this.channel = channel;
+        this.shardChannel = getShardChannel(server);
+
+        this.plugin.getBootstrap().getScheduler().executeAsync(this::subscribe);
+    }
+
+    private Jedis connect(int soTimeout) {
+        Jedis jedis = new Jedis(this.host, this.port, Protocol.DEFAULT_TIMEOUT, soTimeout);
+        try {
+            if (!this.password.equals("")) {
+                jedis.auth(this.password);
+            }
+        } catch (RuntimeException e) {
+            jedis.close();
+            throw e;
+        }
+        return jedis;
+    }
+
+    private String getShardChannel(String server) {
+        return this.channel + ":" + server;
+    }
+
+    @Override
+    public void sendOutgoingMessage(@NonNull OutgoingMessage outgoingMessage) {
+        enqueue(new Publish(this.channel, outgoingMessage.asEncodedString()));
+    }
+
+    /**
+     * Sends a message to a single server, on that server's shard of the channel.
+     *
+     * @param outgoingMessage the message
+     * @param server the name of the server to send the message to
+     */
+    public void sendOutgoingMessage(@NonNull OutgoingMessage outgoingMessage, @NonNull String server) {
+        enqueue(new Publish(getShardChannel(server), outgoingMessage.asEncodedString()));
+    }
+
+    private void enqueue(Publish publish) {
+        this.outgoing.add(publish);
+
+        // if another thread is already publishing, it will pick up our message
+        while (!this.outgoing.isEmpty() && this.publishing.compareAndSet(false, true)) {
+            try {
+                publishQueued();
+            } finally {
+                this.publishing.set(false);
+            }
+        }
+    }
 
-        if (password.equals("")) {
-            this.jedisPool = new JedisPool(new JedisPoolConfig(), host, port);
-        } else {
-            this.jedisPool = new JedisPool(new JedisPoolConfig(), host, port, 0, password);
+    private void publishQueued() {
+        List<Publish> messages = new ArrayList<>();
+        Publish message;
+        while ((message = this.outgoing.poll()) != null) {
+            messages.add(message);
+        }
+        if (messages.isEmpty()) {
+            return;
         }
 
-        this.plugin.getBootstrap().getScheduler().executeAsync(() -> {
-            this.sub = new Subscription(this);
-            try (Jedis jedis = this.jedisPool.getResource()) {
-                jedis.subscribe(this.sub, CHANNEL);
+        synchronized (this.publisherLock) {
+            if (this.closed) {
+                return;
+            }
+
+            try {
+                publish(messages);
+            } catch (JedisConnectionException e) {
+                // the connection was lost - reconnect and try once more
+                closePublisher();
+                try {
+                    publish(messages);
+                } catch (Exception ex) {
+                    closePublisher();
+                    this.plugin.getLogger().warn("[Messaging] Unable to publish " + messages.size() + " message(s) to Redis: " + ex);
+                }
             } catch (Exception e) {
                 e.printStackTrace();
             }
-        });
+        }
     }
 
-    @Override
-    public void sendOutgoingMessage(@NonNull OutgoingMessage outgoingMessage) {
-        try (Jedis jedis = this.jedisPool.getResource()) {
-            jedis.publish(CHANNEL, outgoingMessage.asEncodedString());
-        } catch (Exception e) {
-            e.printStackTrace();
+    private void publish(List<Publish> messages) {
+        if (this.publisher == null) {
+            this.publisher = connect(Protocol.DEFAULT_TIMEOUT);
+        }
+
+        if (messages.size() == 1) {
+            Publish message = messages.get(0);
+            this.publisher.publish(message.channel, message.message);
+            return;
+        }
+
+        Pipeline pipeline = this.publisher.pipelined();
+        for (Publish message : messages) {
+            pipeline.publish(message.channel, message.message);
+        }
+        pipeline.sync();
+    }
+
+    private void closePublisher() {
+        if (this.publisher != null) {
+            try {
+                this.publisher.close();
+            } catch (Exception e) {
+                // ignore
+            }
+            this.publisher = null;
+        }
+    }
+
+    private void subscribe() {
+        long reconnectDelay = 0;
+        while (!this.closed) {
+            if (reconnectDelay != 0) {
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (this.closed) {
+                    return;
+                }
+            }
+
+            Subscription sub = new Subscription(this, reconnectDelay != 0);
+            this.sub = sub;
+
+            // the subscription blocks until it is unsubscribed, so reads mustn't time out
+            try (Jedis jedis = connect(0)) {
+                jedis.subscribe(sub, this.channel, this.shardChannel);
+            } catch (Exception e) {
+                if (this.closed) {
+                    return;
+                }
+
+                // start backing off again if we were connected before the failure
+                reconnectDelay = sub.connected ? 1000 : Math.min(Math.max(reconnectDelay * 2, 1000), MAX_RECONNECT_DELAY);
+                this.plugin.getLogger().warn("[Messaging] Redis subscription lost, reconnecting in " + reconnectDelay + "ms: " + e);
+            }
         }
     }
 
     @Override
     public void close() {
-        this.sub.unsubscribe();
-        this.jedisPool.destroy();
+        this.closed = true;
+
+        Subscription sub = this.sub;
+        if (sub != null && sub.isSubscribed()) {
+            sub.unsubscribe();
+        }
+
+        synchronized (this.publisherLock) {
+            closePublisher();
+        }
+    }
+
+    private static final class Publish {
+        private final String channel;
+        private final String message;
+
+        Publish(String channel, String message) {
+            this.channel = channel;
+            this.message = message;
+        }
     }
 
     private static class Subscription extends JedisPubSub {
         private final RedisMessenger parent;
+        private final boolean reconnect;
+        private volatile boolean connected = false;
 
-        private Subscription(RedisMessenger parent) {
+        private Subscription(RedisMessenger parent, boolean reconnect) {
             this.parent = parent;
+            this.reconnect = reconnect;
+        }
+
+        @Override
+        public void onSubscribe(String channel, int subscribedChannels) {
+            this.connected = true;
+
+            // called once per channel - only act once both are subscribed
+            if (subscribedChannels < 2) {
+                return;
+            }
+
+            if (this.parent.closed) {
+                unsubscribe();
+                return;
+            }
+
+            if (this.reconnect) {
+                // messages sent while we were disconnected are lost, so request a full sync
+                this.parent.plugin.getLogger().info("[Messaging] Reconnected to Redis, requesting a sync");
+                this.parent.plugin.getSyncTaskBuffer().request();
+            }
         }
 
         @Override
         public void onMessage(String channel, String msg) {
-            if (!channel.equals(CHANNEL)) {
+            if (!channel.equals(this.parent.channel) && !channel.equals(this.parent.shardChannel)) {
                 return;
             }
             this.parent.consumer.consumeIncomingMessageAsString(msg);
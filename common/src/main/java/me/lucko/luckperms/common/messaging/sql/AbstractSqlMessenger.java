@@ -55,22 +55,12 @@ public abstract class AbstractSqlMessenger implements Messenger {
     public void init() throws SQLException {
         try (Connection c = getConnection()) {
             // init table
-            String createStatement = "CREATE TABLE IF NOT EXISTS `" + getTableName() + "` (`id` INT AUTO_INCREMENT NOT NULL, `time` TIMESTAMP NOT NULL, `msg` TEXT NOT NULL, PRIMARY KEY (`id`)) DEFAULT CHARSET = utf8mb4";
             try (Statement s = c.createStatement()) {
-                try {
-                    s.execute(createStatement);
-                } catch (SQLException e) {
-                    if (e.getMessage().contains("Unknown character set")) {
-                        // try again
-                        s.execute(createStatement.replace("utf8mb4", "utf8"));
-                    } else {
-                        throw e;
-                    }
-                }
+                createTable(s);
             }
 
             // pull last id
-            try (PreparedStatement ps = c.prepareStatement("SELECT MAX(`id`) as `latest` FROM `" + getTableName() + "`")) {
+            try (PreparedStatement ps = c.prepareStatement("SELECT MAX(" + quote("id") + ") as " + quote("latest") + " FROM " + quote(getTableName()))) {
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) {
                         this.lastId = rs.getLong("latest");
@@ -80,10 +70,51 @@ public abstract class AbstractSqlMessenger implements Messenger {
         }
     }
 
+    /**
+     * Creates the messenger table, if it doesn't already exist.
+     *
+     * @param s the statement to use
+     * @throws SQLException if an error occurs
+     */
+    protected void createTable(Statement s) throws SQLException {
+        String createStatement = "CREATE TABLE IF NOT EXISTS `" + getTableName() + "` (`id` INT AUTO_INCREMENT NOT NULL, `time` TIMESTAMP NOT NULL, `msg` TEXT NOT NULL, PRIMARY KEY (`id`)) DEFAULT CHARSET = utf8mb4";
+        try {
+            s.execute(createStatement);
+        } catch (SQLException e) {
+            if (e.getMessage().contains("Unknown character set")) {
+                // try again
+                s.execute(createStatement.replace("utf8mb4", "utf8"));
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Quotes an identifier for use in a statement.
+     *
+     * @param identifier the identifier
+     * @return the quoted identifier
+     */
+    protected String quote(String identifier) {
+        return "`" + identifier + "`";
+    }
+
+    /**
+     * Gets an SQL condition which matches messages sent within the given
+     * number of seconds.
+     *
+     * @param seconds the number of seconds
+     * @return the condition
+     */
+    protected String sentWithin(int seconds) {
+        return "(NOW() - " + quote("time") + " < " + seconds + ")";
+    }
+
     @Override
     public void sendOutgoingMessage(@NonNull OutgoingMessage outgoingMessage) {
         try (Connection c = getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement("INSERT INTO `" + getTableName() + "` (`time`, `msg`) VALUES(NOW(), ?)")) {
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO " + quote(getTableName()) + " (" + quote("time") + ", " + quote("msg") + ") VALUES(NOW(), ?)")) {
                 ps.setString(1, outgoingMessage.asEncodedString());
                 ps.execute();
             }
@@ -92,28 +123,38 @@ public abstract class AbstractSqlMessenger implements Messenger {
         }
     }
 
-    public void pollMessages() {
+    /**
+     * Reads any messages which have been sent since the last poll.
+     *
+     * @return true if any messages from other servers were received
+     */
+    public boolean pollMessages() {
+        boolean received = false;
         try (Connection c = getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement("SELECT `id`, `msg` FROM `" + getTableName() + "` WHERE `id` > ? AND (NOW() - `time` < 30)")) {
+            try (PreparedStatement ps = c.prepareStatement("SELECT " + quote("id") + ", " + quote("msg") + " FROM " + quote(getTableName()) + " WHERE " + quote("id") + " > ? AND " + sentWithin(30))) {
                 ps.setLong(1, this.lastId);
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
                         long id = rs.getLong("id");
                         this.lastId = Math.max(this.lastId, id);
 
+                        // messages sent by this server are read back too, but aren't accepted
                         String message = rs.getString("msg");
-                        this.consumer.consumeIncomingMessageAsString(message);
+                        if (this.consumer.consumeIncomingMessageAsString(message)) {
+                            received = true;
+                        }
                     }
                 }
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return received;
     }
 
     public void runHousekeeping() {
         try (Connection c = getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement("DELETE FROM `" + getTableName() + "` WHERE (NOW() - `time` > 60)")) {
+            try (PreparedStatement ps = c.prepareStatement("DELETE FROM " + quote(getTableName()) + " WHERE NOT " + sentWithin(60))) {
                 ps.execute();
             }
         } catch (SQLException e) {
@@ -121,5 +162,4 @@ public abstract class AbstractSqlMessenger implements Messenger {
         }
     }
 
-
 }
@@ -0,0 +1,158 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging.sql;
+
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.storage.implementation.sql.SqlStorage;
+
+import net.luckperms.api.messenger.IncomingMessageConsumer;
+import net.luckperms.api.messenger.message.OutgoingMessage;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link SqlMessenger} for PostgreSQL.
+ *
+ * <p>Messages are still written to the table, but each insert also raises a
+ * notification. Instead of polling, a single connection listens for these
+ * notifications and only reads the table when one arrives.</p>
+ *
+ * <p>If the driver does not support waiting for notifications, the table is
+ * polled as normal.</p>
+ */
+public class PostgreSqlMessenger extends SqlMessenger {
+
+    /** How long to wait for a notification before checking if the messenger has been closed */
+    private static final int LISTEN_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(1);
+
+    /** The maximum delay between attempts to re-establish the listening connection */
+    private static final long MAX_RECONNECT_DELAY = TimeUnit.SECONDS.toMillis(30);
+
+    public PostgreSqlMessenger(LuckPermsPlugin plugin, SqlStorage sqlStorage, IncomingMessageConsumer consumer) {
+        super(plugin, sqlStorage, consumer);
+    }
+
+    @Override
+    protected void createTable(Statement s) throws SQLException {
+        s.execute("CREATE TABLE IF NOT EXISTS " + quote(getTableName()) + " (\"id\" SERIAL PRIMARY KEY NOT NULL, \"time\" TIMESTAMP NOT NULL, \"msg\" TEXT NOT NULL)");
+    }
+
+    @Override
+    protected String quote(String identifier) {
+        return "\"" + identifier + "\"";
+    }
+
+    @Override
+    protected String sentWithin(int seconds) {
+        return "(\"time\" > NOW() - INTERVAL '" + seconds + " seconds')";
+    }
+
+    @Override
+    public void sendOutgoingMessage(@NonNull OutgoingMessage outgoingMessage) {
+        // insert the message and notify listeners in a single round trip
+        try (Connection c = getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement("WITH inserted AS (INSERT INTO " + quote(getTableName()) + " (\"time\", \"msg\") VALUES(NOW(), ?) RETURNING \"id\") SELECT pg_notify(?, '') FROM inserted")) {
+                ps.setString(1, outgoingMessage.asEncodedString());
+                ps.setString(2, getTableName());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        // consume the result
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    protected void startPolling() {
+        this.plugin.getBootstrap().getScheduler().executeAsync(this::listen);
+    }
+
+    private void listen() {
+        long reconnectDelay = 0;
+        while (!this.closed) {
+            if (reconnectDelay != 0) {
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+
+            try (Connection c = getConnection()) {
+                // get the underlying driver connection from the pool proxy
+                Connection connection = c.unwrap(Connection.class);
+                Method getNotifications;
+                try {
+                    getNotifications = connection.getClass().getMethod("getNotifications", int.class);
+                } catch (NoSuchMethodException e) {
+                    this.plugin.getLogger().warn("[Messaging] PostgreSQL driver does not support LISTEN/NOTIFY, falling back to polling");
+                    super.startPolling();
+                    return;
+                }
+
+                try (Statement s = c.createStatement()) {
+                    s.execute("LISTEN " + quote(getTableName()));
+                }
+                reconnectDelay = 0;
+
+                // catch up on anything sent while we weren't listening
+                pollMessages();
+
+                while (!this.closed) {
+                    Object[] notifications = (Object[]) getNotifications.invoke(connection, LISTEN_TIMEOUT);
+                    if (notifications != null && notifications.length != 0) {
+                        pollMessages();
+                    }
+                }
+
+                try (Statement s = c.createStatement()) {
+                    s.execute("UNLISTEN " + quote(getTableName()));
+                }
+            } catch (SQLException | IllegalAccessException | InvocationTargetException e) {
+                if (this.closed) {
+                    return;
+                }
+
+                reconnectDelay = Math.min(Math.max(reconnectDelay * 2, 1000), MAX_RECONNECT_DELAY);
+                Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+                this.plugin.getLogger().warn("[Messaging] PostgreSQL listener connection lost, reconnecting in " + reconnectDelay + "ms: " + cause);
+            }
+        }
+    }
+}
@@ -37,12 +37,29 @@ import java.sql.SQLException;
 import java.util.concurrent.TimeUnit;
 
 public class SqlMessenger extends AbstractSqlMessenger {
-    private final LuckPermsPlugin plugin;
+
+    /*
+     * The table is polled adaptively - the interval is reset to the minimum
+     * whenever a message is received, and then doubles after each poll which
+     * finds nothing, up to the maximum of 4 seconds when idle.
+     *
+     * Messages are kept for 30 seconds, so the longer idle interval never
+     * causes them to be missed.
+     */
+    private static final long MIN_POLL_INTERVAL = 250; // ms
+    private static final long MAX_POLL_INTERVAL = 4000; // ms
+
+    protected final LuckPermsPlugin plugin;
     private final SqlStorage sqlStorage;
 
-    private SchedulerTask pollTask;
     private SchedulerTask housekeepingTask;
 
+    // guarded by 'this'
+    private SchedulerTask pollTask = null;
+    private long pollInterval = MIN_POLL_INTERVAL;
+
+    protected volatile boolean closed = false;
+
     public SqlMessenger(LuckPermsPlugin plugin, SqlStorage sqlStorage, IncomingMessageConsumer consumer) {
         super(consumer);
         this.plugin = plugin;
@@ -59,22 +76,59 @@ public class SqlMessenger extends AbstractSqlMessenger {
 
         // schedule poll tasks
         SchedulerAdapter scheduler = this.plugin.getBootstrap().getScheduler();
-        this.pollTask = scheduler.asyncRepeating(this::pollMessages, 1, TimeUnit.SECONDS);
         this.housekeepingTask = scheduler.asyncRepeating(this::runHousekeeping, 30, TimeUnit.SECONDS);
+        startPolling();
+    }
+
+    /**
+     * Starts reading messages from the table.
+     */
+    protected void startPolling() {
+        schedulePoll();
+    }
+
+    private synchronized void schedulePoll() {
+        if (this.closed) {
+            return;
+        }
+
+        this.pollTask = this.plugin.getBootstrap().getScheduler().asyncLater(this::runPoll, this.pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private void runPoll() {
+        if (this.closed) {
+            return;
+        }
+
+        boolean received = false;
+        try {
+            received = pollMessages();
+        } finally {
+            synchronized (this) {
+                if (received) {
+                    this.pollInterval = MIN_POLL_INTERVAL;
+                } else {
+                    this.pollInterval = Math.min(this.pollInterval * 2, MAX_POLL_INTERVAL);
+                }
+                schedulePoll();
+            }
+        }
     }
 
     @Override
     public void close() {
-        SchedulerTask task = this.pollTask;
-        if (task != null) {
-            task.cancel();
+        synchronized (this) {
+            this.closed = true;
+            if (this.pollTask != null) {
+                this.pollTask.cancel();
+                this.pollTask = null;
+            }
         }
-        task = this.housekeepingTask;
+
+        SchedulerTask task = this.housekeepingTask;
         if (task != null) {
             task.cancel();
         }
-
-        this.pollTask = null;
         this.housekeepingTask = null;
 
         super.close();
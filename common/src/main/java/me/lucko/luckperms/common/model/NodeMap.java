@@ -107,6 +107,11 @@ public final class NodeMap {
     private final ImmutableSetMultimapCache<ImmutableContextSet, Node> mapCache = new ImmutableSetMultimapCache<>(this.map);
     private final ImmutableSetMultimapCache<ImmutableContextSet, InheritanceNode> inheritanceMapCache = new ImmutableSetMultimapCache<>(this.inheritanceMap);
 
+    /**
+     * A journal of the changes made to the map since it was last persisted
+     */
+    private final NodeMapJournal journal = new NodeMapJournal();
+
     NodeMap(PermissionHolder holder) {
         this.holder = holder;
     }
@@ -170,6 +175,40 @@ public final class NodeMap {
         }
     }
 
+    /**
+     * Finds the first node which matches the given predicate, in the order
+     * nodes would be copied by {@link #copyTo(Collection, QueryOptions)}.
+     *
+     * @param filter the query options
+     * @param predicate the predicate
+     * @return the first matching node, or null
+     */
+    public @Nullable Node findFirst(QueryOptions filter, Predicate<? super Node> predicate) {
+        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : this.map.entrySet()) {
+            if (filter.satisfies(e.getKey())) {
+                Collection<? extends Node> nodes;
+                if (normalNodesExcludeTest(filter, e.getKey())) {
+                    if (!inheritanceNodesIncludeTest(filter, e.getKey())) {
+                        continue;
+                    }
+                    nodes = this.inheritanceMap.get(e.getKey());
+                    if (nodes == null) {
+                        continue;
+                    }
+                } else {
+                    nodes = e.getValue();
+                }
+
+                for (Node node : nodes) {
+                    if (predicate.test(node)) {
+                        return node;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
     public void copyInheritanceNodesTo(Collection<? super InheritanceNode> collection, QueryOptions filter) {
         for (Map.Entry<ImmutableContextSet, SortedSet<InheritanceNode>> e : this.inheritanceMap.entrySet()) {
             if (filter.satisfies(e.getKey())) {
@@ -180,6 +219,57 @@ public final class NodeMap {
         }
     }
 
+    /**
+     * Adds the (lowercase) names of the groups inherited in any context to
+     * the given set.
+     *
+     * @param set the set to add to
+     */
+    void copyInheritedGroupNamesTo(Set<? super String> set) {
+        for (SortedSet<InheritanceNode> nodes : this.inheritanceMap.values()) {
+            for (InheritanceNode node : nodes) {
+                set.add(node.getGroupName().toLowerCase());
+            }
+        }
+    }
+
+    /**
+     * Gets the number of nodes held in the map.
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        int size = 0;
+        for (SortedSet<Node> valueSet : this.map.values()) {
+            size += valueSet.size();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the journal of changes made to the map since it was last persisted.
+     *
+     * @return the journal
+     */
+    public NodeMapJournal getJournal() {
+        return this.journal;
+    }
+
+    /**
+     * Starts a new {@link NodeMapJournal journal} tracking session, and takes a
+     * snapshot of the maps contents at the same point.
+     *
+     * <p>Changes to the map are made and journaled while holding the same lock,
+     * so each change is included in either the snapshot or the new session,
+     * but never both.</p>
+     *
+     * @return the snapshot
+     */
+    public synchronized NodeMapJournal.Snapshot startTracking() {
+        Object token = this.journal.startTracking();
+        return new NodeMapJournal.Snapshot(token, this.mapCache.supply());
+    }
+
     /**
      * Returns an immutable representation of the maps current state.
      *
@@ -210,13 +300,15 @@ public final class NodeMap {
         return node.toBuilder().withMetadata(InheritanceOriginMetadata.KEY, new InheritanceOrigin(this.holder.getIdentifier())).build();
     }
 
-    void add(Node node) {
+    synchronized void add(Node node) {
         ImmutableContextSet context = node.getContexts();
         Node n = localise(node);
 
         SortedSet<Node> nodesInContext = this.map.computeIfAbsent(context, VALUE_SET_SUPPLIER);
-        nodesInContext.removeIf(e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
-        nodesInContext.add(n);
+        nodesInContext.removeIf(journalRemovals(e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE)));
+        if (nodesInContext.add(n)) {
+            this.journal.recordAdd(n);
+        }
 
         if (n instanceof InheritanceNode) {
             SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.computeIfAbsent(context, INHERITANCE_VALUE_SET_SUPPLIER);
@@ -227,11 +319,11 @@ public final class NodeMap {
         }
     }
 
-    void remove(Node node) {
+    synchronized void remove(Node node) {
         ImmutableContextSet context = node.getContexts();
         SortedSet<Node> nodesInContext = this.map.get(context);
         if (nodesInContext != null) {
-            nodesInContext.removeIf(e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
+            nodesInContext.removeIf(journalRemovals(e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE)));
         }
 
         if (node instanceof InheritanceNode) {
@@ -242,11 +334,11 @@ public final class NodeMap {
         }
     }
 
-    private void removeExact(Node node) {
+    private synchronized void removeExact(Node node) {
         ImmutableContextSet context = node.getContexts();
         SortedSet<Node> nodesInContext = this.map.get(context);
-        if (nodesInContext != null) {
-            nodesInContext.remove(node);
+        if (nodesInContext != null && nodesInContext.remove(node)) {
+            this.journal.recordRemove(node);
         }
 
         if (node instanceof InheritanceNode && node.getValue()) {
@@ -257,23 +349,30 @@ public final class NodeMap {
         }
     }
 
-    void replace(Node node, Node previous) {
+    synchronized void replace(Node node, Node previous) {
         removeExact(previous);
         add(node);
     }
 
-    void clear() {
+    synchronized void clear() {
+        for (SortedSet<Node> valueSet : this.map.values()) {
+            valueSet.forEach(this.journal::recordRemove);
+        }
         this.map.clear();
         this.inheritanceMap.clear();
     }
 
-    void clear(ContextSet contextSet) {
+    synchronized void clear(ContextSet contextSet) {
         ImmutableContextSet context = contextSet.immutableCopy();
-        this.map.remove(context);
+        SortedSet<Node> removed = this.map.remove(context);
+        if (removed != null) {
+            removed.forEach(this.journal::recordRemove);
+        }
         this.inheritanceMap.remove(context);
     }
 
-    void setContent(Iterable<? extends Node> set) {
+    synchronized void setContent(Iterable<? extends Node> set) {
+        this.journal.invalidate();
         this.map.clear();
         this.inheritanceMap.clear();
         for (Node n : set) {
@@ -281,20 +380,35 @@ public final class NodeMap {
         }
     }
 
-    void setContent(Stream<? extends Node> stream) {
+    synchronized void setContent(Stream<? extends Node> stream) {
+        this.journal.invalidate();
         this.map.clear();
         this.inheritanceMap.clear();
         stream.forEach(this::add);
     }
 
-    void setContent(Multimap<ImmutableContextSet, ? extends Node> multimap) {
+    synchronized void setContent(Multimap<ImmutableContextSet, ? extends Node> multimap) {
         setContent(multimap.values());
     }
 
-    boolean removeIf(Predicate<? super Node> predicate) {
+    /**
+     * Replaces the contents of the map with data read from storage, and marks
+     * it as {@link NodeMapJournal#markPersisted(Object) persisted} while holding
+     * the same lock, so no change can be made in between and dropped from the
+     * journal.
+     *
+     * @param stream the nodes
+     * @param state the storage state
+     */
+    synchronized void replaceAndTrack(Stream<? extends Node> stream, Object state) {
+        setContent(stream);
+        this.journal.markPersisted(state);
+    }
+
+    synchronized boolean removeIf(Predicate<? super Node> predicate) {
         boolean success = false;
         for (SortedSet<Node> valueSet : this.map.values()) {
-            if (valueSet.removeIf(predicate)) {
+            if (valueSet.removeIf(journalRemovals(predicate))) {
                 success = true;
             }
         }
@@ -304,14 +418,14 @@ public final class NodeMap {
         return success;
     }
 
-    boolean removeIf(ContextSet contextSet, Predicate<? super Node> predicate) {
+    synchronized boolean removeIf(ContextSet contextSet, Predicate<? super Node> predicate) {
         ImmutableContextSet context = contextSet.immutableCopy();
 
         boolean success = false;
 
         SortedSet<Node> nodesInContext = this.map.get(context);
         if (nodesInContext != null) {
-            success = nodesInContext.removeIf(predicate);
+            success = nodesInContext.removeIf(journalRemovals(predicate));
         }
 
         SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.get(context);
@@ -322,7 +436,7 @@ public final class NodeMap {
         return success;
     }
 
-    boolean auditTemporaryNodes(@Nullable Set<? super Node> removed) {
+    synchronized boolean auditTemporaryNodes(@Nullable Set<? super Node> removed) {
         boolean work = false;
 
         for (SortedSet<Node> valueSet : this.map.values()) {
@@ -344,6 +458,7 @@ public final class NodeMap {
                     }
                 }
                 it.remove();
+                this.journal.recordRemove(entry);
                 work = true;
             }
         }
@@ -351,6 +466,23 @@ public final class NodeMap {
         return work;
     }
 
+    /**
+     * Wraps a predicate used to remove nodes from the map, so that the
+     * removed nodes are recorded in the {@link #journal}.
+     *
+     * @param predicate the predicate
+     * @return a predicate which records matches
+     */
+    private Predicate<Node> journalRemovals(Predicate<? super Node> predicate) {
+        return node -> {
+            if (predicate.test(node)) {
+                this.journal.recordRemove(node);
+                return true;
+            }
+            return false;
+        };
+    }
+
     private static final class ImmutableSetMultimapCache<K, V> extends Cache<ImmutableSetMultimap<K, V>> {
         @SuppressWarnings("rawtypes")
         private static final Constructor<ImmutableSetMultimap> IMMUTABLE_SET_MULTIMAP_CONSTRUCTOR;
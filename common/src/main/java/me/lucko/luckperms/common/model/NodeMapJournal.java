@@ -0,0 +1,236 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+
+import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.node.Node;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the changes made to a {@link NodeMap} since its contents were last
+ * known to match the storage backing.
+ *
+ * <p>Changes are only recorded once a storage implementation has called
+ * {@link #startTracking()} (or {@link NodeMap#startTracking()}, which also
+ * takes a snapshot of the map). Operations which replace the whole map, or a
+ * journal which grows too large, stop tracking until the next full save.</p>
+ *
+ * <p>Storage implementations associate a state object with the journal (for
+ * example, a version of the remote data), which is used to check that the
+ * remote data hasn't been changed by another process before the journaled
+ * changes are applied.</p>
+ */
+public final class NodeMapJournal {
+
+    /**
+     * The maximum number of changes to record before tracking is stopped
+     */
+    private static final int MAX_CHANGES = 512;
+
+    /**
+     * Identifies the current tracking session, or null if changes are not being tracked
+     */
+    private volatile @Nullable Object token = null;
+
+    /**
+     * The storage state associated with the tracking session, or null if not yet known
+     */
+    private @Nullable Object state = null;
+
+    private final List<Change> changes = new ArrayList<>();
+
+    NodeMapJournal() {}
+
+    void recordAdd(Node node) {
+        record(node, true);
+    }
+
+    void recordRemove(Node node) {
+        record(node, false);
+    }
+
+    private void record(Node node, boolean added) {
+        if (this.token == null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (this.token == null) {
+                return;
+            }
+            if (this.changes.size() >= MAX_CHANGES) {
+                invalidate();
+                return;
+            }
+            this.changes.add(new Change(node, added));
+        }
+    }
+
+    /**
+     * Stops tracking changes, and discards any which have been recorded.
+     */
+    public synchronized void invalidate() {
+        this.token = null;
+        this.state = null;
+        this.changes.clear();
+    }
+
+    /**
+     * Discards any recorded changes, and starts a new tracking session from
+     * the current contents of the map.
+     *
+     * <p>The returned token should be passed to {@link #persisted(Object, Object)}
+     * once the current contents have been persisted.</p>
+     *
+     * @return the token for the new session
+     */
+    public synchronized Object startTracking() {
+        Object token = new Object();
+        this.token = token;
+        this.state = null;
+        this.changes.clear();
+        return token;
+    }
+
+    /**
+     * Marks the current contents of the map as persisted.
+     *
+     * @param state the storage state
+     */
+    public synchronized void markPersisted(Object state) {
+        persisted(startTracking(), state);
+    }
+
+    /**
+     * Records that the contents of the map (less any changes recorded since the
+     * token was obtained) have been persisted.
+     *
+     * <p>Has no effect if the tracking session has since been invalidated or restarted.</p>
+     *
+     * @param token the token from {@link #startTracking()} or {@link Changes#getToken()}
+     * @param state the new storage state
+     */
+    public synchronized void persisted(Object token, Object state) {
+        if (this.token == token) {
+            this.state = state;
+        }
+    }
+
+    /**
+     * Removes and returns the changes recorded since the contents of the map
+     * were last persisted.
+     *
+     * @return the changes, or null if changes are not being tracked
+     */
+    public synchronized @Nullable Changes drain() {
+        if (this.token == null || this.state == null) {
+            return null;
+        }
+
+        Changes changes = new Changes(this.token, this.state, ImmutableList.copyOf(this.changes));
+        this.changes.clear();
+        return changes;
+    }
+
+    /**
+     * A set of changes drained from the journal.
+     */
+    public static final class Changes {
+        private final Object token;
+        private final Object state;
+        private final List<Change> changes;
+
+        Changes(Object token, Object state, List<Change> changes) {
+            this.token = token;
+            this.state = state;
+            this.changes = changes;
+        }
+
+        public Object getToken() {
+            return this.token;
+        }
+
+        public Object getState() {
+            return this.state;
+        }
+
+        public List<Change> getChanges() {
+            return this.changes;
+        }
+    }
+
+    /**
+     * The contents of the map, taken at the start of a tracking session.
+     *
+     * @see NodeMap#startTracking()
+     */
+    public static final class Snapshot {
+        private final Object token;
+        private final ImmutableSetMultimap<ImmutableContextSet, Node> nodes;
+
+        Snapshot(Object token, ImmutableSetMultimap<ImmutableContextSet, Node> nodes) {
+            this.token = token;
+            this.nodes = nodes;
+        }
+
+        public Object getToken() {
+            return this.token;
+        }
+
+        public ImmutableSetMultimap<ImmutableContextSet, Node> getNodes() {
+            return this.nodes;
+        }
+    }
+
+    /**
+     * A node which was added to, or removed from the map.
+     */
+    public static final class Change {
+        private final Node node;
+        private final boolean added;
+
+        Change(Node node, boolean added) {
+            this.node = node;
+            this.added = added;
+        }
+
+        public Node getNode() {
+            return this.node;
+        }
+
+        public boolean isAdded() {
+            return this.added;
+        }
+    }
+
+}
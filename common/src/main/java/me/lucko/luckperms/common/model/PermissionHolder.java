@@ -31,13 +31,21 @@ import com.google.common.collect.Multimap;
 
 import me.lucko.luckperms.common.cacheddata.HolderCachedDataManager;
 import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
+import me.lucko.luckperms.common.cacheddata.type.PermissionSnapshot;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.graph.TraversalAlgorithm;
 import me.lucko.luckperms.common.inheritance.InheritanceComparator;
 import me.lucko.luckperms.common.inheritance.InheritanceGraph;
+import me.lucko.luckperms.common.inheritance.InheritanceIndex;
+import me.lucko.luckperms.common.inheritance.TraversalCache;
 import me.lucko.luckperms.common.node.comparator.NodeWithContextComparator;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
 import net.luckperms.api.context.ContextSet;
 import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.event.node.NodeAddEvent;
+import net.luckperms.api.event.node.NodeClearEvent;
+import net.luckperms.api.event.node.NodeRemoveEvent;
 import net.luckperms.api.model.data.DataMutateResult;
 import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.model.data.TemporaryNodeMergeStrategy;
@@ -59,6 +67,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -133,11 +142,29 @@ public abstract class PermissionHolder {
      */
     private final Lock ioLock = new ReentrantLock();
 
+    /**
+     * Incremented by Storage implementations (whilst holding the {@link #ioLock})
+     * each time the holder is loaded from or saved to the storage
+     * @see #getIoVersion()
+     */
+    private volatile long ioVersion = 0;
+
     /**
      * Comparator used to ordering groups when calculating inheritance
      */
     private final Comparator<? super PermissionHolder> inheritanceComparator = InheritanceComparator.getFor(this);
 
+    /**
+     * The names of the groups this holder directly inherits from, in any context,
+     * as last recorded in the {@link InheritanceIndex}.
+     */
+    private Set<String> inheritedGroupNames = Collections.emptySet();
+
+    /**
+     * Cached traversals of the inheritance graph, starting at this holder
+     */
+    private final TraversalCache traversalCache = new TraversalCache();
+
     /**
      * Creates a new instance
      *
@@ -157,10 +184,37 @@ public abstract class PermissionHolder {
         return this.ioLock;
     }
 
+    /**
+     * Gets the number of times the holder has been loaded from or saved to
+     * the storage.
+     *
+     * <p>Storage implementations which read a holder without holding its
+     * {@link #getIoLock() io lock} can compare the value before the read with
+     * the value once the lock is held, to check the data they read is still
+     * the latest.</p>
+     *
+     * @return the io version
+     */
+    public long getIoVersion() {
+        return this.ioVersion;
+    }
+
+    /**
+     * Increments the {@link #getIoVersion() io version}. Must only be called
+     * whilst holding the {@link #getIoLock() io lock}.
+     */
+    public void incrementIoVersion() {
+        this.ioVersion++;
+    }
+
     public Comparator<? super PermissionHolder> getInheritanceComparator() {
         return this.inheritanceComparator;
     }
 
+    public TraversalCache getTraversalCache() {
+        return this.traversalCache;
+    }
+
     public NodeMap getData(DataType type) {
         switch (type) {
             case NORMAL:
@@ -229,9 +283,116 @@ public abstract class PermissionHolder {
     protected void invalidateCache() {
         this.normalNodes.invalidate();
         this.transientNodes.invalidate();
+        updateInheritanceIndex();
+
+        // groups may appear in the traversals of other holders, users only in their own
+        this.traversalCache.invalidate();
+        if (getType() == HolderType.GROUP) {
+            this.plugin.getInheritanceHandler().invalidateTraversals();
+        }
+
+        Set<PermissionHolder> dependents = getDependents();
+        invalidatePermissionSnapshots(dependents);
 
         getCachedData().invalidate();
         getPlugin().getEventDispatcher().dispatchDataRecalculate(this);
+
+        for (PermissionHolder dependent : dependents) {
+            dependent.getCachedData().invalidate();
+        }
+    }
+
+    /**
+     * Invalidates the holders cached data following a change to a single node.
+     *
+     * <p>Changes to plain permission nodes only affect a single entry in the
+     * holders permission data, so are applied to the existing caches in place.
+     * Any other change results in a full invalidation.</p>
+     *
+     * @param changed the node which was added or removed
+     */
+    private void invalidateCache(Node changed) {
+        NodeType<?> type = changed.getType();
+        if ((type != NodeType.PERMISSION && type != NodeType.REGEX_PERMISSION) || !changed.resolveShorthand().isEmpty()) {
+            invalidateCache();
+            return;
+        }
+
+        this.normalNodes.invalidate();
+        this.transientNodes.invalidate();
+
+        String permission = changed.getKey().toLowerCase();
+        Set<PermissionHolder> dependents = getDependents();
+        invalidatePermissionSnapshots(dependents);
+
+        getCachedData().invalidatePermission(permission);
+        getPlugin().getEventDispatcher().dispatchDataRecalculate(this);
+
+        for (PermissionHolder dependent : dependents) {
+            dependent.getCachedData().invalidatePermission(permission);
+        }
+    }
+
+    /**
+     * Discards the permission snapshots of this holder and the given dependents
+     * which may include a change to this holder.
+     *
+     * <p>Must be called before the caches built from the snapshots are updated.</p>
+     *
+     * @param dependents the holders which inherit from this holder
+     */
+    private void invalidatePermissionSnapshots(Set<PermissionHolder> dependents) {
+        if (getType() == HolderType.GROUP) {
+            ((Group) this).getCachedData().invalidatePermissionSnapshots();
+        }
+        for (PermissionHolder dependent : dependents) {
+            if (dependent.getType() == HolderType.GROUP) {
+                ((Group) dependent).getCachedData().invalidatePermissionSnapshots();
+            }
+        }
+    }
+
+    /**
+     * Invalidates the cached data of all holders which inherit from this holder.
+     */
+    public void invalidateDependentCaches() {
+        Set<PermissionHolder> dependents = getDependents();
+        for (PermissionHolder dependent : dependents) {
+            if (dependent.getType() == HolderType.GROUP) {
+                ((Group) dependent).getCachedData().invalidatePermissionSnapshots();
+            }
+        }
+        for (PermissionHolder dependent : dependents) {
+            dependent.getCachedData().invalidate();
+        }
+    }
+
+    /**
+     * Gets the holders which inherit from this holder, either directly or
+     * indirectly.
+     *
+     * @return the dependent holders
+     */
+    private Set<PermissionHolder> getDependents() {
+        if (getType() != HolderType.GROUP) {
+            return Collections.emptySet();
+        }
+        return this.plugin.getInheritanceHandler().getIndex().getDependents(getObjectName());
+    }
+
+    /**
+     * Updates the {@link InheritanceIndex} with the groups this holder
+     * currently inherits from.
+     */
+    private synchronized void updateInheritanceIndex() {
+        Set<String> groupNames = new HashSet<>();
+        this.normalNodes.copyInheritedGroupNamesTo(groupNames);
+        this.transientNodes.copyInheritedGroupNamesTo(groupNames);
+
+        if (!groupNames.equals(this.inheritedGroupNames)) {
+            this.plugin.getInheritanceHandler().getIndex().update(this, this.inheritedGroupNames, groupNames);
+            this.inheritedGroupNames = groupNames;
+        }
     }
 
     public void setNodes(DataType type, Iterable<? extends Node> set) {
@@ -244,6 +405,20 @@ public abstract class PermissionHolder {
         invalidateCache();
     }
 
+    /**
+     * Sets the holders nodes to those loaded from storage, and starts
+     * journaling changes made to them from the same point.
+     *
+     * @param type the data type
+     * @param stream the nodes
+     * @param state the storage state
+     * @see NodeMapJournal#markPersisted(Object)
+     */
+    public void setNodesAndTrack(DataType type, Stream<? extends Node> stream, Object state) {
+        getData(type).replaceAndTrack(stream, state);
+        invalidateCache();
+    }
+
     public void replaceNodes(DataType type, Multimap<ImmutableContextSet, ? extends Node> multimap) {
         getData(type).setContent(multimap);
         invalidateCache();
@@ -317,10 +492,93 @@ public abstract class PermissionHolder {
     }
 
     public Map<String, Boolean> exportPermissions(QueryOptions queryOptions, boolean convertToLowercase, boolean resolveShorthand) {
+        if (convertToLowercase && canCombinePermissionSnapshots(queryOptions)) {
+            return PermissionSnapshot.combine(collectPermissionSnapshots(queryOptions), resolveShorthand);
+        }
+
         List<Node> entries = resolveInheritedNodes(queryOptions);
         return processExportedPermissions(entries, convertToLowercase, resolveShorthand);
     }
 
+    /**
+     * Gets if the permissions exported by this holder can be obtained by combining
+     * the {@link PermissionSnapshot}s of its parent groups.
+     *
+     * <p>This is only the case when the traversal from this holder is equal to its
+     * own nodes, followed by the traversal from each of its parents in turn.</p>
+     *
+     * @param queryOptions the query options
+     * @return if snapshots can be used
+     */
+    private boolean canCombinePermissionSnapshots(QueryOptions queryOptions) {
+        return queryOptions.flag(Flag.RESOLVE_INHERITANCE) &&
+                this.plugin.getConfiguration().get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM) == TraversalAlgorithm.DEPTH_FIRST_PRE_ORDER &&
+                !this.plugin.getConfiguration().get(ConfigKeys.POST_TRAVERSAL_INHERITANCE_SORT);
+    }
+
+    private List<PermissionSnapshot> collectPermissionSnapshots(QueryOptions queryOptions) {
+        if (getType() == HolderType.GROUP) {
+            return Collections.singletonList(((Group) this).getCachedData().getPermissionSnapshot(queryOptions));
+        }
+
+        List<PermissionSnapshot> snapshots = new ArrayList<>();
+        snapshots.add(PermissionSnapshot.of(getOwnNodes(queryOptions)));
+        for (PermissionHolder parent : this.plugin.getInheritanceHandler().getGraph(queryOptions).successors(this)) {
+            snapshots.add(((Group) parent).getCachedData().getPermissionSnapshot(queryOptions));
+        }
+        return snapshots;
+    }
+
+    /**
+     * Resolves the value of a single permission, as it would appear in the map
+     * returned by {@link #exportPermissions(QueryOptions, boolean, boolean)}
+     * when converting to lowercase.
+     *
+     * @param queryOptions the query options
+     * @param permission the permission, in lowercase
+     * @param resolveShorthand if shorthand should be resolved
+     * @return the value, or null if the permission isn't set
+     */
+    public @Nullable Boolean exportPermission(QueryOptions queryOptions, String permission, boolean resolveShorthand) {
+        Iterable<PermissionHolder> holders;
+        if (queryOptions.flag(Flag.RESOLVE_INHERITANCE)) {
+            holders = this.plugin.getInheritanceHandler().getGraph(queryOptions).traverse(this);
+        } else {
+            holders = Collections.singleton(this);
+        }
+
+        // exact matches take priority over shorthand, regardless of where they're inherited from
+        Node match = findFirstInheritedNode(holders, queryOptions, node -> node.getKey().toLowerCase().equals(permission));
+        if (match == null && resolveShorthand) {
+            match = findFirstInheritedNode(holders, queryOptions, node -> {
+                for (String s : node.resolveShorthand()) {
+                    if (s.toLowerCase().equals(permission)) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+        }
+
+        return match == null ? null : match.getValue();
+    }
+
+    private static @Nullable Node findFirstInheritedNode(Iterable<PermissionHolder> holders, QueryOptions queryOptions, Predicate<? super Node> predicate) {
+        for (PermissionHolder holder : holders) {
+            Comparator<DataType> comparator = queryOptions.option(DataQueryOrderFunction.KEY)
+                    .map(func -> func.getOrderComparator(holder.getIdentifier()))
+                    .orElse(DataQueryOrder.TRANSIENT_FIRST);
+
+            for (DataType dataType : DataQueryOrder.order(comparator)) {
+                Node node = holder.getData(dataType).findFirst(queryOptions, predicate);
+                if (node != null) {
+                    return node;
+                }
+            }
+        }
+        return null;
+    }
+
     private static ImmutableMap<String, Boolean> processExportedPermissions(List<Node> entries, boolean convertToLowercase, boolean resolveShorthand) {
         Map<String, Boolean> map = new HashMap<>(entries.size());
         for (Node node : entries) {
@@ -385,8 +643,9 @@ public abstract class PermissionHolder {
     }
 
     private boolean auditTemporaryNodes(DataType dataType) {
-        ImmutableCollection<? extends Node> before = getData(dataType).immutable().values();
-        Set<Node> removed = new HashSet<>();
+        boolean callEvent = this.plugin.getEventDispatcher().shouldPost(NodeRemoveEvent.class);
+        ImmutableCollection<? extends Node> before = callEvent ? getData(dataType).immutable().values() : null;
+        Set<Node> removed = callEvent ? new HashSet<>() : null;
 
         boolean work = getData(dataType).auditTemporaryNodes(removed);
         if (work) {
@@ -394,6 +653,9 @@ public abstract class PermissionHolder {
             invalidateCache();
 
             // call event
+            if (!callEvent) {
+                return true;
+            }
             ImmutableCollection<? extends Node> after = getData(dataType).immutable().values();
             for (Node r : removed) {
                 this.plugin.getEventDispatcher().dispatchNodeRemove(r, this, dataType, before, after);
@@ -420,13 +682,15 @@ public abstract class PermissionHolder {
 
         NodeMap data = getData(dataType);
 
-        ImmutableCollection<? extends Node> before = data.immutable().values();
+        // only take snapshots of the data if an event will be posted
+        callEvent = callEvent && this.plugin.getEventDispatcher().shouldPost(NodeAddEvent.class);
+        ImmutableCollection<? extends Node> before = callEvent ? data.immutable().values() : null;
 
         data.add(node);
-        invalidateCache();
+        invalidateCache(node);
 
-        ImmutableCollection<? extends Node> after = data.immutable().values();
         if (callEvent) {
+            ImmutableCollection<? extends Node> after = data.immutable().values();
             this.plugin.getEventDispatcher().dispatchNodeAdd(node, this, dataType, before, after);
         }
 
@@ -461,13 +725,16 @@ public abstract class PermissionHolder {
 
                 if (newNode != null) {
                     // Remove the old Node & add the new one.
-                    ImmutableCollection<? extends Node> before = data.immutable().values();
+                    boolean callEvent = this.plugin.getEventDispatcher().shouldPost(NodeAddEvent.class);
+                    ImmutableCollection<? extends Node> before = callEvent ? data.immutable().values() : null;
 
                     data.replace(newNode, otherMatch);
-                    invalidateCache();
+                    invalidateCache(newNode);
 
-                    ImmutableCollection<? extends Node> after = data.immutable().values();
-                    this.plugin.getEventDispatcher().dispatchNodeAdd(newNode, this, dataType, before, after);
+                    if (callEvent) {
+                        ImmutableCollection<? extends Node> after = data.immutable().values();
+                        this.plugin.getEventDispatcher().dispatchNodeAdd(newNode, this, dataType, before, after);
+                    }
 
                     return new MergedNodeResult(DataMutateResult.SUCCESS, newNode);
                 }
@@ -483,20 +750,24 @@ public abstract class PermissionHolder {
             return DataMutateResult.FAIL_LACKS;
         }
 
-        ImmutableCollection<? extends Node> before = getData(dataType).immutable().values();
+        boolean callEvent = this.plugin.getEventDispatcher().shouldPost(NodeRemoveEvent.class);
+        ImmutableCollection<? extends Node> before = callEvent ? getData(dataType).immutable().values() : null;
 
         getData(dataType).remove(node);
-        invalidateCache();
+        invalidateCache(node);
 
-        ImmutableCollection<? extends Node> after = getData(dataType).immutable().values();
-        this.plugin.getEventDispatcher().dispatchNodeRemove(node, this, dataType, before, after);
+        if (callEvent) {
+            ImmutableCollection<? extends Node> after = getData(dataType).immutable().values();
+            this.plugin.getEventDispatcher().dispatchNodeRemove(node, this, dataType, before, after);
+        }
 
         return DataMutateResult.SUCCESS;
     }
 
     public boolean removeIf(DataType dataType, @Nullable ContextSet contextSet, Predicate<? super Node> predicate, boolean giveDefault) {
         NodeMap data = getData(dataType);
-        ImmutableCollection<? extends Node> before = data.immutable().values();
+        boolean callEvent = this.plugin.getEventDispatcher().shouldPost(NodeClearEvent.class);
+        ImmutableCollection<? extends Node> before = callEvent ? data.immutable().values() : null;
 
         if (contextSet == null) {
             if (!data.removeIf(predicate)) {
@@ -514,15 +785,19 @@ public abstract class PermissionHolder {
 
         invalidateCache();
 
-        ImmutableCollection<? extends Node> after = data.immutable().values();
-        this.plugin.getEventDispatcher().dispatchNodeClear(this, dataType, before, after);
+        if (callEvent) {
+            ImmutableCollection<? extends Node> after = data.immutable().values();
+            this.plugin.getEventDispatcher().dispatchNodeClear(this, dataType, before, after);
+        }
 
         return true;
     }
 
     public boolean clearNodes(DataType dataType, ContextSet contextSet, boolean giveDefault) {
         NodeMap data = getData(dataType);
-        ImmutableCollection<? extends Node> before = data.immutable().values();
+        boolean callEvent = this.plugin.getEventDispatcher().shouldPost(NodeClearEvent.class);
+        ImmutableCollection<? extends Node> before = callEvent ? data.immutable().values() : null;
+        int sizeBefore = callEvent ? before.size() : data.size();
 
         if (contextSet == null) {
             data.clear();
@@ -536,6 +811,10 @@ public abstract class PermissionHolder {
 
         invalidateCache();
 
+        if (!callEvent) {
+            return sizeBefore != data.size();
+        }
+
         ImmutableCollection<? extends Node> after = data.immutable().values();
 
         if (before.size() == after.size()) {
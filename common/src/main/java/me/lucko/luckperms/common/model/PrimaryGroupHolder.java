@@ -96,6 +96,9 @@ public interface PrimaryGroupHolder {
             } else {
                 this.value = value.toLowerCase();
             }
+
+            // the primary group affects the order of the users inheritance traversal
+            this.user.getTraversalCache().invalidate();
         }
     }
 
@@ -64,6 +64,30 @@ public abstract class AbstractGroupManager<T extends Group> extends AbstractMana
         return s.toLowerCase();
     }
 
+    @Override
+    public T getOrMake(String id) {
+        T group = getIfLoaded(id);
+        if (group == null) {
+            group = super.getOrMake(id);
+
+            // the group may now appear in traversals which previously skipped it
+            group.getPlugin().getInheritanceHandler().invalidateTraversals();
+        }
+        return group;
+    }
+
+    @Override
+    public void unload(String id) {
+        T group = id == null ? null : getIfLoaded(id);
+        super.unload(id);
+
+        // holders which inherited from the group need to be recalculated
+        if (group != null) {
+            group.getPlugin().getInheritanceHandler().invalidateTraversals();
+            group.invalidateDependentCaches();
+        }
+    }
+
     @Override
     public void invalidateAllGroupCaches() {
         getAll().values().forEach(g -> g.getCachedData().invalidate());
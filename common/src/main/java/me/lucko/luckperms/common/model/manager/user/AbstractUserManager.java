@@ -34,7 +34,6 @@ import me.lucko.luckperms.common.model.manager.AbstractManager;
 import me.lucko.luckperms.common.model.manager.group.GroupManager;
 import me.lucko.luckperms.common.node.types.Inheritance;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
-import me.lucko.luckperms.common.util.Iterators;
 
 import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.Node;
@@ -141,11 +140,14 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
                 this.plugin.getBootstrap().getOnlinePlayers()
         ).collect(Collectors.toSet());
 
-        return CompletableFuture.runAsync(() -> {
-            Iterators.tryIterate(ids, id -> {
-                this.plugin.getStorage().loadUser(id, null).join();
-            });
-        }, this.plugin.getBootstrap().getScheduler().async());
+        // users which fail to load are logged by the storage, and skipped
+        return this.plugin.getStorage().loadUsers(ids).handle((users, ex) -> {
+            if (ex != null) {
+                this.plugin.getLogger().severe("Exception occurred whilst loading users");
+                ex.printStackTrace();
+            }
+            return null;
+        });
     }
 
     @Override
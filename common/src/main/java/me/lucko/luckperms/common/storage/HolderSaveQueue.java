@@ -0,0 +1,330 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage;
+
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
+import me.lucko.luckperms.common.util.Throwing;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A write-behind queue for user and group saves.
+ *
+ * <p>Saves are held for a short delay before being passed to the
+ * {@link StorageImplementation}. If a holder is saved again whilst an earlier
+ * save is still pending, the two are coalesced into a single write, which
+ * persists the state of the holder at the time the save is written.</p>
+ *
+ * <p>The queue is flushed once the delay has passed, or as soon as the number
+ * of pending saves reaches the configured threshold. A single holder's save
+ * can also be written early - either before the holder is read back from the
+ * storage, or when a caller blocks on the future returned for the save.</p>
+ */
+public class HolderSaveQueue {
+    private final SchedulerAdapter scheduler;
+    private final StorageImplementation implementation;
+
+    /** The delay in milliseconds between the first pending save and a flush */
+    private final long delay;
+    /** The number of pending saves which triggers an immediate flush */
+    private final int maxPending;
+
+    /** The pending saves, keyed by the unique id of a user or the name of a group */
+    private final Map<Object, PendingSave<?>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean immediateFlushScheduled = new AtomicBoolean(false);
+
+    // metrics
+    private final LongAdder coalescedSaves = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder flushTimeNanos = new LongAdder();
+    private final AtomicLong maxFlushTimeNanos = new AtomicLong();
+
+    public HolderSaveQueue(SchedulerAdapter scheduler, StorageImplementation implementation, long delay, int maxPending) {
+        this.scheduler = scheduler;
+        this.implementation = implementation;
+        this.delay = delay;
+        this.maxPending = maxPending;
+    }
+
+    public CompletableFuture<Void> saveUser(User user) {
+        return enqueue(user.getUniqueId(), user, this.implementation::saveUser);
+    }
+
+    public CompletableFuture<Void> saveGroup(Group group) {
+        return enqueue(group.getName(), group, this.implementation::saveGroup);
+    }
+
+    /**
+     * Queues a save.
+     *
+     * @param key the key of the holder
+     * @param holder the holder
+     * @param saver the function which writes the holder to the storage
+     * @param <T> the holder type
+     * @return a future which completes once the holder has been written
+     */
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<Void> enqueue(Object key, T holder, Throwing.Consumer<T> saver) {
+        // a key always maps to the same holder type, as users & groups are keyed by UUID & String respectively
+        PendingSave<T> save = (PendingSave<T>) this.pending.compute(key, (k, existing) -> {
+            if (existing == null) {
+                return new PendingSave<>(this.pending, key, holder, saver, null);
+            }
+            if (existing.claimed.get()) {
+                // the pending save is already being written, so this one has to follow it
+                return new PendingSave<>(this.pending, key, holder, saver, (PendingSave<T>) existing);
+            }
+
+            // replace the holder instance, in case it has been unloaded & loaded again since
+            ((PendingSave<T>) existing).holder = holder;
+            this.coalescedSaves.increment();
+            return existing;
+        });
+
+        try {
+            if (getPendingCount() >= this.maxPending) {
+                if (this.immediateFlushScheduled.compareAndSet(false, true)) {
+                    this.scheduler.executeAsync(this::flush);
+                }
+            } else if (this.flushScheduled.compareAndSet(false, true)) {
+                this.scheduler.asyncLater(this::flush, this.delay, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            // the scheduler has been shutdown, the save will be written when the storage is closed
+        }
+
+        return save.future;
+    }
+
+    /**
+     * Writes all pending saves to the storage.
+     *
+     * <p>The saves are performed on the calling thread, which returns once
+     * they have completed. This is also used to write any remaining saves
+     * when the storage is shutting down.</p>
+     */
+    public void flush() {
+        this.flushScheduled.set(false);
+        this.immediateFlushScheduled.set(false);
+        if (this.pending.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        this.pending.values().forEach(PendingSave::writeOrAwait);
+
+        long duration = System.nanoTime() - start;
+        this.flushCount.increment();
+        this.flushTimeNanos.add(duration);
+        this.maxFlushTimeNanos.accumulateAndGet(duration, Math::max);
+    }
+
+    /**
+     * Writes the pending saves for the given users.
+     *
+     * @param uniqueIds the unique ids of the users
+     */
+    public void flushUsers(Collection<UUID> uniqueIds) {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+        for (UUID uniqueId : uniqueIds) {
+            flush(uniqueId);
+        }
+    }
+
+    /**
+     * Writes the pending save for a group, if there is one.
+     *
+     * @param name the name of the group
+     */
+    public void flushGroup(String name) {
+        flush(name);
+    }
+
+    /**
+     * Writes the pending save for the given key, if there is one.
+     *
+     * @param key the key of the holder
+     */
+    void flush(Object key) {
+        PendingSave<?> save = this.pending.get(key);
+        if (save != null) {
+            save.writeOrAwait();
+        }
+    }
+
+    /**
+     * Gets the number of holders with a pending save.
+     *
+     * @return the queue depth
+     */
+    public int getPendingCount() {
+        return this.pending.size();
+    }
+
+    /**
+     * Gets the number of saves which were coalesced with an earlier pending save.
+     *
+     * @return the number of coalesced saves
+     */
+    public long getCoalescedSaves() {
+        return this.coalescedSaves.sum();
+    }
+
+    /**
+     * Gets the mean time taken to flush the queue, in milliseconds.
+     *
+     * @return the mean flush time
+     */
+    public double getMeanFlushTime() {
+        long count = this.flushCount.sum();
+        return count == 0 ? 0 : (this.flushTimeNanos.sum() / (double) count) / 1_000_000d;
+    }
+
+    /**
+     * Gets the maximum time taken to flush the queue, in milliseconds.
+     *
+     * @return the maximum flush time
+     */
+    public double getMaxFlushTime() {
+        return this.maxFlushTimeNanos.get() / 1_000_000d;
+    }
+
+    private static final class PendingSave<T> {
+        private final Map<Object, PendingSave<?>> pending;
+        private final Object key;
+        private final Throwing.Consumer<T> saver;
+        private final SaveFuture future = new SaveFuture(this);
+
+        /** Set by the thread which writes the save */
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+        private volatile T holder;
+
+        /** A save for the same holder which was still being written when this one was made */
+        private PendingSave<T> previous;
+
+        PendingSave(Map<Object, PendingSave<?>> pending, Object key, T holder, Throwing.Consumer<T> saver, PendingSave<T> previous) {
+            this.pending = pending;
+            this.key = key;
+            this.holder = holder;
+            this.saver = saver;
+            this.previous = previous;
+        }
+
+        /**
+         * Writes the save on the calling thread, unless another thread has
+         * already started to write it.
+         */
+        void tryWrite() {
+            if (!this.claimed.compareAndSet(false, true)) {
+                return;
+            }
+
+            // never write the same holder concurrently, otherwise an older state could be written last
+            if (this.previous != null) {
+                this.previous.writeOrAwait();
+                this.previous = null;
+            }
+
+            try {
+                this.saver.accept(this.holder);
+                this.pending.remove(this.key, this);
+                this.future.complete(null);
+            } catch (Throwable e) {
+                // failures are passed to the callers through the future - this includes errors,
+                // otherwise the future would never complete and anything waiting on it would block forever
+                this.pending.remove(this.key, this);
+                this.future.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * Writes the save on the calling thread, or waits for the thread
+         * which is already writing it.
+         */
+        void writeOrAwait() {
+            try {
+                this.future.join();
+            } catch (CompletionException e) {
+                // handled by the caller which made the save
+            }
+        }
+    }
+
+    /**
+     * The future returned for a pending save. If the caller blocks on the result,
+     * the save is written straight away, instead of waiting for the next flush.
+     */
+    private static final class SaveFuture extends CompletableFuture<Void> {
+        private final PendingSave<?> save;
+
+        SaveFuture(PendingSave<?> save) {
+            this.save = save;
+        }
+
+        @Override
+        public Void join() {
+            if (!isDone()) {
+                this.save.tryWrite();
+            }
+            return super.join();
+        }
+
+        @Override
+        public Void get() throws InterruptedException, ExecutionException {
+            if (!isDone()) {
+                this.save.tryWrite();
+            }
+            return super.get();
+        }
+
+        @Override
+        public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!isDone()) {
+                this.save.tryWrite();
+            }
+            return super.get(timeout, unit);
+        }
+    }
+}
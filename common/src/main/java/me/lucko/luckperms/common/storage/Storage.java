@@ -27,15 +27,19 @@ package me.lucko.luckperms.common.storage;
 
 import com.google.common.collect.ImmutableList;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.bulkupdate.comparison.Constraint;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.split.SplitStorage;
+import me.lucko.luckperms.common.storage.misc.UserLoginResult;
 import me.lucko.luckperms.common.util.Throwing;
 
 import net.luckperms.api.actionlog.Action;
@@ -44,8 +48,11 @@ import net.luckperms.api.event.cause.DeletionCause;
 import net.luckperms.api.model.PlayerSaveResult;
 import net.luckperms.api.node.HeldNode;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -61,10 +68,18 @@ import java.util.concurrent.CompletionException;
 public class Storage {
     private final LuckPermsPlugin plugin;
     private final StorageImplementation implementation;
+    private final @Nullable HolderSaveQueue saveQueue;
 
     public Storage(LuckPermsPlugin plugin, StorageImplementation implementation) {
         this.plugin = plugin;
         this.implementation = implementation;
+
+        int saveQueueDelay = plugin.getConfiguration().get(ConfigKeys.SAVE_QUEUE_DELAY);
+        if (saveQueueDelay > 0) {
+            this.saveQueue = new HolderSaveQueue(plugin.getBootstrap().getScheduler(), implementation, saveQueueDelay, plugin.getConfiguration().get(ConfigKeys.SAVE_QUEUE_MAX_PENDING));
+        } else {
+            this.saveQueue = null;
+        }
     }
 
     public StorageImplementation getImplementation() {
@@ -119,6 +134,10 @@ public class Storage {
     }
 
     public void shutdown() {
+        if (this.saveQueue != null) {
+            this.saveQueue.flush();
+        }
+
         try {
             this.implementation.shutdown();
         } catch (Exception e) {
@@ -128,7 +147,50 @@ public class Storage {
     }
 
     public Map<String, String> getMeta() {
-        return this.implementation.getMeta();
+        Map<String, String> meta = this.implementation.getMeta();
+        if (this.saveQueue == null) {
+            return meta;
+        }
+
+        meta = new LinkedHashMap<>(meta);
+        meta.put("Pending Saves", Integer.toString(this.saveQueue.getPendingCount()));
+        meta.put("Coalesced Saves", Long.toString(this.saveQueue.getCoalescedSaves()));
+        meta.put("Save Flush Time", String.format("%.1fms avg, %.1fms max", this.saveQueue.getMeanFlushTime(), this.saveQueue.getMaxFlushTime()));
+        return meta;
+    }
+
+    /**
+     * Writes any pending user & group saves to the storage, so they are
+     * visible to a subsequent read of the whole dataset.
+     */
+    private void flushPendingSaves() {
+        if (this.saveQueue != null) {
+            this.saveQueue.flush();
+        }
+    }
+
+    /**
+     * Writes any pending saves for the given users to the storage, so they
+     * are visible to a subsequent read.
+     *
+     * @param uniqueIds the unique ids of the users
+     */
+    private void flushPendingUserSaves(Collection<UUID> uniqueIds) {
+        if (this.saveQueue != null) {
+            this.saveQueue.flushUsers(uniqueIds);
+        }
+    }
+
+    /**
+     * Writes any pending save for the given group to the storage, so it is
+     * visible to a subsequent read.
+     *
+     * @param name the name of the group
+     */
+    private void flushPendingGroupSave(String name) {
+        if (this.saveQueue != null) {
+            this.saveQueue.flushGroup(name);
+        }
     }
 
     public CompletableFuture<Void> logAction(Action entry) {
@@ -139,12 +201,20 @@ public class Storage {
         return makeFuture(this.implementation::getLog);
     }
 
+    public CompletableFuture<LogPage> getLogPage(ActionFilter filter, int offset, int limit) {
+        return makeFuture(() -> this.implementation.getLogPage(filter, offset, limit));
+    }
+
     public CompletableFuture<Void> applyBulkUpdate(BulkUpdate bulkUpdate) {
-        return makeFuture(() -> this.implementation.applyBulkUpdate(bulkUpdate));
+        return makeFuture(() -> {
+            flushPendingSaves();
+            this.implementation.applyBulkUpdate(bulkUpdate);
+        });
     }
 
     public CompletableFuture<User> loadUser(UUID uniqueId, String username) {
         return makeFuture(() -> {
+            flushPendingUserSaves(Collections.singleton(uniqueId));
             User user = this.implementation.loadUser(uniqueId, username);
             if (user != null) {
                 this.plugin.getEventDispatcher().dispatchUserLoad(user);
@@ -153,16 +223,34 @@ public class Storage {
         });
     }
 
+    public CompletableFuture<Map<UUID, User>> loadUsers(Collection<UUID> uniqueIds) {
+        return makeFuture(() -> {
+            flushPendingUserSaves(uniqueIds);
+            Map<UUID, User> users = this.implementation.loadUsers(uniqueIds);
+            for (User user : users.values()) {
+                this.plugin.getEventDispatcher().dispatchUserLoad(user);
+            }
+            return users;
+        });
+    }
+
     public CompletableFuture<Void> saveUser(User user) {
+        if (this.saveQueue != null) {
+            return this.saveQueue.saveUser(user);
+        }
         return makeFuture(() -> this.implementation.saveUser(user));
     }
 
     public CompletableFuture<Set<UUID>> getUniqueUsers() {
-        return makeFuture(this.implementation::getUniqueUsers);
+        return makeFuture(() -> {
+            flushPendingSaves();
+            return this.implementation.getUniqueUsers();
+        });
     }
 
     public CompletableFuture<List<HeldNode<UUID>>> getUsersWithPermission(Constraint constraint) {
         return makeFuture(() -> {
+            flushPendingSaves();
             List<HeldNode<UUID>> result = this.implementation.getUsersWithPermission(constraint);
             result.removeIf(entry -> entry.getNode().hasExpired());
             return ImmutableList.copyOf(result);
@@ -171,6 +259,7 @@ public class Storage {
 
     public CompletableFuture<Group> createAndLoadGroup(String name, CreationCause cause) {
         return makeFuture(() -> {
+            flushPendingGroupSave(name);
             Group group = this.implementation.createAndLoadGroup(name);
             if (group != null) {
                 this.plugin.getEventDispatcher().dispatchGroupCreate(group, cause);
@@ -181,6 +270,7 @@ public class Storage {
 
     public CompletableFuture<Optional<Group>> loadGroup(String name) {
         return makeFuture(() -> {
+            flushPendingGroupSave(name);
             Optional<Group> group = this.implementation.loadGroup(name);
             if (group.isPresent()) {
                 this.plugin.getEventDispatcher().dispatchGroupLoad(group.get());
@@ -191,17 +281,22 @@ public class Storage {
 
     public CompletableFuture<Void> loadAllGroups() {
         return makeFuture(() -> {
+            flushPendingSaves();
             this.implementation.loadAllGroups();
             this.plugin.getEventDispatcher().dispatchGroupLoadAll();
         });
     }
 
     public CompletableFuture<Void> saveGroup(Group group) {
+        if (this.saveQueue != null) {
+            return this.saveQueue.saveGroup(group);
+        }
         return makeFuture(() -> this.implementation.saveGroup(group));
     }
 
     public CompletableFuture<Void> deleteGroup(Group group, DeletionCause cause) {
         return makeFuture(() -> {
+            flushPendingGroupSave(group.getName());
             this.implementation.deleteGroup(group);
             this.plugin.getEventDispatcher().dispatchGroupDelete(group, cause);
         });
@@ -209,6 +304,7 @@ public class Storage {
 
     public CompletableFuture<List<HeldNode<String>>> getGroupsWithPermission(Constraint constraint) {
         return makeFuture(() -> {
+            flushPendingSaves();
             List<HeldNode<String>> result = this.implementation.getGroupsWithPermission(constraint);
             result.removeIf(entry -> entry.getNode().hasExpired());
             return ImmutableList.copyOf(result);
@@ -263,6 +359,20 @@ public class Storage {
         });
     }
 
+    public CompletableFuture<UserLoginResult> loginUser(UUID uniqueId, String username) {
+        return makeFuture(() -> {
+            flushPendingUserSaves(Collections.singleton(uniqueId));
+            UserLoginResult result = this.implementation.loginUser(uniqueId, username);
+            if (result.getPlayerSaveResult() != null) {
+                this.plugin.getEventDispatcher().dispatchPlayerDataSave(uniqueId, username, result.getPlayerSaveResult());
+            }
+            if (result.getUser() != null) {
+                this.plugin.getEventDispatcher().dispatchUserLoad(result.getUser());
+            }
+            return result;
+        });
+    }
+
     public CompletableFuture<UUID> getPlayerUniqueId(String username) {
         return makeFuture(() -> this.implementation.getPlayerUniqueId(username));
     }
@@ -50,6 +50,7 @@ public enum StorageType {
     // Local databases
     SQLITE("SQLite", "sqlite"),
     H2("H2", "h2"),
+    BINARY("Binary", "binary"),
 
     // Custom
     CUSTOM("Custom", "custom");
@@ -25,13 +25,17 @@
 
 package me.lucko.luckperms.common.storage.implementation;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.bulkupdate.comparison.Constraint;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.storage.misc.UserLoginResult;
+import me.lucko.luckperms.common.util.Iterators;
 
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.model.PlayerSaveResult;
@@ -39,12 +43,14 @@ import net.luckperms.api.node.HeldNode;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public interface StorageImplementation {
     LuckPermsPlugin getPlugin();
@@ -63,10 +69,38 @@ public interface StorageImplementation {
 
     Log getLog() throws Exception;
 
+    /**
+     * Gets a page of entries from the action log, ordered from newest to oldest.
+     *
+     * @param filter the filter used to select entries
+     * @param offset the number of matching entries to skip
+     * @param limit the maximum number of entries to return
+     * @return the page
+     */
+    LogPage getLogPage(ActionFilter filter, int offset, int limit) throws Exception;
+
     void applyBulkUpdate(BulkUpdate bulkUpdate) throws Exception;
 
     User loadUser(UUID uniqueId, String username) throws Exception;
 
+    /**
+     * Loads the users with the given unique ids.
+     *
+     * <p>Implementations may override this to load the users in bulk.</p>
+     *
+     * <p>A user which fails to load doesn't prevent the others from loading -
+     * the failure is logged, and the user is omitted from the result.</p>
+     *
+     * @param uniqueIds the unique ids of the users to load
+     * @return the users which were loaded
+     * @throws Exception if an error occurs
+     */
+    default Map<UUID, User> loadUsers(Collection<UUID> uniqueIds) throws Exception {
+        Map<UUID, User> users = new ConcurrentHashMap<>();
+        Iterators.tryIterate(uniqueIds, uniqueId -> users.put(uniqueId, loadUser(uniqueId, null)));
+        return users;
+    }
+
     void saveUser(User user) throws Exception;
 
     Set<UUID> getUniqueUsers() throws Exception;
@@ -100,4 +134,20 @@ public interface StorageImplementation {
     @Nullable UUID getPlayerUniqueId(String username) throws Exception;
 
     @Nullable String getPlayerName(UUID uniqueId) throws Exception;
+
+    /**
+     * Saves the player data for, and then loads a user who is logging in.
+     *
+     * <p>Implementations may override this to perform both operations together.</p>
+     *
+     * @param uniqueId the users unique id
+     * @param username the users username
+     * @return the result
+     * @throws Exception if an error occurs
+     */
+    default UserLoginResult loginUser(UUID uniqueId, String username) throws Exception {
+        PlayerSaveResult saveResult = savePlayerData(uniqueId, username);
+        User user = loadUser(uniqueId, username);
+        return new UserLoginResult(saveResult, user);
+    }
 }
@@ -0,0 +1,330 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.implementation.binary;
+
+import me.lucko.luckperms.common.context.contextset.ImmutableContextSetImpl;
+import me.lucko.luckperms.common.node.factory.NodeBuilders;
+
+import net.luckperms.api.context.Context;
+import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.node.Node;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
+
+/**
+ * Encodes and decodes the records stored in a {@link BinaryDataFile}.
+ *
+ * <p>Strings are never written inline - instead, they are interned into the
+ * string table of the data file, and referenced by their (varint encoded) id.</p>
+ */
+final class BinaryCodec {
+    private BinaryCodec() {}
+
+    // record types
+    static final byte STRING = 1;
+    static final byte USER = 2;
+    static final byte USER_DELETE = 3;
+    static final byte GROUP = 4;
+    static final byte GROUP_DELETE = 5;
+    static final byte TRACK = 6;
+    static final byte TRACK_DELETE = 7;
+
+    // node flags
+    private static final int FLAG_VALUE = 1;
+    private static final int FLAG_EXPIRY = 1 << 1;
+
+    /*
+     * Record payloads:
+     *
+     * USER          uuid (2 longs), username id + 1 (0 if unknown), primary group id, nodes
+     * USER_DELETE   uuid (2 longs)
+     * GROUP         name id, nodes
+     * GROUP_DELETE  name id
+     * TRACK         name id, group count, group ids
+     * TRACK_DELETE  name id
+     *
+     * nodes         node count, then for each node:
+     *                 key id, flags, expiry (if FLAG_EXPIRY), context count, context key/value ids
+     */
+
+    static void writeNodes(Output out, Collection<? extends Node> nodes, ToIntFunction<String> strings) {
+        out.writeVarInt(nodes.size());
+        for (Node node : nodes) {
+            out.writeVarInt(strings.applyAsInt(node.getKey()));
+
+            Instant expiry = node.getExpiry();
+            int flags = (node.getValue() ? FLAG_VALUE : 0) | (expiry != null ? FLAG_EXPIRY : 0);
+            out.writeByte(flags);
+            if (expiry != null) {
+                out.writeVarLong(expiry.getEpochSecond());
+            }
+
+            ImmutableContextSet contexts = node.getContexts();
+            out.writeVarInt(contexts.size());
+            for (Context context : contexts) {
+                out.writeVarInt(strings.applyAsInt(context.getKey()));
+                out.writeVarInt(strings.applyAsInt(context.getValue()));
+            }
+        }
+    }
+
+    static List<Node> readNodes(ByteBuffer buf, IntFunction<String> strings) {
+        int count = readVarInt(buf);
+        List<Node> nodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String key = strings.apply(readVarInt(buf));
+            int flags = buf.get();
+            long expiry = (flags & FLAG_EXPIRY) != 0 ? readVarLong(buf) : 0L;
+
+            int contextCount = readVarInt(buf);
+            ImmutableContextSet contexts = ImmutableContextSetImpl.EMPTY;
+            if (contextCount != 0) {
+                ImmutableContextSet.Builder builder = new ImmutableContextSetImpl.BuilderImpl();
+                for (int j = 0; j < contextCount; j++) {
+                    builder.add(strings.apply(readVarInt(buf)), strings.apply(readVarInt(buf)));
+                }
+                contexts = builder.build();
+            }
+
+            nodes.add(NodeBuilders.determineMostApplicable(key)
+                    .value((flags & FLAG_VALUE) != 0)
+                    .expiry(expiry)
+                    .context(contexts)
+                    .build());
+        }
+        return nodes;
+    }
+
+    /**
+     * Reads the keys of the nodes in a payload, without decoding the rest of the node.
+     *
+     * @param buf the buffer, positioned at the start of the nodes
+     * @param strings the string table
+     * @return the keys
+     */
+    static List<String> readNodeKeys(ByteBuffer buf, IntFunction<String> strings) {
+        int count = readVarInt(buf);
+        List<String> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(strings.apply(readVarInt(buf)));
+            int flags = buf.get();
+            if ((flags & FLAG_EXPIRY) != 0) {
+                readVarLong(buf);
+            }
+            int contextCount = readVarInt(buf);
+            for (int j = 0; j < contextCount * 2; j++) {
+                readVarInt(buf);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Copies a record payload, replacing each string id it references using
+     * the given mapping.
+     *
+     * @param type the record type
+     * @param payload the payload
+     * @param mapping the string id mapping
+     * @return the new payload
+     */
+    static byte[] remapStrings(byte type, byte[] payload, IntUnaryOperator mapping) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        Output out = new Output(payload.length);
+        switch (type) {
+            case USER:
+                out.writeLong(in.getLong());
+                out.writeLong(in.getLong());
+                int username = readVarInt(in);
+                out.writeVarInt(username == 0 ? 0 : mapping.applyAsInt(username - 1) + 1);
+                out.writeVarInt(mapping.applyAsInt(readVarInt(in)));
+                remapNodes(in, out, mapping);
+                break;
+            case GROUP:
+                out.writeVarInt(mapping.applyAsInt(readVarInt(in)));
+                remapNodes(in, out, mapping);
+                break;
+            case TRACK:
+                out.writeVarInt(mapping.applyAsInt(readVarInt(in)));
+                int count = readVarInt(in);
+                out.writeVarInt(count);
+                for (int i = 0; i < count; i++) {
+                    out.writeVarInt(mapping.applyAsInt(readVarInt(in)));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unable to remap record type: " + type);
+        }
+        return out.toByteArray();
+    }
+
+    private static void remapNodes(ByteBuffer in, Output out, IntUnaryOperator mapping) {
+        int count = readVarInt(in);
+        out.writeVarInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeVarInt(mapping.applyAsInt(readVarInt(in)));
+            int flags = in.get();
+            out.writeByte(flags);
+            if ((flags & FLAG_EXPIRY) != 0) {
+                out.writeVarLong(readVarLong(in));
+            }
+            int contextCount = readVarInt(in);
+            out.writeVarInt(contextCount);
+            for (int j = 0; j < contextCount * 2; j++) {
+                out.writeVarInt(mapping.applyAsInt(readVarInt(in)));
+            }
+        }
+    }
+
+    static int readVarInt(ByteBuffer buf) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buf.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("VarInt too long");
+    }
+
+    static long readVarLong(ByteBuffer buf) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = buf.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("VarLong too long");
+    }
+
+    static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Returns if the given exception indicates that a record was truncated or malformed.
+     *
+     * @param e the exception
+     * @return true if the record was malformed
+     */
+    static boolean isMalformed(RuntimeException e) {
+        return e instanceof BufferUnderflowException || e instanceof IllegalStateException || e instanceof IndexOutOfBoundsException;
+    }
+
+    /**
+     * A growable byte array, which supports writing varints.
+     */
+    static final class Output {
+        private byte[] buf;
+        private int size = 0;
+
+        Output(int initialCapacity) {
+            this.buf = new byte[Math.max(16, initialCapacity)];
+        }
+
+        private void ensureCapacity(int extra) {
+            if (this.size + extra > this.buf.length) {
+                this.buf = Arrays.copyOf(this.buf, Math.max(this.buf.length * 2, this.size + extra));
+            }
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            this.buf[this.size++] = (byte) b;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, this.buf, this.size, bytes.length);
+            this.size += bytes.length;
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(4);
+            for (int i = 3; i >= 0; i--) {
+                this.buf[this.size++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void writeLong(long value) {
+            ensureCapacity(8);
+            for (int i = 7; i >= 0; i--) {
+                this.buf[this.size++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                this.buf[this.size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            this.buf[this.size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                this.buf[this.size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            this.buf[this.size++] = (byte) value;
+        }
+
+        int size() {
+            return this.size;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(this.buf, this.size);
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(this.buf, 0, this.size);
+        }
+
+        void reset() {
+            this.size = 0;
+        }
+    }
+}
@@ -0,0 +1,719 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.implementation.binary;
+
+import me.lucko.luckperms.common.storage.implementation.binary.BinaryCodec.Output;
+
+import net.luckperms.api.node.Node;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntUnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of binary records, which holds the user, group and track
+ * data for a {@link BinaryStorage}.
+ *
+ * <p>The whole log is read (through a memory-mapped buffer) when the file is
+ * opened, and the latest record for each holder is kept in memory in its
+ * encoded form. Changes are appended to the end of the file.</p>
+ *
+ * <p>Once more than half of the file is made up of superseded records, it is
+ * compacted by writing just the live records to a new file. Compacted files are
+ * written as a new "generation" rather than replacing the existing file, as
+ * some platforms don't allow a file to be replaced whilst it is mapped.</p>
+ */
+public class BinaryDataFile {
+    private static final int MAGIC = 0x4C504442; // "LPDB"
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 5;
+
+    /** The minimum size of the file before it will be compacted */
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+    private static final Pattern FILE_NAME_PATTERN = Pattern.compile("data-(\\d+)\\.lpb");
+
+    private final Path directory;
+    private final Executor compactionExecutor;
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+
+    // the string table
+    private List<String> strings = new ArrayList<>();
+    private Map<String, Integer> stringIds = new HashMap<>();
+    private int pendingStrings = 0;
+
+    // the encoded payload of the latest record for each holder
+    private Map<UUID, byte[]> users = new HashMap<>();
+    private Map<String, byte[]> groups = new HashMap<>();
+    private Map<String, byte[]> tracks = new HashMap<>();
+
+    private int generation = 0;
+    private Path file;
+    private FileChannel channel;
+
+    /** The size of the file */
+    private long fileSize = 0;
+
+    /** The size of the records in the file which haven't been superseded */
+    private long liveSize = 0;
+
+    private int compactions = 0;
+
+    public BinaryDataFile(Path directory, Executor compactionExecutor) {
+        this.directory = directory;
+        this.compactionExecutor = compactionExecutor;
+    }
+
+    /**
+     * Opens the data file, reading any existing data.
+     *
+     * @return true if an existing file was read, false if a new file was created
+     * @throws IOException if an exception occurs
+     */
+    public synchronized boolean open() throws IOException {
+        List<Integer> generations = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "data-*")) {
+            for (Path path : stream) {
+                Matcher matcher = FILE_NAME_PATTERN.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    generations.add(Integer.parseInt(matcher.group(1)));
+                } else {
+                    // an incomplete compaction
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+
+        if (generations.isEmpty()) {
+            this.generation = 0;
+            this.file = fileForGeneration(0);
+            try (FileChannel out = FileChannel.open(this.file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                writeFully(out, header().toByteBuffer());
+            }
+            this.fileSize = HEADER_SIZE;
+            this.liveSize = HEADER_SIZE;
+            this.channel = FileChannel.open(this.file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            return false;
+        }
+
+        // read the latest generation, and remove any older ones
+        generations.sort(Collections.reverseOrder());
+        this.generation = generations.get(0);
+        this.file = fileForGeneration(this.generation);
+        for (int i = 1; i < generations.size(); i++) {
+            Files.deleteIfExists(fileForGeneration(generations.get(i)));
+        }
+
+        boolean complete = read(this.file);
+        this.channel = FileChannel.open(this.file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        if (!complete || shouldCompact()) {
+            // if the end of the file is damaged, we can't append to it
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Closes the data file.
+     */
+    public synchronized void close() throws IOException {
+        if (this.channel != null) {
+            this.channel.force(true);
+            this.channel.close();
+            this.channel = null;
+        }
+    }
+
+    /**
+     * Closes and then deletes the data file.
+     */
+    public synchronized void deleteFiles() throws IOException {
+        close();
+        Files.deleteIfExists(this.file);
+    }
+
+    private Path fileForGeneration(int generation) {
+        return this.directory.resolve("data-" + generation + ".lpb");
+    }
+
+    private boolean read(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Data file is too large to be read: " + file);
+            }
+
+            MappedByteBuffer buf = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_SIZE || buf.getInt() != MAGIC) {
+                throw new IOException("Not a LuckPerms binary data file: " + file);
+            }
+            byte version = buf.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported data file version " + version + ": " + file);
+            }
+
+            this.fileSize = HEADER_SIZE;
+            this.liveSize = HEADER_SIZE;
+
+            while (buf.hasRemaining()) {
+                try {
+                    byte type = buf.get();
+                    int length = BinaryCodec.readVarInt(buf);
+                    // written so that a corrupt length close to Integer.MAX_VALUE can't overflow
+                    if (length < 0 || buf.remaining() < 4 || length > buf.remaining() - 4) {
+                        break;
+                    }
+
+                    byte[] payload = new byte[length];
+                    buf.get(payload);
+                    if (buf.getInt() != checksum(type, payload)) {
+                        break;
+                    }
+
+                    apply(type, payload);
+                } catch (RuntimeException e) {
+                    if (BinaryCodec.isMalformed(e)) {
+                        break;
+                    }
+                    throw e;
+                }
+                this.fileSize = buf.position();
+            }
+            return this.fileSize == size;
+        }
+    }
+
+    private void apply(byte type, byte[] payload) {
+        switch (type) {
+            case BinaryCodec.STRING: {
+                String string = new String(payload, StandardCharsets.UTF_8);
+                this.stringIds.put(string, this.strings.size());
+                this.strings.add(string);
+                this.liveSize += recordSize(payload);
+                break;
+            }
+            case BinaryCodec.USER: {
+                ByteBuffer buf = ByteBuffer.wrap(payload);
+                track(this.users.put(new UUID(buf.getLong(), buf.getLong()), payload), payload);
+                break;
+            }
+            case BinaryCodec.USER_DELETE: {
+                ByteBuffer buf = ByteBuffer.wrap(payload);
+                track(this.users.remove(new UUID(buf.getLong(), buf.getLong())), null);
+                break;
+            }
+            case BinaryCodec.GROUP:
+                track(this.groups.put(readName(payload), payload), payload);
+                break;
+            case BinaryCodec.GROUP_DELETE:
+                track(this.groups.remove(readName(payload)), null);
+                break;
+            case BinaryCodec.TRACK:
+                track(this.tracks.put(readName(payload), payload), payload);
+                break;
+            case BinaryCodec.TRACK_DELETE:
+                track(this.tracks.remove(readName(payload)), null);
+                break;
+            default:
+                throw new IllegalStateException("Unknown record type: " + type);
+        }
+    }
+
+    private String readName(byte[] payload) {
+        return this.strings.get(BinaryCodec.readVarInt(ByteBuffer.wrap(payload)));
+    }
+
+    private void track(byte[] previous, byte[] current) {
+        if (previous != null) {
+            this.liveSize -= recordSize(previous);
+        }
+        if (current != null) {
+            this.liveSize += recordSize(current);
+        }
+    }
+
+    /* string table */
+
+    private int intern(String string) {
+        Integer id = this.stringIds.get(string);
+        if (id != null) {
+            return id;
+        }
+
+        // the string is written to the file along with the next record
+        int newId = this.strings.size();
+        this.strings.add(string);
+        this.stringIds.put(string, newId);
+        this.pendingStrings++;
+        return newId;
+    }
+
+    private String string(int id) {
+        return this.strings.get(id);
+    }
+
+    /* writing */
+
+    private static Output header() {
+        Output out = new Output(HEADER_SIZE);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        return out;
+    }
+
+    private static int checksum(byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static int recordSize(byte[] payload) {
+        return 1 + BinaryCodec.varIntSize(payload.length) + payload.length + 4;
+    }
+
+    private static void writeRecord(Output out, byte type, byte[] payload) {
+        out.writeByte(type);
+        out.writeVarInt(payload.length);
+        out.writeBytes(payload);
+        out.writeInt(checksum(type, payload));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    /**
+     * Appends a record to the file, preceded by any strings which have been
+     * interned since the last record was written.
+     */
+    private void append(byte type, byte[] payload) throws IOException {
+        Output out = new Output(recordSize(payload));
+
+        int firstPending = this.strings.size() - this.pendingStrings;
+        for (int i = firstPending; i < this.strings.size(); i++) {
+            byte[] string = this.strings.get(i).getBytes(StandardCharsets.UTF_8);
+            writeRecord(out, BinaryCodec.STRING, string);
+            this.liveSize += recordSize(string);
+        }
+        writeRecord(out, type, payload);
+
+        try {
+            writeFully(this.channel, out.toByteBuffer());
+        } catch (IOException e) {
+            // remove anything which was partially written, so the file can still be appended to
+            try {
+                this.channel.truncate(this.fileSize);
+            } catch (IOException ex) {
+                e.addSuppressed(ex);
+            }
+
+            for (int i = this.strings.size() - 1; i >= firstPending; i--) {
+                String string = this.strings.remove(i);
+                this.stringIds.remove(string);
+                this.liveSize -= recordSize(string.getBytes(StandardCharsets.UTF_8));
+            }
+            this.pendingStrings = 0;
+            throw e;
+        }
+
+        this.pendingStrings = 0;
+        this.fileSize += out.size();
+    }
+
+    private void put(byte type, Object key, Map<Object, byte[]> map, byte[] payload) throws IOException {
+        byte[] previous = map.get(key);
+        if (previous != null && Arrays.equals(previous, payload)) {
+            return;
+        }
+
+        append(type, payload);
+        track(map.put(key, payload), payload);
+        scheduleCompactionIfNeeded();
+    }
+
+    private void remove(byte type, Object key, Map<Object, byte[]> map, byte[] payload) throws IOException {
+        if (!map.containsKey(key)) {
+            return;
+        }
+
+        append(type, payload);
+        track(map.remove(key), null);
+        scheduleCompactionIfNeeded();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, byte[]> raw(Map<?, byte[]> map) {
+        return (Map<Object, byte[]>) map;
+    }
+
+    /* users */
+
+    public synchronized @Nullable UserRecord getUser(UUID uniqueId) {
+        byte[] payload = this.users.get(uniqueId);
+        if (payload == null) {
+            return null;
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(payload);
+        buf.position(16);
+        int username = BinaryCodec.readVarInt(buf);
+        String primaryGroup = string(BinaryCodec.readVarInt(buf));
+        List<Node> nodes = BinaryCodec.readNodes(buf, this::string);
+        return new UserRecord(username == 0 ? null : string(username - 1), primaryGroup, nodes);
+    }
+
+    public synchronized List<String> getUserPermissions(UUID uniqueId) {
+        byte[] payload = this.users.get(uniqueId);
+        if (payload == null) {
+            return Collections.emptyList();
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(payload);
+        buf.position(16);
+        BinaryCodec.readVarInt(buf);
+        BinaryCodec.readVarInt(buf);
+        return BinaryCodec.readNodeKeys(buf, this::string);
+    }
+
+    public synchronized void putUser(UUID uniqueId, @Nullable String username, String primaryGroup, Collection<? extends Node> nodes) throws IOException {
+        Output out = new Output(64 + nodes.size() * 8);
+        out.writeLong(uniqueId.getMostSignificantBits());
+        out.writeLong(uniqueId.getLeastSignificantBits());
+        out.writeVarInt(username == null ? 0 : intern(username) + 1);
+        out.writeVarInt(intern(primaryGroup));
+        BinaryCodec.writeNodes(out, nodes, this::intern);
+        put(BinaryCodec.USER, uniqueId, raw(this.users), out.toByteArray());
+    }
+
+    public synchronized void deleteUser(UUID uniqueId) throws IOException {
+        Output out = new Output(16);
+        out.writeLong(uniqueId.getMostSignificantBits());
+        out.writeLong(uniqueId.getLeastSignificantBits());
+        remove(BinaryCodec.USER_DELETE, uniqueId, raw(this.users), out.toByteArray());
+    }
+
+    public synchronized Set<UUID> getUsers() {
+        return new HashSet<>(this.users.keySet());
+    }
+
+    /* groups */
+
+    public synchronized @Nullable List<Node> getGroup(String name) {
+        byte[] payload = this.groups.get(name);
+        if (payload == null) {
+            return null;
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(payload);
+        BinaryCodec.readVarInt(buf);
+        return BinaryCodec.readNodes(buf, this::string);
+    }
+
+    public synchronized List<String> getGroupPermissions(String name) {
+        byte[] payload = this.groups.get(name);
+        if (payload == null) {
+            return Collections.emptyList();
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(payload);
+        BinaryCodec.readVarInt(buf);
+        return BinaryCodec.readNodeKeys(buf, this::string);
+    }
+
+    public synchronized void putGroup(String name, Collection<? extends Node> nodes) throws IOException {
+        Output out = new Output(16 + nodes.size() * 8);
+        out.writeVarInt(intern(name));
+        BinaryCodec.writeNodes(out, nodes, this::intern);
+        put(BinaryCodec.GROUP, name, raw(this.groups), out.toByteArray());
+    }
+
+    public synchronized void deleteGroup(String name) throws IOException {
+        if (!this.groups.containsKey(name)) {
+            // don't intern the name of a group which doesn't exist
+            return;
+        }
+
+        Output out = new Output(4);
+        out.writeVarInt(intern(name));
+        remove(BinaryCodec.GROUP_DELETE, name, raw(this.groups), out.toByteArray());
+    }
+
+    public synchronized Set<String> getGroups() {
+        return new HashSet<>(this.groups.keySet());
+    }
+
+    /* tracks */
+
+    public synchronized @Nullable List<String> getTrack(String name) {
+        byte[] payload = this.tracks.get(name);
+        if (payload == null) {
+            return null;
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(payload);
+        BinaryCodec.readVarInt(buf);
+        int count = BinaryCodec.readVarInt(buf);
+        List<String> groups = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            groups.add(string(BinaryCodec.readVarInt(buf)));
+        }
+        return groups;
+    }
+
+    public synchronized void putTrack(String name, List<String> groups) throws IOException {
+        Output out = new Output(16 + groups.size() * 2);
+        out.writeVarInt(intern(name));
+        out.writeVarInt(groups.size());
+        for (String group : groups) {
+            out.writeVarInt(intern(group));
+        }
+        put(BinaryCodec.TRACK, name, raw(this.tracks), out.toByteArray());
+    }
+
+    public synchronized void deleteTrack(String name) throws IOException {
+        if (!this.tracks.containsKey(name)) {
+            // don't intern the name of a track which doesn't exist
+            return;
+        }
+
+        Output out = new Output(4);
+        out.writeVarInt(intern(name));
+        remove(BinaryCodec.TRACK_DELETE, name, raw(this.tracks), out.toByteArray());
+    }
+
+    public synchronized Set<String> getTracks() {
+        return new HashSet<>(this.tracks.keySet());
+    }
+
+    /* compaction */
+
+    private boolean shouldCompact() {
+        return this.fileSize > MIN_COMPACTION_SIZE && this.fileSize > this.liveSize * 2;
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        if (!shouldCompact() || !this.compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            this.compactionExecutor.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } finally {
+                    this.compactionScheduled.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the plugin is shutting down
+            this.compactionScheduled.set(false);
+        }
+    }
+
+    /**
+     * Rewrites the data file, so it contains only the latest record for each
+     * holder, and only the strings which they reference.
+     *
+     * @throws IOException if an exception occurs
+     */
+    public synchronized void compact() throws IOException {
+        if (this.channel == null) {
+            return;
+        }
+
+        // assign new ids to the strings which are still in use, in the order they're first referenced
+        int[] mapping = new int[this.strings.size()];
+        Arrays.fill(mapping, -1);
+        List<String> strings = new ArrayList<>();
+        IntUnaryOperator remap = id -> {
+            if (mapping[id] == -1) {
+                mapping[id] = strings.size();
+                strings.add(this.strings.get(id));
+            }
+            return mapping[id];
+        };
+
+        Map<UUID, byte[]> users = new HashMap<>(this.users.size());
+        for (Map.Entry<UUID, byte[]> e : this.users.entrySet()) {
+            users.put(e.getKey(), BinaryCodec.remapStrings(BinaryCodec.USER, e.getValue(), remap));
+        }
+        Map<String, byte[]> groups = new HashMap<>(this.groups.size());
+        for (Map.Entry<String, byte[]> e : this.groups.entrySet()) {
+            groups.put(e.getKey(), BinaryCodec.remapStrings(BinaryCodec.GROUP, e.getValue(), remap));
+        }
+        Map<String, byte[]> tracks = new HashMap<>(this.tracks.size());
+        for (Map.Entry<String, byte[]> e : this.tracks.entrySet()) {
+            tracks.put(e.getKey(), BinaryCodec.remapStrings(BinaryCodec.TRACK, e.getValue(), remap));
+        }
+
+        // write the new generation
+        int generation = this.generation + 1;
+        Path file = fileForGeneration(generation);
+        Path tmpFile = this.directory.resolve(file.getFileName().toString() + ".tmp");
+
+        long size = 0;
+        try (FileChannel out = FileChannel.open(tmpFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Output buf = header();
+            for (String string : strings) {
+                writeRecord(buf, BinaryCodec.STRING, string.getBytes(StandardCharsets.UTF_8));
+                size += flushIfFull(out, buf);
+            }
+            for (byte[] payload : groups.values()) {
+                writeRecord(buf, BinaryCodec.GROUP, payload);
+                size += flushIfFull(out, buf);
+            }
+            for (byte[] payload : tracks.values()) {
+                writeRecord(buf, BinaryCodec.TRACK, payload);
+                size += flushIfFull(out, buf);
+            }
+            for (byte[] payload : users.values()) {
+                writeRecord(buf, BinaryCodec.USER, payload);
+                size += flushIfFull(out, buf);
+            }
+            size += buf.size();
+            writeFully(out, buf.toByteBuffer());
+            out.force(true);
+        }
+
+        try {
+            Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // switch over to the new file
+        Path oldFile = this.file;
+        this.channel.close();
+        this.channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.file = file;
+        this.generation = generation;
+
+        this.strings = strings;
+        this.stringIds = new HashMap<>(strings.size());
+        for (int i = 0; i < strings.size(); i++) {
+            this.stringIds.put(strings.get(i), i);
+        }
+        // any strings which were pending have either been written, or dropped as unused
+        this.pendingStrings = 0;
+        this.users = users;
+        this.groups = groups;
+        this.tracks = tracks;
+        this.fileSize = size;
+        this.liveSize = size;
+        this.compactions++;
+
+        try {
+            Files.deleteIfExists(oldFile);
+        } catch (IOException e) {
+            // the file may still be mapped - it will be removed next time the file is opened
+        }
+    }
+
+    private static long flushIfFull(FileChannel channel, Output buf) throws IOException {
+        if (buf.size() < 64 * 1024) {
+            return 0;
+        }
+
+        long written = buf.size();
+        writeFully(channel, buf.toByteBuffer());
+        buf.reset();
+        return written;
+    }
+
+    /* metrics */
+
+    public synchronized long getFileSize() {
+        return this.fileSize;
+    }
+
+    public synchronized long getLiveSize() {
+        return this.liveSize;
+    }
+
+    public synchronized int getCompactions() {
+        return this.compactions;
+    }
+
+    /**
+     * The data stored for a user.
+     */
+    public static final class UserRecord {
+        private final @Nullable String username;
+        private final String primaryGroup;
+        private final List<Node> nodes;
+
+        UserRecord(@Nullable String username, String primaryGroup, List<Node> nodes) {
+            this.username = username;
+            this.primaryGroup = primaryGroup;
+            this.nodes = nodes;
+        }
+
+        public @Nullable String getUsername() {
+            return this.username;
+        }
+
+        public String getPrimaryGroup() {
+            return this.primaryGroup;
+        }
+
+        public List<Node> getNodes() {
+            return this.nodes;
+        }
+    }
+}
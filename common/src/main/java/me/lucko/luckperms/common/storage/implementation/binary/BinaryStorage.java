@@ -0,0 +1,502 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.implementation.binary;
+
+import com.google.common.base.Throwables;
+
+import me.lucko.luckperms.common.actionlog.ActionFilter;
+import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
+import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
+import me.lucko.luckperms.common.bulkupdate.comparison.Constraint;
+import me.lucko.luckperms.common.bulkupdate.query.Query;
+import me.lucko.luckperms.common.bulkupdate.query.QueryField;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.Track;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.model.manager.group.GroupManager;
+import me.lucko.luckperms.common.node.model.HeldNodeImpl;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
+import me.lucko.luckperms.common.storage.implementation.file.FileActionLogger;
+import me.lucko.luckperms.common.storage.implementation.file.FileUuidCache;
+import me.lucko.luckperms.common.util.MoreFiles;
+
+import net.luckperms.api.actionlog.Action;
+import net.luckperms.api.model.PlayerSaveResult;
+import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.node.HeldNode;
+import net.luckperms.api.node.Node;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Storage implementation which keeps all user, group and track data in a
+ * single compact {@link BinaryDataFile}.
+ *
+ * <p>The uuid cache and action log are stored in the same way as the other
+ * flatfile storage types.</p>
+ */
+public class BinaryStorage implements StorageImplementation {
+    private static final DecimalFormat DF = new DecimalFormat("#.##");
+
+    private final LuckPermsPlugin plugin;
+
+    // the data directory
+    private Path dataDirectory;
+    // the data file
+    private BinaryDataFile data;
+
+    // the uuid cache instance
+    private final FileUuidCache uuidCache = new FileUuidCache();
+    // the action logger instance
+    private final FileActionLogger actionLogger;
+
+    // the file used to store uuid data
+    private Path uuidDataFile;
+
+    public BinaryStorage(LuckPermsPlugin plugin) {
+        this.plugin = plugin;
+        this.actionLogger = new FileActionLogger(plugin);
+    }
+
+    @Override
+    public LuckPermsPlugin getPlugin() {
+        return this.plugin;
+    }
+
+    @Override
+    public String getImplementationName() {
+        return "Binary";
+    }
+
+    // used to report i/o exceptions which took place for a specific holder
+    private RuntimeException reportException(String holder, Exception ex) throws RuntimeException {
+        this.plugin.getLogger().warn("Exception thrown whilst performing i/o: " + holder);
+        ex.printStackTrace();
+        Throwables.throwIfUnchecked(ex);
+        throw new RuntimeException(ex);
+    }
+
+    @Override
+    public void init() throws IOException {
+        this.dataDirectory = this.plugin.getBootstrap().getDataDirectory().resolve("binary-storage");
+        MoreFiles.createDirectoriesIfNotExists(this.dataDirectory);
+
+        this.data = new BinaryDataFile(this.dataDirectory, this.plugin.getBootstrap().getScheduler().async());
+        if (!this.data.open()) {
+            // import any existing data from one of the other flatfile formats
+            new BinaryStorageConverter(this.plugin, this.dataDirectory).convert(this.data);
+        }
+
+        this.uuidDataFile = MoreFiles.createFileIfNotExists(this.dataDirectory.resolve("uuidcache.txt"));
+        this.uuidCache.load(this.uuidDataFile);
+
+        this.actionLogger.init(this.dataDirectory.resolve("actions.txt"), this.dataDirectory.resolve("actions.json"));
+    }
+
+    @Override
+    public void shutdown() {
+        this.uuidCache.save(this.uuidDataFile);
+        this.actionLogger.flush();
+        try {
+            this.data.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public Map<String, String> getMeta() {
+        Map<String, String> meta = new LinkedHashMap<>();
+        long fileSize = this.data.getFileSize();
+        long liveSize = this.data.getLiveSize();
+        meta.put("File Size", DF.format(fileSize / 1048576D) + "MB");
+        meta.put("Live Data", DF.format(fileSize == 0 ? 100 : liveSize * 100D / fileSize) + "%");
+        meta.put("Compactions", String.valueOf(this.data.getCompactions()));
+        return meta;
+    }
+
+    @Override
+    public void logAction(Action entry) {
+        this.actionLogger.logAction(entry);
+    }
+
+    @Override
+    public Log getLog() throws IOException {
+        return this.actionLogger.getLog();
+    }
+
+    @Override
+    public LogPage getLogPage(ActionFilter filter, int offset, int limit) throws IOException {
+        return this.actionLogger.getLogPage(filter, offset, limit);
+    }
+
+    @Override
+    public void applyBulkUpdate(BulkUpdate bulkUpdate) throws IOException {
+        if (bulkUpdate.getDataType().isIncludingUsers()) {
+            for (UUID uniqueId : this.data.getUsers()) {
+                if (!mayBeAffected(bulkUpdate, this.data.getUserPermissions(uniqueId))) {
+                    continue;
+                }
+
+                BinaryDataFile.UserRecord record = this.data.getUser(uniqueId);
+                if (record == null) {
+                    continue;
+                }
+
+                List<Node> results = processBulkUpdate(bulkUpdate, record.getNodes());
+                if (results != null) {
+                    this.data.putUser(uniqueId, record.getUsername(), record.getPrimaryGroup(), results);
+                }
+            }
+        }
+
+        if (bulkUpdate.getDataType().isIncludingGroups()) {
+            for (String name : this.data.getGroups()) {
+                if (!mayBeAffected(bulkUpdate, this.data.getGroupPermissions(name))) {
+                    continue;
+                }
+
+                List<Node> nodes = this.data.getGroup(name);
+                if (nodes == null) {
+                    continue;
+                }
+
+                List<Node> results = processBulkUpdate(bulkUpdate, nodes);
+                if (results != null) {
+                    this.data.putGroup(name, results);
+                }
+            }
+        }
+    }
+
+    // checks the permission queries against the keys of the nodes, so that the
+    // holders which can't be affected don't need to be decoded
+    private static boolean mayBeAffected(BulkUpdate bulkUpdate, List<String> keys) {
+        for (Query query : bulkUpdate.getQueries()) {
+            if (query.getField() == QueryField.PERMISSION && keys.stream().noneMatch(query.getConstraint()::eval)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Node> processBulkUpdate(BulkUpdate bulkUpdate, List<Node> nodes) {
+        List<Node> results = nodes.stream()
+                .map(bulkUpdate::apply)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+
+        return results.equals(nodes) ? null : results;
+    }
+
+    @Override
+    public User loadUser(UUID uniqueId, String username) {
+        User user = this.plugin.getUserManager().getOrMake(uniqueId, username);
+        user.getIoLock().lock();
+        try {
+            BinaryDataFile.UserRecord record = this.data.getUser(uniqueId);
+            if (record != null) {
+                String name = record.getUsername();
+                user.getPrimaryGroup().setStoredValue(record.getPrimaryGroup());
+
+                user.setNodes(DataType.NORMAL, record.getNodes());
+                user.setUsername(name, true);
+
+                boolean save = this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
+                if (user.getUsername().isPresent() && (name == null || !user.getUsername().get().equalsIgnoreCase(name))) {
+                    save = true;
+                }
+
+                if (save | user.auditTemporaryNodes()) {
+                    saveUser(user);
+                }
+            } else {
+                if (this.plugin.getUserManager().shouldSave(user)) {
+                    user.clearNodes(DataType.NORMAL, null, true);
+                    user.getPrimaryGroup().setStoredValue(null);
+                    this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
+                }
+            }
+        } catch (Exception e) {
+            throw reportException(uniqueId.toString(), e);
+        } finally {
+            user.getIoLock().unlock();
+        }
+        return user;
+    }
+
+    @Override
+    public void saveUser(User user) {
+        user.getIoLock().lock();
+        try {
+            if (!this.plugin.getUserManager().shouldSave(user)) {
+                this.data.deleteUser(user.getUniqueId());
+            } else {
+                this.data.putUser(
+                        user.getUniqueId(),
+                        user.getUsername().orElse(null),
+                        user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME),
+                        user.normalData().immutable().values()
+                );
+            }
+        } catch (Exception e) {
+            throw reportException(user.getUniqueId().toString(), e);
+        } finally {
+            user.getIoLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<UUID> getUniqueUsers() {
+        return this.data.getUsers();
+    }
+
+    @Override
+    public List<HeldNode<UUID>> getUsersWithPermission(Constraint constraint) {
+        List<HeldNode<UUID>> held = new ArrayList<>();
+        for (UUID uniqueId : this.data.getUsers()) {
+            if (this.data.getUserPermissions(uniqueId).stream().noneMatch(constraint::eval)) {
+                continue;
+            }
+
+            BinaryDataFile.UserRecord record = this.data.getUser(uniqueId);
+            if (record != null) {
+                addHeldNodes(held, uniqueId, record.getNodes(), constraint);
+            }
+        }
+        return held;
+    }
+
+    @Override
+    public Group createAndLoadGroup(String name) {
+        Group group = this.plugin.getGroupManager().getOrMake(name);
+        group.getIoLock().lock();
+        try {
+            List<Node> nodes = this.data.getGroup(name);
+            if (nodes != null) {
+                group.setNodes(DataType.NORMAL, nodes);
+            } else {
+                this.data.putGroup(name, group.normalData().immutable().values());
+            }
+        } catch (Exception e) {
+            throw reportException(name, e);
+        } finally {
+            group.getIoLock().unlock();
+        }
+        return group;
+    }
+
+    @Override
+    public Optional<Group> loadGroup(String name) {
+        Group group = this.plugin.getGroupManager().getIfLoaded(name);
+        if (group != null) {
+            group.getIoLock().lock();
+        }
+
+        try {
+            List<Node> nodes = this.data.getGroup(name);
+            if (nodes == null) {
+                return Optional.empty();
+            }
+
+            if (group == null) {
+                group = this.plugin.getGroupManager().getOrMake(name);
+                group.getIoLock().lock();
+            }
+
+            group.setNodes(DataType.NORMAL, nodes);
+        } finally {
+            if (group != null) {
+                group.getIoLock().unlock();
+            }
+        }
+        return Optional.of(group);
+    }
+
+    @Override
+    public void loadAllGroups() {
+        Set<String> groups = this.data.getGroups();
+        groups.forEach(this::loadGroup);
+        this.plugin.getGroupManager().retainAll(groups);
+    }
+
+    @Override
+    public void saveGroup(Group group) {
+        group.getIoLock().lock();
+        try {
+            this.data.putGroup(group.getName(), group.normalData().immutable().values());
+        } catch (Exception e) {
+            throw reportException(group.getName(), e);
+        } finally {
+            group.getIoLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteGroup(Group group) {
+        group.getIoLock().lock();
+        try {
+            this.data.deleteGroup(group.getName());
+        } catch (Exception e) {
+            throw reportException(group.getName(), e);
+        } finally {
+            group.getIoLock().unlock();
+        }
+        this.plugin.getGroupManager().unload(group.getName());
+    }
+
+    @Override
+    public List<HeldNode<String>> getGroupsWithPermission(Constraint constraint) {
+        List<HeldNode<String>> held = new ArrayList<>();
+        for (String name : this.data.getGroups()) {
+            if (this.data.getGroupPermissions(name).stream().noneMatch(constraint::eval)) {
+                continue;
+            }
+
+            List<Node> nodes = this.data.getGroup(name);
+            if (nodes != null) {
+                addHeldNodes(held, name, nodes, constraint);
+            }
+        }
+        return held;
+    }
+
+    private static <T extends Comparable<T>> void addHeldNodes(List<HeldNode<T>> held, T holder, Collection<Node> nodes, Constraint constraint) {
+        for (Node node : nodes) {
+            if (constraint.eval(node.getKey())) {
+                held.add(HeldNodeImpl.of(holder, node));
+            }
+        }
+    }
+
+    @Override
+    public Track createAndLoadTrack(String name) {
+        Track track = this.plugin.getTrackManager().getOrMake(name);
+        track.getIoLock().lock();
+        try {
+            List<String> groups = this.data.getTrack(name);
+            if (groups != null) {
+                track.setGroups(groups);
+            } else {
+                this.data.putTrack(name, track.getGroups());
+            }
+        } catch (Exception e) {
+            throw reportException(name, e);
+        } finally {
+            track.getIoLock().unlock();
+        }
+        return track;
+    }
+
+    @Override
+    public Optional<Track> loadTrack(String name) {
+        Track track = this.plugin.getTrackManager().getIfLoaded(name);
+        if (track != null) {
+            track.getIoLock().lock();
+        }
+
+        try {
+            List<String> groups = this.data.getTrack(name);
+            if (groups == null) {
+                return Optional.empty();
+            }
+
+            if (track == null) {
+                track = this.plugin.getTrackManager().getOrMake(name);
+                track.getIoLock().lock();
+            }
+
+            track.setGroups(groups);
+        } finally {
+            if (track != null) {
+                track.getIoLock().unlock();
+            }
+        }
+        return Optional.of(track);
+    }
+
+    @Override
+    public void loadAllTracks() {
+        Set<String> tracks = this.data.getTracks();
+        tracks.forEach(this::loadTrack);
+        this.plugin.getTrackManager().retainAll(tracks);
+    }
+
+    @Override
+    public void saveTrack(Track track) {
+        track.getIoLock().lock();
+        try {
+            this.data.putTrack(track.getName(), track.getGroups());
+        } catch (Exception e) {
+            throw reportException(track.getName(), e);
+        } finally {
+            track.getIoLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteTrack(Track track) {
+        track.getIoLock().lock();
+        try {
+            this.data.deleteTrack(track.getName());
+        } catch (Exception e) {
+            throw reportException(track.getName(), e);
+        } finally {
+            track.getIoLock().unlock();
+        }
+        this.plugin.getTrackManager().unload(track.getName());
+    }
+
+    @Override
+    public PlayerSaveResult savePlayerData(UUID uniqueId, String username) {
+        return this.uuidCache.addMapping(uniqueId, username);
+    }
+
+    @Override
+    public UUID getPlayerUniqueId(String username) {
+        return this.uuidCache.lookupUuid(username);
+    }
+
+    @Override
+    public String getPlayerName(UUID uniqueId) {
+        return this.uuidCache.lookupUsername(uniqueId);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.implementation.binary;
+
+import com.google.common.collect.Maps;
+
+import me.lucko.luckperms.common.model.manager.group.GroupManager;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.storage.StorageType;
+import me.lucko.luckperms.common.storage.implementation.file.AbstractConfigurateStorage;
+import me.lucko.luckperms.common.storage.implementation.file.loader.ConfigurateLoader;
+import me.lucko.luckperms.common.storage.implementation.file.loader.HoconLoader;
+import me.lucko.luckperms.common.storage.implementation.file.loader.JsonLoader;
+import me.lucko.luckperms.common.storage.implementation.file.loader.TomlLoader;
+import me.lucko.luckperms.common.storage.implementation.file.loader.YamlLoader;
+import me.lucko.luckperms.common.util.Uuids;
+
+import ninja.leaping.configurate.ConfigurationNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Imports the data held in one of the existing flatfile storage formats into
+ * a new {@link BinaryDataFile}.
+ */
+public class BinaryStorageConverter {
+    private static final List<Source> SOURCES = new ArrayList<>();
+
+    static {
+        SOURCES.add(new Source(StorageType.YAML, StorageType.YAML_COMBINED, YamlLoader::new, ".yml", "yaml-storage"));
+        SOURCES.add(new Source(StorageType.JSON, StorageType.JSON_COMBINED, JsonLoader::new, ".json", "json-storage"));
+        SOURCES.add(new Source(StorageType.HOCON, StorageType.HOCON_COMBINED, HoconLoader::new, ".conf", "hocon-storage"));
+        SOURCES.add(new Source(StorageType.TOML, StorageType.TOML_COMBINED, TomlLoader::new, ".toml", "toml-storage"));
+    }
+
+    private final LuckPermsPlugin plugin;
+    private final Path dataDirectory;
+
+    public BinaryStorageConverter(LuckPermsPlugin plugin, Path dataDirectory) {
+        this.plugin = plugin;
+        this.dataDirectory = dataDirectory;
+    }
+
+    /**
+     * Imports the data from the first existing flatfile storage found in the
+     * plugin data directory, if there is one.
+     *
+     * <p>If the import fails, the data file is removed so the import will be
+     * attempted again next time the plugin starts.</p>
+     *
+     * @param data the data file to import into
+     * @throws IOException if an exception occurs
+     */
+    public void convert(BinaryDataFile data) throws IOException {
+        Path pluginDirectory = this.plugin.getBootstrap().getDataDirectory();
+        for (Source source : SOURCES) {
+            Path directory = pluginDirectory.resolve(source.directoryName);
+            boolean separated = Files.isDirectory(directory.resolve("users")) || Files.isDirectory(directory.resolve("groups"));
+            boolean combined = Files.isRegularFile(directory.resolve("groups" + source.fileExtension));
+            if (!separated && !combined) {
+                continue;
+            }
+
+            StorageType type = separated ? source.separatedType : source.combinedType;
+            this.plugin.getLogger().info("Importing existing " + type.getName() + " data into the binary storage file...");
+
+            try {
+                this.plugin.getDependencyManager().loadStorageDependencies(EnumSet.of(type));
+                Importer importer = new Importer(data, source.loader.get(), source.fileExtension);
+                if (separated) {
+                    importer.importSeparated(directory);
+                } else {
+                    importer.importCombined(directory);
+                }
+                copyIfAbsent(directory, "uuidcache.txt");
+                copyIfAbsent(directory, "actions.json");
+                copyIfAbsent(directory, "actions.txt");
+
+                this.plugin.getLogger().info("Imported " + importer.users + " users, " + importer.groups + " groups and " + importer.tracks + " tracks.");
+            } catch (Exception e) {
+                this.plugin.getLogger().severe("Unable to import existing " + type.getName() + " data");
+                data.deleteFiles();
+                throw e;
+            }
+            return;
+        }
+    }
+
+    private void copyIfAbsent(Path sourceDirectory, String fileName) throws IOException {
+        Path source = sourceDirectory.resolve(fileName);
+        Path target = this.dataDirectory.resolve(fileName);
+        if (Files.exists(source) && !Files.exists(target)) {
+            Files.copy(source, target);
+        }
+    }
+
+    private static final class Importer {
+        private final BinaryDataFile data;
+        private final ConfigurateLoader loader;
+        private final String fileExtension;
+        private final String primaryGroupKey;
+
+        private int users = 0;
+        private int groups = 0;
+        private int tracks = 0;
+
+        Importer(BinaryDataFile data, ConfigurateLoader loader, String fileExtension) {
+            this.data = data;
+            this.loader = loader;
+            this.fileExtension = fileExtension;
+            this.primaryGroupKey = loader instanceof JsonLoader ? "primaryGroup" : "primary-group";
+        }
+
+        void importSeparated(Path directory) throws IOException {
+            for (Path file : listFiles(directory.resolve("users"))) {
+                UUID uniqueId = Uuids.parse(stripExtension(file));
+                if (uniqueId != null) {
+                    importUser(uniqueId, this.loader.loader(file).load());
+                }
+            }
+            for (Path file : listFiles(directory.resolve("groups"))) {
+                importGroup(stripExtension(file), this.loader.loader(file).load());
+            }
+            for (Path file : listFiles(directory.resolve("tracks"))) {
+                importTrack(stripExtension(file), this.loader.loader(file).load());
+            }
+        }
+
+        void importCombined(Path directory) throws IOException {
+            for (Map.Entry<String, ConfigurationNode> entry : readCombined(directory.resolve("users" + this.fileExtension))) {
+                UUID uniqueId = Uuids.parse(entry.getKey());
+                if (uniqueId != null) {
+                    importUser(uniqueId, entry.getValue());
+                }
+            }
+            for (Map.Entry<String, ConfigurationNode> entry : readCombined(directory.resolve("groups" + this.fileExtension))) {
+                importGroup(entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<String, ConfigurationNode> entry : readCombined(directory.resolve("tracks" + this.fileExtension))) {
+                importTrack(entry.getKey(), entry.getValue());
+            }
+        }
+
+        private void importUser(UUID uniqueId, ConfigurationNode node) throws IOException {
+            String username = node.getNode("name").getString();
+            if (username != null && username.equals("null")) {
+                username = null;
+            }
+            String primaryGroup = node.getNode(this.primaryGroupKey).getString(GroupManager.DEFAULT_GROUP_NAME);
+
+            this.data.putUser(uniqueId, username, primaryGroup, AbstractConfigurateStorage.readNodes(node));
+            this.users++;
+        }
+
+        private void importGroup(String name, ConfigurationNode node) throws IOException {
+            this.data.putGroup(name, AbstractConfigurateStorage.readNodes(node));
+            this.groups++;
+        }
+
+        private void importTrack(String name, ConfigurationNode node) throws IOException {
+            List<String> groups = node.getNode("groups").getChildrenList().stream()
+                    .map(ConfigurationNode::getString)
+                    .collect(Collectors.toList());
+
+            this.data.putTrack(name, groups);
+            this.tracks++;
+        }
+
+        private List<Path> listFiles(Path directory) throws IOException {
+            if (!Files.isDirectory(directory)) {
+                return new ArrayList<>();
+            }
+            try (Stream<Path> stream = Files.list(directory)) {
+                return stream.filter(p -> p.getFileName().toString().endsWith(this.fileExtension)).collect(Collectors.toList());
+            }
+        }
+
+        private String stripExtension(Path file) {
+            String fileName = file.getFileName().toString();
+            return fileName.substring(0, fileName.length() - this.fileExtension.length());
+        }
+
+        private List<Map.Entry<String, ConfigurationNode>> readCombined(Path file) throws IOException {
+            List<Map.Entry<String, ConfigurationNode>> entries = new ArrayList<>();
+            if (!Files.isRegularFile(file)) {
+                return entries;
+            }
+            for (Map.Entry<Object, ? extends ConfigurationNode> entry : this.loader.loader(file).load().getChildrenMap().entrySet()) {
+                entries.add(Maps.immutableEntry(entry.getKey().toString(), entry.getValue()));
+            }
+            return entries;
+        }
+    }
+
+    private static final class Source {
+        private final StorageType separatedType;
+        private final StorageType combinedType;
+        private final Supplier<ConfigurateLoader> loader;
+        private final String fileExtension;
+        private final String directoryName;
+
+        Source(StorageType separatedType, StorageType combinedType, Supplier<ConfigurateLoader> loader, String fileExtension, String directoryName) {
+            this.separatedType = separatedType;
+            this.combinedType = combinedType;
+            this.loader = loader;
+            this.fileExtension = fileExtension;
+            this.directoryName = directoryName;
+        }
+    }
+}
@@ -29,7 +29,9 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.context.ContextSetConfigurateSerializer;
 import me.lucko.luckperms.common.context.contextset.ImmutableContextSetImpl;
@@ -180,6 +182,11 @@ public abstract class AbstractConfigurateStorage implements StorageImplementatio
         return this.actionLogger.getLog();
     }
 
+    @Override
+    public LogPage getLogPage(ActionFilter filter, int offset, int limit) throws IOException {
+        return this.actionLogger.getLogPage(filter, offset, limit);
+    }
+
     protected ConfigurationNode processBulkUpdate(BulkUpdate bulkUpdate, ConfigurationNode node) {
         Set<Node> nodes = readNodes(node);
         Set<Node> results = nodes.stream()
@@ -547,7 +554,7 @@ public abstract class AbstractConfigurateStorage implements StorageImplementatio
         return Maps.immutableEntry(permission, appended);
     }
 
-    protected static Set<Node> readNodes(ConfigurationNode data) {
+    public static Set<Node> readNodes(ConfigurationNode data) {
         Set<Node> nodes = new HashSet<>();
 
         if (data.getNode("permissions").hasListChildren()) {
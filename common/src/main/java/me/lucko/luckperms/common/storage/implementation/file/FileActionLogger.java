@@ -29,8 +29,11 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.stream.JsonReader;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.ActionJsonSerializer;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
+import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.cache.BufferedRequest;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
@@ -39,16 +42,20 @@ import net.luckperms.api.actionlog.Action;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 public class FileActionLogger {
 
@@ -154,6 +161,30 @@ public class FileActionLogger {
         return log.build();
     }
 
+    public LogPage getLogPage(ActionFilter filter, int offset, int limit) throws IOException {
+        if (!Files.exists(this.contentFile)) {
+            return new LogPage(Collections.emptyList(), offset, 0);
+        }
+
+        // stream the file, so only the entries in the page are held in memory
+        try (BufferedReader reader = Files.newBufferedReader(this.contentFile, StandardCharsets.UTF_8)) {
+            Stream<LoggedAction> actions = reader.lines()
+                    .map(line -> {
+                        try {
+                            return ActionJsonSerializer.deserialize(GsonProvider.parser().parse(line));
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                            return null;
+                        }
+                    })
+                    .filter(Objects::nonNull);
+
+            return LogPage.select(actions::iterator, filter, offset, limit);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
     private final class SaveBuffer extends BufferedRequest<Void> {
         public SaveBuffer(LuckPermsPlugin plugin) {
             super(2, TimeUnit.SECONDS, plugin.getBootstrap().getScheduler());
@@ -0,0 +1,249 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.implementation.file;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import me.lucko.luckperms.common.bulkupdate.comparison.Constraint;
+import me.lucko.luckperms.common.util.gson.GsonProvider;
+
+import net.luckperms.api.node.Node;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A persistent inverted index of the permissions held in each of the files in a
+ * {@link SeparatedConfigurateStorage} directory.
+ *
+ * <p>Used to find the holders of a permission without reading every file. Each entry
+ * records the last modified time and size of the file it was built from, and is
+ * rebuilt when those change (e.g. when the file is edited externally).</p>
+ */
+public class FilePermissionIndex {
+
+    /** The files indexed, mapped to their entry */
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /** The permissions indexed, mapped to the files which hold them */
+    private final Map<String, Set<String>> holders = new HashMap<>();
+
+    /** If the index has changed since it was last saved */
+    private boolean dirty = false;
+
+    /**
+     * Records the permissions held by a file, after it has been written.
+     *
+     * @param file the file
+     * @param nodes the nodes held in the file
+     * @throws IOException if the file attributes couldn't be read
+     */
+    public synchronized void update(Path file, Collection<? extends Node> nodes) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        put(file.getFileName().toString(), new Entry(attributes.lastModifiedTime().toMillis(), attributes.size(), keys(nodes)));
+    }
+
+    /**
+     * Removes a file from the index, after it has been deleted.
+     *
+     * @param file the file
+     */
+    public synchronized void remove(Path file) {
+        remove(file.getFileName().toString());
+    }
+
+    /**
+     * Finds the files which hold a permission matching the given constraint.
+     *
+     * <p>Files which are not indexed, or which have changed since they were indexed,
+     * are read using the given reader and re-indexed.</p>
+     *
+     * @param files the files in the directory
+     * @param constraint the constraint
+     * @param reader a function to read the nodes in a file
+     * @return the matching files
+     * @throws IOException if an exception occurs whilst reading a file
+     */
+    public synchronized List<Path> query(Stream<Path> files, Constraint constraint, Reader reader) throws IOException {
+        Map<String, Path> present = new HashMap<>();
+        for (Path file : (Iterable<Path>) files::iterator) {
+            String fileName = file.getFileName().toString();
+            present.put(fileName, file);
+
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            long size = attributes.size();
+
+            Entry entry = this.entries.get(fileName);
+            if (entry == null || entry.lastModified != lastModified || entry.size != size) {
+                put(fileName, new Entry(lastModified, size, keys(reader.read(file))));
+            }
+        }
+
+        // remove entries for files which no longer exist
+        new ArrayList<>(this.entries.keySet()).stream()
+                .filter(fileName -> !present.containsKey(fileName))
+                .forEach(this::remove);
+
+        Set<String> matching = new HashSet<>();
+        for (Map.Entry<String, Set<String>> e : this.holders.entrySet()) {
+            if (constraint.eval(e.getKey())) {
+                matching.addAll(e.getValue());
+            }
+        }
+
+        List<Path> result = new ArrayList<>(matching.size());
+        for (String fileName : matching) {
+            result.add(present.get(fileName));
+        }
+        return result;
+    }
+
+    private void put(String fileName, Entry entry) {
+        remove(fileName);
+        this.entries.put(fileName, entry);
+        for (String permission : entry.permissions) {
+            this.holders.computeIfAbsent(permission, x -> new HashSet<>()).add(fileName);
+        }
+        this.dirty = true;
+    }
+
+    private void remove(String fileName) {
+        Entry existing = this.entries.remove(fileName);
+        if (existing == null) {
+            return;
+        }
+
+        for (String permission : existing.permissions) {
+            Set<String> files = this.holders.get(permission);
+            if (files != null) {
+                files.remove(fileName);
+                if (files.isEmpty()) {
+                    this.holders.remove(permission);
+                }
+            }
+        }
+        this.dirty = true;
+    }
+
+    private static Set<String> keys(Collection<? extends Node> nodes) {
+        Set<String> keys = new HashSet<>(nodes.size());
+        for (Node node : nodes) {
+            keys.add(node.getKey());
+        }
+        return keys;
+    }
+
+    public synchronized void load(Path file) {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonObject object = GsonProvider.normal().fromJson(reader, JsonObject.class);
+            for (Map.Entry<String, JsonElement> e : object.getAsJsonObject("files").entrySet()) {
+                JsonObject entry = e.getValue().getAsJsonObject();
+                Set<String> permissions = new HashSet<>();
+                for (JsonElement permission : entry.getAsJsonArray("permissions")) {
+                    permissions.add(permission.getAsString());
+                }
+                put(e.getKey(), new Entry(entry.get("modified").getAsLong(), entry.get("size").getAsLong(), permissions));
+            }
+        } catch (Exception e) {
+            // the index will be rebuilt as it's used
+            this.entries.clear();
+            this.holders.clear();
+            e.printStackTrace();
+        }
+        this.dirty = false;
+    }
+
+    public synchronized void save(Path file) {
+        if (!this.dirty) {
+            return;
+        }
+
+        JsonObject files = new JsonObject();
+        for (Map.Entry<String, Entry> e : this.entries.entrySet()) {
+            JsonArray permissions = new JsonArray();
+            for (String permission : e.getValue().permissions) {
+                permissions.add(permission);
+            }
+
+            JsonObject entry = new JsonObject();
+            entry.addProperty("modified", e.getValue().lastModified);
+            entry.addProperty("size", e.getValue().size);
+            entry.add("permissions", permissions);
+            files.add(e.getKey(), entry);
+        }
+
+        JsonObject object = new JsonObject();
+        object.add("files", files);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            GsonProvider.normal().toJson(object, writer);
+            this.dirty = false;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the nodes held in a file.
+     */
+    @FunctionalInterface
+    public interface Reader {
+        Collection<? extends Node> read(Path file) throws IOException;
+    }
+
+    private static final class Entry {
+        private final long lastModified;
+        private final long size;
+        private final Set<String> permissions;
+
+        Entry(long lastModified, long size, Set<String> permissions) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.permissions = permissions;
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.implementation.file;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of the parsed contents of the files in a {@link SeparatedConfigurateStorage}
+ * directory.
+ *
+ * <p>Each entry records the last modified time and size of the file it was parsed
+ * from, and is discarded when those change. Callers are always given a copy of the
+ * cached node, so are free to modify it.</p>
+ */
+public class ParsedFileCache {
+
+    /** The files cached, mapped to their entry */
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Reads a file, using the cached contents if the file hasn't changed since
+     * it was last parsed.
+     *
+     * @param file the file
+     * @param parser a function to parse the file
+     * @return the contents of the file, or null if it doesn't exist
+     * @throws IOException if an exception occurs whilst reading the file
+     */
+    public ConfigurationNode read(Path file, Parser parser) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            this.entries.remove(file);
+            return null;
+        }
+
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        Entry entry = this.entries.get(file);
+        if (entry != null && entry.lastModified == lastModified && entry.size == size) {
+            return copy(entry.node);
+        }
+
+        // the attributes are read before the file, so if the file changes in between,
+        // the entry will be considered stale on the next read.
+        ConfigurationNode node = parser.parse(file);
+        this.entries.put(file, new Entry(lastModified, size, copy(node)));
+        return node;
+    }
+
+    /**
+     * Records the contents of a file, after it has been written.
+     *
+     * @param file the file
+     * @param node the contents of the file, or null if it was deleted
+     */
+    public void update(Path file, ConfigurationNode node) {
+        if (node == null) {
+            this.entries.remove(file);
+            return;
+        }
+
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            this.entries.put(file, new Entry(attributes.lastModifiedTime().toMillis(), attributes.size(), copy(node)));
+        } catch (IOException e) {
+            this.entries.remove(file);
+        }
+    }
+
+    /**
+     * Discards the cached contents of a file.
+     *
+     * @param file the file
+     */
+    public void invalidate(Path file) {
+        this.entries.remove(file);
+    }
+
+    private static ConfigurationNode copy(ConfigurationNode node) {
+        return SimpleConfigurationNode.root().setValue(node.getValue());
+    }
+
+    /**
+     * Parses the contents of a file.
+     */
+    @FunctionalInterface
+    public interface Parser {
+        ConfigurationNode parse(Path file) throws IOException;
+    }
+
+    private static final class Entry {
+        private final long lastModified;
+        private final long size;
+        private final ConfigurationNode node;
+
+        Entry(long lastModified, long size, ConfigurationNode node) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.node = node;
+        }
+    }
+}
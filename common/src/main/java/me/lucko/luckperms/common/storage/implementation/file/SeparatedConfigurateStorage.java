@@ -27,13 +27,15 @@ package me.lucko.luckperms.common.storage.implementation.file;
 
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.bulkupdate.comparison.Constraint;
+import me.lucko.luckperms.common.bulkupdate.query.Query;
+import me.lucko.luckperms.common.bulkupdate.query.QueryField;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.node.model.HeldNodeImpl;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.implementation.file.loader.ConfigurateLoader;
 import me.lucko.luckperms.common.storage.implementation.file.watcher.FileWatcher;
-import me.lucko.luckperms.common.util.Iterators;
 import me.lucko.luckperms.common.util.MoreFiles;
+import me.lucko.luckperms.common.util.Throwing;
 import me.lucko.luckperms.common.util.Uuids;
 
 import net.luckperms.api.node.HeldNode;
@@ -45,9 +47,17 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -59,6 +69,13 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
     private Path groupsDirectory;
     private Path tracksDirectory;
 
+    private final ParsedFileCache fileCache = new ParsedFileCache();
+
+    private final FilePermissionIndex userIndex = new FilePermissionIndex();
+    private final FilePermissionIndex groupIndex = new FilePermissionIndex();
+    private Path userIndexFile;
+    private Path groupIndexFile;
+
     private FileWatcher.WatchedLocation userWatcher = null;
     private FileWatcher.WatchedLocation groupWatcher = null;
     private FileWatcher.WatchedLocation trackWatcher = null;
@@ -80,6 +97,13 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
     protected ConfigurationNode readFile(StorageLocation location, String name) throws IOException {
         Path file = getDirectory(location).resolve(name + this.fileExtension);
         registerFileAction(location, file);
+        return readFile(location, file);
+    }
+
+    private ConfigurationNode readFile(StorageLocation location, Path file) throws IOException {
+        if (isCached(location)) {
+            return this.fileCache.read(file, this::readFile);
+        }
         return readFile(file);
     }
 
@@ -95,7 +119,15 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
     protected void saveFile(StorageLocation location, String name, ConfigurationNode node) throws IOException {
         Path file = getDirectory(location).resolve(name + this.fileExtension);
         registerFileAction(location, file);
+        saveFile(location, file, node);
+    }
+
+    private void saveFile(StorageLocation location, Path file, ConfigurationNode node) throws IOException {
         saveFile(file, node);
+        if (isCached(location)) {
+            this.fileCache.update(file, node);
+        }
+        updateIndex(location, file, node);
     }
 
     private void saveFile(Path file, ConfigurationNode node) throws IOException {
@@ -120,6 +152,78 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
         }
     }
 
+    private static boolean isCached(StorageLocation location) {
+        // there are likely to be a lot of users, and each is only loaded
+        // occasionally, so only groups and tracks are cached
+        return location != StorageLocation.USER;
+    }
+
+    private FilePermissionIndex getIndex(StorageLocation location) {
+        switch (location) {
+            case USER:
+                return this.userIndex;
+            case GROUP:
+                return this.groupIndex;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Performs an action for each of the given elements concurrently, using the
+     * plugin's async executor, and waits for them all to complete.
+     *
+     * <p>Each holder is stored in a separate file, so they can be read and written
+     * independently of each other.</p>
+     *
+     * @param elements the elements
+     * @param action the action
+     * @param <E> the element type
+     */
+    private <E> void forEachConcurrently(Collection<E> elements, Consumer<E> action) {
+        CompletableFuture<?>[] futures = elements.stream()
+                .map(e -> CompletableFuture.runAsync(() -> action.accept(e), this.plugin.getBootstrap().getScheduler().async()))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(futures).join();
+    }
+
+    /**
+     * The same as {@link #forEachConcurrently(Collection, Consumer)}, except exceptions
+     * thrown by the action are logged, and don't prevent the other elements from
+     * being processed.
+     *
+     * @param elements the elements
+     * @param action the action
+     * @param <E> the element type
+     * @return true if the action completed successfully for every element
+     */
+    private <E> boolean tryForEachConcurrently(Collection<E> elements, Throwing.Consumer<E> action) {
+        AtomicBoolean success = new AtomicBoolean(true);
+        forEachConcurrently(elements, e -> {
+            try {
+                action.accept(e);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+                success.set(false);
+            }
+        });
+        return success.get();
+    }
+
+    private void updateIndex(StorageLocation location, Path file, ConfigurationNode node) throws IOException {
+        FilePermissionIndex index = getIndex(location);
+        if (index == null) {
+            return;
+        }
+
+        if (node == null) {
+            index.remove(file);
+        } else {
+            index.update(file, readNodes(node));
+        }
+    }
+
     private Predicate<Path> getFileTypeFilter() {
         return path -> path.getFileName().toString().endsWith(this.fileExtension);
     }
@@ -154,6 +258,12 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
         this.groupsDirectory = MoreFiles.createDirectoryIfNotExists(super.dataDirectory.resolve("groups"));
         this.tracksDirectory = MoreFiles.createDirectoryIfNotExists(super.dataDirectory.resolve("tracks"));
 
+        Path indexDirectory = MoreFiles.createDirectoryIfNotExists(super.dataDirectory.resolve("permission-index"));
+        this.userIndexFile = indexDirectory.resolve("users.json");
+        this.groupIndexFile = indexDirectory.resolve("groups.json");
+        this.userIndex.load(this.userIndexFile);
+        this.groupIndex.load(this.groupIndexFile);
+
         // Listen for file changes.
         FileWatcher watcher = this.plugin.getFileWatcher().orElse(null);
         if (watcher != null) {
@@ -186,6 +296,9 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
                     return;
                 }
 
+                // only the changed file needs to be parsed again
+                this.fileCache.invalidate(this.groupsDirectory.resolve(path));
+
                 String groupName = s.substring(0, s.length() - this.fileExtension.length());
                 this.plugin.getLogger().info("[FileWatcher] Detected change in group file for " + groupName + " - reloading...");
                 this.plugin.getSyncTaskBuffer().request();
@@ -199,6 +312,8 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
                     return;
                 }
 
+                this.fileCache.invalidate(this.tracksDirectory.resolve(path));
+
                 String trackName = s.substring(0, s.length() - this.fileExtension.length());
                 this.plugin.getLogger().info("[FileWatcher] Detected change in track file for " + trackName + " - reloading...");
                 this.plugin.getStorage().loadAllTracks();
@@ -206,41 +321,64 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
         }
     }
 
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        this.userIndex.save(this.userIndexFile);
+        this.groupIndex.save(this.groupIndexFile);
+    }
+
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) throws Exception {
         if (bulkUpdate.getDataType().isIncludingUsers()) {
-            try (Stream<Path> s = Files.list(getDirectory(StorageLocation.USER))) {
-                s.filter(getFileTypeFilter()).forEach(file -> {
-                    try {
-                        registerFileAction(StorageLocation.USER, file);
-                        ConfigurationNode object = readFile(file);
-                        ConfigurationNode results = processBulkUpdate(bulkUpdate, object);
-                        if (results != null) {
-                            saveFile(file, object);
-                        }
-                    } catch (Exception e) {
-                        throw reportException(file.getFileName().toString(), e);
-                    }
-                });
-            }
+            applyBulkUpdate(StorageLocation.USER, bulkUpdate);
         }
 
         if (bulkUpdate.getDataType().isIncludingGroups()) {
-            try (Stream<Path> s = Files.list(getDirectory(StorageLocation.GROUP))) {
-                s.filter(getFileTypeFilter()).forEach(file -> {
-                    try {
-                        registerFileAction(StorageLocation.GROUP, file);
-                        ConfigurationNode object = readFile(file);
-                        ConfigurationNode results = processBulkUpdate(bulkUpdate, object);
-                        if (results != null) {
-                            saveFile(file, object);
-                        }
-                    } catch (Exception e) {
-                        throw reportException(file.getFileName().toString(), e);
-                    }
-                });
+            applyBulkUpdate(StorageLocation.GROUP, bulkUpdate);
+        }
+    }
+
+    private void applyBulkUpdate(StorageLocation location, BulkUpdate bulkUpdate) throws IOException {
+        // files are only written if the update actually changes their nodes
+        forEachConcurrently(findBulkUpdateCandidates(location, bulkUpdate), file -> {
+            try {
+                registerFileAction(location, file);
+                ConfigurationNode object = readFile(location, file);
+                if (object == null) {
+                    return;
+                }
+
+                ConfigurationNode results = processBulkUpdate(bulkUpdate, object);
+                if (results != null) {
+                    saveFile(location, file, object);
+                }
+            } catch (Exception e) {
+                throw reportException(file.getFileName().toString(), e);
+            }
+        });
+        getIndex(location).save(location == StorageLocation.USER ? this.userIndexFile : this.groupIndexFile);
+    }
+
+    private List<Path> findBulkUpdateCandidates(StorageLocation location, BulkUpdate bulkUpdate) throws IOException {
+        // if the update is constrained by permission, only the files which hold a
+        // matching permission need to be read
+        for (Query query : bulkUpdate.getQueries()) {
+            if (query.getField() == QueryField.PERMISSION) {
+                return findFilesWithPermission(location, query.getConstraint());
             }
         }
+
+        try (Stream<Path> stream = Files.list(getDirectory(location))) {
+            return stream.filter(getFileTypeFilter()).collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public Map<UUID, User> loadUsers(Collection<UUID> uniqueIds) {
+        Map<UUID, User> users = new ConcurrentHashMap<>();
+        tryForEachConcurrently(uniqueIds, uniqueId -> users.put(uniqueId, loadUser(uniqueId, null)));
+        return users;
     }
 
     @Override
@@ -256,28 +394,7 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
 
     @Override
     public List<HeldNode<UUID>> getUsersWithPermission(Constraint constraint) throws Exception {
-        List<HeldNode<UUID>> held = new ArrayList<>();
-        try (Stream<Path> stream = Files.list(getDirectory(StorageLocation.USER))) {
-            stream.filter(getFileTypeFilter())
-                    .forEach(file -> {
-                        String fileName = file.getFileName().toString();
-                        try {
-                            registerFileAction(StorageLocation.USER, file);
-                            ConfigurationNode object = readFile(file);
-                            UUID holder = UUID.fromString(fileName.substring(0, fileName.length() - this.fileExtension.length()));
-                            Set<Node> nodes = readNodes(object);
-                            for (Node e : nodes) {
-                                if (!constraint.eval(e.getKey())) {
-                                    continue;
-                                }
-                                held.add(HeldNodeImpl.of(holder, e));
-                            }
-                        } catch (Exception e) {
-                            throw reportException(file.getFileName().toString(), e);
-                        }
-                    });
-        }
-        return held;
+        return findHeldNodes(StorageLocation.USER, constraint, UUID::fromString);
     }
 
     @Override
@@ -290,7 +407,7 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
                     .collect(Collectors.toList());
         }
 
-        if (!Iterators.tryIterate(groups, this::loadGroup)) {
+        if (!tryForEachConcurrently(groups, this::loadGroup)) {
             throw new RuntimeException("Exception occurred whilst loading a group");
         }
 
@@ -299,30 +416,48 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
 
     @Override
     public List<HeldNode<String>> getGroupsWithPermission(Constraint constraint) throws Exception {
-        List<HeldNode<String>> held = new ArrayList<>();
-        try (Stream<Path> stream = Files.list(getDirectory(StorageLocation.GROUP))) {
-            stream.filter(getFileTypeFilter())
-                    .forEach(file -> {
-                        String fileName = file.getFileName().toString();
-                        try {
-                            registerFileAction(StorageLocation.GROUP, file);
-                            ConfigurationNode object = readFile(file);
-                            String holder = fileName.substring(0, fileName.length() - this.fileExtension.length());
-                            Set<Node> nodes = readNodes(object);
-                            for (Node e : nodes) {
-                                if (!constraint.eval(e.getKey())) {
-                                    continue;
-                                }
-                                held.add(HeldNodeImpl.of(holder, e));
-                            }
-                        } catch (Exception e) {
-                            throw reportException(file.getFileName().toString(), e);
-                        }
-                    });
-        }
+        return findHeldNodes(StorageLocation.GROUP, constraint, Function.identity());
+    }
+
+    private <T extends Comparable<T>> List<HeldNode<T>> findHeldNodes(StorageLocation location, Constraint constraint, Function<String, T> holderParser) throws IOException {
+        List<HeldNode<T>> held = Collections.synchronizedList(new ArrayList<>());
+        forEachConcurrently(findFilesWithPermission(location, constraint), file -> {
+            String fileName = file.getFileName().toString();
+            try {
+                registerFileAction(location, file);
+                ConfigurationNode object = readFile(location, file);
+                if (object == null) {
+                    return;
+                }
+                T holder = holderParser.apply(fileName.substring(0, fileName.length() - this.fileExtension.length()));
+                Set<Node> nodes = readNodes(object);
+                for (Node e : nodes) {
+                    if (!constraint.eval(e.getKey())) {
+                        continue;
+                    }
+                    held.add(HeldNodeImpl.of(holder, e));
+                }
+            } catch (Exception e) {
+                throw reportException(fileName, e);
+            }
+        });
         return held;
     }
 
+    private List<Path> findFilesWithPermission(StorageLocation location, Constraint constraint) throws IOException {
+        FilePermissionIndex index = getIndex(location);
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(getDirectory(location))) {
+            files = index.query(stream.filter(getFileTypeFilter()), constraint, file -> {
+                registerFileAction(location, file);
+                ConfigurationNode object = readFile(location, file);
+                return object == null ? Collections.emptySet() : readNodes(object);
+            });
+        }
+        index.save(location == StorageLocation.USER ? this.userIndexFile : this.groupIndexFile);
+        return files;
+    }
+
     @Override
     public void loadAllTracks() throws IOException {
         List<String> tracks;
@@ -333,7 +468,7 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
                     .collect(Collectors.toList());
         }
 
-        if (!Iterators.tryIterate(tracks, this::loadTrack)) {
+        if (!tryForEachConcurrently(tracks, this::loadTrack)) {
             throw new RuntimeException("Exception occurred whilst loading a track");
         }
 
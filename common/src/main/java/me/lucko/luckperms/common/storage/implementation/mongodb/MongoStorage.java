@@ -26,21 +26,38 @@
 package me.lucko.luckperms.common.storage.implementation.mongodb;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Iterables;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoClientURI;
 import com.mongodb.MongoCredential;
+import com.mongodb.MongoException;
 import com.mongodb.ServerAddress;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.CollationStrength;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
+import me.lucko.luckperms.common.bulkupdate.action.DeleteAction;
+import me.lucko.luckperms.common.bulkupdate.action.UpdateAction;
 import me.lucko.luckperms.common.bulkupdate.comparison.Constraint;
+import me.lucko.luckperms.common.bulkupdate.comparison.StandardComparison;
+import me.lucko.luckperms.common.bulkupdate.query.Query;
+import me.lucko.luckperms.common.bulkupdate.query.QueryField;
 import me.lucko.luckperms.common.context.contextset.MutableContextSetImpl;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
@@ -66,20 +83,47 @@ import net.luckperms.api.node.Node;
 import net.luckperms.api.node.NodeBuilder;
 
 import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class MongoStorage implements StorageImplementation {
+
+    /**
+     * The maximum number of users to find in a single query when loading users in bulk
+     */
+    private static final int LOAD_USERS_BATCH_SIZE = 500;
+
+    /**
+     * The collation used to index permission keys, which are compared ignoring case
+     */
+    private static final Collation PERMISSION_KEY_COLLATION = Collation.builder()
+            .locale("en")
+            .collationStrength(CollationStrength.SECONDARY)
+            .build();
+
+    /**
+     * The id of the document in the meta collection which records that legacy actions have been migrated
+     */
+    private static final String LEGACY_ACTIONS_MIGRATED = "legacy_actions_migrated";
+
     private final LuckPermsPlugin plugin;
 
     private final StorageCredentials configuration;
@@ -88,6 +132,12 @@ public class MongoStorage implements StorageImplementation {
     private final String prefix;
     private final String connectionUri;
 
+    /** If the server supports collations, added in MongoDB 3.4 */
+    private boolean collationSupported;
+
+    /** If the server supports the positional update operators used to apply bulk updates, added in MongoDB 3.6 */
+    private boolean positionalUpdatesSupported;
+
     public MongoStorage(LuckPermsPlugin plugin, StorageCredentials configuration, String prefix, String connectionUri) {
         this.plugin = plugin;
         this.configuration = configuration;
@@ -132,6 +182,24 @@ public class MongoStorage implements StorageImplementation {
         }
         
         this.database = this.mongoClient.getDatabase(this.configuration.getDatabase());
+        this.collationSupported = isServerVersionAtLeast(3, 4);
+        this.positionalUpdatesSupported = isServerVersionAtLeast(3, 6);
+
+        // index permission keys, for getUsersWithPermission & getGroupsWithPermission.
+        // keys are compared ignoring case, so the index is only useful if it has the collation.
+        if (this.collationSupported) {
+            IndexOptions indexOptions = new IndexOptions().name("permissions_key").collation(PERMISSION_KEY_COLLATION);
+            this.database.getCollection(this.prefix + "users").createIndex(Indexes.ascending("permissions.key"), indexOptions);
+            this.database.getCollection(this.prefix + "groups").createIndex(Indexes.ascending("permissions.key"), indexOptions);
+        }
+
+        // index the fields used to filter the action log
+        // actions stored in the old format wouldn't be matched by these, so they are migrated first
+        migrateLegacyActions();
+        MongoCollection<Document> actions = this.database.getCollection(this.prefix + "action");
+        for (String field : new String[]{"timestamp", "source.uniqueId", "target.uniqueId", "target.name"}) {
+            actions.createIndex(Indexes.ascending(field));
+        }
     }
 
     @Override
@@ -167,26 +235,7 @@ public class MongoStorage implements StorageImplementation {
     @Override
     public void logAction(Action entry) {
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
-
-        Document doc = new Document()
-                .append("timestamp", entry.getTimestamp().getEpochSecond())
-                .append("source", new Document()
-                        .append("uniqueId", entry.getSource().getUniqueId())
-                        .append("name", entry.getSource().getName())
-                );
-
-        Document target = new Document()
-                .append("type", entry.getTarget().getType().name())
-                .append("name", entry.getTarget().getName());
-
-        if (entry.getTarget().getUniqueId().isPresent()) {
-            target.append("uniqueId", entry.getTarget().getUniqueId().get());
-        }
-
-        doc.append("target", target);
-        doc.append("description", entry.getDescription());
-
-        c.insertOne(doc);
+        c.insertOne(actionToDoc(entry));
     }
 
     @Override
@@ -195,106 +244,171 @@ public class MongoStorage implements StorageImplementation {
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
         try (MongoCursor<Document> cursor = c.find().iterator()) {
             while (cursor.hasNext()) {
-                Document d = cursor.next();
-
-                if (d.containsKey("source")) {
-                    // new format
-                    Document source = d.get("source", Document.class);
-                    Document target = d.get("target", Document.class);
+                log.add(actionFromDoc(cursor.next()));
+            }
+        }
+        return log.build();
+    }
 
-                    UUID targetUniqueId = null;
-                    if (target.containsKey("uniqueId")) {
-                        targetUniqueId = target.get("uniqueId", UUID.class);
-                    }
+    @Override
+    public LogPage getLogPage(ActionFilter filter, int offset, int limit) {
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
+        Bson query = actionFilterToBson(filter);
 
-                    LoggedAction e = LoggedAction.build()
-                            .timestamp(Instant.ofEpochSecond(d.getLong("timestamp")))
-                            .source(source.get("uniqueId", UUID.class))
-                            .sourceName(source.getString("name"))
-                            .targetType(LoggedAction.parseType(target.getString("type")))
-                            .target(targetUniqueId)
-                            .targetName(target.getString("name"))
-                            .description(d.getString("description"))
-                            .build();
-
-                    log.add(e);
-                } else {
-                    // old format
-                    UUID actedUuid = null;
-                    if (d.containsKey("acted")) {
-                        actedUuid = d.get("acted", UUID.class);
-                    }
+        int total = (int) c.countDocuments(query);
+        List<LoggedAction> content = new ArrayList<>();
+        if (limit > 0 && offset < total) {
+            FindIterable<Document> page = c.find(query)
+                    .sort(Sorts.descending("timestamp", "_id"))
+                    .skip(offset)
+                    .limit(limit);
 
-                    LoggedAction e = LoggedAction.build()
-                            .timestamp(Instant.ofEpochSecond(d.getLong("timestamp")))
-                            .source(d.get("actor", UUID.class))
-                            .sourceName(d.getString("actorName"))
-                            .targetType(LoggedAction.parseTypeCharacter(d.getString("type").charAt(0)))
-                            .target(actedUuid)
-                            .targetName(d.getString("actedName"))
-                            .description(d.getString("action"))
-                            .build();
-
-                    log.add(e);
+            try (MongoCursor<Document> cursor = page.iterator()) {
+                while (cursor.hasNext()) {
+                    content.add(actionFromDoc(cursor.next()));
                 }
             }
         }
-        return log.build();
+        return new LogPage(content, offset, total);
+    }
+
+    /**
+     * Converts actions stored in the old format to the new format, so they
+     * can be found by queries against the new (indexed) fields.
+     *
+     * <p>Finding the old actions requires a scan of the whole action log, so
+     * completion is recorded in the meta collection, and the migration is
+     * only run once.</p>
+     */
+    private void migrateLegacyActions() {
+        MongoCollection<Document> meta = this.database.getCollection(this.prefix + "meta");
+        Bson marker = Filters.eq("_id", LEGACY_ACTIONS_MIGRATED);
+        if (meta.countDocuments(marker) != 0) {
+            return;
+        }
+
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
+        try (MongoCursor<Document> cursor = c.find(Filters.exists("source", false)).iterator()) {
+            while (cursor.hasNext()) {
+                Document d = cursor.next();
+                c.replaceOne(Filters.eq("_id", d.get("_id")), actionToDoc(actionFromDoc(d)));
+            }
+        }
+
+        meta.replaceOne(marker, new Document("_id", LEGACY_ACTIONS_MIGRATED).append("time", System.currentTimeMillis()), new ReplaceOptions().upsert(true));
     }
 
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) {
         if (bulkUpdate.getDataType().isIncludingUsers()) {
-            MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
-            try (MongoCursor<Document> cursor = c.find().iterator()) {
-                while (cursor.hasNext()) {
-                    Document d = cursor.next();
+            applyBulkUpdate(this.database.getCollection(this.prefix + "users"), bulkUpdate);
+        }
 
-                    UUID uuid = d.get("_id", UUID.class);
-                    Set<Node> nodes = new HashSet<>(nodesFromDoc(d));
-                    Set<Node> results = nodes.stream()
-                            .map(bulkUpdate::apply)
-                            .filter(Objects::nonNull)
-                            .collect(Collectors.toSet());
+        if (bulkUpdate.getDataType().isIncludingGroups()) {
+            applyBulkUpdate(this.database.getCollection(this.prefix + "groups"), bulkUpdate);
+        }
+    }
 
-                    if (!nodes.equals(results)) {
-                        List<Document> newNodes = results.stream()
-                                .map(MongoStorage::nodeToDoc)
-                                .collect(Collectors.toList());
+    private void applyBulkUpdate(MongoCollection<Document> c, BulkUpdate bulkUpdate) {
+        // documents which still hold nodes in the legacy format can't be matched by a query,
+        // so they are always updated in memory (and rewritten in the current format)
+        rewriteDocuments(c, Filters.exists("permissions.permission"), bulkUpdate);
 
-                        d.append("permissions", newNodes).remove("perms");
-                        c.replaceOne(new Document("_id", uuid), d);
-                    }
-                }
+        Bson nodeFilter = nodeFilter(bulkUpdate, "");
+        if (nodeFilter == null) {
+            // the constraints can't be expressed as a query
+            rewriteDocuments(c, new Document(), bulkUpdate);
+            return;
+        }
+
+        Bson documentFilter = bulkUpdate.getQueries().isEmpty()
+                ? Filters.exists("permissions.0")
+                : Filters.elemMatch("permissions", nodeFilter);
+
+        if (bulkUpdate.getAction() instanceof DeleteAction) {
+            c.updateMany(documentFilter, Updates.pull("permissions", nodeFilter));
+        } else if (this.positionalUpdatesSupported && bulkUpdate.getAction() instanceof UpdateAction && ((UpdateAction) bulkUpdate.getAction()).getField() == QueryField.PERMISSION) {
+            // normalise the key in the same way as when the update is applied in memory
+            String key = Node.builder(((UpdateAction) bulkUpdate.getAction()).getValue()).build().getKey();
+            if (bulkUpdate.getQueries().isEmpty()) {
+                c.updateMany(documentFilter, Updates.set("permissions.$[].key", key));
+            } else {
+                c.updateMany(documentFilter, Updates.set("permissions.$[node].key", key),
+                        new UpdateOptions().arrayFilters(Collections.singletonList(nodeFilter(bulkUpdate, "node."))));
             }
+
+            // renaming may have made some nodes equal to others held by the same document
+            mergeDuplicateNodes(c, c.find(Filters.eq("permissions.key", key)).collation(PERMISSION_KEY_COLLATION));
+        } else {
+            // changing the value of a context means removing and adding elements to an array
+            // nested within the node, which can't be done by a single update - instead, just
+            // the matching documents are updated in memory. the same applies to any update
+            // if the server is too old to support positional updates.
+            rewriteDocuments(c, documentFilter, bulkUpdate);
         }
+    }
 
-        if (bulkUpdate.getDataType().isIncludingGroups()) {
-            MongoCollection<Document> c = this.database.getCollection(this.prefix + "groups");
-            try (MongoCursor<Document> cursor = c.find().iterator()) {
-                while (cursor.hasNext()) {
-                    Document d = cursor.next();
+    private static void rewriteDocuments(MongoCollection<Document> c, Bson filter, BulkUpdate bulkUpdate) {
+        try (MongoCursor<Document> cursor = c.find(filter).iterator()) {
+            while (cursor.hasNext()) {
+                Document d = cursor.next();
+
+                Set<Node> nodes = new HashSet<>(nodesFromDoc(d));
+                Set<Node> results = nodes.stream()
+                        .map(bulkUpdate::apply)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet());
+
+                if (!nodes.equals(results)) {
+                    List<Document> newNodes = results.stream()
+                            .map(MongoStorage::nodeToDoc)
+                            .collect(Collectors.toList());
+
+                    d.append("permissions", newNodes).remove("perms");
+                    c.replaceOne(Filters.eq("_id", d.get("_id")), d);
+                }
+            }
+        }
+    }
 
-                    String holder = d.getString("_id");
-                    Set<Node> nodes = new HashSet<>(nodesFromDoc(d));
-                    Set<Node> results = nodes.stream()
-                            .map(bulkUpdate::apply)
-                            .filter(Objects::nonNull)
-                            .collect(Collectors.toSet());
+    private static void mergeDuplicateNodes(MongoCollection<Document> c, FindIterable<Document> documents) {
+        try (MongoCursor<Document> cursor = documents.iterator()) {
+            while (cursor.hasNext()) {
+                Document d = cursor.next();
 
-                    if (!nodes.equals(results)) {
-                        List<Document> newNodes = results.stream()
-                                .map(MongoStorage::nodeToDoc)
-                                .collect(Collectors.toList());
+                List<Node> nodes = nodesFromDoc(d);
+                Set<Node> merged = new LinkedHashSet<>(nodes);
+                if (merged.size() != nodes.size()) {
+                    List<Document> newNodes = merged.stream()
+                            .map(MongoStorage::nodeToDoc)
+                            .collect(Collectors.toList());
 
-                        d.append("permissions", newNodes).remove("perms");
-                        c.replaceOne(new Document("_id", holder), d);
-                    }
+                    d.append("permissions", newNodes);
+                    c.replaceOne(Filters.eq("_id", d.get("_id")), d);
                 }
             }
         }
     }
 
+    /**
+     * Gets if the version of the connected server is at least the given version.
+     *
+     * @param major the major version
+     * @param minor the minor version
+     * @return true if the server version is the same or newer
+     */
+    private boolean isServerVersionAtLeast(int major, int minor) {
+        try {
+            List<?> version = this.database.runCommand(new Document("buildInfo", 1)).get("versionArray", List.class);
+            int serverMajor = ((Number) version.get(0)).intValue();
+            int serverMinor = ((Number) version.get(1)).intValue();
+            return serverMajor > major || (serverMajor == major && serverMinor >= minor);
+        } catch (Exception e) {
+            // assume the oldest supported version
+            return false;
+        }
+    }
+
     @Override
     public User loadUser(UUID uniqueId, String username) {
         User user = this.plugin.getUserManager().getOrMake(uniqueId, username);
@@ -302,41 +416,95 @@ public class MongoStorage implements StorageImplementation {
         try {
             MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
             try (MongoCursor<Document> cursor = c.find(new Document("_id", user.getUniqueId())).iterator()) {
-                if (cursor.hasNext()) {
-                    // User exists, let's load.
-                    Document d = cursor.next();
+                applyUserData(c, user, cursor.hasNext() ? cursor.next() : null);
+            }
+        } finally {
+            user.getIoLock().unlock();
+        }
+        return user;
+    }
 
-                    String name = d.getString("name");
-                    user.getPrimaryGroup().setStoredValue(d.getString("primaryGroup"));
-                    user.setNodes(DataType.NORMAL, nodesFromDoc(d));
-                    user.setUsername(name, true);
+    @Override
+    public Map<UUID, User> loadUsers(Collection<UUID> uniqueIds) {
+        Map<UUID, User> users = new HashMap<>();
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
+        for (List<UUID> batch : Iterables.partition(new TreeSet<>(uniqueIds), LOAD_USERS_BATCH_SIZE)) {
+            // read the batch without holding any user locks, so saves aren't held up by the query.
+            // the io version of each user is recorded first, so that a load or save which happens
+            // before the result is applied can be detected.
+            Map<UUID, Long> versions = new HashMap<>();
+            for (UUID uniqueId : batch) {
+                versions.put(uniqueId, this.plugin.getUserManager().getOrMake(uniqueId).getIoVersion());
+            }
 
-                    boolean save = this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
-                    if (user.getUsername().isPresent() && (name == null || !user.getUsername().get().equalsIgnoreCase(name))) {
-                        save = true;
-                    }
+            Map<UUID, Document> docs = new HashMap<>();
+            try (MongoCursor<Document> cursor = c.find(Filters.in("_id", batch)).iterator()) {
+                while (cursor.hasNext()) {
+                    Document d = cursor.next();
+                    docs.put(d.get("_id", UUID.class), d);
+                }
+            } catch (MongoException e) {
+                // fallback to loading the users in the batch individually
+                e.printStackTrace();
+                Iterators.tryIterate(batch, uniqueId -> users.put(uniqueId, loadUser(uniqueId, null)));
+                continue;
+            }
 
-                    if (save | user.auditTemporaryNodes()) {
-                        c.replaceOne(new Document("_id", user.getUniqueId()), userToDoc(user));
-                    }
-                } else {
-                    if (this.plugin.getUserManager().shouldSave(user)) {
-                        user.clearNodes(DataType.NORMAL, null, true);
-                        user.getPrimaryGroup().setStoredValue(null);
-                        this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
+            // then apply each result under that users own lock
+            for (UUID uniqueId : batch) {
+                User user = this.plugin.getUserManager().getOrMake(uniqueId);
+                user.getIoLock().lock();
+                try {
+                    if (user.getIoVersion() == versions.get(uniqueId)) {
+                        applyUserData(c, user, docs.get(uniqueId));
+                    } else {
+                        // the user was loaded or saved after the batch was read, so the result may be stale
+                        loadUser(uniqueId, null);
                     }
+                    users.put(uniqueId, user);
+                } catch (Exception e) {
+                    this.plugin.getLogger().warn("Unable to load user " + uniqueId);
+                    e.printStackTrace();
+                } finally {
+                    user.getIoLock().unlock();
                 }
             }
-        } finally {
-            user.getIoLock().unlock();
         }
-        return user;
+        return users;
+    }
+
+    private void applyUserData(MongoCollection<Document> c, User user, @Nullable Document d) {
+        user.incrementIoVersion();
+
+        if (d != null) {
+            // User exists, let's load.
+            String name = d.getString("name");
+            user.getPrimaryGroup().setStoredValue(d.getString("primaryGroup"));
+            user.setNodes(DataType.NORMAL, nodesFromDoc(d));
+            user.setUsername(name, true);
+
+            boolean save = this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
+            if (user.getUsername().isPresent() && (name == null || !user.getUsername().get().equalsIgnoreCase(name))) {
+                save = true;
+            }
+
+            if (save | user.auditTemporaryNodes()) {
+                c.replaceOne(new Document("_id", user.getUniqueId()), userToDoc(user));
+            }
+        } else {
+            if (this.plugin.getUserManager().shouldSave(user)) {
+                user.clearNodes(DataType.NORMAL, null, true);
+                user.getPrimaryGroup().setStoredValue(null);
+                this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
+            }
+        }
     }
 
     @Override
     public void saveUser(User user) {
         user.getIoLock().lock();
         try {
+            user.incrementIoVersion();
             MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
             if (!this.plugin.getUserManager().shouldSave(user)) {
                 c.deleteOne(new Document("_id", user.getUniqueId()));
@@ -365,7 +533,7 @@ public class MongoStorage implements StorageImplementation {
     public List<HeldNode<UUID>> getUsersWithPermission(Constraint constraint) {
         List<HeldNode<UUID>> held = new ArrayList<>();
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
-        try (MongoCursor<Document> cursor = c.find().iterator()) {
+        try (MongoCursor<Document> cursor = findWithPermission(c, constraint).iterator()) {
             while (cursor.hasNext()) {
                 Document d = cursor.next();
                 UUID holder = d.get("_id", UUID.class);
@@ -475,7 +643,7 @@ public class MongoStorage implements StorageImplementation {
     public List<HeldNode<String>> getGroupsWithPermission(Constraint constraint) {
         List<HeldNode<String>> held = new ArrayList<>();
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "groups");
-        try (MongoCursor<Document> cursor = c.find().iterator()) {
+        try (MongoCursor<Document> cursor = findWithPermission(c, constraint).iterator()) {
             while (cursor.hasNext()) {
                 Document d = cursor.next();
                 String holder = d.getString("_id");
@@ -636,6 +804,184 @@ public class MongoStorage implements StorageImplementation {
         return null;
     }
 
+    /**
+     * Converts the constraints of a bulk update to a query which matches the node
+     * documents they are satisfied by.
+     *
+     * @param bulkUpdate the bulk update
+     * @param prefix the prefix for node fields, e.g. the array filter identifier
+     * @return the filter, or null if the constraints can't be expressed as a query
+     */
+    private static @Nullable Bson nodeFilter(BulkUpdate bulkUpdate, String prefix) {
+        List<Bson> filters = new ArrayList<>();
+        for (Query query : bulkUpdate.getQueries()) {
+            Constraint constraint = query.getConstraint();
+            switch (query.getField()) {
+                case PERMISSION: {
+                    Bson filter = constraintFilter(prefix + "key", constraint);
+                    if (filter == null) {
+                        return null;
+                    }
+                    filters.add(filter);
+                    break;
+                }
+                case SERVER:
+                case WORLD: {
+                    String contextKey = query.getField() == QueryField.SERVER ? DefaultContextKeys.SERVER_KEY : DefaultContextKeys.WORLD_KEY;
+                    Bson valueFilter = constraintFilter("value", constraint);
+                    if (valueFilter == null) {
+                        return null;
+                    }
+
+                    Bson filter = Filters.elemMatch(prefix + "context", Filters.and(Filters.eq("key", contextKey), valueFilter));
+
+                    // nodes without the context are treated as having the value "global"
+                    if (constraint.eval("global")) {
+                        filter = Filters.or(filter, Filters.not(Filters.elemMatch(prefix + "context", Filters.eq("key", contextKey))));
+                    }
+                    filters.add(filter);
+                    break;
+                }
+                default:
+                    return null;
+            }
+        }
+        return filters.isEmpty() ? new Document() : Filters.and(filters);
+    }
+
+    private static @Nullable Bson constraintFilter(String field, Constraint constraint) {
+        if (!(constraint.getComparison() instanceof StandardComparison)) {
+            return null;
+        }
+
+        switch ((StandardComparison) constraint.getComparison()) {
+            case EQUAL:
+                return Filters.regex(field, equalsIgnoreCasePattern(constraint.getExpressionValue()));
+            case NOT_EQUAL:
+                return new Document(field, new Document("$not", equalsIgnoreCasePattern(constraint.getExpressionValue())));
+            case SIMILAR:
+                return Filters.regex(field, likePattern(constraint.getExpressionValue()));
+            case NOT_SIMILAR:
+                return new Document(field, new Document("$not", likePattern(constraint.getExpressionValue())));
+            default:
+                return null;
+        }
+    }
+
+    private static Pattern equalsIgnoreCasePattern(String value) {
+        return Pattern.compile("^" + Pattern.quote(value) + "$", Pattern.CASE_INSENSITIVE);
+    }
+
+    private static Pattern likePattern(String expression) {
+        Pattern pattern = StandardComparison.compilePatternForLikeSyntax(expression);
+        return Pattern.compile("^" + pattern.pattern() + "$", Pattern.CASE_INSENSITIVE);
+    }
+
+    private FindIterable<Document> findWithPermission(MongoCollection<Document> c, Constraint constraint) {
+        if (constraint.getComparison() == StandardComparison.EQUAL) {
+            if (!this.collationSupported) {
+                return c.find(Filters.regex("permissions.key", equalsIgnoreCasePattern(constraint.getExpressionValue())));
+            }
+            return c.find(Filters.eq("permissions.key", constraint.getExpressionValue())).collation(PERMISSION_KEY_COLLATION);
+        }
+        if (constraint.getComparison() == StandardComparison.SIMILAR) {
+            return c.find(Filters.regex("permissions.key", likePattern(constraint.getExpressionValue())));
+        }
+
+        // the query can't be narrowed, so search all documents
+        return c.find();
+    }
+
+    private static Document actionToDoc(Action action) {
+        Document source = new Document()
+                .append("uniqueId", action.getSource().getUniqueId())
+                .append("name", action.getSource().getName());
+
+        Document target = new Document()
+                .append("type", action.getTarget().getType().name())
+                .append("name", action.getTarget().getName());
+
+        if (action.getTarget().getUniqueId().isPresent()) {
+            target.append("uniqueId", action.getTarget().getUniqueId().get());
+        }
+
+        return new Document()
+                .append("timestamp", action.getTimestamp().getEpochSecond())
+                .append("source", source)
+                .append("target", target)
+                .append("description", action.getDescription());
+    }
+
+    private static LoggedAction actionFromDoc(Document d) {
+        if (d.containsKey("source")) {
+            // new format
+            Document source = d.get("source", Document.class);
+            Document target = d.get("target", Document.class);
+
+            UUID targetUniqueId = null;
+            if (target.containsKey("uniqueId")) {
+                targetUniqueId = target.get("uniqueId", UUID.class);
+            }
+
+            return LoggedAction.build()
+                    .timestamp(Instant.ofEpochSecond(d.getLong("timestamp")))
+                    .source(source.get("uniqueId", UUID.class))
+                    .sourceName(source.getString("name"))
+                    .targetType(LoggedAction.parseType(target.getString("type")))
+                    .target(targetUniqueId)
+                    .targetName(target.getString("name"))
+                    .description(d.getString("description"))
+                    .build();
+        } else {
+            // old format
+            UUID actedUuid = null;
+            if (d.containsKey("acted")) {
+                actedUuid = d.get("acted", UUID.class);
+            }
+
+            return LoggedAction.build()
+                    .timestamp(Instant.ofEpochSecond(d.getLong("timestamp")))
+                    .source(d.get("actor", UUID.class))
+                    .sourceName(d.getString("actorName"))
+                    .targetType(LoggedAction.parseTypeCharacter(d.getString("type").charAt(0)))
+                    .target(actedUuid)
+                    .targetName(d.getString("actedName"))
+                    .description(d.getString("action"))
+                    .build();
+        }
+    }
+
+    private static Bson actionFilterToBson(ActionFilter filter) {
+        List<Bson> filters = new ArrayList<>();
+        if (filter.getSourceUniqueId() != null) {
+            filters.add(Filters.eq("source.uniqueId", filter.getSourceUniqueId()));
+        }
+        if (filter.getTargetType() != null) {
+            filters.add(Filters.eq("target.type", filter.getTargetType().name()));
+        }
+        if (filter.getTargetUniqueId() != null) {
+            filters.add(Filters.eq("target.uniqueId", filter.getTargetUniqueId()));
+        }
+        if (filter.getTargetName() != null) {
+            filters.add(Filters.eq("target.name", filter.getTargetName()));
+        }
+        if (filter.getAfter() != null) {
+            filters.add(Filters.gte("timestamp", filter.getAfter().getEpochSecond()));
+        }
+        if (filter.getBefore() != null) {
+            filters.add(Filters.lt("timestamp", filter.getBefore().getEpochSecond()));
+        }
+        if (filter.getSearch() != null) {
+            Pattern pattern = Pattern.compile(Pattern.quote(filter.getSearch()), Pattern.CASE_INSENSITIVE);
+            filters.add(Filters.or(
+                    Filters.regex("source.name", pattern),
+                    Filters.regex("target.name", pattern),
+                    Filters.regex("description", pattern)
+            ));
+        }
+        return filters.isEmpty() ? new Document() : Filters.and(filters);
+    }
+
     private static Document userToDoc(User user) {
         List<Document> nodes = user.normalData().immutable().values().stream()
                 .map(MongoStorage::nodeToDoc)
@@ -27,7 +27,9 @@ package me.lucko.luckperms.common.storage.implementation.split;
 
 import com.google.common.collect.ImmutableMap;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.bulkupdate.comparison.Constraint;
 import me.lucko.luckperms.common.model.Group;
@@ -36,11 +38,13 @@ import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.StorageType;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
+import me.lucko.luckperms.common.storage.misc.UserLoginResult;
 
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.model.PlayerSaveResult;
 import net.luckperms.api.node.HeldNode;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -124,6 +128,11 @@ public class SplitStorage implements StorageImplementation {
         return implFor(SplitStorageType.LOG).getLog();
     }
 
+    @Override
+    public LogPage getLogPage(ActionFilter filter, int offset, int limit) throws Exception {
+        return implFor(SplitStorageType.LOG).getLogPage(filter, offset, limit);
+    }
+
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) throws Exception {
         StorageType userType = this.types.get(SplitStorageType.USER);
@@ -142,6 +151,11 @@ public class SplitStorage implements StorageImplementation {
         return implFor(SplitStorageType.USER).loadUser(uniqueId, username);
     }
 
+    @Override
+    public Map<UUID, User> loadUsers(Collection<UUID> uniqueIds) throws Exception {
+        return implFor(SplitStorageType.USER).loadUsers(uniqueIds);
+    }
+
     @Override
     public void saveUser(User user) throws Exception {
         implFor(SplitStorageType.USER).saveUser(user);
@@ -217,6 +231,15 @@ public class SplitStorage implements StorageImplementation {
         return implFor(SplitStorageType.UUID).savePlayerData(uniqueId, username);
     }
 
+    @Override
+    public UserLoginResult loginUser(UUID uniqueId, String username) throws Exception {
+        StorageImplementation userStorage = implFor(SplitStorageType.USER);
+        if (userStorage == implFor(SplitStorageType.UUID)) {
+            return userStorage.loginUser(uniqueId, username);
+        }
+        return new UserLoginResult(savePlayerData(uniqueId, username), loadUser(uniqueId, username));
+    }
+
     @Override
     public UUID getPlayerUniqueId(String username) throws Exception {
         return implFor(SplitStorageType.UUID).getPlayerUniqueId(username);
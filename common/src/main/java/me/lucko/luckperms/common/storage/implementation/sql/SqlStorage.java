@@ -26,15 +26,20 @@
 package me.lucko.luckperms.common.storage.implementation.sql;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.gson.reflect.TypeToken;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.bulkupdate.PreparedStatementBuilder;
 import me.lucko.luckperms.common.bulkupdate.comparison.Constraint;
 import me.lucko.luckperms.common.context.ContextSetJsonSerializer;
 import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.NodeMap;
+import me.lucko.luckperms.common.model.NodeMapJournal;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.model.manager.group.GroupManager;
@@ -42,7 +47,9 @@ import me.lucko.luckperms.common.node.model.HeldNodeImpl;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.sql.connection.ConnectionFactory;
+import me.lucko.luckperms.common.storage.implementation.sql.connection.file.FlatfileConnectionFactory;
 import me.lucko.luckperms.common.storage.misc.PlayerSaveResultImpl;
+import me.lucko.luckperms.common.storage.misc.UserLoginResult;
 import me.lucko.luckperms.common.util.Iterators;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
 
@@ -52,11 +59,14 @@ import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.HeldNode;
 import net.luckperms.api.node.Node;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Type;
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -64,11 +74,15 @@ import java.sql.Statement;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -77,10 +91,13 @@ public class SqlStorage implements StorageImplementation {
     private static final Type LIST_STRING_TYPE = new TypeToken<List<String>>(){}.getType();
 
     private static final String USER_PERMISSIONS_SELECT = "SELECT id, permission, value, server, world, expiry, contexts FROM '{prefix}user_permissions' WHERE uuid=?";
+    private static final String USER_PERMISSIONS_SELECT_VERSION = "SELECT COUNT(*), MAX(id) FROM '{prefix}user_permissions' WHERE uuid=?";
     private static final String USER_PERMISSIONS_DELETE_SPECIFIC = "DELETE FROM '{prefix}user_permissions' WHERE id=?";
+    private static final String USER_PERMISSIONS_DELETE_MATCHING = "DELETE FROM '{prefix}user_permissions' WHERE uuid=? AND permission=? AND value=? AND server=? AND world=? AND expiry=? AND contexts=?";
     private static final String USER_PERMISSIONS_DELETE = "DELETE FROM '{prefix}user_permissions' WHERE uuid=?";
     private static final String USER_PERMISSIONS_INSERT = "INSERT INTO '{prefix}user_permissions' (uuid, permission, value, server, world, expiry, contexts) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String USER_PERMISSIONS_SELECT_DISTINCT = "SELECT DISTINCT uuid FROM '{prefix}user_permissions'";
+    private static final String USER_PERMISSIONS_SELECT_MULTIPLE = "SELECT uuid, id, permission, value, server, world, expiry, contexts FROM '{prefix}user_permissions' WHERE uuid IN ";
     private static final String USER_PERMISSIONS_SELECT_PERMISSION = "SELECT uuid, id, permission, value, server, world, expiry, contexts FROM '{prefix}user_permissions' WHERE ";
 
     private static final String PLAYER_SELECT_UUID_BY_USERNAME = "SELECT uuid FROM '{prefix}players' WHERE username=? LIMIT 1";
@@ -89,12 +106,20 @@ public class SqlStorage implements StorageImplementation {
     private static final String PLAYER_INSERT = "INSERT INTO '{prefix}players' (uuid, username, primary_group) VALUES(?, ?, ?)";
     private static final String PLAYER_SELECT_ALL_UUIDS_BY_USERNAME = "SELECT uuid FROM '{prefix}players' WHERE username=? AND NOT uuid=?";
     private static final String PLAYER_DELETE_ALL_UUIDS_BY_USERNAME = "DELETE FROM '{prefix}players' WHERE username=? AND NOT uuid=?";
+    private static final Map<String, String> PLAYER_UPSERT = ImmutableMap.of(
+            "MySQL", "INSERT INTO '{prefix}players' (uuid, username, primary_group) VALUES(?, ?, ?) ON DUPLICATE KEY UPDATE username=VALUES(username)",
+            "MariaDB", "INSERT INTO '{prefix}players' (uuid, username, primary_group) VALUES(?, ?, ?) ON DUPLICATE KEY UPDATE username=VALUES(username)",
+            "PostgreSQL", "INSERT INTO '{prefix}players' (uuid, username, primary_group) VALUES(?, ?, ?) ON CONFLICT (uuid) DO UPDATE SET username=EXCLUDED.username"
+    );
     private static final String PLAYER_SELECT_BY_UUID = "SELECT username, primary_group FROM '{prefix}players' WHERE uuid=?";
+    private static final String PLAYER_SELECT_MULTIPLE_BY_UUID = "SELECT uuid, username, primary_group FROM '{prefix}players' WHERE uuid IN ";
     private static final String PLAYER_SELECT_PRIMARY_GROUP_BY_UUID = "SELECT primary_group FROM '{prefix}players' WHERE uuid=? LIMIT 1";
     private static final String PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID = "UPDATE '{prefix}players' SET primary_group=? WHERE uuid=?";
 
     private static final String GROUP_PERMISSIONS_SELECT = "SELECT id, permission, value, server, world, expiry, contexts FROM '{prefix}group_permissions' WHERE name=?";
+    private static final String GROUP_PERMISSIONS_SELECT_VERSION = "SELECT COUNT(*), MAX(id) FROM '{prefix}group_permissions' WHERE name=?";
     private static final String GROUP_PERMISSIONS_DELETE_SPECIFIC = "DELETE FROM '{prefix}group_permissions' WHERE id=?";
+    private static final String GROUP_PERMISSIONS_DELETE_MATCHING = "DELETE FROM '{prefix}group_permissions' WHERE name=? AND permission=? AND value=? AND server=? AND world=? AND expiry=? AND contexts=?";
     private static final String GROUP_PERMISSIONS_DELETE = "DELETE FROM '{prefix}group_permissions' WHERE name=?";
     private static final String GROUP_PERMISSIONS_INSERT = "INSERT INTO '{prefix}group_permissions' (name, permission, value, server, world, expiry, contexts) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String GROUP_PERMISSIONS_SELECT_PERMISSION = "SELECT name, id, permission, value, server, world, expiry, contexts FROM '{prefix}group_permissions' WHERE ";
@@ -114,8 +139,28 @@ public class SqlStorage implements StorageImplementation {
     private static final String TRACK_UPDATE = "UPDATE '{prefix}tracks' SET 'groups'=? WHERE name=?";
     private static final String TRACK_DELETE = "DELETE FROM '{prefix}tracks' WHERE name=?";
 
+    private static final Map<String, String> PERMISSION_INDEX_CREATE = ImmutableMap.of(
+            "MySQL", "CREATE INDEX '{table}_permission' ON '{table}' ('permission'(191))",
+            "MariaDB", "CREATE INDEX '{table}_permission' ON '{table}' ('permission'(191))",
+            "H2", "CREATE INDEX ON '{table}' ('permission')"
+    );
+    private static final String PERMISSION_INDEX_CREATE_DEFAULT = "CREATE INDEX '{table}_permission' ON '{table}' ('permission')";
+
     private static final String ACTION_INSERT = "INSERT INTO '{prefix}actions' (time, actor_uuid, actor_name, type, acted_uuid, acted_name, action) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String ACTION_SELECT_ALL = "SELECT * FROM '{prefix}actions'";
+    private static final String ACTION_SELECT_COUNT = "SELECT COUNT(*) FROM '{prefix}actions'";
+    private static final String ACTION_SELECT_PAGE_ORDER = " ORDER BY time DESC, id DESC LIMIT ? OFFSET ?";
+
+    private static final String[] ACTION_INDEXED_COLUMNS = {"actor_uuid", "acted_uuid", "acted_name", "time"};
+    private static final Map<String, String> ACTION_INDEX_CREATE = ImmutableMap.of(
+            "H2", "CREATE INDEX ON '{table}' ('{column}')"
+    );
+    private static final String ACTION_INDEX_CREATE_DEFAULT = "CREATE INDEX '{table}_{column}' ON '{table}' ('{column}')";
+
+    /**
+     * The maximum number of users to select in a single query when loading users in bulk
+     */
+    private static final int LOAD_USERS_BATCH_SIZE = 500;
 
     private final LuckPermsPlugin plugin;
     
@@ -157,6 +202,39 @@ public class SqlStorage implements StorageImplementation {
 
         if (!tableExists) {
             applySchema();
+        } else {
+            applyIndexes();
+        }
+    }
+
+    /**
+     * Adds indexes to existing tables which were created using an older version of the schema.
+     */
+    private void applyIndexes() {
+        String permissionIndex = PERMISSION_INDEX_CREATE.getOrDefault(this.connectionFactory.getImplementationName(), PERMISSION_INDEX_CREATE_DEFAULT);
+        applyIndex("{prefix}user_permissions", "permission", permissionIndex);
+        applyIndex("{prefix}group_permissions", "permission", permissionIndex);
+
+        String actionIndex = ACTION_INDEX_CREATE.getOrDefault(this.connectionFactory.getImplementationName(), ACTION_INDEX_CREATE_DEFAULT);
+        for (String column : ACTION_INDEXED_COLUMNS) {
+            applyIndex("{prefix}actions", column, actionIndex);
+        }
+    }
+
+    private void applyIndex(String table, String column, String query) {
+        String tableName = this.statementProcessor.apply(table);
+        try (Connection c = this.connectionFactory.getConnection()) {
+            if (indexExists(c, tableName, column)) {
+                return;
+            }
+
+            this.plugin.getLogger().info("Adding " + column + " index to the " + tableName + " table, this may take a while...");
+            try (Statement s = c.createStatement()) {
+                s.execute(this.statementProcessor.apply(query.replace("{table}", table).replace("{column}", column)));
+            }
+        } catch (SQLException e) {
+            this.plugin.getLogger().warn("Unable to add " + column + " index to the " + tableName + " table");
+            e.printStackTrace();
         }
     }
 
@@ -245,6 +323,37 @@ public class SqlStorage implements StorageImplementation {
         return log.build();
     }
 
+    @Override
+    public LogPage getLogPage(ActionFilter filter, int offset, int limit) throws SQLException {
+        List<Object> variables = new ArrayList<>();
+        String where = buildActionFilter(filter, variables);
+
+        List<LoggedAction> content = new ArrayList<>();
+        int total;
+        try (Connection c = this.connectionFactory.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(ACTION_SELECT_COUNT + where))) {
+                setVariables(ps, variables);
+                try (ResultSet rs = ps.executeQuery()) {
+                    total = rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+
+            if (limit > 0 && offset < total) {
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(ACTION_SELECT_ALL + where + ACTION_SELECT_PAGE_ORDER))) {
+                    setVariables(ps, variables);
+                    ps.setInt(variables.size() + 1, limit);
+                    ps.setInt(variables.size() + 2, offset);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            content.add(readAction(rs));
+                        }
+                    }
+                }
+            }
+        }
+        return new LogPage(content, offset, total);
+    }
+
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) throws SQLException {
         try (Connection c = this.connectionFactory.getConnection()) {
@@ -262,6 +371,19 @@ public class SqlStorage implements StorageImplementation {
                 }
             }
         }
+
+        // a bulk update can change rows in place, which doesn't change the version
+        // the journals are checked against - so fall back to a full diff on the next save
+        if (bulkUpdate.getDataType().isIncludingUsers()) {
+            for (User user : this.plugin.getUserManager().getAll().values()) {
+                user.normalData().getJournal().invalidate();
+            }
+        }
+        if (bulkUpdate.getDataType().isIncludingGroups()) {
+            for (Group group : this.plugin.getGroupManager().getAll().values()) {
+                group.normalData().getJournal().invalidate();
+            }
+        }
     }
 
     @Override
@@ -270,72 +392,145 @@ public class SqlStorage implements StorageImplementation {
         user.getIoLock().lock();
         try {
             List<SqlNode> nodes;
-            String primaryGroup = null;
-            String savedUsername = null;
+            SqlPlayerData playerData;
 
             try (Connection c = this.connectionFactory.getConnection()) {
-                nodes = selectUserPermissions(new ArrayList<>(), c, user.getUniqueId());
-
-                SqlPlayerData playerData = selectPlayerData(c, user.getUniqueId());
-                if (playerData != null) {
-                    primaryGroup = playerData.primaryGroup;
-                    savedUsername = playerData.username;
-                }
+                nodes = selectPermissions(new ArrayList<>(), c, PermissionTable.USER, user.getUniqueId().toString());
+                playerData = selectPlayerData(c, user.getUniqueId());
             }
 
-            // update username & primary group
-            if (primaryGroup == null) {
-                primaryGroup = GroupManager.DEFAULT_GROUP_NAME;
-            }
-            user.getPrimaryGroup().setStoredValue(primaryGroup);
+            applyUserData(user, nodes, playerData);
+        } finally {
+            user.getIoLock().unlock();
+        }
+        return user;
+    }
 
-            // Update their username to what was in the storage if the one in the local instance is null
-            user.setUsername(savedUsername, true);
+    @Override
+    public Map<UUID, User> loadUsers(Collection<UUID> uniqueIds) throws SQLException {
+        Map<UUID, User> users = new HashMap<>();
+        for (List<UUID> batch : Iterables.partition(new TreeSet<>(uniqueIds), LOAD_USERS_BATCH_SIZE)) {
+            // read the batch without holding any user locks, so saves aren't held up by the round trips.
+            // the io version of each user is recorded first, so that a load or save which happens
+            // before the result is applied can be detected.
+            Map<UUID, Long> versions = new HashMap<>();
+            for (UUID uniqueId : batch) {
+                versions.put(uniqueId, this.plugin.getUserManager().getOrMake(uniqueId).getIoVersion());
+            }
 
-            if (!nodes.isEmpty()) {
-                user.setNodes(DataType.NORMAL, nodes.stream().map(SqlNode::toNode));
+            Map<UUID, List<SqlNode>> nodes = new HashMap<>();
+            Map<UUID, SqlPlayerData> playerData = new HashMap<>();
+            try (Connection c = this.connectionFactory.getConnection()) {
+                selectMultiplePermissions(c, batch, nodes);
+                selectMultiplePlayerData(c, batch, playerData);
+            } catch (SQLException e) {
+                // fallback to loading the users in the batch individually
+                e.printStackTrace();
+                Iterators.tryIterate(batch, uniqueId -> users.put(uniqueId, loadUser(uniqueId, null)));
+                continue;
+            }
 
-                // Save back to the store if data they were given any defaults or had permissions expire
-                if (this.plugin.getUserManager().giveDefaultIfNeeded(user, false) | user.auditTemporaryNodes()) {
-                    // This should be fine, as the lock will be acquired by the same thread.
-                    saveUser(user);
+            // then apply each result under that users own lock
+            for (UUID uniqueId : batch) {
+                User user = this.plugin.getUserManager().getOrMake(uniqueId);
+                user.getIoLock().lock();
+                try {
+                    if (user.getIoVersion() == versions.get(uniqueId)) {
+                        applyUserData(user, nodes.getOrDefault(uniqueId, new ArrayList<>()), playerData.get(uniqueId));
+                    } else {
+                        // the user was loaded or saved after the batch was read, so the result may be stale
+                        loadUser(uniqueId, null);
+                    }
+                    users.put(uniqueId, user);
+                } catch (Exception e) {
+                    this.plugin.getLogger().warn("Unable to load user " + uniqueId);
+                    e.printStackTrace();
+                } finally {
+                    user.getIoLock().unlock();
                 }
+            }
+        }
+        return users;
+    }
 
-            } else {
-                if (this.plugin.getUserManager().shouldSave(user)) {
-                    user.clearNodes(DataType.NORMAL, null, true);
-                    user.getPrimaryGroup().setStoredValue(null);
-                    this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
-                }
+    @Override
+    public UserLoginResult loginUser(UUID uniqueId, String username) throws SQLException {
+        User user = this.plugin.getUserManager().getOrMake(uniqueId, username);
+        user.getIoLock().lock();
+        try {
+            PlayerSaveResult saveResult;
+            List<SqlNode> nodes;
+            SqlPlayerData playerData;
+
+            try (Connection c = this.connectionFactory.getConnection()) {
+                playerData = selectPlayerData(c, uniqueId);
+                saveResult = savePlayerData(c, uniqueId, username.toLowerCase(), playerData);
+                nodes = selectPermissions(new ArrayList<>(), c, PermissionTable.USER, uniqueId.toString());
             }
+
+            // the stored player data now reflects the save
+            String primaryGroup = playerData == null ? GroupManager.DEFAULT_GROUP_NAME : playerData.primaryGroup;
+            playerData = new SqlPlayerData(primaryGroup, username.toLowerCase());
+
+            applyUserData(user, nodes, playerData);
+            return new UserLoginResult(saveResult, user);
         } finally {
             user.getIoLock().unlock();
         }
-        return user;
+    }
+
+    private void applyUserData(User user, List<SqlNode> nodes, @Nullable SqlPlayerData playerData) throws SQLException {
+        user.incrementIoVersion();
+
+        String primaryGroup = null;
+        String savedUsername = null;
+        if (playerData != null) {
+            primaryGroup = playerData.primaryGroup;
+            savedUsername = playerData.username;
+        }
+
+        // update username & primary group
+        if (primaryGroup == null) {
+            primaryGroup = GroupManager.DEFAULT_GROUP_NAME;
+        }
+        user.getPrimaryGroup().setStoredValue(primaryGroup);
+
+        // Update their username to what was in the storage if the one in the local instance is null
+        user.setUsername(savedUsername, true);
+
+        if (!nodes.isEmpty()) {
+            user.setNodesAndTrack(DataType.NORMAL, nodes.stream().map(SqlNode::toNode), PermissionsVersion.of(nodes));
+
+            // Save back to the store if data they were given any defaults or had permissions expire
+            if (this.plugin.getUserManager().giveDefaultIfNeeded(user, false) | user.auditTemporaryNodes()) {
+                // This should be fine, as the lock will be acquired by the same thread.
+                saveUser(user);
+            }
+
+        } else {
+            if (this.plugin.getUserManager().shouldSave(user)) {
+                user.clearNodes(DataType.NORMAL, null, true);
+                user.getPrimaryGroup().setStoredValue(null);
+                this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
+            }
+        }
     }
 
     @Override
     public void saveUser(User user) throws SQLException {
         user.getIoLock().lock();
         try {
+            user.incrementIoVersion();
             if (!this.plugin.getUserManager().shouldSave(user)) {
+                user.normalData().getJournal().invalidate();
                 try (Connection c = this.connectionFactory.getConnection()) {
                     deleteUser(c, user.getUniqueId());
                 }
                 return;
             }
 
-            Set<SqlNode> remote;
             try (Connection c = this.connectionFactory.getConnection()) {
-                remote = selectUserPermissions(new HashSet<>(), c, user.getUniqueId());
-            }
-
-            Set<SqlNode> local = user.normalData().immutable().values().stream().map(SqlNode::fromNode).collect(Collectors.toSet());
-            Set<SqlNode> missingFromRemote = getMissingFromRemote(local, remote);
-            Set<SqlNode> missingFromLocal = getMissingFromLocal(local, remote);
-
-            try (Connection c = this.connectionFactory.getConnection()) {
-                updateUserPermissions(c, user.getUniqueId(), missingFromRemote, missingFromLocal);
+                savePermissions(c, PermissionTable.USER, user.getUniqueId().toString(), user.normalData());
                 insertPlayerData(c, user.getUniqueId(), new SqlPlayerData(
                         user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME),
                         user.getUsername().orElse("null").toLowerCase()
@@ -412,11 +607,11 @@ public class SqlStorage implements StorageImplementation {
         try {
             List<SqlNode> nodes;
             try (Connection c = this.connectionFactory.getConnection()) {
-                nodes = selectGroupPermissions(new ArrayList<>(), c, group.getName());
+                nodes = selectPermissions(new ArrayList<>(), c, PermissionTable.GROUP, group.getName());
             }
 
             if (!nodes.isEmpty()) {
-                group.setNodes(DataType.NORMAL, nodes.stream().map(SqlNode::toNode));
+                group.setNodesAndTrack(DataType.NORMAL, nodes.stream().map(SqlNode::toNode), PermissionsVersion.of(nodes));
             } else {
                 group.clearNodes(DataType.NORMAL, null, false);
             }
@@ -445,25 +640,15 @@ public class SqlStorage implements StorageImplementation {
         group.getIoLock().lock();
         try {
             if (group.normalData().immutable().isEmpty()) {
+                group.normalData().getJournal().invalidate();
                 try (Connection c = this.connectionFactory.getConnection()) {
                     deleteGroupPermissions(c, group.getName());
                 }
                 return;
             }
 
-            Set<SqlNode> remote;
             try (Connection c = this.connectionFactory.getConnection()) {
-                remote = selectGroupPermissions(new HashSet<>(), c, group.getName());
-            }
-
-            Set<SqlNode> local = group.normalData().immutable().values().stream().map(SqlNode::fromNode).collect(Collectors.toSet());
-            Set<SqlNode> missingFromRemote = getMissingFromRemote(local, remote);
-            Set<SqlNode> missingFromLocal = getMissingFromLocal(local, remote);
-
-            if (!missingFromLocal.isEmpty() || !missingFromRemote.isEmpty()) {
-                try (Connection c = this.connectionFactory.getConnection()) {
-                    updateGroupPermissions(c, group.getName(), missingFromRemote, missingFromLocal);
-                }
+                savePermissions(c, PermissionTable.GROUP, group.getName(), group.normalData());
             }
         } finally {
             group.getIoLock().unlock();
@@ -603,27 +788,37 @@ public class SqlStorage implements StorageImplementation {
 
     @Override
     public PlayerSaveResult savePlayerData(UUID uniqueId, String username) throws SQLException {
-        username = username.toLowerCase();
+        try (Connection c = this.connectionFactory.getConnection()) {
+            return savePlayerData(c, uniqueId, username.toLowerCase(), selectPlayerData(c, uniqueId));
+        }
+    }
 
-        // find any existing mapping
-        String oldUsername = getPlayerName(uniqueId);
+    private PlayerSaveResult savePlayerData(Connection c, UUID uniqueId, String username, @Nullable SqlPlayerData existing) throws SQLException {
+        String oldUsername = existing == null ? null : existing.username;
 
         // do the insert
         if (!username.equals(oldUsername)) {
-            try (Connection c = this.connectionFactory.getConnection()) {
-                if (oldUsername != null) {
-                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_UPDATE_USERNAME_FOR_UUID))) {
-                        ps.setString(1, username);
-                        ps.setString(2, uniqueId.toString());
-                        ps.execute();
-                    }
-                } else {
-                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_INSERT))) {
-                        ps.setString(1, uniqueId.toString());
-                        ps.setString(2, username);
-                        ps.setString(3, GroupManager.DEFAULT_GROUP_NAME);
-                        ps.execute();
-                    }
+            String upsert = PLAYER_UPSERT.get(this.connectionFactory.getImplementationName());
+            if (upsert != null) {
+                // use the native upsert, in case the player has been inserted since the select
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(upsert))) {
+                    ps.setString(1, uniqueId.toString());
+                    ps.setString(2, username);
+                    ps.setString(3, GroupManager.DEFAULT_GROUP_NAME);
+                    ps.execute();
+                }
+            } else if (existing != null) {
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_UPDATE_USERNAME_FOR_UUID))) {
+                    ps.setString(1, username);
+                    ps.setString(2, uniqueId.toString());
+                    ps.execute();
+                }
+            } else {
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_INSERT))) {
+                    ps.setString(1, uniqueId.toString());
+                    ps.setString(2, username);
+                    ps.setString(3, GroupManager.DEFAULT_GROUP_NAME);
+                    ps.execute();
                 }
             }
         }
@@ -631,26 +826,22 @@ public class SqlStorage implements StorageImplementation {
         PlayerSaveResultImpl result = PlayerSaveResultImpl.determineBaseResult(username, oldUsername);
 
         Set<UUID> conflicting = new HashSet<>();
-        try (Connection c = this.connectionFactory.getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_ALL_UUIDS_BY_USERNAME))) {
-                ps.setString(1, username);
-                ps.setString(2, uniqueId.toString());
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        conflicting.add(UUID.fromString(rs.getString("uuid")));
-                    }
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_ALL_UUIDS_BY_USERNAME))) {
+            ps.setString(1, username);
+            ps.setString(2, uniqueId.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    conflicting.add(UUID.fromString(rs.getString("uuid")));
                 }
             }
         }
 
         if (!conflicting.isEmpty()) {
             // remove the mappings for conflicting uuids
-            try (Connection c = this.connectionFactory.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_DELETE_ALL_UUIDS_BY_USERNAME))) {
-                    ps.setString(1, username);
-                    ps.setString(2, uniqueId.toString());
-                    ps.execute();
-                }
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_DELETE_ALL_UUIDS_BY_USERNAME))) {
+                ps.setString(1, username);
+                ps.setString(2, uniqueId.toString());
+                ps.execute();
             }
             result = result.withOtherUuidsPresent(conflicting);
         }
@@ -699,6 +890,54 @@ public class SqlStorage implements StorageImplementation {
         ps.setString(7, action.getDescription());
     }
 
+    private static String buildActionFilter(ActionFilter filter, List<Object> variables) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.getSourceUniqueId() != null) {
+            conditions.add("actor_uuid = ?");
+            variables.add(filter.getSourceUniqueId().toString());
+        }
+        if (filter.getTargetType() != null) {
+            conditions.add("type = ?");
+            variables.add(Character.toString(LoggedAction.getTypeCharacter(filter.getTargetType())));
+        }
+        if (filter.getTargetUniqueId() != null) {
+            conditions.add("acted_uuid = ?");
+            variables.add(filter.getTargetUniqueId().toString());
+        }
+        if (filter.getTargetName() != null) {
+            conditions.add("acted_name = ?");
+            variables.add(filter.getTargetName());
+        }
+        if (filter.getAfter() != null) {
+            conditions.add("time >= ?");
+            variables.add(filter.getAfter().getEpochSecond());
+        }
+        if (filter.getBefore() != null) {
+            conditions.add("time < ?");
+            variables.add(filter.getBefore().getEpochSecond());
+        }
+        if (filter.getSearch() != null) {
+            String pattern = "%" + filter.getSearch().replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+            conditions.add("(LOWER(actor_name) LIKE ? ESCAPE ? OR LOWER(acted_name) LIKE ? ESCAPE ? OR LOWER(action) LIKE ? ESCAPE ?)");
+            for (int i = 0; i < 3; i++) {
+                variables.add(pattern);
+                variables.add("!");
+            }
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static void setVariables(PreparedStatement ps, List<Object> variables) throws SQLException {
+        for (int i = 0; i < variables.size(); i++) {
+            Object variable = variables.get(i);
+            if (variable instanceof Long) {
+                ps.setLong(i + 1, (Long) variable);
+            } else {
+                ps.setString(i + 1, (String) variable);
+            }
+        }
+    }
+
     private static LoggedAction readAction(ResultSet rs) throws SQLException {
         final String actedUuid = rs.getString("acted_uuid");
         return LoggedAction.build()
@@ -746,31 +985,58 @@ public class SqlStorage implements StorageImplementation {
         return missingFromLocal;
     }
 
-    private <T extends Collection<SqlNode>> T selectUserPermissions(T nodes, Connection c, UUID user) throws SQLException {
-        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_SELECT))) {
+    private SqlPlayerData selectPlayerData(Connection c, UUID user) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_BY_UUID))) {
             ps.setString(1, user.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return new SqlPlayerData(rs.getString("primary_group"), rs.getString("username"));
+                } else {
+                    return null;
+                }
+            }
+        }
+    }
+
+    private void selectMultiplePermissions(Connection c, List<UUID> users, Map<UUID, List<SqlNode>> nodes) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_SELECT_MULTIPLE + placeholders(users.size())))) {
+            for (int i = 0; i < users.size(); i++) {
+                ps.setString(i + 1, users.get(i).toString());
+            }
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    nodes.add(readNode(rs));
+                    UUID uniqueId = UUID.fromString(rs.getString("uuid"));
+                    nodes.computeIfAbsent(uniqueId, x -> new ArrayList<>()).add(readNode(rs));
                 }
             }
         }
-        return nodes;
     }
 
-    private SqlPlayerData selectPlayerData(Connection c, UUID user) throws SQLException {
-        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_BY_UUID))) {
-            ps.setString(1, user.toString());
+    private void selectMultiplePlayerData(Connection c, List<UUID> users, Map<UUID, SqlPlayerData> playerData) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_MULTIPLE_BY_UUID + placeholders(users.size())))) {
+            for (int i = 0; i < users.size(); i++) {
+                ps.setString(i + 1, users.get(i).toString());
+            }
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return new SqlPlayerData(rs.getString("primary_group"), rs.getString("username"));
-                } else {
-                    return null;
+                while (rs.next()) {
+                    UUID uniqueId = UUID.fromString(rs.getString("uuid"));
+                    playerData.put(uniqueId, new SqlPlayerData(rs.getString("primary_group"), rs.getString("username")));
                 }
             }
         }
     }
 
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < count; i++) {
+            if (i != 0) {
+                sb.append(", ");
+            }
+            sb.append('?');
+        }
+        return sb.append(')').toString();
+    }
+
     private void deleteUser(Connection c, UUID user) throws SQLException {
         try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_DELETE))) {
             ps.setString(1, user.toString());
@@ -783,9 +1049,31 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
-    private void updateUserPermissions(Connection c, UUID user, Set<SqlNode> add, Set<SqlNode> delete) throws SQLException {
+    private <T extends Collection<SqlNode>> T selectPermissions(T nodes, Connection c, PermissionTable table, String holder) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(table.select))) {
+            ps.setString(1, holder);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    nodes.add(readNode(rs));
+                }
+            }
+        }
+        return nodes;
+    }
+
+    private PermissionsVersion selectPermissionsVersion(Connection c, PermissionTable table, String holder) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(table.selectVersion))) {
+            ps.setString(1, holder);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return new PermissionsVersion(rs.getLong(1), rs.getLong(2));
+            }
+        }
+    }
+
+    private void updatePermissions(Connection c, PermissionTable table, String holder, Set<SqlNode> add, Set<SqlNode> delete) throws SQLException {
         if (!delete.isEmpty()) {
-            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_DELETE_SPECIFIC))) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(table.deleteSpecific))) {
                 for (SqlNode node : delete) {
                     ps.setLong(1, node.getSqlId());
                     ps.addBatch();
@@ -793,10 +1081,27 @@ public class SqlStorage implements StorageImplementation {
                 ps.executeBatch();
             }
         }
+        insertPermissions(c, table, holder, add);
+    }
+
+    private void insertPermissions(Connection c, PermissionTable table, String holder, Set<SqlNode> add) throws SQLException {
         if (!add.isEmpty()) {
-            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_INSERT))) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(table.insert))) {
                 for (SqlNode node : add) {
-                    ps.setString(1, user.toString());
+                    ps.setString(1, holder);
+                    writeNode(node, ps);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    private void deleteMatchingPermissions(Connection c, PermissionTable table, String holder, Set<SqlNode> delete) throws SQLException {
+        if (!delete.isEmpty()) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(table.deleteMatching))) {
+                for (SqlNode node : delete) {
+                    ps.setString(1, holder);
                     writeNode(node, ps);
                     ps.addBatch();
                 }
@@ -805,6 +1110,118 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    /**
+     * Saves the nodes in the given {@link NodeMap} to a permissions table.
+     *
+     * <p>If the maps {@link NodeMapJournal journal} holds the changes made since the nodes
+     * were last loaded or saved, and the remote data hasn't changed since then, only
+     * those changes are written. Otherwise, the remote data is read and compared with
+     * the local nodes.</p>
+     *
+     * <p>The changes are made in a single transaction, unless the database is a flatfile,
+     * in which case the connection is shared between threads.</p>
+     *
+     * @param c the connection
+     * @param table the table
+     * @param holder the holder identifier
+     * @param data the nodes to save
+     * @throws SQLException if an error occurs
+     */
+    private void savePermissions(Connection c, PermissionTable table, String holder, NodeMap data) throws SQLException {
+        NodeMapJournal journal = data.getJournal();
+        NodeMapJournal.Changes changes = journal.drain();
+
+        boolean transaction = !(this.connectionFactory instanceof FlatfileConnectionFactory);
+        boolean autoCommit = c.getAutoCommit();
+        if (transaction) {
+            c.setAutoCommit(false);
+        }
+        try {
+            PermissionsVersion version = changes == null ? null : applyJournaledChanges(c, table, holder, changes);
+            if (version != null) {
+                if (transaction) {
+                    c.commit();
+                }
+                journal.persisted(changes.getToken(), version);
+                return;
+            }
+
+            // fallback to comparing with the remote data. changes made after this
+            // point are recorded in the journal, and written by the next save.
+            NodeMapJournal.Snapshot snapshot = data.startTracking();
+
+            Set<SqlNode> remote = selectPermissions(new HashSet<>(), c, table, holder);
+            Set<SqlNode> local = snapshot.getNodes().values().stream().map(SqlNode::fromNode).collect(Collectors.toSet());
+            Set<SqlNode> missingFromRemote = getMissingFromRemote(local, remote);
+            Set<SqlNode> missingFromLocal = getMissingFromLocal(local, remote);
+            updatePermissions(c, table, holder, missingFromRemote, missingFromLocal);
+
+            version = selectPermissionsVersion(c, table, holder);
+            if (transaction) {
+                c.commit();
+            }
+            journal.persisted(snapshot.getToken(), version);
+        } catch (SQLException | RuntimeException e) {
+            if (transaction) {
+                c.rollback();
+            }
+            journal.invalidate();
+            throw e;
+        } finally {
+            if (transaction) {
+                c.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Attempts to apply the given journaled changes to the remote data.
+     *
+     * @param c the connection
+     * @param table the table
+     * @param holder the holder identifier
+     * @param changes the changes
+     * @return the new remote version, or null if the changes couldn't be applied
+     * @throws SQLException if an error occurs
+     */
+    private @Nullable PermissionsVersion applyJournaledChanges(Connection c, PermissionTable table, String holder, NodeMapJournal.Changes changes) throws SQLException {
+        PermissionsVersion expected = (PermissionsVersion) changes.getState();
+        if (!expected.equals(selectPermissionsVersion(c, table, holder))) {
+            // the remote data was changed by another process
+            return null;
+        }
+
+        // work out the net change to each node
+        Map<SqlNode, Integer> delta = new LinkedHashMap<>();
+        for (NodeMapJournal.Change change : changes.getChanges()) {
+            delta.merge(SqlNode.fromNode(change.getNode()), change.isAdded() ? 1 : -1, Integer::sum);
+        }
+
+        Set<SqlNode> add = new LinkedHashSet<>();
+        Set<SqlNode> delete = new LinkedHashSet<>();
+        for (Map.Entry<SqlNode, Integer> e : delta.entrySet()) {
+            if (e.getValue() > 0) {
+                add.add(e.getKey());
+            } else if (e.getValue() < 0) {
+                delete.add(e.getKey());
+            }
+        }
+
+        if (add.isEmpty() && delete.isEmpty()) {
+            return expected;
+        }
+
+        deleteMatchingPermissions(c, table, holder, delete);
+        insertPermissions(c, table, holder, add);
+
+        // check the changes applied cleanly, e.g. each deleted node matched exactly one row
+        PermissionsVersion version = selectPermissionsVersion(c, table, holder);
+        if (version.count != expected.count + add.size() - delete.size()) {
+            return null;
+        }
+        return version;
+    }
+
     private void insertPlayerData(Connection c, UUID user, SqlPlayerData data) throws SQLException {
         boolean hasPrimaryGroupSaved;
         try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_PRIMARY_GROUP_BY_UUID))) {
@@ -844,18 +1261,6 @@ public class SqlStorage implements StorageImplementation {
         return groups;
     }
 
-    private <T extends Collection<SqlNode>> T selectGroupPermissions(T nodes, Connection c, String group) throws SQLException {
-        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_SELECT))) {
-            ps.setString(1, group);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    nodes.add(readNode(rs));
-                }
-            }
-        }
-        return nodes;
-    }
-
     private void deleteGroupPermissions(Connection c, String group) throws SQLException {
         try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_DELETE))) {
             ps.setString(1, group);
@@ -863,28 +1268,6 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
-    private void updateGroupPermissions(Connection c, String group, Set<SqlNode> add, Set<SqlNode> delete) throws SQLException {
-        if (!delete.isEmpty()) {
-            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_DELETE_SPECIFIC))) {
-                for (SqlNode node : delete) {
-                    ps.setLong(1, node.getSqlId());
-                    ps.addBatch();
-                }
-                ps.executeBatch();
-            }
-        }
-        if (!add.isEmpty()) {
-            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_INSERT))) {
-                for (SqlNode node : add) {
-                    ps.setString(1, group);
-                    writeNode(node, ps);
-                    ps.addBatch();
-                }
-                ps.executeBatch();
-            }
-        }
-    }
-
     private List<String> selectTrack(Connection c, String name) throws SQLException {
         String groups;
         try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(TRACK_SELECT))) {
@@ -930,6 +1313,34 @@ public class SqlStorage implements StorageImplementation {
         return tracks;
     }
 
+    private static boolean indexExists(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+
+        // find the table name, as stored by the database
+        String storedTable = null;
+        try (ResultSet rs = metaData.getTables(null, null, "%", null)) {
+            while (rs.next()) {
+                if (rs.getString(3).equalsIgnoreCase(table)) {
+                    storedTable = rs.getString(3);
+                    break;
+                }
+            }
+        }
+        if (storedTable == null) {
+            return false;
+        }
+
+        try (ResultSet rs = metaData.getIndexInfo(null, null, storedTable, false, true)) {
+            while (rs.next()) {
+                String indexColumn = rs.getString("COLUMN_NAME");
+                if (indexColumn != null && indexColumn.equalsIgnoreCase(column)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
     private static boolean tableExists(Connection connection, String table) throws SQLException {
         try (ResultSet rs = connection.getMetaData().getTables(null, null, "%", null)) {
             while (rs.next()) {
@@ -941,6 +1352,65 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    /**
+     * The statements used to read and write the permissions of each type of holder.
+     */
+    private enum PermissionTable {
+        USER(USER_PERMISSIONS_SELECT, USER_PERMISSIONS_SELECT_VERSION, USER_PERMISSIONS_DELETE_SPECIFIC, USER_PERMISSIONS_DELETE_MATCHING, USER_PERMISSIONS_INSERT),
+        GROUP(GROUP_PERMISSIONS_SELECT, GROUP_PERMISSIONS_SELECT_VERSION, GROUP_PERMISSIONS_DELETE_SPECIFIC, GROUP_PERMISSIONS_DELETE_MATCHING, GROUP_PERMISSIONS_INSERT);
+
+        private final String select;
+        private final String selectVersion;
+        private final String deleteSpecific;
+        private final String deleteMatching;
+        private final String insert;
+
+        PermissionTable(String select, String selectVersion, String deleteSpecific, String deleteMatching, String insert) {
+            this.select = select;
+            this.selectVersion = selectVersion;
+            this.deleteSpecific = deleteSpecific;
+            this.deleteMatching = deleteMatching;
+            this.insert = insert;
+        }
+    }
+
+    /**
+     * The version of a holders remote permission data, used to detect changes made by other processes.
+     *
+     * <p>Any insert increases the maximum row id, and any delete without an insert reduces
+     * the row count.</p>
+     */
+    private static final class PermissionsVersion {
+        private final long count;
+        private final long maxId;
+
+        PermissionsVersion(long count, long maxId) {
+            this.count = count;
+            this.maxId = maxId;
+        }
+
+        static PermissionsVersion of(Collection<SqlNode> nodes) {
+            long maxId = 0;
+            for (SqlNode node : nodes) {
+                maxId = Math.max(maxId, node.getSqlId());
+            }
+            return new PermissionsVersion(nodes.size(), maxId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PermissionsVersion)) return false;
+            PermissionsVersion other = (PermissionsVersion) o;
+            return this.count == other.count && this.maxId == other.maxId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(this.count) * 31 + Long.hashCode(this.maxId);
+        }
+    }
+
     private static final class SqlPlayerData {
         private final String primaryGroup;
         private final String username;
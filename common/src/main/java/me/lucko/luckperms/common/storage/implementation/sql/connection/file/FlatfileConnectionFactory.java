@@ -34,7 +34,7 @@ import java.text.DecimalFormat;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-abstract class FlatfileConnectionFactory implements ConnectionFactory {
+public abstract class FlatfileConnectionFactory implements ConnectionFactory {
     protected static final DecimalFormat DF = new DecimalFormat("#.##");
 
     protected final Path file;
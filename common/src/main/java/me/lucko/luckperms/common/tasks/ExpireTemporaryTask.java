@@ -39,14 +39,12 @@ public class ExpireTemporaryTask implements Runnable {
 
     @Override
     public void run() {
-        boolean groupChanges = false;
         for (Group group : this.plugin.getGroupManager().getAll().values()) {
             if (shouldSkip(group)) {
                 continue;
             }
             if (group.auditTemporaryNodes()) {
                 this.plugin.getStorage().saveGroup(group);
-                groupChanges = true;
             }
         }
 
@@ -58,11 +56,6 @@ public class ExpireTemporaryTask implements Runnable {
                 this.plugin.getStorage().saveUser(user);
             }
         }
-
-        if (groupChanges) {
-            this.plugin.getGroupManager().invalidateAllGroupCaches();
-            this.plugin.getUserManager().invalidateAllUserCaches();
-        }
     }
 
     // return true if the holder's io lock is currently held, false otherwise
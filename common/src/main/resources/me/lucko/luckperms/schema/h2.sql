@@ -12,6 +12,7 @@ CREATE TABLE `{prefix}user_permissions` (
   PRIMARY KEY (`id`)
 );
 CREATE INDEX ON `{prefix}user_permissions` (`uuid`);
+CREATE INDEX ON `{prefix}user_permissions` (`permission`);
 
 CREATE TABLE `{prefix}group_permissions` (
   `id`         INT AUTO_INCREMENT NOT NULL,
@@ -25,6 +26,7 @@ CREATE TABLE `{prefix}group_permissions` (
   PRIMARY KEY (`id`)
 );
 CREATE INDEX ON `{prefix}group_permissions` (`name`);
+CREATE INDEX ON `{prefix}group_permissions` (`permission`);
 
 CREATE TABLE `{prefix}players` (
   `uuid`          VARCHAR(36) NOT NULL,
@@ -50,6 +52,10 @@ CREATE TABLE `{prefix}actions` (
   `action`     VARCHAR(300)       NOT NULL,
   PRIMARY KEY (`id`)
 );
+CREATE INDEX ON `{prefix}actions` (`actor_uuid`);
+CREATE INDEX ON `{prefix}actions` (`acted_uuid`);
+CREATE INDEX ON `{prefix}actions` (`acted_name`);
+CREATE INDEX ON `{prefix}actions` (`time`);
 
 CREATE TABLE `{prefix}tracks` (
   `name`   VARCHAR(36) NOT NULL,
@@ -11,6 +11,7 @@ CREATE TABLE `{prefix}user_permissions` (
   `contexts`   VARCHAR(200)        NOT NULL
 );
 CREATE INDEX `{prefix}user_permissions_uuid` ON `{prefix}user_permissions` (`uuid`);
+CREATE INDEX `{prefix}user_permissions_permission` ON `{prefix}user_permissions` (`permission`);
 
 CREATE TABLE `{prefix}group_permissions` (
   `id`         INTEGER PRIMARY KEY NOT NULL,
@@ -23,6 +24,7 @@ CREATE TABLE `{prefix}group_permissions` (
   `contexts`   VARCHAR(200)        NOT NULL
 );
 CREATE INDEX `{prefix}group_permissions_name` ON `{prefix}group_permissions` (`name`);
+CREATE INDEX `{prefix}group_permissions_permission` ON `{prefix}group_permissions` (`permission`);
 
 CREATE TABLE `{prefix}players` (
   `uuid`          VARCHAR(36) NOT NULL,
@@ -47,6 +49,10 @@ CREATE TABLE `{prefix}actions` (
   `acted_name` VARCHAR(36)         NOT NULL,
   `action`     VARCHAR(300)        NOT NULL
 );
+CREATE INDEX `{prefix}actions_actor_uuid` ON `{prefix}actions` (`actor_uuid`);
+CREATE INDEX `{prefix}actions_acted_uuid` ON `{prefix}actions` (`acted_uuid`);
+CREATE INDEX `{prefix}actions_acted_name` ON `{prefix}actions` (`acted_name`);
+CREATE INDEX `{prefix}actions_time` ON `{prefix}actions` (`time`);
 
 CREATE TABLE `{prefix}tracks` (
   `name`   VARCHAR(36) NOT NULL,
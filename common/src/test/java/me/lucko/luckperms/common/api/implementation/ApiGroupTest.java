@@ -0,0 +1,95 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.api.implementation;
+
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.node.types.Inheritance;
+import me.lucko.luckperms.common.node.types.Permission;
+import me.lucko.luckperms.common.plugin.TestPlugin;
+
+import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.query.QueryOptions;
+import net.luckperms.api.util.Tristate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ApiGroupTest {
+    private static final String PERMISSION = "test.permission";
+
+    private TestPlugin plugin;
+    private Group parent;
+    private User user;
+
+    @BeforeEach
+    void setup() {
+        this.plugin = new TestPlugin();
+
+        // user -> child -> parent
+        this.parent = this.plugin.getGroupManager().getOrMake("parent");
+        Group child = this.plugin.getGroupManager().getOrMake("child");
+        child.setNodes(DataType.NORMAL, Collections.singleton(Inheritance.builder("parent").build()));
+
+        this.user = this.plugin.getUserManager().getOrMake(new UUID(0, 1));
+        this.user.setNodes(DataType.NORMAL, Collections.singleton(Inheritance.builder("child").build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.plugin.close();
+    }
+
+    private Tristate check() {
+        return this.user.getCachedData().getPermissionData(QueryOptions.nonContextual()).checkPermission(PERMISSION);
+    }
+
+    @Test
+    void testAddInvalidatesDependents() {
+        // populate the users cache before the change
+        assertEquals(Tristate.UNDEFINED, check());
+
+        new ApiGroup(this.parent).data().add(Permission.builder().permission(PERMISSION).build());
+        assertEquals(Tristate.TRUE, check());
+    }
+
+    @Test
+    void testClearInvalidatesDependents() {
+        ApiGroup apiGroup = new ApiGroup(this.parent);
+        apiGroup.data().add(Permission.builder().permission(PERMISSION).build());
+        assertEquals(Tristate.TRUE, check());
+
+        // clearing fully invalidates the group, which must also discard the snapshot held by the child group
+        apiGroup.data().clear(node -> node.getKey().equals(PERMISSION));
+        assertEquals(Tristate.UNDEFINED, check());
+    }
+}
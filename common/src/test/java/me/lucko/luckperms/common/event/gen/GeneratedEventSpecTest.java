@@ -0,0 +1,182 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.event.gen;
+
+import net.luckperms.api.event.LuckPermsEvent;
+import net.luckperms.api.event.type.Cancellable;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class GeneratedEventSpecTest {
+
+    /**
+     * Finds the event interfaces by listing the classes in the api event package.
+     *
+     * @return the event interfaces
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Class<? extends LuckPermsEvent>> findEventClasses() throws Exception {
+        String packagePath = LuckPermsEvent.class.getPackage().getName().replace('.', '/') + '/';
+        Path location = Paths.get(LuckPermsEvent.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+        List<String> classFiles = new ArrayList<>();
+        if (Files.isDirectory(location)) {
+            try (Stream<Path> files = Files.walk(location.resolve(packagePath))) {
+                files.map(file -> location.relativize(file).toString().replace(File.separatorChar, '/'))
+                        .filter(name -> name.endsWith(".class"))
+                        .forEach(classFiles::add);
+            }
+        } else {
+            try (JarFile jar = new JarFile(location.toFile())) {
+                jar.stream().map(JarEntry::getName)
+                        .filter(name -> name.startsWith(packagePath) && name.endsWith(".class"))
+                        .forEach(classFiles::add);
+            }
+        }
+
+        List<Class<? extends LuckPermsEvent>> eventClasses = new ArrayList<>();
+        for (String classFile : classFiles) {
+            String className = classFile.substring(0, classFile.length() - ".class".length()).replace('/', '.');
+            Class<?> clazz = Class.forName(className, false, LuckPermsEvent.class.getClassLoader());
+            if (clazz.isInterface() && clazz != LuckPermsEvent.class && LuckPermsEvent.class.isAssignableFrom(clazz)) {
+                eventClasses.add((Class<? extends LuckPermsEvent>) clazz);
+            }
+        }
+        return eventClasses;
+    }
+
+    @TestFactory
+    List<DynamicTest> testAllEvents() throws Exception {
+        List<Class<? extends LuckPermsEvent>> eventClasses = findEventClasses();
+
+        // guard against the scan silently finding nothing
+        assertTrue(eventClasses.size() > 30, "only found " + eventClasses.size() + " event classes");
+
+        List<DynamicTest> tests = new ArrayList<>();
+        for (Class<? extends LuckPermsEvent> eventClass : eventClasses) {
+            tests.add(DynamicTest.dynamicTest(eventClass.getSimpleName(), () -> testEvent(eventClass)));
+        }
+        return tests;
+    }
+
+    private static void testEvent(Class<? extends LuckPermsEvent> eventClass) throws ReflectiveOperationException {
+        GeneratedEventSpec spec = GeneratedEventSpec.lookup(eventClass);
+        assertSame(eventClass, spec.getEventClass());
+
+        List<Method> methods = spec.getMethods();
+        Object[] params = new Object[methods.size()];
+        for (int i = 0; i < params.length; i++) {
+            params[i] = sample(methods.get(i).getReturnType());
+        }
+
+        LuckPermsEvent event = spec.newInstance(null, params);
+        assertTrue(eventClass.isInstance(event));
+        assertSame(eventClass, event.getEventType());
+        assertNull(event.getLuckPerms());
+
+        // each getter returns the argument passed for it
+        for (int i = 0; i < params.length; i++) {
+            assertSame(params[i], methods.get(i).invoke(event), methods.get(i).toString());
+        }
+
+        // default methods still work on top of the generated getters
+        if (event instanceof Cancellable) {
+            Cancellable cancellable = (Cancellable) event;
+            assertFalse(cancellable.isCancelled());
+            cancellable.setCancelled(true);
+            assertTrue(cancellable.cancellationState().get());
+        }
+
+        assertNotNull(event.toString());
+
+        // the class is only generated once
+        assertSame(spec, GeneratedEventSpec.lookup(eventClass));
+        assertEquals(event.getClass(), spec.newInstance(null, params).getClass());
+    }
+
+    /**
+     * Creates a distinct sample value of the given type.
+     *
+     * @param type the type
+     * @return the sample value
+     */
+    private static Object sample(Class<?> type) {
+        if (type == String.class) {
+            return new String("sample");
+        }
+        if (type == UUID.class) {
+            return UUID.randomUUID();
+        }
+        if (type == Optional.class) {
+            return Optional.of(new Object());
+        }
+        if (type == AtomicBoolean.class) {
+            return new AtomicBoolean(false);
+        }
+        if (type.isEnum()) {
+            return type.getEnumConstants()[0];
+        }
+        if (type.isInterface()) {
+            return Proxy.newProxyInstance(GeneratedEventSpecTest.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Sample" + type.getSimpleName();
+                    default:
+                        throw new UnsupportedOperationException(method.toString());
+                }
+            });
+        }
+        return fail("no sample value for " + type);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiringMessageIdSetTest {
+    private static final UUID A = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID B = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+    private static final UUID C = UUID.fromString("00000000-0000-0000-0000-00000000000c");
+    private static final UUID D = UUID.fromString("00000000-0000-0000-0000-00000000000d");
+
+    @Test
+    void testDuplicates() {
+        ExpiringMessageIdSet set = new ExpiringMessageIdSet(1, TimeUnit.HOURS, 100);
+
+        assertTrue(set.add(A));
+        assertTrue(set.add(B));
+        assertFalse(set.add(A));
+        assertFalse(set.add(A));
+
+        assertEquals(2, set.size());
+        assertEquals(2, set.getDuplicateCount());
+    }
+
+    @Test
+    void testRotationBySize() {
+        ExpiringMessageIdSet set = new ExpiringMessageIdSet(1, TimeUnit.HOURS, 2);
+        assertTrue(set.add(A));
+        assertTrue(set.add(B));
+
+        // the current generation is full, so it becomes the previous generation
+        assertTrue(set.add(C));
+        assertFalse(set.add(A));
+        assertEquals(4, set.size());
+
+        // the generation holding B is discarded
+        assertTrue(set.add(D));
+        assertTrue(set.add(B));
+
+        // never more than two full generations
+        assertEquals(4, set.size());
+    }
+
+    @Test
+    void testRotationByTime() {
+        // with no window, the generations are rotated on every add
+        ExpiringMessageIdSet set = new ExpiringMessageIdSet(0, TimeUnit.MILLISECONDS, 100);
+        assertTrue(set.add(A));
+        assertFalse(set.add(A));
+
+        assertTrue(set.add(B));
+        assertTrue(set.add(C));
+        assertTrue(set.add(A));
+        assertEquals(2, set.size());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging;
+
+import me.lucko.luckperms.common.messaging.message.BatchMessageImpl;
+import me.lucko.luckperms.common.messaging.message.GroupUpdateMessageImpl;
+import me.lucko.luckperms.common.messaging.message.TrackUpdateMessageImpl;
+import me.lucko.luckperms.common.messaging.message.UpdateMessageImpl;
+import me.lucko.luckperms.common.messaging.message.UserUpdateMessageImpl;
+import me.lucko.luckperms.common.plugin.scheduler.ManualSchedulerAdapter;
+
+import net.luckperms.api.messenger.message.OutgoingMessage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutgoingMessageBatcherTest {
+    private static final UUID USER = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+
+    private ManualSchedulerAdapter scheduler;
+    private List<OutgoingMessage> sent;
+    private OutgoingMessageBatcher batcher;
+
+    @BeforeEach
+    void setup() {
+        this.scheduler = new ManualSchedulerAdapter();
+        this.sent = new ArrayList<>();
+        this.batcher = new OutgoingMessageBatcher(this.scheduler, this.sent::add, UUID::randomUUID);
+    }
+
+    private List<OutgoingMessage> sentBatch() {
+        assertEquals(1, this.sent.size());
+        assertTrue(this.sent.get(0) instanceof BatchMessageImpl);
+        return ((BatchMessageImpl) this.sent.get(0)).getMessages();
+    }
+
+    @Test
+    void testSingleMessage() {
+        OutgoingMessage message = new GroupUpdateMessageImpl(UUID.randomUUID(), "admin");
+        this.batcher.send(message);
+        assertTrue(this.sent.isEmpty());
+
+        this.scheduler.runDelayedTasks();
+
+        // a single message isn't wrapped in a batch
+        assertEquals(1, this.sent.size());
+        assertSame(message, this.sent.get(0));
+    }
+
+    @Test
+    void testDeduplicateTargetedUpdates() {
+        OutgoingMessage admin = new GroupUpdateMessageImpl(UUID.randomUUID(), "admin");
+        OutgoingMessage user = new UserUpdateMessageImpl(UUID.randomUUID(), USER);
+        OutgoingMessage track = new TrackUpdateMessageImpl(UUID.randomUUID(), "admin");
+
+        this.batcher.send(admin);
+        this.batcher.send(user);
+        this.batcher.send(new GroupUpdateMessageImpl(UUID.randomUUID(), "admin"));
+        this.batcher.send(new UserUpdateMessageImpl(UUID.randomUUID(), USER));
+        this.batcher.send(track);
+        assertEquals(1, this.scheduler.getDelayedTaskCount());
+
+        this.scheduler.runDelayedTasks();
+
+        // the first update for each target is kept, a group & track with the same name are distinct
+        List<OutgoingMessage> batch = sentBatch();
+        assertEquals(3, batch.size());
+        assertSame(admin, batch.get(0));
+        assertSame(user, batch.get(1));
+        assertSame(track, batch.get(2));
+    }
+
+    @Test
+    void testGeneralUpdateReplacesTargetedUpdates() {
+        OutgoingMessage update = new UpdateMessageImpl(UUID.randomUUID());
+
+        this.batcher.send(new GroupUpdateMessageImpl(UUID.randomUUID(), "admin"));
+        this.batcher.send(update);
+        this.batcher.send(new UserUpdateMessageImpl(UUID.randomUUID(), USER));
+        this.batcher.send(new UpdateMessageImpl(UUID.randomUUID()));
+        this.scheduler.runDelayedTasks();
+
+        assertEquals(1, this.sent.size());
+        assertSame(update, this.sent.get(0));
+    }
+
+    @Test
+    void testClose() {
+        OutgoingMessage message = new GroupUpdateMessageImpl(UUID.randomUUID(), "admin");
+        assertTrue(this.batcher.send(message));
+
+        // closing sends the pending messages straight away, and cancels the scheduled flush
+        this.batcher.close();
+        assertEquals(1, this.sent.size());
+        assertEquals(0, this.scheduler.getDelayedTaskCount());
+
+        assertFalse(this.batcher.send(new GroupUpdateMessageImpl(UUID.randomUUID(), "mod")));
+        this.batcher.flush();
+        assertEquals(1, this.sent.size());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model;
+
+import me.lucko.luckperms.common.node.types.Permission;
+import me.lucko.luckperms.common.plugin.TestPlugin;
+
+import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.node.Node;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NodeMapJournalTest {
+    private static final Node LOADED = Permission.builder().permission("test.loaded").build();
+    private static final Node EDITED = Permission.builder().permission("test.edited").build();
+
+    private TestPlugin plugin;
+
+    @BeforeEach
+    void setup() {
+        this.plugin = new TestPlugin();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.plugin.close();
+    }
+
+    @Test
+    void testEditAfterLoadIsJournaled() {
+        Group group = this.plugin.getGroupManager().getOrMake("test");
+        Object state = new Object();
+
+        group.setNodesAndTrack(DataType.NORMAL, Stream.of(LOADED), state);
+        group.setNode(DataType.NORMAL, EDITED, false);
+
+        // the next save applies the edit as a delta against the loaded state
+        NodeMapJournal.Changes changes = group.normalData().getJournal().drain();
+        assertNotNull(changes);
+        assertSame(state, changes.getState());
+        assertEquals(1, changes.getChanges().size());
+
+        NodeMapJournal.Change change = changes.getChanges().get(0);
+        assertTrue(change.isAdded());
+        assertEquals(EDITED.getKey(), change.getNode().getKey());
+    }
+
+    @Test
+    void testConcurrentEditDuringLoad() throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            Group group = this.plugin.getGroupManager().getOrMake("test" + i);
+
+            Thread editor = new Thread(() -> group.setNode(DataType.NORMAL, EDITED, false));
+            editor.start();
+            group.setNodesAndTrack(DataType.NORMAL, Stream.of(LOADED), new Object());
+            editor.join();
+
+            // the edit was either made before the load (and replaced by it),
+            // or after it, in which case it must be journaled
+            boolean present = group.normalData().asSet().stream().anyMatch(n -> n.getKey().equals(EDITED.getKey()));
+            if (present) {
+                NodeMapJournal.Changes changes = group.normalData().getJournal().drain();
+                assertNotNull(changes);
+
+                List<NodeMapJournal.Change> journaled = changes.getChanges();
+                assertTrue(journaled.stream().anyMatch(c -> c.isAdded() && c.getNode().getKey().equals(EDITED.getKey())));
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.plugin;
+
+import me.lucko.luckperms.common.dependencies.classloader.PluginClassLoader;
+import me.lucko.luckperms.common.plugin.bootstrap.LuckPermsBootstrap;
+import me.lucko.luckperms.common.plugin.logging.JavaPluginLogger;
+import me.lucko.luckperms.common.plugin.logging.PluginLogger;
+import me.lucko.luckperms.common.plugin.scheduler.AbstractJavaScheduler;
+
+import net.luckperms.api.platform.Platform;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Bootstrap for {@link TestPlugin}.
+ *
+ * <p>Sync tasks are run inline on the calling thread, and the data directory
+ * is a temporary directory created for each instance.</p>
+ */
+public class TestBootstrap implements LuckPermsBootstrap {
+    private final PluginLogger logger = new JavaPluginLogger(Logger.getLogger("luckperms-tests"));
+    private final Scheduler scheduler = new Scheduler();
+    private final Instant startupTime = Instant.now();
+    private final Path dataDirectory;
+
+    public TestBootstrap() {
+        try {
+            this.dataDirectory = Files.createTempDirectory("luckperms-tests");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public PluginLogger getPluginLogger() {
+        return this.logger;
+    }
+
+    @Override
+    public Scheduler getScheduler() {
+        return this.scheduler;
+    }
+
+    @Override
+    public PluginClassLoader getPluginClassLoader() {
+        throw new UnsupportedOperationException("getPluginClassLoader is not available");
+    }
+
+    @Override
+    public CountDownLatch getLoadLatch() {
+        return new CountDownLatch(0);
+    }
+
+    @Override
+    public CountDownLatch getEnableLatch() {
+        return new CountDownLatch(0);
+    }
+
+    @Override
+    public String getVersion() {
+        return "test";
+    }
+
+    @Override
+    public Instant getStartupTime() {
+        return this.startupTime;
+    }
+
+    @Override
+    public Platform.Type getType() {
+        return Platform.Type.BUKKIT;
+    }
+
+    @Override
+    public String getServerBrand() {
+        return "test";
+    }
+
+    @Override
+    public String getServerVersion() {
+        return "test";
+    }
+
+    @Override
+    public Path getDataDirectory() {
+        return this.dataDirectory;
+    }
+
+    @Override
+    public InputStream getResourceStream(String path) {
+        return getClass().getClassLoader().getResourceAsStream(path);
+    }
+
+    @Override
+    public Optional<?> getPlayer(UUID uniqueId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<UUID> lookupUniqueId(String username) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<String> lookupUsername(UUID uniqueId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public int getPlayerCount() {
+        return 0;
+    }
+
+    @Override
+    public Stream<String> getPlayerList() {
+        return Stream.empty();
+    }
+
+    @Override
+    public Stream<UUID> getOnlinePlayers() {
+        return Stream.empty();
+    }
+
+    @Override
+    public boolean isPlayerOnline(UUID uniqueId) {
+        return false;
+    }
+
+    public static final class Scheduler extends AbstractJavaScheduler {
+        @Override
+        public Executor sync() {
+            return Runnable::run;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.plugin;
+
+import me.lucko.luckperms.common.config.adapter.ConfigurationAdapter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link ConfigurationAdapter} which returns the default value for every
+ * option, unless it has been explicitly overridden using {@link #set(String, Object)}.
+ */
+public class TestConfigAdapter implements ConfigurationAdapter {
+    private final LuckPermsPlugin plugin;
+    private final Map<String, Object> overrides = new HashMap<>();
+
+    public TestConfigAdapter(LuckPermsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public TestConfigAdapter set(String path, Object value) {
+        this.overrides.put(path, value);
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(String path, T def) {
+        return (T) this.overrides.getOrDefault(path, def);
+    }
+
+    @Override
+    public LuckPermsPlugin getPlugin() {
+        return this.plugin;
+    }
+
+    @Override
+    public void reload() {
+
+    }
+
+    @Override
+    public String getString(String path, String def) {
+        return get(path, def);
+    }
+
+    @Override
+    public int getInteger(String path, int def) {
+        return get(path, def);
+    }
+
+    @Override
+    public boolean getBoolean(String path, boolean def) {
+        return get(path, def);
+    }
+
+    @Override
+    public List<String> getStringList(String path, List<String> def) {
+        return get(path, def);
+    }
+
+    @Override
+    public List<String> getKeys(String path, List<String> def) {
+        return get(path, def);
+    }
+
+    @Override
+    public Map<String, String> getStringMap(String path, Map<String, String> def) {
+        return get(path, def);
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.plugin;
+
+import com.google.common.collect.ImmutableList;
+
+import me.lucko.luckperms.common.actionlog.LogDispatcher;
+import me.lucko.luckperms.common.api.ApiRegistrationUtil;
+import me.lucko.luckperms.common.api.LuckPermsApiProvider;
+import me.lucko.luckperms.common.api.MinimalApiProvider;
+import me.lucko.luckperms.common.calculator.CalculatorFactory;
+import me.lucko.luckperms.common.calculator.PermissionCalculator;
+import me.lucko.luckperms.common.calculator.processor.MapProcessor;
+import me.lucko.luckperms.common.calculator.processor.RegexProcessor;
+import me.lucko.luckperms.common.calculator.processor.WildcardProcessor;
+import me.lucko.luckperms.common.command.CommandManager;
+import me.lucko.luckperms.common.config.AbstractConfiguration;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.context.ContextManager;
+import me.lucko.luckperms.common.context.QueryOptionsSupplier;
+import me.lucko.luckperms.common.dependencies.DependencyManager;
+import me.lucko.luckperms.common.event.AbstractEventBus;
+import me.lucko.luckperms.common.event.EventDispatcher;
+import me.lucko.luckperms.common.extension.SimpleExtensionManager;
+import me.lucko.luckperms.common.inheritance.InheritanceHandler;
+import me.lucko.luckperms.common.locale.LocaleManager;
+import me.lucko.luckperms.common.messaging.InternalMessagingService;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.model.manager.group.StandardGroupManager;
+import me.lucko.luckperms.common.model.manager.track.StandardTrackManager;
+import me.lucko.luckperms.common.model.manager.user.StandardUserManager;
+import me.lucko.luckperms.common.plugin.logging.PluginLogger;
+import me.lucko.luckperms.common.plugin.util.AbstractConnectionListener;
+import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.storage.Storage;
+import me.lucko.luckperms.common.storage.implementation.file.watcher.FileWatcher;
+import me.lucko.luckperms.common.tasks.SyncTask;
+import me.lucko.luckperms.common.treeview.PermissionRegistry;
+import me.lucko.luckperms.common.verbose.VerboseHandler;
+import me.lucko.luckperms.common.web.BytebinClient;
+
+import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.query.QueryOptions;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * A minimal {@link LuckPermsPlugin} which provides just enough of the plugin
+ * environment to build holders, caches and calculators outside of a server.
+ *
+ * <p>Storage, messaging, commands and other platform services are not
+ * available, and will throw if accessed.</p>
+ *
+ * <p>Also used by the benchmarks module, which depends on the test output
+ * of this module.</p>
+ */
+public class TestPlugin implements LuckPermsPlugin {
+    private final TestBootstrap bootstrap;
+    private final LuckPermsConfiguration configuration;
+    private final VerboseHandler verboseHandler;
+    private final PermissionRegistry permissionRegistry;
+    private final EventDispatcher eventDispatcher;
+    private final StandardUserManager userManager;
+    private final StandardGroupManager groupManager;
+    private final StandardTrackManager trackManager;
+    private final TestContextManager contextManager;
+    private final InheritanceHandler inheritanceHandler;
+    private final CalculatorFactory calculatorFactory;
+
+    public TestPlugin() {
+        this(config -> {});
+    }
+
+    public TestPlugin(Consumer<TestConfigAdapter> configOverrides) {
+        // the api is used by some of the default config values
+        ApiRegistrationUtil.registerProvider(MinimalApiProvider.INSTANCE);
+
+        TestConfigAdapter configAdapter = new TestConfigAdapter(this);
+        configOverrides.accept(configAdapter);
+
+        this.bootstrap = new TestBootstrap();
+        this.configuration = new AbstractConfiguration(this, configAdapter);
+        this.verboseHandler = new VerboseHandler(this.bootstrap.getScheduler());
+        this.permissionRegistry = new PermissionRegistry(this.bootstrap.getScheduler());
+        this.eventDispatcher = new EventDispatcher(new TestEventBus(this));
+        this.inheritanceHandler = new InheritanceHandler(this);
+        this.userManager = new StandardUserManager(this);
+        this.groupManager = new StandardGroupManager(this);
+        this.trackManager = new StandardTrackManager(this);
+        this.contextManager = new TestContextManager(this);
+        this.calculatorFactory = (queryOptions, metadata) -> new PermissionCalculator(this, metadata, ImmutableList.of(
+                new MapProcessor(),
+                new RegexProcessor(),
+                new WildcardProcessor()
+        ));
+    }
+
+    /**
+     * Stops the background tasks started by this instance.
+     */
+    public void close() {
+        this.verboseHandler.close();
+        this.permissionRegistry.close();
+        this.bootstrap.getScheduler().shutdownScheduler();
+        ApiRegistrationUtil.unregisterProvider();
+    }
+
+    @Override
+    public TestBootstrap getBootstrap() {
+        return this.bootstrap;
+    }
+
+    @Override
+    public StandardUserManager getUserManager() {
+        return this.userManager;
+    }
+
+    @Override
+    public StandardGroupManager getGroupManager() {
+        return this.groupManager;
+    }
+
+    @Override
+    public StandardTrackManager getTrackManager() {
+        return this.trackManager;
+    }
+
+    @Override
+    public LuckPermsConfiguration getConfiguration() {
+        return this.configuration;
+    }
+
+    @Override
+    public Storage getStorage() {
+        throw new UnsupportedOperationException("getStorage is not available");
+    }
+
+    @Override
+    public Optional<InternalMessagingService> getMessagingService() {
+        return Optional.empty();
+    }
+
+    @Override
+    public void setMessagingService(InternalMessagingService service) {
+        throw new UnsupportedOperationException("setMessagingService is not available");
+    }
+
+    @Override
+    public PluginLogger getLogger() {
+        return this.bootstrap.getPluginLogger();
+    }
+
+    @Override
+    public EventDispatcher getEventDispatcher() {
+        return this.eventDispatcher;
+    }
+
+    @Override
+    public LuckPermsApiProvider getApiProvider() {
+        throw new UnsupportedOperationException("getApiProvider is not available");
+    }
+
+    @Override
+    public SimpleExtensionManager getExtensionManager() {
+        throw new UnsupportedOperationException("getExtensionManager is not available");
+    }
+
+    @Override
+    public CommandManager getCommandManager() {
+        throw new UnsupportedOperationException("getCommandManager is not available");
+    }
+
+    @Override
+    public AbstractConnectionListener getConnectionListener() {
+        throw new UnsupportedOperationException("getConnectionListener is not available");
+    }
+
+    @Override
+    public LocaleManager getLocaleManager() {
+        throw new UnsupportedOperationException("getLocaleManager is not available");
+    }
+
+    @Override
+    public DependencyManager getDependencyManager() {
+        throw new UnsupportedOperationException("getDependencyManager is not available");
+    }
+
+    @Override
+    public ContextManager<?> getContextManager() {
+        return this.contextManager;
+    }
+
+    @Override
+    public InheritanceHandler getInheritanceHandler() {
+        return this.inheritanceHandler;
+    }
+
+    @Override
+    public CalculatorFactory getCalculatorFactory() {
+        return this.calculatorFactory;
+    }
+
+    @Override
+    public VerboseHandler getVerboseHandler() {
+        return this.verboseHandler;
+    }
+
+    @Override
+    public PermissionRegistry getPermissionRegistry() {
+        return this.permissionRegistry;
+    }
+
+    @Override
+    public LogDispatcher getLogDispatcher() {
+        throw new UnsupportedOperationException("getLogDispatcher is not available");
+    }
+
+    @Override
+    public Optional<FileWatcher> getFileWatcher() {
+        return Optional.empty();
+    }
+
+    @Override
+    public BytebinClient getBytebin() {
+        throw new UnsupportedOperationException("getBytebin is not available");
+    }
+
+    @Override
+    public Optional<QueryOptions> getQueryOptionsForUser(User user) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Stream<Sender> getOnlineSenders() {
+        return Stream.empty();
+    }
+
+    @Override
+    public Sender getConsoleSender() {
+        throw new UnsupportedOperationException("getConsoleSender is not available");
+    }
+
+    @Override
+    public SyncTask.Buffer getSyncTaskBuffer() {
+        throw new UnsupportedOperationException("getSyncTaskBuffer is not available");
+    }
+
+    private static final class TestEventBus extends AbstractEventBus<Object> {
+        TestEventBus(LuckPermsPlugin plugin) {
+            super(plugin, null);
+        }
+
+        @Override
+        protected Object checkPlugin(Object plugin) throws IllegalArgumentException {
+            return plugin;
+        }
+    }
+
+    private static final class TestContextManager extends ContextManager<Object> {
+        TestContextManager(LuckPermsPlugin plugin) {
+            super(plugin, Object.class);
+        }
+
+        @Override
+        public QueryOptionsSupplier getCacheFor(Object subject) {
+            return this::getStaticQueryOptions;
+        }
+
+        @Override
+        public QueryOptions formQueryOptions(Object subject, ImmutableContextSet contextSet) {
+            return formQueryOptions(contextSet);
+        }
+
+        @Override
+        public void invalidateCache(Object subject) {
+
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.plugin.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link SchedulerAdapter} for tests, which runs tasks on the calling thread.
+ *
+ * <p>Delayed tasks are held until {@link #runDelayedTasks()} is called.</p>
+ */
+public class ManualSchedulerAdapter implements SchedulerAdapter {
+    private final List<Runnable> delayedTasks = new ArrayList<>();
+
+    @Override
+    public Executor async() {
+        return Runnable::run;
+    }
+
+    @Override
+    public Executor sync() {
+        return Runnable::run;
+    }
+
+    @Override
+    public synchronized SchedulerTask asyncLater(Runnable task, long delay, TimeUnit unit) {
+        this.delayedTasks.add(task);
+        return () -> {
+            synchronized (this) {
+                this.delayedTasks.remove(task);
+            }
+        };
+    }
+
+    @Override
+    public SchedulerTask asyncRepeating(Runnable task, long interval, TimeUnit unit) {
+        throw new UnsupportedOperationException("asyncRepeating is not supported in tests");
+    }
+
+    /**
+     * Gets the number of delayed tasks which are waiting to run.
+     *
+     * @return the number of delayed tasks
+     */
+    public synchronized int getDelayedTaskCount() {
+        return this.delayedTasks.size();
+    }
+
+    /**
+     * Runs the delayed tasks which have been scheduled so far.
+     */
+    public void runDelayedTasks() {
+        List<Runnable> tasks;
+        synchronized (this) {
+            tasks = new ArrayList<>(this.delayedTasks);
+            this.delayedTasks.clear();
+        }
+        tasks.forEach(Runnable::run);
+    }
+
+    @Override
+    public void shutdownScheduler() {
+        // nothing to shutdown
+    }
+
+    @Override
+    public void shutdownExecutor() {
+        // nothing to shutdown
+    }
+}
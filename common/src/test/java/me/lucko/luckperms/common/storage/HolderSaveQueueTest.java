@@ -0,0 +1,170 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage;
+
+import me.lucko.luckperms.common.plugin.scheduler.ManualSchedulerAdapter;
+import me.lucko.luckperms.common.util.Throwing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HolderSaveQueueTest {
+    private ManualSchedulerAdapter scheduler;
+    private HolderSaveQueue queue;
+
+    /** The holders which have been written, in order */
+    private List<String> written;
+    private Throwing.Consumer<String> saver;
+
+    @BeforeEach
+    void setup() {
+        this.scheduler = new ManualSchedulerAdapter();
+        this.queue = new HolderSaveQueue(this.scheduler, null, 500, 3);
+        this.written = Collections.synchronizedList(new ArrayList<>());
+        this.saver = this.written::add;
+    }
+
+    @Test
+    void testCoalescing() {
+        CompletableFuture<Void> first = this.queue.enqueue("admin", "admin-1", this.saver);
+        CompletableFuture<Void> second = this.queue.enqueue("admin", "admin-2", this.saver);
+
+        assertEquals(1, this.queue.getPendingCount());
+        assertEquals(1, this.queue.getCoalescedSaves());
+        assertEquals(1, this.scheduler.getDelayedTaskCount());
+        assertTrue(this.written.isEmpty());
+
+        this.scheduler.runDelayedTasks();
+
+        // only the latest holder instance is written
+        assertEquals(Collections.singletonList("admin-2"), this.written);
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertEquals(0, this.queue.getPendingCount());
+    }
+
+    @Test
+    void testFlushWhenFull() {
+        this.queue.enqueue("admin", "admin", this.saver);
+        this.queue.enqueue("mod", "mod", this.saver);
+        assertTrue(this.written.isEmpty());
+
+        // reaching the max pending count flushes straight away
+        this.queue.enqueue("default", "default", this.saver);
+        assertEquals(3, this.written.size());
+        assertEquals(0, this.queue.getPendingCount());
+    }
+
+    @Test
+    void testFlushSingleKey() {
+        CompletableFuture<Void> admin = this.queue.enqueue("admin", "admin", this.saver);
+        CompletableFuture<Void> mod = this.queue.enqueue("mod", "mod", this.saver);
+
+        this.queue.flush("admin");
+        assertEquals(Collections.singletonList("admin"), this.written);
+        assertTrue(admin.isDone());
+        assertFalse(mod.isDone());
+        assertEquals(1, this.queue.getPendingCount());
+
+        this.queue.flush();
+        assertEquals(Arrays.asList("admin", "mod"), this.written);
+        assertTrue(mod.isDone());
+    }
+
+    @Test
+    void testJoinWritesImmediately() {
+        this.queue.enqueue("admin", "admin", this.saver).join();
+
+        assertEquals(Collections.singletonList("admin"), this.written);
+        assertEquals(0, this.queue.getPendingCount());
+    }
+
+    @Test
+    void testSaveWhilstWriting() {
+        // a save made whilst the holder is being written can't be coalesced with that write
+        this.saver = holder -> {
+            this.written.add(holder);
+            if (holder.equals("admin-1")) {
+                this.queue.enqueue("admin", "admin-2", this.saver);
+            }
+        };
+
+        this.queue.enqueue("admin", "admin-1", this.saver).join();
+        assertEquals(Collections.singletonList("admin-1"), this.written);
+        assertEquals(1, this.queue.getPendingCount());
+
+        this.queue.flush();
+        assertEquals(Arrays.asList("admin-1", "admin-2"), this.written);
+        assertEquals(0, this.queue.getPendingCount());
+    }
+
+    @Test
+    void testFailure() {
+        CompletableFuture<Void> future = this.queue.enqueue("admin", "admin", holder -> {
+            throw new IOException("unable to write " + holder);
+        });
+        this.queue.flush();
+
+        CompletionException e = assertThrows(CompletionException.class, future::join);
+        assertTrue(e.getCause() instanceof IOException);
+        assertEquals(0, this.queue.getPendingCount());
+    }
+
+    @Test
+    void testError() {
+        CompletableFuture<Void> failed = this.queue.enqueue("admin", "admin", holder -> {
+            throw new NoClassDefFoundError("unable to write " + holder);
+        });
+        CompletableFuture<Void> other = this.queue.enqueue("mod", "mod", this.saver);
+
+        // the flush still completes, and the remaining saves are written
+        this.queue.flush();
+        assertEquals(Collections.singletonList("mod"), this.written);
+        assertTrue(other.isDone());
+        assertEquals(0, this.queue.getPendingCount());
+
+        CompletionException e = assertThrows(CompletionException.class, failed::join);
+        assertTrue(e.getCause() instanceof NoClassDefFoundError);
+
+        // later flushes don't block on the failed save
+        this.queue.enqueue("admin", "admin", this.saver);
+        this.queue.flush();
+        assertEquals(Arrays.asList("mod", "admin"), this.written);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.implementation.binary;
+
+import com.google.common.collect.ImmutableList;
+
+import me.lucko.luckperms.common.node.types.Inheritance;
+import me.lucko.luckperms.common.node.types.Permission;
+
+import net.luckperms.api.node.Node;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryDataFileTest {
+    private static final UUID USER = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+
+    private static final List<Node> ADMIN_NODES = ImmutableList.of(
+            Permission.builder().permission("luckperms.*").build(),
+            Inheritance.builder("mod").build()
+    );
+    private static final List<Node> MOD_NODES = ImmutableList.of(
+            Permission.builder().permission("luckperms.user.info").value(false).build()
+    );
+
+    @TempDir
+    Path directory;
+
+    private BinaryDataFile file;
+
+    @BeforeEach
+    void setup() throws IOException {
+        this.file = open();
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        this.file.close();
+    }
+
+    private BinaryDataFile open() throws IOException {
+        // run compactions on the calling thread
+        BinaryDataFile file = new BinaryDataFile(this.directory, Runnable::run);
+        file.open();
+        return file;
+    }
+
+    private void reopen() throws IOException {
+        this.file.close();
+        this.file = open();
+    }
+
+    @Test
+    void testReload() throws IOException {
+        this.file.putGroup("admin", ADMIN_NODES);
+        this.file.putGroup("mod", MOD_NODES);
+        this.file.putTrack("staff", Arrays.asList("mod", "admin"));
+        this.file.putUser(USER, "Notch", "admin", MOD_NODES);
+        reopen();
+
+        assertEquals(ADMIN_NODES, this.file.getGroup("admin"));
+        assertEquals(MOD_NODES, this.file.getGroup("mod"));
+        assertEquals(Arrays.asList("mod", "admin"), this.file.getTrack("staff"));
+
+        BinaryDataFile.UserRecord user = this.file.getUser(USER);
+        assertNotNull(user);
+        assertEquals("Notch", user.getUsername());
+        assertEquals("admin", user.getPrimaryGroup());
+        assertEquals(MOD_NODES, user.getNodes());
+    }
+
+    @Test
+    void testDeleteReload() throws IOException {
+        this.file.putGroup("admin", ADMIN_NODES);
+        this.file.putTrack("staff", Arrays.asList("mod", "admin"));
+        this.file.deleteGroup("admin");
+        this.file.deleteTrack("staff");
+        reopen();
+
+        assertNull(this.file.getGroup("admin"));
+        assertNull(this.file.getTrack("staff"));
+        assertTrue(this.file.getGroups().isEmpty());
+    }
+
+    @Test
+    void testCompactReload() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            this.file.putGroup("admin", i % 2 == 0 ? ADMIN_NODES : MOD_NODES);
+        }
+        this.file.putGroup("mod", MOD_NODES);
+        this.file.putUser(USER, "Notch", "mod", ADMIN_NODES);
+        this.file.deleteGroup("mod");
+
+        long size = this.file.getFileSize();
+        this.file.compact();
+        assertEquals(1, this.file.getCompactions());
+        assertTrue(this.file.getFileSize() < size);
+        assertEquals(this.file.getFileSize(), this.file.getLiveSize());
+
+        // append to the compacted file
+        this.file.putTrack("staff", Arrays.asList("default", "admin"));
+        reopen();
+
+        assertEquals(MOD_NODES, this.file.getGroup("admin"));
+        assertFalse(this.file.getGroups().contains("mod"));
+        assertEquals(Arrays.asList("default", "admin"), this.file.getTrack("staff"));
+        assertEquals(ADMIN_NODES, this.file.getUser(USER).getNodes());
+    }
+
+    @Test
+    void testDeleteMissingCompactReload() throws IOException {
+        this.file.putGroup("admin", ADMIN_NODES);
+
+        // deleting something which doesn't exist shouldn't leave anything pending
+        this.file.deleteGroup("missing");
+        this.file.deleteTrack("missing");
+        this.file.compact();
+
+        this.file.putGroup("mod", MOD_NODES);
+        reopen();
+
+        assertEquals(ADMIN_NODES, this.file.getGroup("admin"));
+        assertEquals(MOD_NODES, this.file.getGroup("mod"));
+        assertNull(this.file.getGroup("missing"));
+    }
+
+    @Test
+    void testCorruptLengthReload() throws IOException {
+        this.file.putGroup("admin", ADMIN_NODES);
+        this.file.close();
+
+        // append a record with a length prefix of Integer.MAX_VALUE
+        byte[] corrupt = {BinaryCodec.GROUP, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0, 0, 0, 0};
+        Files.write(this.directory.resolve("data-0.lpb"), corrupt, StandardOpenOption.APPEND);
+
+        // the damaged record is dropped, and the file can be appended to again
+        this.file = open();
+        assertEquals(ADMIN_NODES, this.file.getGroup("admin"));
+
+        this.file.putGroup("mod", MOD_NODES);
+        reopen();
+        assertEquals(ADMIN_NODES, this.file.getGroup("admin"));
+        assertEquals(MOD_NODES, this.file.getGroup("mod"));
+    }
+}
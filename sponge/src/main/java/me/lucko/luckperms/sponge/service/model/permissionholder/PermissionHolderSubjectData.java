@@ -360,12 +360,6 @@ public class PermissionHolderSubjectData implements LPSubjectData {
     }
 
     private CompletableFuture<Void> save(PermissionHolder t) {
-        // if the holder is a group, invalidate caches.
-        if (t.getType() == HolderType.GROUP) {
-            this.service.getPlugin().getGroupManager().invalidateAllGroupCaches();
-            this.service.getPlugin().getUserManager().invalidateAllUserCaches();
-        }
-
         // no further action required for transient types
         if (this.type == DataType.TRANSIENT) {
             return CompletableFuture.completedFuture(null);